@@ -0,0 +1,167 @@
+/*******************************************************************************
+ * CVM - Computer Vision Mobile.
+ * Copyright (C) 2010 CVM Luis Ciudad García
+ * 
+ * File: CvmBareissDeterminant.java - This file is part of CVM.
+ * 
+ * CVM is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * CVM is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with CVM.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package edu.uco.cvm.core;
+
+import java.math.BigInteger;
+
+/**
+ * <p>Cálculo exacto del determinante de matrices de enteros mediante el algoritmo de Bareiss.
+ * Es una eliminación gaussiana sin fracciones: en cada paso los elementos se actualizan como</p>
+ * 
+ * <pre>
+ * a[i][j] = (a[i][j] * a[k][k] - a[i][k] * a[k][j]) / p
+ * </pre>
+ * 
+ * <p>donde p es el pivote del paso anterior. La división siempre es exacta, cada elemento
+ * intermedio es un menor de la matriz original y el último pivote es el determinante, por lo
+ * que el coste es de orden n³ sin ningún error de redondeo.</p>
+ * 
+ * <p>Mientras los elementos caben en 31 bits los productos no pueden desbordar un long y se
+ * trabaja con aritmética de longs. En cuanto algún elemento supera ese límite, el resto de la
+ * eliminación continúa con BigInteger.</p>
+ * 
+ * @version 1.0
+ */
+final class CvmBareissDeterminant {
+	/** Mayor valor absoluto con el que se puede seguir operando con longs. */
+	private static final long LONG_LIMIT = Integer.MAX_VALUE;
+
+	private CvmBareissDeterminant(){
+		}
+
+	/**
+	 * Calcula el determinante de una matriz cuadrada guardada por filas. El array se modifica.
+	 * 
+	 * @param a Elementos de la matriz.
+	 * @param n Orden de la matriz.
+	 * 
+	 * @return Determinante exacto de la matriz, cero si la matriz está vacía.
+	 */
+	static BigInteger determinant(long[] a, int n){
+		if(n == 0)
+			return BigInteger.ZERO;
+
+		long max = 0;
+		for(int i = 0; i < a.length; i++)
+			max = Math.max(max, Math.abs(a[i]));
+		if(max > LONG_LIMIT)
+			return CvmBareissDeterminant.determinant(a, n, 0, 1, 1);
+
+		int sign = 1;
+		long prev = 1;
+
+		for(int k = 0; k < n - 1; k++){
+			int rowK = k * n;
+
+			if(a[rowK + k] == 0){
+				int p = CvmBareissDeterminant.findPivot(a, n, k);
+				if(p < 0)
+					return BigInteger.ZERO;
+
+				for(int j = k, rowP = p * n; j < n; j++){
+					long aux = a[rowK + j];
+					a[rowK + j] = a[rowP + j];
+					a[rowP + j] = aux;
+					}
+				sign = -sign;
+				}
+
+			long pivot = a[rowK + k];
+			max = 0;
+
+			for(int i = k + 1; i < n; i++){
+				int rowI = i * n;
+				long factor = a[rowI + k];
+
+				for(int j = k + 1; j < n; j++){
+					long value = (a[rowI + j] * pivot - factor * a[rowK + j]) / prev;
+					a[rowI + j] = value;
+					max = Math.max(max, Math.abs(value));
+					}
+				}
+
+			prev = pivot;
+
+			if(max > LONG_LIMIT)
+				return CvmBareissDeterminant.determinant(a, n, k + 1, prev, sign);
+			}
+
+		return BigInteger.valueOf(sign * a[n * n - 1]);
+		}
+
+	/**
+	 * Continúa la eliminación con BigInteger a partir del paso indicado.
+	 */
+	private static BigInteger determinant(long[] values, int n, int start, long prevValue, int sign){
+		BigInteger[] a = new BigInteger[values.length];
+		for(int i = 0; i < values.length; i++)
+			a[i] = BigInteger.valueOf(values[i]);
+
+		BigInteger prev = BigInteger.valueOf(prevValue);
+
+		for(int k = start; k < n - 1; k++){
+			int rowK = k * n;
+
+			if(a[rowK + k].signum() == 0){
+				int p = -1;
+				for(int i = k + 1; i < n && p < 0; i++)
+					if(a[i * n + k].signum() != 0)
+						p = i;
+				if(p < 0)
+					return BigInteger.ZERO;
+
+				for(int j = k, rowP = p * n; j < n; j++){
+					BigInteger aux = a[rowK + j];
+					a[rowK + j] = a[rowP + j];
+					a[rowP + j] = aux;
+					}
+				sign = -sign;
+				}
+
+			BigInteger pivot = a[rowK + k];
+
+			for(int i = k + 1; i < n; i++){
+				int rowI = i * n;
+				BigInteger factor = a[rowI + k];
+
+				for(int j = k + 1; j < n; j++)
+					a[rowI + j] = a[rowI + j].multiply(pivot).subtract(factor.multiply(a[rowK + j])).divide(prev);
+				}
+
+			prev = pivot;
+			}
+
+		BigInteger det = a[n * n - 1];
+		return (sign < 0) ? det.negate() : det;
+		}
+
+	/**
+	 * Busca por debajo de la diagonal una fila con un elemento no nulo en la columna k.
+	 * 
+	 * @return Índice de la fila, o -1 si toda la columna es nula.
+	 */
+	private static int findPivot(long[] a, int n, int k){
+		for(int i = k + 1; i < n; i++)
+			if(a[i * n + k] != 0)
+				return i;
+
+		return -1;
+		}
+	}
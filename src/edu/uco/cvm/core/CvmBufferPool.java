@@ -0,0 +1,406 @@
+/*******************************************************************************
+ * CVM - Computer Vision Mobile.
+ * Copyright (C) 2010 CVM Luis Ciudad García
+ * 
+ * File: CvmBufferPool.java - This file is part of CVM.
+ * 
+ * CVM is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * CVM is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with CVM.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package edu.uco.cvm.core;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * <p>Almacén de arrays reutilizables para los datos de matrices y canales. Cada hilo tiene su
+ * propio almacén, por lo que no hace falta sincronización, y los arrays se agrupan por tipo y
+ * longitud exacta. De cada longitud se guardan como mucho MAX_PER_LENGTH arrays.</p>
+ * 
+ * <p>Las operaciones de CvmChannel toman de aquí sus arrays temporales y los devuelven al
+ * terminar, de modo que procesar imágenes del mismo tamaño una y otra vez no genera basura.
+ * Además, mientras haya un ámbito abierto en el hilo, las matrices que se crean en él toman
+ * sus datos del almacén y los devuelven al cerrar el ámbito:</p>
+ * 
+ * <pre>
+ * CvmBufferPool.Scope scope = CvmBufferPool.openScope();
+ * try{
+ *     CvmMatrixInt tmp = a.getAdd(b);
+ *     ...
+ *     }
+ * finally{
+ *     scope.close();
+ *     }
+ * </pre>
+ * 
+ * <p>Scope implementa Closeable, así que en Java 7 o superior puede usarse también con
+ * try-with-resources. Las matrices creadas dentro de un ámbito no deben utilizarse después
+ * de cerrarlo, ya que sus datos pasan a otras matrices. Copiar un resultado dentro del ámbito
+ * no sirve para conservarlo, porque la copia también toma sus datos del almacén. Los
+ * resultados que tengan que sobrevivir al ámbito se marcan con keep, que retira sus datos
+ * del ámbito y los deja en manos del recolector de basura:</p>
+ * 
+ * <pre>
+ * CvmMatrixInt result;
+ * CvmBufferPool.Scope scope = CvmBufferPool.openScope();
+ * try{
+ *     CvmMatrixInt tmp = a.getAdd(b);
+ *     result = CvmBufferPool.keep(tmp.getMul(c));
+ *     }
+ * finally{
+ *     scope.close();
+ *     }
+ * </pre>
+ * 
+ * <p>Los canales de tipo CvmChannel también toman sus datos del almacén, así que una imagen
+ * que deba conservarse entre ámbitos, como el fotograma anterior al procesar vídeo, se marca
+ * igualmente con keep:</p>
+ * 
+ * <pre>
+ * scope = CvmBufferPool.openScope();
+ * try{
+ *     CvmImage frame = new CvmImage(gray);
+ *     ...
+ *     previous = CvmBufferPool.keep(frame);
+ *     }
+ * finally{
+ *     scope.close();
+ *     }
+ * </pre>
+ * 
+ * @version 1.0
+ */
+public final class CvmBufferPool {
+	/** Número máximo de arrays de una misma longitud que se guardan por tipo y por hilo. */
+	public static final int MAX_PER_LENGTH = 4;
+
+	/** Almacén de cada hilo. */
+	private static final ThreadLocal<CvmBufferPool> LOCAL = new ThreadLocal<CvmBufferPool>(){
+		protected CvmBufferPool initialValue(){
+			return new CvmBufferPool();
+			}
+		};
+
+	/** Número de ámbitos abiertos en todos los hilos. Si es cero las matrices no consultan el almacén. */
+	private static final AtomicInteger OPEN_SCOPES = new AtomicInteger();
+
+	private final HashMap<Integer, ArrayList<Object>> ints = new HashMap<Integer, ArrayList<Object>>();
+	private final HashMap<Integer, ArrayList<Object>> doubles = new HashMap<Integer, ArrayList<Object>>();
+	private final HashMap<Integer, ArrayList<Object>> shorts = new HashMap<Integer, ArrayList<Object>>();
+
+	/** Ámbito abierto más interno del hilo, o null si no hay ninguno. */
+	private Scope scope;
+
+	private CvmBufferPool(){
+		}
+
+	/**
+	 * Ámbito en el que las matrices creadas por el hilo toman sus datos del almacén. Al
+	 * cerrarlo todos esos arrays vuelven al almacén. Los ámbitos pueden anidarse, pero deben
+	 * cerrarse en orden inverso al de apertura y desde el mismo hilo.
+	 */
+	public static final class Scope implements Closeable {
+		private final CvmBufferPool pool;
+		private final Scope parent;
+		private final ArrayList<Object> borrowed = new ArrayList<Object>();
+		private boolean closed;
+
+		private Scope(CvmBufferPool pool, Scope parent){
+			this.pool = pool;
+			this.parent = parent;
+			}
+
+		/**
+		 * Devuelve al almacén los arrays de las matrices creadas en el ámbito. Llamar a este
+		 * método más de una vez no tiene efecto.
+		 * 
+		 * @exception IllegalStateException Se lanza si hay un ámbito más interno abierto o si se
+		 * cierra desde otro hilo.
+		 */
+		public void close() throws IllegalStateException {
+			if(this.closed)
+				return;
+			if(this.pool.scope != this || LOCAL.get() != this.pool)
+				throw new IllegalStateException("Scope closed out of order");
+
+			for(int i = 0; i < this.borrowed.size(); i++)
+				this.pool.put(this.borrowed.get(i));
+
+			this.borrowed.clear();
+			this.pool.scope = this.parent;
+			this.closed = true;
+			OPEN_SCOPES.decrementAndGet();
+			}
+		}
+
+	/**
+	 * Abre un ámbito en el hilo actual.
+	 * 
+	 * @return Nuevo ámbito, que debe cerrarse con close.
+	 */
+	public static Scope openScope(){
+		CvmBufferPool pool = LOCAL.get();
+
+		pool.scope = new Scope(pool, pool.scope);
+		OPEN_SCOPES.incrementAndGet();
+
+		return pool.scope;
+		}
+
+	/**
+	 * Toma del almacén del hilo un array de enteros. Su contenido no está definido.
+	 * 
+	 * @param length Longitud del array.
+	 * 
+	 * @return Array de la longitud indicada.
+	 */
+	public static int[] borrowInt(int length){
+		CvmBufferPool pool = LOCAL.get();
+		int[] array = (int[])pool.take(pool.ints, length);
+
+		return (array != null) ? array : new int[length];
+		}
+
+	/**
+	 * Toma del almacén del hilo un array de reales. Su contenido no está definido.
+	 * 
+	 * @param length Longitud del array.
+	 * 
+	 * @return Array de la longitud indicada.
+	 */
+	public static double[] borrowDouble(int length){
+		CvmBufferPool pool = LOCAL.get();
+		double[] array = (double[])pool.take(pool.doubles, length);
+
+		return (array != null) ? array : new double[length];
+		}
+
+	/**
+	 * Toma del almacén del hilo un array de enteros cortos. Su contenido no está definido.
+	 * 
+	 * @param length Longitud del array.
+	 * 
+	 * @return Array de la longitud indicada.
+	 */
+	public static short[] borrowShort(int length){
+		CvmBufferPool pool = LOCAL.get();
+		short[] array = (short[])pool.take(pool.shorts, length);
+
+		return (array != null) ? array : new short[length];
+		}
+
+	/**
+	 * Devuelve un array al almacén del hilo. El array no debe utilizarse después.
+	 * 
+	 * @param array Array de enteros, reales o enteros cortos.
+	 */
+	public static void release(Object array){
+		LOCAL.get().put(array);
+		}
+
+	/**
+	 * Retira los datos de la matriz de los ámbitos abiertos en el hilo, de modo que no vuelven
+	 * al almacén al cerrarlos y la matriz puede seguir utilizándose después. Si la matriz no
+	 * se creó dentro de un ámbito no tiene efecto.
+	 * 
+	 * @param matrix Matriz que debe sobrevivir a los ámbitos abiertos.
+	 * 
+	 * @return La misma matriz.
+	 */
+	public static CvmMatrixInt keep(CvmMatrixInt matrix){
+		CvmBufferPool.detach(matrix.data);
+		return matrix;
+		}
+
+	/**
+	 * Retira los datos de la matriz de los ámbitos abiertos en el hilo. Ver keep(CvmMatrixInt).
+	 */
+	public static CvmMatrixDouble keep(CvmMatrixDouble matrix){
+		CvmBufferPool.detach(matrix.data);
+		return matrix;
+		}
+
+	/**
+	 * Retira los datos de la matriz de los ámbitos abiertos en el hilo. Ver keep(CvmMatrixInt).
+	 */
+	public static CvmMatrixShort keep(CvmMatrixShort matrix){
+		CvmBufferPool.detach(matrix.data);
+		return matrix;
+		}
+
+	/**
+	 * Retira los datos del canal de los ámbitos abiertos en el hilo. Ver keep(CvmMatrixInt).
+	 */
+	public static CvmChannel keep(CvmChannel channel){
+		CvmBufferPool.detach(channel.data);
+		return channel;
+		}
+
+	/**
+	 * Retira los datos de todos los canales de la imagen de los ámbitos abiertos en el hilo.
+	 * Los canales compactos no toman sus datos del almacén y no se ven afectados.
+	 * 
+	 * @param image Imagen que debe sobrevivir a los ámbitos abiertos.
+	 * 
+	 * @return La misma imagen.
+	 */
+	public static CvmImage keep(CvmImage image){
+		image.keepChannels();
+		return image;
+		}
+
+	/**
+	 * Descarta todos los arrays guardados en el almacén del hilo actual.
+	 */
+	public static void clear(){
+		CvmBufferPool pool = LOCAL.get();
+
+		pool.ints.clear();
+		pool.doubles.clear();
+		pool.shorts.clear();
+		}
+
+	/**
+	 * Reserva los datos de una matriz de enteros. Si hay un ámbito abierto en el hilo, el array
+	 * se toma del almacén y queda registrado en el ámbito.
+	 * 
+	 * @param length Número de elementos.
+	 * @param clear Indica si el array debe quedar a cero.
+	 */
+	static int[] allocInt(int length, boolean clear){
+		if(OPEN_SCOPES.get() == 0 || length < 0)
+			return new int[length];
+
+		CvmBufferPool pool = LOCAL.get();
+		if(pool.scope == null)
+			return new int[length];
+
+		int[] array = (int[])pool.take(pool.ints, length);
+		if(array == null)
+			array = new int[length];
+		else if(clear)
+			Arrays.fill(array, 0);
+
+		pool.scope.borrowed.add(array);
+		return array;
+		}
+
+	/**
+	 * Reserva los datos de una matriz de reales. Ver allocInt.
+	 */
+	static double[] allocDouble(int length, boolean clear){
+		if(OPEN_SCOPES.get() == 0 || length < 0)
+			return new double[length];
+
+		CvmBufferPool pool = LOCAL.get();
+		if(pool.scope == null)
+			return new double[length];
+
+		double[] array = (double[])pool.take(pool.doubles, length);
+		if(array == null)
+			array = new double[length];
+		else if(clear)
+			Arrays.fill(array, 0);
+
+		pool.scope.borrowed.add(array);
+		return array;
+		}
+
+	/**
+	 * Reserva los datos de una matriz de enteros cortos. Ver allocInt.
+	 */
+	static short[] allocShort(int length, boolean clear){
+		if(OPEN_SCOPES.get() == 0 || length < 0)
+			return new short[length];
+
+		CvmBufferPool pool = LOCAL.get();
+		if(pool.scope == null)
+			return new short[length];
+
+		short[] array = (short[])pool.take(pool.shorts, length);
+		if(array == null)
+			array = new short[length];
+		else if(clear)
+			Arrays.fill(array, (short)0);
+
+		pool.scope.borrowed.add(array);
+		return array;
+		}
+
+	/**
+	 * Busca el array en los ámbitos abiertos del hilo, del más interno al más externo, y lo
+	 * elimina del primero que lo contenga. La comparación es por identidad.
+	 */
+	private static void detach(Object array){
+		if(OPEN_SCOPES.get() == 0)
+			return;
+
+		for(Scope scope = LOCAL.get().scope; scope != null; scope = scope.parent){
+			ArrayList<Object> borrowed = scope.borrowed;
+
+			for(int i = borrowed.size() - 1; i >= 0; i--){
+				if(borrowed.get(i) == array){
+					borrowed.remove(i);
+					return;
+					}
+				}
+			}
+		}
+
+	/**
+	 * Extrae un array de la longitud indicada, o null si no hay ninguno.
+	 */
+	private Object take(HashMap<Integer, ArrayList<Object>> map, int length){
+		ArrayList<Object> list = map.get(length);
+
+		if(list == null || list.isEmpty())
+			return null;
+
+		return list.remove(list.size() - 1);
+		}
+
+	/**
+	 * Guarda un array en la lista de su tipo y longitud si no está llena.
+	 */
+	private void put(Object array){
+		HashMap<Integer, ArrayList<Object>> map;
+		int length;
+
+		if(array instanceof int[]){
+			map = this.ints;
+			length = ((int[])array).length;
+			}
+		else if(array instanceof double[]){
+			map = this.doubles;
+			length = ((double[])array).length;
+			}
+		else if(array instanceof short[]){
+			map = this.shorts;
+			length = ((short[])array).length;
+			}
+		else
+			throw new IllegalArgumentException("Unsupported array type");
+
+		ArrayList<Object> list = map.get(length);
+		if(list == null){
+			list = new ArrayList<Object>(MAX_PER_LENGTH);
+			map.put(length, list);
+			}
+
+		if(list.size() < MAX_PER_LENGTH)
+			list.add(array);
+		}
+	}
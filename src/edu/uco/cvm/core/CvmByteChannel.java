@@ -0,0 +1,489 @@
+/*******************************************************************************
+ * CVM - Computer Vision Mobile.
+ * Copyright (C) 2010 CVM Luis Ciudad García
+ * 
+ * File: CvmByteChannel.java - This file is part of CVM.
+ * 
+ * CVM is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * CVM is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with CVM.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package edu.uco.cvm.core;
+
+import android.graphics.Bitmap;
+import android.graphics.Bitmap.Config;
+import android.graphics.Color;
+import edu.uco.cvm.exceptions.CvmIncompatibleMatrixSizeException;
+import edu.uco.cvm.exceptions.CvmSingularMatrixException;
+
+/**
+ * <p>Esta clase representa un canal de color de 8 bits en el que cada pixel ocupa un solo byte
+ * sin signo, frente a los cuatro bytes de CvmChannel.</p>
+ * 
+ * <p>Los valores se amplían a entero únicamente dentro de cada operación. Las operaciones que
+ * necesitan valores intermedios más anchos, como applyMask o module, los calculan en enteros y
+ * saturan el resultado al rango [0, 255] al guardarlo. Del mismo modo setElement satura el
+ * valor que recibe.</p>
+ * 
+ * @version 1.0
+ */
+public class CvmByteChannel extends CvmMatrix implements CvmImageChannel {
+	/** Valores de los pixels ordenados por filas. Se interpretan sin signo. */
+	protected byte[] data;
+
+	private final int channel;
+
+	/**
+	 * Crea un canal con todos sus pixels a cero.
+	 * 
+	 * @param rows Número de filas (altura) del canal.
+	 * @param cols Número de columnas (anchura) del canal.
+	 * 
+	 * @exception NegativeArraySizeException Se lanza si las dimensiones son negativas.
+	 */
+	public CvmByteChannel(int rows, int cols) throws NegativeArraySizeException {
+		super(rows, cols);
+
+		this.data = new byte[rows * cols];
+		this.channel = CvmChannel.GRAY;
+		}
+
+	/**
+	 * Crea un canal a partir de un objeto Bitmap. Debe indicarse que canal del Bitmap se quiere
+	 * cargar.
+	 * 
+	 * @param bm Objeto de la clase Bitmap que contiene la información de una imagen.
+	 * @param channel Canal que se quiere guardar.
+	 * 
+	 * @exception NegativeArraySizeException Se lanza en caso de que las dimensiones del Bitmap
+	 * sean negativas.
+	 */
+	public CvmByteChannel(Bitmap bm, int channel) throws NegativeArraySizeException {
+		super(bm.getHeight(), bm.getWidth());
+
+		this.channel = channel;
+		this.data = new byte[this.rows * this.cols];
+
+		int pixels [] = new int[this.cols * this.rows];
+		bm.getPixels(pixels, 0, this.cols, 0, 0, this.cols, this.rows);
+
+		if(channel == CvmChannel.RED){
+			for(int i = 0; i < this.data.length; i++)
+				this.data[i] = (byte)(pixels[i] >> 16);
+			}
+		else if(channel == CvmChannel.GREEN){
+			for(int i = 0; i < this.data.length; i++)
+				this.data[i] = (byte)(pixels[i] >> 8);
+			}
+		else if(channel == CvmChannel.BLUE){
+			for(int i = 0; i < this.data.length; i++)
+				this.data[i] = (byte)pixels[i];
+			}
+		else if(channel == CvmChannel.GRAY){
+			for(int i = 0; i < this.data.length; i++){
+				int color = pixels[i];
+
+				int r = (color >> 16) & 0xff;
+				int g = (color >> 8) & 0xff;
+				int b = color & 0xff;
+
+				this.data[i] = (byte)((11*r + 16*g + 5*b) / 32);
+				}
+			}
+		}
+
+	/**
+	 * Crea un canal compacto con los valores de una matriz de enteros. Los valores fuera del
+	 * rango [0, 255] se saturan.
+	 * 
+	 * @param matrix Matriz con los valores de los pixels.
+	 */
+	public CvmByteChannel(CvmMatrixInt matrix){
+		this(matrix.rows, matrix.cols);
+
+		for(int i = 0; i < this.data.length; i++)
+			this.data[i] = CvmByteChannel.saturate(matrix.data[i]);
+		}
+
+	/**
+	 * Constructor de copia.
+	 * 
+	 * @param copy Canal original que se copiará en el nuevo.
+	 */
+	public CvmByteChannel(CvmByteChannel copy){
+		super(copy.rows, copy.cols);
+
+		this.data = copy.data.clone();
+		this.channel = copy.channel;
+		}
+
+	/**
+	 * Convierte un valor entero al byte sin signo más próximo.
+	 * 
+	 * @param value Valor a convertir.
+	 * 
+	 * @return 0 si el valor es negativo, 255 si es mayor que 255 y el propio valor en otro caso.
+	 */
+	static byte saturate(int value){
+		if(value < 0)
+			return 0;
+		if(value > 255)
+			return (byte)255;
+
+		return (byte)value;
+		}
+
+   /**
+    * Devuelve el valor del pixel que indican los parámetros.
+    * 
+    * @param row Fila del pixel al que se intenta acceder.
+    * @param col Columna del pixel al que se intenta acceder.
+    * 
+    * @return Valor del pixel, entre 0 y 255.
+    * 
+    * @exception ArrayIndexOutOfBoundsException Se produce si los parámetros de filas y columnas
+    * no están dentro de los límites del canal.
+    */
+    public int getElement(int row, int col) throws ArrayIndexOutOfBoundsException {
+    	if(row < 0 || row >= this.rows)
+    		throw new ArrayIndexOutOfBoundsException(row);
+    	if(col < 0 || col >= this.cols)
+    		throw new ArrayIndexOutOfBoundsException(col);
+
+    	return this.data[row * this.cols + col] & 0xff;
+        }
+
+   /**
+    * Guarda el valor deseado en el pixel que indican los parámetros, saturándolo al
+    * rango [0, 255].
+    * 
+    * @param row Fila del pixel al que se intenta acceder.
+    * @param col Columna del pixel al que se intenta acceder.
+    * @param value Valor que se quiere guardar en la posición indicada.
+    * 
+    * @exception ArrayIndexOutOfBoundsException Se produce si los parámetros de filas y columnas
+    * no están dentro de los límites del canal.
+    */
+    public void setElement(int row, int col, int value) throws ArrayIndexOutOfBoundsException {
+    	if(row < 0 || row >= this.rows)
+    		throw new ArrayIndexOutOfBoundsException(row);
+    	if(col < 0 || col >= this.cols)
+    		throw new ArrayIndexOutOfBoundsException(col);
+
+    	this.data[row * this.cols + col] = CvmByteChannel.saturate(value);
+        }
+
+	/**
+	 * Aplica una transformación geométrica sobre cada uno de los pixels que forman el canal,
+	 * con la misma semántica que CvmChannel.applyTransform.
+	 * 
+	 * @param tr Transformación a aplicar sobre los pixels del canal.
+	 * 
+	 * @throws CvmSingularMatrixException La transformación no es invertible.
+	 */
+	public void applyTransform(CvmTransform2D tr) throws CvmSingularMatrixException {
+		CvmTransform2D Ti = tr.getInverse();
+
+		byte[] outdata = new byte[this.rows * this.cols];
+
+		long dx = CvmTransform2D.toFixedCoord(Ti.m01);
+		long dy = CvmTransform2D.toFixedCoord(Ti.m11);
+		long maxX = (long)this.rows << CvmTransform2D.COORD_FRACTION_BITS;
+		long maxY = (long)this.cols << CvmTransform2D.COORD_FRACTION_BITS;
+
+		for(int r = 0, i = 0; r < this.rows; r++){
+			long x = CvmTransform2D.toFixedCoord(Ti.m00 * r + Ti.m02);
+			long y = CvmTransform2D.toFixedCoord(Ti.m10 * r + Ti.m12);
+
+			for(int c = 0; c < this.cols; c++, i++, x += dx, y += dy){
+				if(x <= -CvmTransform2D.COORD_ONE || x >= maxX || y <= -CvmTransform2D.COORD_ONE || y >= maxY){
+					outdata[i] = (byte)255;
+					}
+				else{
+					int px = (x < 0) ? 0 : (int)(x >> CvmTransform2D.COORD_FRACTION_BITS);
+					int py = (y < 0) ? 0 : (int)(y >> CvmTransform2D.COORD_FRACTION_BITS);
+					outdata[i] = this.data[px * this.cols + py];
+					}
+				}
+			}
+
+		System.arraycopy(outdata, 0, this.data, 0, outdata.length);
+		}
+
+	/**
+	 * Aplica una máscara de convolución sobre todos los pixels del canal con la misma semántica
+	 * que CvmChannel.applyMask. La suma se acumula en enteros y el resultado se satura al rango
+	 * [0, 255].
+	 * 
+	 * @param mask Máscara de convolución que se aplica. Debe ser cuadrada.
+	 * 
+	 * @exception CvmIncompatibleMatrixSizeException Se lanza si la máscara no es cuadrada.
+	 */
+	public void applyMask(CvmMatrixDouble mask) throws CvmIncompatibleMatrixSizeException {
+		this.applyMask(mask, CvmChannel.BORDER_CONSTANT, 0);
+		}
+
+	/**
+	 * Aplica una máscara de convolución con el modo de borde indicado, con la misma semántica
+	 * que CvmChannel.applyMask.
+	 * 
+	 * @param mask Máscara de convolución que se aplica. Debe ser cuadrada.
+	 * @param border Modo de borde (CvmChannel.BORDER_CONSTANT, CvmChannel.BORDER_REPLICATE...).
+	 * @param borderValue Valor de los pixels fuera del canal con BORDER_CONSTANT.
+	 * 
+	 * @exception CvmIncompatibleMatrixSizeException Se lanza si la máscara no es cuadrada.
+	 * @exception IllegalArgumentException El modo de borde no existe.
+	 */
+	public void applyMask(CvmMatrixDouble mask, int border, int borderValue) throws CvmIncompatibleMatrixSizeException, IllegalArgumentException {
+		if(mask.cols != mask.rows)
+			throw new CvmIncompatibleMatrixSizeException(mask.rows, mask.cols);
+
+		double[][] kernels = CvmConvolution.separate(mask);
+		if(kernels != null)
+			this.applySeparableMask(kernels[0], kernels[1], border, borderValue);
+		else
+			this.applyScaledMask(mask.scaledMatrixInt(), border, borderValue);
+		}
+
+	/**
+	 * Aplica una máscara de convolución en precisión simple sobre todos los pixels del canal.
+	 * 
+	 * @param mask Máscara de convolución que se aplica. Debe ser cuadrada.
+	 * 
+	 * @exception CvmIncompatibleMatrixSizeException Se lanza si la máscara no es cuadrada.
+	 */
+	public void applyMask(CvmMatrixFloat mask) throws CvmIncompatibleMatrixSizeException {
+		this.applyMask(mask, CvmChannel.BORDER_CONSTANT, 0);
+		}
+
+	/**
+	 * Aplica una máscara de convolución en precisión simple con el modo de borde indicado.
+	 * 
+	 * @param mask Máscara de convolución que se aplica. Debe ser cuadrada.
+	 * @param border Modo de borde (CvmChannel.BORDER_CONSTANT, CvmChannel.BORDER_REPLICATE...).
+	 * @param borderValue Valor de los pixels fuera del canal con BORDER_CONSTANT.
+	 * 
+	 * @exception CvmIncompatibleMatrixSizeException Se lanza si la máscara no es cuadrada.
+	 * @exception IllegalArgumentException El modo de borde no existe.
+	 */
+	public void applyMask(CvmMatrixFloat mask, int border, int borderValue) throws CvmIncompatibleMatrixSizeException, IllegalArgumentException {
+		if(mask.cols != mask.rows)
+			throw new CvmIncompatibleMatrixSizeException(mask.rows, mask.cols);
+
+		double[][] kernels = CvmConvolution.separate(mask);
+		if(kernels != null)
+			this.applySeparableMask(kernels[0], kernels[1], border, borderValue);
+		else
+			this.applyScaledMask(mask.scaledMatrixInt(), border, borderValue);
+		}
+
+	/**
+	 * Aplica una máscara separable dada por sus dos núcleos con la misma semántica que
+	 * CvmChannel.applySeparableMask. El resultado se satura al rango [0, 255].
+	 * 
+	 * @param rowKernel Núcleo que se aplica a lo largo de cada fila.
+	 * @param colKernel Núcleo que se aplica a lo largo de cada columna.
+	 */
+	public void applySeparableMask(double[] rowKernel, double[] colKernel){
+		this.applySeparableMask(rowKernel, colKernel, CvmChannel.BORDER_CONSTANT, 0);
+		}
+
+	/**
+	 * Aplica una máscara separable con el modo de borde indicado. Los pixels se amplían a
+	 * enteros para utilizar las mismas pasadas que CvmChannel y el resultado se satura al
+	 * rango [0, 255].
+	 * 
+	 * @param rowKernel Núcleo que se aplica a lo largo de cada fila.
+	 * @param colKernel Núcleo que se aplica a lo largo de cada columna.
+	 * @param border Modo de borde (CvmChannel.BORDER_CONSTANT, CvmChannel.BORDER_REPLICATE...).
+	 * @param borderValue Valor de los pixels fuera del canal con BORDER_CONSTANT.
+	 * 
+	 * @exception IllegalArgumentException El modo de borde no existe.
+	 */
+	public void applySeparableMask(double[] rowKernel, double[] colKernel, int border, int borderValue) throws IllegalArgumentException {
+		int[] pixels = CvmBufferPool.borrowInt(this.data.length);
+
+		for(int i = 0; i < this.data.length; i++)
+			pixels[i] = this.data[i] & 0xff;
+
+		CvmConvolution.separable(pixels, this.rows, this.cols, rowKernel, colKernel, border, borderValue);
+
+		for(int i = 0; i < this.data.length; i++)
+			this.data[i] = CvmByteChannel.saturate(pixels[i]);
+
+		CvmBufferPool.release(pixels);
+		}
+
+	/**
+	 * Aplica una máscara ya escalada a enteros mediante scaledMatrixInt. Los pixels se amplían
+	 * a enteros para utilizar la misma convolución directa que CvmChannel y el resultado se
+	 * satura al rango [0, 255].
+	 * 
+	 * @param auxMask Máscara escalada, cuadrada.
+	 * @param border Modo de borde.
+	 * @param borderValue Valor de los pixels fuera del canal con BORDER_CONSTANT.
+	 */
+	private void applyScaledMask(CvmMatrixInt auxMask, int border, int borderValue){
+		int[] pixels = CvmBufferPool.borrowInt(this.data.length);
+		int[] outdata = CvmBufferPool.borrowInt(this.data.length);
+
+		for(int i = 0; i < this.data.length; i++)
+			pixels[i] = this.data[i] & 0xff;
+
+		CvmConvolution.direct(pixels, outdata, this.rows, this.cols, auxMask.data, auxMask.cols, auxMask.getFractionBits(), border, borderValue);
+
+		for(int i = 0; i < this.data.length; i++)
+			this.data[i] = CvmByteChannel.saturate(outdata[i]);
+
+		CvmBufferPool.release(outdata);
+		CvmBufferPool.release(pixels);
+		}
+
+	/**
+	 * Aplica una umbralización sobre los pixels del canal con la misma semántica que
+	 * CvmChannel.applyThreshold. Los valores asignados se saturan al rango [0, 255].
+	 * 
+	 * @param threshold Valor umbral.
+	 * @param max Valor máximo que se asigna a los pixels.
+	 * @param method Método de umbralización (CvmChannel.THRES_BINARY, CvmChannel.THRES_OTSU...).
+	 */
+	public void applyThreshold(int threshold, int max, int method){
+		byte min = 0;
+		byte maxValue = CvmByteChannel.saturate(max);
+
+		if(method == CvmChannel.THRES_OTSU){
+			CvmHistogram hist = new CvmHistogram();
+			for(int i = 0; i < this.data.length; i++)
+				hist.increment(this.data[i] & 0xff);
+
+			threshold = CvmChannel.calculateOtsuThreshold(hist, this.data.length);
+			}
+
+		byte thresholdValue = CvmByteChannel.saturate(threshold);
+
+		for(int i = 0; i < this.data.length; i++){
+			boolean above = (this.data[i] & 0xff) > threshold;
+
+			switch(method){
+				default:
+				case CvmChannel.THRES_BINARY:
+				case CvmChannel.THRES_OTSU:
+					this.data[i] = above ? maxValue : min;
+					break;
+				case CvmChannel.THRES_BINARY_INV:
+					this.data[i] = above ? min : maxValue;
+					break;
+				case CvmChannel.THRES_TRUNC:
+					this.data[i] = above ? thresholdValue : this.data[i];
+					break;
+				case CvmChannel.THRES_TO_ZERO:
+					this.data[i] = above ? thresholdValue : min;
+					break;
+				case CvmChannel.THRES_TO_ZERO_INV:
+					this.data[i] = above ? thresholdValue : maxValue;
+					break;
+				}
+			}
+		}
+
+	/**
+	 * Escala los valores del canal para que ocupen todo el rango [0, 255].
+	 */
+	public void normalize(){
+		CvmKernels.normalize(this.data, this.data.length);
+		}
+
+	/**
+	 * Sustituye cada pixel por el módulo del vector formado por él y el pixel correspondiente
+	 * del canal indicado. El resultado se satura a 255.
+	 * 
+	 * @param channel Canal con la segunda componente de cada vector.
+	 * 
+	 * @exception CvmIncompatibleMatrixSizeException Los canales no son del mismo tamaño.
+	 */
+	public void module(CvmByteChannel channel) throws CvmIncompatibleMatrixSizeException {
+		if(this.cols != channel.cols || this.rows != channel.rows)
+			throw new CvmIncompatibleMatrixSizeException(channel.rows, channel.cols);
+
+		for(int i = 0; i < this.data.length; i++){
+			int a = this.data[i] & 0xff;
+			int b = channel.data[i] & 0xff;
+
+			this.data[i] = CvmByteChannel.saturate((int)Math.sqrt(a * a + b * b));
+			}
+		}
+
+	/**
+	 * Calcula el histograma de los valores del canal.
+	 * 
+	 * @return Nuevo histograma del canal.
+	 */
+	public CvmHistogram getValuesHistogram(){
+		CvmHistogram hist = new CvmHistogram();
+
+		for(int i = 0; i < this.data.length; i++)
+			hist.increment(this.data[i] & 0xff);
+
+		return hist;
+		}
+
+	/**
+	 * Crea una copia del canal.
+	 * 
+	 * @return Nuevo canal compacto con los mismos valores.
+	 */
+	public CvmImageChannel copy(){
+		return new CvmByteChannel(this);
+		}
+
+	/**
+	 * Crea una copia del canal con un entero por pixel.
+	 * 
+	 * @return Nuevo canal de enteros con los mismos valores.
+	 */
+	public CvmChannel toChannel(){
+		int[] values = new int[this.data.length];
+
+		for(int i = 0; i < this.data.length; i++)
+			values[i] = this.data[i] & 0xff;
+
+		return new CvmChannel(this.cols, this.rows, values, this.channel);
+		}
+
+	/**
+	 * Calcula la inversa de los valores del canal vistos como una matriz.
+	 * 
+	 * @return Nueva matriz con la inversa.
+	 * 
+	 * @exception CvmSingularMatrixException La matriz es singular y no tiene inversa.
+	 * @exception CvmIncompatibleMatrixSizeException El canal no es cuadrado.
+	 */
+	public CvmMatrixDouble getInverse() throws CvmSingularMatrixException, CvmIncompatibleMatrixSizeException {
+		return this.toChannel().getInverse();
+		}
+
+    /**
+     * Convierte el canal a un Bitmap en escala de grises.
+     * 
+     * @return Equivalente en el formato Bitmap al canal.
+     */
+    public Bitmap toBitmap(){
+    	int pixels[] = new int[this.data.length];
+
+    	for(int i = 0; i < pixels.length; i++){
+    		int value = this.data[i] & 0xff;
+    		pixels[i] = Color.rgb(value, value, value);
+    		}
+
+    	return Bitmap.createBitmap(pixels, this.cols, this.rows, Config.ARGB_8888);
+    	}
+	}
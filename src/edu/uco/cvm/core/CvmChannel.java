@@ -1,6 +1,6 @@
 /*******************************************************************************
  * CVM - Computer Vision Mobile.
- * Copyright (C) 2010 CVM Luis Ciudad Garca
+ * Copyright (C) 2010 CVM Luis Ciudad García
  * 
  * File: CvmChannel.java - This file is part of CVM.
  * 
@@ -26,24 +26,25 @@ import android.graphics.Bitmap.Config;
 import android.graphics.Color;
 import android.util.Log;
 import edu.uco.cvm.exceptions.CvmIncompatibleMatrixSizeException;
+import edu.uco.cvm.exceptions.CvmSingularMatrixException;
 
 /**
  * <p>Esta clase representa cada uno de los canales de color en los que se divide una imagen.</p>
  * 
  * <p>Un canal es una matriz de valores ordenados por filas y columnas (manteniendo la misma 
- * distribucin que los pxeles de la imagen) en la que cada elemento representa el valor 
- * con el que ese canal participa en la formacin de la imagen final.</p>
+ * distribución que los píxeles de la imagen) en la que cada elemento representa el valor 
+ * con el que ese canal participa en la formación de la imagen final.</p>
  * 
- * <p>Dependiendo de la codificacin utilizada, dicha imagen puede contener los canales rojo, 
- * verde y azul (RGB); cian, magenta y amarillo (CMY) o cualquier otra combinacin siempre 
+ * <p>Dependiendo de la codificación utilizada, dicha imagen puede contener los canales rojo, 
+ * verde y azul (RGB); cian, magenta y amarillo (CMY) o cualquier otra combinación siempre 
  * que el elemento que dibuje la imagen sea capaz de descodificarlo. Puede ocurrir que una 
- * imagen solo posea un canal, como en el caso de los imgenes en escala de grises.</p>
+ * imagen solo posea un canal, como en el caso de los imágenes en escala de grises.</p>
  * 
- * @author Luis Ciudad Garca.
+ * @author Luis Ciudad García.
  * @version 1.0
  */
 
-public class CvmChannel extends CvmMatrixInt {
+public class CvmChannel extends CvmMatrixInt implements CvmImageChannel {
 	
 	public static final int GRAY = 0;
 
@@ -63,13 +64,24 @@ public class CvmChannel extends CvmMatrixInt {
 	public static final int THRES_TO_ZERO_INV = 4;
 	public static final int THRES_OTSU = 5;
 	
+	/** Los pixels fuera del canal toman un valor constante: iiiiii|abcdefgh|iiiiiii */
+	public static final int BORDER_CONSTANT = 0;
+	/** Los pixels fuera del canal repiten el del borde: aaaaaa|abcdefgh|hhhhhhh */
+	public static final int BORDER_REPLICATE = 1;
+	/** El canal se refleja incluyendo el pixel del borde: fedcba|abcdefgh|hgfedcb */
+	public static final int BORDER_REFLECT = 2;
+	/** El canal se refleja sin repetir el pixel del borde: gfedcb|abcdefgh|gfedcba */
+	public static final int BORDER_REFLECT_101 = 3;
+	/** El canal se repite de forma periódica: cdefgh|abcdefgh|abcdefg */
+	public static final int BORDER_WRAP = 4;
+	
 	private final int channel;
 	
 	/**
 	 * Crea un canal a partir de un objeto Bitmap. Debe indicarse que canal del Bitmap se quiere
 	 * cargar.
 	 * 
-	 * @param bm Objeto de la clase Bitmap que contiene la informacin de una imagen.
+	 * @param bm Objeto de la clase Bitmap que contiene la información de una imagen.
 	 * @param channel Canal que se quiere guardar.
 	 * 
 	 * @exception NegativeArraySizeException Se lanza en caso de que las dimensiones del Bitmap 
@@ -80,7 +92,7 @@ public class CvmChannel extends CvmMatrixInt {
 		
 		this.channel = channel;
 		
-        int pixels [] = new int[this.cols * this.rows];
+        int pixels [] = CvmBufferPool.borrowInt(this.cols * this.rows);
         bm.getPixels(pixels, 0, this.cols, 0, 0, this.cols, this.rows);
         
 		if(channel == CvmChannel.RED){
@@ -106,6 +118,8 @@ public class CvmChannel extends CvmMatrixInt {
 	            this.data[i] = Math.round((11*r + 16*g + 5*b) /32);
 				}
 			}
+		
+		CvmBufferPool.release(pixels);
 		}
 	
 	public CvmChannel(CvmMatrixInt matrix){
@@ -120,7 +134,7 @@ public class CvmChannel extends CvmMatrixInt {
 	 * 
 	 * @param width Anchura del canalen pixels.
 	 * @param height Altura del canal en pixels.
-	 * @param values Conjunto de valores que tomarn los pixeles del canal.
+	 * @param values Conjunto de valores que tomarán los pixeles del canal.
 	 * 
 	 * @throws NegativeArraySizeException Se lanza si las dimensiones del canal son negativas.
 	 * @throws ArrayIndexOutOfBoundsException Se lanza si las dimensiones de la matriz no coindicen
@@ -138,7 +152,7 @@ public class CvmChannel extends CvmMatrixInt {
 	 * 
 	 * @param width Anchura del canalen pixels.
 	 * @param height Altura del canal en pixels.
-	 * @param values Conjunto de valores que tomarn los pixeles del canal.
+	 * @param values Conjunto de valores que tomarán los pixeles del canal.
 	 * 
 	 * @throws NegativeArraySizeException Se lanza si las dimensiones del canal son negativas.
 	 * @throws ArrayIndexOutOfBoundsException Se lanza si las dimensiones de la matriz no coindicen
@@ -151,130 +165,250 @@ public class CvmChannel extends CvmMatrixInt {
 		}
 	
 	/**
-	 * Aplica una transformacin geomtrica sobre cada uno de los pixels que forman el canal.
-	 * Dicha transformacin se representa en forma de matriz cuadrada de tamao 3x3.
+	 * Aplica una transformación geométrica sobre cada uno de los pixels que forman el canal.
+	 * Dicha transformación se representa en forma de matriz cuadrada de tamaño 3x3.
 	 * 
-	 * @param tr Matrix de transformacin a aplicar sobre los pixels del canal.
+	 * @param tr Matrix de transformación a aplicar sobre los pixels del canal.
 	 * 
-	 * @throws Exception  !!!Controlar que se calcula bien la inversa de la matriz.
-	 * @throws CvmIncompatibleMatrixSizeException Se lanza si la matriz de transformacin ni tiene
+	 * @throws CvmSingularMatrixException La matriz de transformación no es invertible.
+	 * @throws CvmIncompatibleMatrixSizeException Se lanza si la matriz de transformación ni tiene
 	 * unas dimensiones de 3x3.
 	 */
-	public void applyTransform(CvmMatrixDouble tr) throws Exception, CvmIncompatibleMatrixSizeException{
-		if(tr.cols != 3 || tr.rows != 3)
-			throw new CvmIncompatibleMatrixSizeException(tr.rows, tr.cols);
-		
-        int[] outdata = new int[this.rows * this.cols];
+	public void applyTransform(CvmMatrixDouble tr) throws CvmSingularMatrixException, CvmIncompatibleMatrixSizeException{
+		this.applyTransform(new CvmTransform2D(tr));
+		}
+	
+	/**
+	 * <p>Aplica una transformación geométrica sobre cada uno de los pixels que forman el canal.</p>
+	 * 
+	 * <p>Para cada pixel del canal resultante se calcula, mediante la transformación inversa,
+	 * qué pixel del canal original le corresponde. Como la transformación es lineal, las
+	 * coordenadas de origen de cada fila se obtienen sumando un incremento constante por
+	 * columna, sin crear ningún objeto por pixel. Las coordenadas se recorren en coma fija,
+	 * por lo que dentro de cada fila no se realiza ninguna operación en coma flotante. Los pixels sin correspondencia en el canal
+	 * original toman el valor 255.</p>
+	 * 
+	 * @param tr Transformación a aplicar sobre los pixels del canal.
+	 * 
+	 * @throws CvmSingularMatrixException La transformación no es invertible.
+	 */
+	public void applyTransform(CvmTransform2D tr) throws CvmSingularMatrixException{
+		CvmTransform2D Ti = tr.getInverse();
 		
-		CvmMatrixInt Pp = new CvmMatrixInt(3,1);
-        CvmMatrixInt Ti = tr.getInverse().scaledMatrixInt();
-        double scaleFactorInv = 1 / Ti.scaleFactor;
+        int[] outdata = CvmBufferPool.borrowInt(this.rows * this.cols);
+        
+        /** Incrementos por columna y límites del canal en coma fija */
+        long dx = CvmTransform2D.toFixedCoord(Ti.m01);
+        long dy = CvmTransform2D.toFixedCoord(Ti.m11);
+        long maxX = (long)this.rows << CvmTransform2D.COORD_FRACTION_BITS;
+        long maxY = (long)this.cols << CvmTransform2D.COORD_FRACTION_BITS;
         
-        for(int i = 0; i < this.data.length; i++){
-        	/** Para cada pxel incializamos Pp con las coordenadas del punto de la imagen resultante que queremos calcular */
-        	Pp.data[0] = i / this.cols;
-        	Pp.data[1] = i % this.cols;
-        	Pp.data[2] = 1;
+        for(int r = 0, i = 0; r < this.rows; r++){
+        	/** Coordenadas en el canal original del primer pixel de la fila */
+        	long x = CvmTransform2D.toFixedCoord(Ti.m00 * r + Ti.m02);
+        	long y = CvmTransform2D.toFixedCoord(Ti.m10 * r + Ti.m12);
         	
-        	/**
-             * Aplicamos la frmula para saber que pxel de la imagen original corresponde a cada uno de los pxeles de la imagen resultante que estamos recorriendo con el bucle
-             */
-            CvmMatrixInt P = Ti.getMul(Pp);
-            
-            /**
-             * Comprobamos que el pixel que va en la posicion actual corresponda con un pixel de la imagen original.
-             * Si es pixel esta en la imagen original lo copiamos a la de destino y en caso contrario ponemos un pixel negro.
-             */
-            int x = (int)(P.data[0] * scaleFactorInv);
-            int y = (int)(P.data[1] * scaleFactorInv);
-            
-            if(x < 0 || x >= this.rows || y < 0 || y >= this.cols){
-                outdata[i] = 255;
-                }
-            else{
-            	outdata[i] = this.data[x * this.cols + y];
-                }
+        	for(int c = 0; c < this.cols; c++, i++, x += dx, y += dy){
+	            /**
+	             * Comprobamos que el pixel que va en la posicion actual corresponda con un pixel de la imagen original.
+	             * Si es pixel esta en la imagen original lo copiamos a la de destino y en caso contrario ponemos un pixel blanco.
+	             * Como al truncar las coordenadas entre -1 y 0 se obtiene 0, estas también son válidas.
+	             */
+	            if(x <= -CvmTransform2D.COORD_ONE || x >= maxX || y <= -CvmTransform2D.COORD_ONE || y >= maxY){
+	                outdata[i] = 255;
+	                }
+	            else{
+	            	int px = (x < 0) ? 0 : (int)(x >> CvmTransform2D.COORD_FRACTION_BITS);
+	            	int py = (y < 0) ? 0 : (int)(y >> CvmTransform2D.COORD_FRACTION_BITS);
+	            	outdata[i] = this.data[px * this.cols + py];
+	                }
+        		}
         	}
         
-        this.data = outdata;
+        System.arraycopy(outdata, 0, this.data, 0, outdata.length);
+        CvmBufferPool.release(outdata);
         }
 	
 	/**
-	 * PROBAR VALORES NEGATIVOS DE X E Y!!!!
+	 * ¡¡¡¡PROBAR VALORES NEGATIVOS DE X E Y!!!!
 	 * 
-	 * <p>Obtiene la regin cuadrada del canal cuyo centro se indicada en los parmetros como un nuevo 
-	 * objeto de tipo canal. Si algn elemento de la nueva regin corresponde a un pixel fuera de la 
+	 * <p>Obtiene la región cuadrada del canal cuyo centro se indicada en los parámetros como un nuevo 
+	 * objeto de tipo canal. Si algún elemento de la nueva región corresponde a un pixel fuera de la 
 	 * imagen es devuelto con el valor 0.</p>
-	 * <p>Si se indica un tamao de region par, esta se desplazar hacia abajo y hacia la derecha para
+	 * <p>Si se indica un tamaño de region par, esta se desplazará hacia abajo y hacia la derecha para
 	 * las dimensiones que se indican</p> 
 	 * 
-	 * @param x Columna del punto central de la regin.
-	 * @param y Fila del punto central de la reguin.
-	 * @param size Tamao del lado de la regin a recuperar.
+	 * @param x Columna del punto central de la región.
+	 * @param y Fila del punto central de la reguión.
+	 * @param size Tamaño del lado de la región a recuperar.
 	 * 
-	 * @return Nuevo canal de dimensiones cuadradas ([size, size]) que contiene la regin del
-	 * canal actual que indican los parmetros.
+	 * @return Nuevo canal de dimensiones cuadradas ([size, size]) que contiene la región del
+	 * canal actual que indican los parámetros.
 	 * 
-	 * @throws NegativeArraySizeException Se lanza si el tamao de la regin es negativo.
+	 * @throws NegativeArraySizeException Se lanza si el tamaño de la región es negativo.
 	 */
 	public CvmMatrixInt getCenterSquare(int x, int y, int size) throws NegativeArraySizeException{
+        return this.getCenterSquare(x, y, size, CvmChannel.BORDER_CONSTANT, 0);
+        }
+	
+	/**
+	 * Obtiene la región cuadrada del canal cuyo centro se indica en los parámetros, con la misma
+	 * disposición que getCenterSquare(x, y, size). Los elementos que corresponden a pixels fuera
+	 * de la imagen se obtienen según el modo de borde.
+	 * 
+	 * @param x Fila del punto central de la región.
+	 * @param y Columna del punto central de la región.
+	 * @param size Tamaño del lado de la región a recuperar.
+	 * @param border Modo de borde (BORDER_CONSTANT, BORDER_REPLICATE, BORDER_REFLECT,
+	 * BORDER_REFLECT_101 o BORDER_WRAP).
+	 * @param borderValue Valor de los pixels fuera de la imagen con BORDER_CONSTANT.
+	 * 
+	 * @return Nueva matriz de dimensiones [size, size] con la región, traspuesta.
+	 * 
+	 * @throws NegativeArraySizeException Se lanza si el tamaño de la región es negativo.
+	 * @throws IllegalArgumentException El modo de borde no existe.
+	 */
+	public CvmMatrixInt getCenterSquare(int x, int y, int size, int border, int borderValue) throws NegativeArraySizeException, IllegalArgumentException {
         CvmMatrixInt rect = new CvmMatrixInt(size, size);
 
-        int offset = (size % 2 == 0) ? (size / 2) - 1 : (size / 2);
+        int offset = CvmConvolution.offset(size);
 
-        for(int i = x - offset; i < x - offset + size; i++){
-            for(int j = y - offset; j < y - offset + size; j++){
-                int value = 0;
-                
-                if(i >= 0 && i < this.rows && j >= 0 && j < this.cols){
-                    value = this.data[i * this.cols + j];
-                    }
+        /** La región se escribe ya traspuesta: el pixel (i, j) ocupa la posición (j, i) */
+        for(int i = 0; i < size; i++){
+            int row = CvmConvolution.borderIndex(x - offset + i, this.rows, border);
 
-                rect.setElement(i - (x - offset), j - (y - offset), value);
+            for(int j = 0; j < size; j++){
+                int col = CvmConvolution.borderIndex(y - offset + j, this.cols, border);
+
+                rect.data[j * size + i] = (row < 0 || col < 0) ? borderValue : this.data[row * this.cols + col];
                 }
             }
         
-        return rect.getTranspose();
+        return rect;
         }
 	
 	/**
-	 * <p>Aplica una mscara de convolucin sobre todos los pixels del canal. Esto quiere decir que el valor
-	 * de cada pixel es el resultado de sumar el producto de cada elemento de la mscara con el pixel de
+	 * <p>Aplica una máscara de convolución sobre todos los pixels del canal. Esto quiere decir que el valor
+	 * de cada pixel es el resultado de sumar el producto de cada elemento de la máscara con el pixel de
 	 * el canal que corresponda.</p> 
-	 * <p>Esta mscara se mueve desde el primer al ltimo pixel, por lo que en algunos casos, la mscara
-	 * caer fuera de los mrgenes del canal. En este caso los elementos de la mscara son multiplicados
+	 * <p>Esta máscara se mueve desde el primer al último pixel, por lo que en algunos casos, la máscara
+	 * caerá fuera de los márgenes del canal. En este caso los elementos de la máscara son multiplicados
 	 * por cero.</p>
+	 * <p>Si la máscara es de rango 1, como las gaussianas o las de media, y tiene al menos 5x5
+	 * elementos, se aplica en dos pasadas de una dimensión mediante applySeparableMask.</p>
+	 * <p>La máscara se pasa a coma fija con una escala potencia de dos y cada suma se divide por la
+	 * escala truncando hacia cero.</p>
 	 * 
-	 * @param mask Mscara de convolucin que se aplica. Debe ser cuadrada.
+	 * @param mask Máscara de convolución que se aplica. Debe ser cuadrada.
 	 * 
-	 * @exception CvmIncompatibleMatrixSizeException Se lanza si la mscara no es cuadrada.
+	 * @exception CvmIncompatibleMatrixSizeException Se lanza si la máscara no es cuadrada.
 	 */
 	public void applyMask(CvmMatrixDouble mask) throws CvmIncompatibleMatrixSizeException, Exception{
+		this.applyMask(mask, CvmChannel.BORDER_CONSTANT, 0);
+		}
+	
+	/**
+	 * Aplica una máscara de convolución sobre todos los pixels del canal obteniendo los pixels
+	 * que caen fuera de los márgenes según el modo de borde indicado, en lugar de tomarlos como
+	 * cero.
+	 * 
+	 * @param mask Máscara de convolución que se aplica. Debe ser cuadrada.
+	 * @param border Modo de borde (BORDER_CONSTANT, BORDER_REPLICATE, BORDER_REFLECT,
+	 * BORDER_REFLECT_101 o BORDER_WRAP).
+	 * @param borderValue Valor de los pixels fuera del canal con BORDER_CONSTANT.
+	 * 
+	 * @exception CvmIncompatibleMatrixSizeException Se lanza si la máscara no es cuadrada.
+	 * @exception IllegalArgumentException El modo de borde no existe.
+	 */
+	public void applyMask(CvmMatrixDouble mask, int border, int borderValue) throws CvmIncompatibleMatrixSizeException, IllegalArgumentException {
 		if(mask.cols != mask.rows)
 			throw new CvmIncompatibleMatrixSizeException(mask.rows, mask.cols);
 		
-		int[] outdata = new int[this.data.length];
-
-		CvmMatrixInt auxMask = mask.scaledMatrixInt();
-		double scaleFactorInv = 1 / auxMask.scaleFactor;
-
-		for(int i = 0; i < this.data.length; i++){
-			CvmMatrixInt channelValues = this.getCenterSquare(i / this.cols, i % this.cols, mask.getCols());
-            int pixelValue = 0;
+		double[][] kernels = CvmConvolution.separate(mask);
+		if(kernels != null)
+			this.applySeparableMask(kernels[0], kernels[1], border, borderValue);
+		else
+			this.applyScaledMask(mask.scaledMatrixInt(), border, borderValue);
+		}
+	
+	/**
+	 * Aplica una máscara de convolución en precisión simple sobre todos los pixels del canal,
+	 * con la misma semántica que la versión de doble precisión.
+	 * 
+	 * @param mask Máscara de convolución que se aplica. Debe ser cuadrada.
+	 * 
+	 * @exception CvmIncompatibleMatrixSizeException Se lanza si la máscara no es cuadrada.
+	 */
+	public void applyMask(CvmMatrixFloat mask) throws CvmIncompatibleMatrixSizeException{
+		this.applyMask(mask, CvmChannel.BORDER_CONSTANT, 0);
+		}
+	
+	/**
+	 * Aplica una máscara de convolución en precisión simple con el modo de borde indicado.
+	 * 
+	 * @param mask Máscara de convolución que se aplica. Debe ser cuadrada.
+	 * @param border Modo de borde (BORDER_CONSTANT, BORDER_REPLICATE...).
+	 * @param borderValue Valor de los pixels fuera del canal con BORDER_CONSTANT.
+	 * 
+	 * @exception CvmIncompatibleMatrixSizeException Se lanza si la máscara no es cuadrada.
+	 * @exception IllegalArgumentException El modo de borde no existe.
+	 */
+	public void applyMask(CvmMatrixFloat mask, int border, int borderValue) throws CvmIncompatibleMatrixSizeException, IllegalArgumentException {
+		if(mask.cols != mask.rows)
+			throw new CvmIncompatibleMatrixSizeException(mask.rows, mask.cols);
+		
+		double[][] kernels = CvmConvolution.separate(mask);
+		if(kernels != null)
+			this.applySeparableMask(kernels[0], kernels[1], border, borderValue);
+		else
+			this.applyScaledMask(mask.scaledMatrixInt(), border, borderValue);
+		}
+	
+	/**
+	 * <p>Aplica una máscara separable dada por sus dos núcleos, lo que equivale a aplicar con
+	 * applyMask la máscara cuyo elemento (i, j) es rowKernel[i] · colKernel[j]. Primero se
+	 * combinan las filas del canal con colKernel y después cada fila del resultado con
+	 * rowKernel, de modo que el coste por pixel es proporcional a la suma de las longitudes
+	 * de los núcleos y no a su producto.</p>
+	 * <p>Los núcleos se escalan a coma fija, por lo que el resultado puede diferir en una
+	 * unidad del de la máscara completa.</p>
+	 * 
+	 * @param rowKernel Núcleo que se aplica a lo largo de cada fila.
+	 * @param colKernel Núcleo que se aplica a lo largo de cada columna.
+	 */
+	public void applySeparableMask(double[] rowKernel, double[] colKernel){
+		this.applySeparableMask(rowKernel, colKernel, CvmChannel.BORDER_CONSTANT, 0);
+		}
+	
+	/**
+	 * Aplica una máscara separable dada por sus dos núcleos con el modo de borde indicado.
+	 * 
+	 * @param rowKernel Núcleo que se aplica a lo largo de cada fila.
+	 * @param colKernel Núcleo que se aplica a lo largo de cada columna.
+	 * @param border Modo de borde (BORDER_CONSTANT, BORDER_REPLICATE...).
+	 * @param borderValue Valor de los pixels fuera del canal con BORDER_CONSTANT.
+	 * 
+	 * @exception IllegalArgumentException El modo de borde no existe.
+	 */
+	public void applySeparableMask(double[] rowKernel, double[] colKernel, int border, int borderValue) throws IllegalArgumentException {
+		CvmConvolution.separable(this.data, this.rows, this.cols, rowKernel, colKernel, border, borderValue);
+		}
+	
+	/**
+	 * Aplica una máscara ya escalada a enteros mediante scaledMatrixInt. La convolución recorre
+	 * directamente los datos del canal (CvmConvolution.direct), sin crear ningún objeto por pixel.
+	 * 
+	 * @param auxMask Máscara escalada, cuadrada.
+	 * @param border Modo de borde.
+	 * @param borderValue Valor de los pixels fuera del canal con BORDER_CONSTANT.
+	 */
+	private void applyScaledMask(CvmMatrixInt auxMask, int border, int borderValue){
+		int[] outdata = CvmBufferPool.borrowInt(this.data.length);
 
-            for(int k = 0; k < mask.data.length; k++){
-                pixelValue += channelValues.data[k] * auxMask.data[k];
-                }
-            
-            int px = (int)(pixelValue * scaleFactorInv);
-            
-            /*if(px > 255) px = 255;
-            else if(px < 0) px = 0;*/
-                       
-            outdata[i] = px;
-            }
+		CvmConvolution.direct(this.data, outdata, this.rows, this.cols, auxMask.data, auxMask.cols, auxMask.getFractionBits(), border, borderValue);
 		
-        this.data = outdata;
+        System.arraycopy(outdata, 0, this.data, 0, outdata.length);
+        CvmBufferPool.release(outdata);
         }
 	
 	public void applyThreshold(int threshold, int max, int method){
@@ -283,48 +417,50 @@ public class CvmChannel extends CvmMatrixInt {
 		switch(method){
 			default:
 			case CvmChannel.THRES_BINARY:
-				for(int i = 0; i < this.data.length; i++)
-					this.data[i] = (this.data[i] > threshold) ? max : min;
+				CvmKernels.threshold(this.data, threshold, max, min, this.data.length);
 				break;
 			case CvmChannel.THRES_BINARY_INV:
-				for(int i = 0; i < this.data.length; i++)
-					this.data[i] = (this.data[i] > threshold) ? min : max;
+				CvmKernels.threshold(this.data, threshold, min, max, this.data.length);
 				break;
 			case CvmChannel.THRES_TRUNC:
-				for(int i = 0; i < this.data.length; i++)
-					this.data[i] = (this.data[i] > threshold) ? threshold : this.data[i];
+				CvmKernels.truncate(this.data, threshold, this.data.length);
 				break;
 			case CvmChannel.THRES_TO_ZERO:
-				for(int i = 0; i < this.data.length; i++)
-					this.data[i] = (this.data[i] > threshold) ? threshold : min;
+				CvmKernels.threshold(this.data, threshold, threshold, min, this.data.length);
 				break;
 			case CvmChannel.THRES_TO_ZERO_INV:
-				for(int i = 0; i < this.data.length; i++)
-					this.data[i] = (this.data[i] > threshold) ? threshold : max;
+				CvmKernels.threshold(this.data, threshold, threshold, max, this.data.length);
 				break;
 			case CvmChannel.THRES_OTSU:
 				threshold = this.calculateOtsuThreshold();
-				for(int i = 0; i < this.data.length; i++)
-					this.data[i] = (this.data[i] > threshold) ? max : min;
+				CvmKernels.threshold(this.data, threshold, max, min, this.data.length);
 				break;
 			}
 		}
 	
 	private int calculateOtsuThreshold(){
+		return CvmChannel.calculateOtsuThreshold(new CvmHistogram(this), this.data.length);
+		}
+	
+	/**
+	 * Calcula el umbral de Otsu a partir del histograma de un conjunto de pixels.
+	 * 
+	 * @param hist Histograma de los valores de los pixels.
+	 * @param total Número total de pixels del histograma.
+	 * 
+	 * @return Umbral que minimiza la varianza dentro de cada clase.
+	 */
+	static int calculateOtsuThreshold(CvmHistogram hist, int total){
 		int thres = 0, numPixels = 0;
 		double wB = 0, wF = 1;
 		double WCV, minWCV = 0;
 		
-		//this.updateHistogram();
-		
-		CvmHistogram hist = new CvmHistogram(this);
-		
 		for(int i = 0; i < 256; i++){
 			numPixels += hist.get(i);
 			if(numPixels == 0)
 				break;
 			
-			wB = numPixels / (double)this.data.length;
+			wB = numPixels / (double)total;
 			wF = 1 - wB;
 			
 			float meanB = 0;
@@ -339,11 +475,11 @@ public class CvmChannel extends CvmMatrixInt {
 			float meanF = 0;
 			for(int j = i+1; j < 256; j++)
 				meanF += j * hist.get(j);
-			meanF /= this.data.length - numPixels;
+			meanF /= total - numPixels;
 			float varianceF = 0;
 			for(int j = i+1; j < 256; j++)
 				varianceF += (j - meanF) * (j - meanF) * hist.get(j);
-			varianceF /= this.data.length - numPixels;
+			varianceF /= total - numPixels;
 			
 			WCV = varianceB*wB + varianceF*wF;
 			
@@ -357,28 +493,32 @@ public class CvmChannel extends CvmMatrixInt {
 		}
 	
 	public void normalize(){
-		int min = 0, max = 0;
-		
-		min = max = this.data[0];
-		
-		for(int i = 1; i < this.data.length; i++){
-			if(this.data[i] < min)
-				min = this.data[i];
-			if(this.data[i] > max)
-				max = this.data[i];
-			}
-		
-		for(int i = 0; i < this.data.length; i++){
-			this.data[i] = (int)((double)((this.data[i] - min) / (double)(max - min)) * 255);
-			}
+		CvmKernels.normalize(this.data, this.data.length);
 		}
 	
 	public void module(CvmChannel channel){
 		if(this.cols != channel.cols || this.rows != channel.rows)
 			return; //Excepcion!!!
 		
-		for(int i = 0; i < this.data.length; i++)
-			this.data[i] = (int)Math.sqrt(this.data[i] * this.data[i] + channel.data[i] * channel.data[i]);
+		CvmKernels.module(this.data, channel.data, this.data.length);
+		}
+	
+	/**
+	 * Crea una copia del canal.
+	 * 
+	 * @return Nuevo canal con los mismos valores.
+	 */
+	public CvmImageChannel copy(){
+		return new CvmChannel(this);
+		}
+	
+	/**
+	 * Crea una copia del canal. Se mantiene por simetría con CvmByteChannel.
+	 * 
+	 * @return Nuevo canal con los mismos valores.
+	 */
+	public CvmChannel toChannel(){
+		return new CvmChannel(this);
 		}
 	
 	public CvmHistogram getValuesHistogram(){
@@ -0,0 +1,191 @@
+/*******************************************************************************
+ * CVM - Computer Vision Mobile.
+ * Copyright (C) 2010 CVM Luis Ciudad García
+ * 
+ * File: CvmCholeskyDecomposition.java - This file is part of CVM.
+ * 
+ * CVM is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * CVM is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with CVM.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package edu.uco.cvm.core;
+
+import edu.uco.cvm.exceptions.CvmIncompatibleMatrixSizeException;
+import edu.uco.cvm.exceptions.CvmSingularMatrixException;
+
+/**
+ * <p>Esta clase representa la descomposición de Cholesky de una matriz simétrica definida
+ * positiva, es decir, A = L·Lt, siendo L una matriz triangular inferior con la diagonal
+ * positiva.</p>
+ * 
+ * <p>Requiere la mitad de operaciones que la descomposición LU y no necesita pivotación, por
+ * lo que es el método preferido para resolver sistemas con matrices de covarianza o de
+ * ecuaciones normales. Solo se lee la mitad inferior de la matriz original.</p>
+ * 
+ * @version 1.0
+ */
+public class CvmCholeskyDecomposition {
+	/** Orden de la matriz factorizada. */
+	private final int order;
+	/** Elementos de L ordenados por filas. Por encima de la diagonal valen cero. */
+	private final double[] l;
+	/** Indica si la matriz es definida positiva y por tanto la factorización es válida. */
+	private boolean positiveDefinite;
+
+	/**
+	 * Calcula la descomposición de Cholesky de una matriz. Si la matriz no es definida
+	 * positiva la factorización se detiene y isPositiveDefinite devuelve false.
+	 * 
+	 * @param matrix Matriz simétrica a factorizar. No se modifica.
+	 * 
+	 * @exception CvmIncompatibleMatrixSizeException La matriz no es cuadrada.
+	 */
+	public CvmCholeskyDecomposition(CvmMatrixDouble matrix) throws CvmIncompatibleMatrixSizeException {
+		if(matrix.rows != matrix.cols)
+			throw new CvmIncompatibleMatrixSizeException(matrix.rows, matrix.cols);
+
+		this.order = matrix.rows;
+		this.l = new double[this.order * this.order];
+		this.positiveDefinite = this.decompose(matrix.data);
+		}
+
+	/**
+	 * Calcula L fila a fila. Los productos escalares recorren dos filas de L de forma
+	 * secuencial, por lo que no es necesario trasponer ninguna matriz.
+	 * 
+	 * @param a Datos de la matriz original ordenados por filas.
+	 * 
+	 * @return true si la matriz es definida positiva, false en caso contrario.
+	 */
+	private boolean decompose(double[] a){
+		int n = this.order;
+
+		for(int i = 0; i < n; i++){
+			for(int j = 0; j <= i; j++){
+				double sum = a[i * n + j];
+
+				for(int k = 0; k < j; k++)
+					sum -= this.l[i * n + k] * this.l[j * n + k];
+
+				if(i == j){
+					if(sum <= 0)
+						return false;
+
+					this.l[i * n + i] = Math.sqrt(sum);
+					}
+				else{
+					this.l[i * n + j] = sum / this.l[j * n + j];
+					}
+				}
+			}
+
+		return true;
+		}
+
+	/**
+	 * Indica si la matriz factorizada es definida positiva. En caso contrario no es posible
+	 * resolver sistemas con esta descomposición.
+	 * 
+	 * @return true si la matriz es definida positiva, false en caso contrario.
+	 */
+	public boolean isPositiveDefinite(){
+		return this.positiveDefinite;
+		}
+
+	/**
+	 * Devuelve el factor triangular inferior L.
+	 * 
+	 * @return Nueva matriz con el factor L.
+	 * 
+	 * @exception CvmSingularMatrixException La matriz no es definida positiva.
+	 */
+	public CvmMatrixDouble getL() throws CvmSingularMatrixException {
+		if(!this.positiveDefinite)
+			throw new CvmSingularMatrixException();
+
+		return new CvmMatrixDouble(this.order, this.order, this.l);
+		}
+
+	/**
+	 * Calcula el determinante de la matriz factorizada como el cuadrado del producto de la
+	 * diagonal de L.
+	 * 
+	 * @return El determinante de la matriz.
+	 * 
+	 * @exception CvmSingularMatrixException La matriz no es definida positiva.
+	 */
+	public double getDeterminant() throws CvmSingularMatrixException {
+		if(!this.positiveDefinite)
+			throw new CvmSingularMatrixException();
+
+		double det = 1;
+		for(int i = 0; i < this.order; i++)
+			det *= this.l[i * this.order + i];
+
+		return det * det;
+		}
+
+	/**
+	 * Resuelve el sistema de ecuaciones A·X = B mediante sustitución hacia delante con L y
+	 * hacia atrás con su traspuesta. Cada columna de B es un término independiente distinto.
+	 * 
+	 * @param b Matriz de términos independientes. Debe tener tantas filas como orden tenga
+	 * la matriz factorizada. No se modifica.
+	 * 
+	 * @return Nueva matriz X con la solución del sistema, con las mismas dimensiones que b.
+	 * 
+	 * @exception CvmIncompatibleMatrixSizeException El número de filas de b no coincide con el
+	 * orden de la matriz factorizada.
+	 * @exception CvmSingularMatrixException La matriz no es definida positiva.
+	 */
+	public CvmMatrixDouble solve(CvmMatrixDouble b) throws CvmIncompatibleMatrixSizeException, CvmSingularMatrixException {
+		if(b.rows != this.order)
+			throw new CvmIncompatibleMatrixSizeException(b.rows, b.cols);
+		if(!this.positiveDefinite)
+			throw new CvmSingularMatrixException();
+
+		int n = this.order;
+		int cols = b.cols;
+		CvmMatrixDouble result = new CvmMatrixDouble(b);
+		double[] x = result.data;
+
+		/** Sustitución hacia delante: L·Y = B */
+		for(int i = 0; i < n; i++){
+			for(int k = 0; k < i; k++){
+				double factor = this.l[i * n + k];
+				if(factor != 0)
+					for(int j = 0; j < cols; j++)
+						x[i * cols + j] -= factor * x[k * cols + j];
+				}
+
+			double diagonal = this.l[i * n + i];
+			for(int j = 0; j < cols; j++)
+				x[i * cols + j] /= diagonal;
+			}
+
+		/** Sustitución hacia atrás: Lt·X = Y */
+		for(int i = n - 1; i >= 0; i--){
+			double diagonal = this.l[i * n + i];
+			for(int j = 0; j < cols; j++)
+				x[i * cols + j] /= diagonal;
+
+			for(int k = 0; k < i; k++){
+				double factor = this.l[i * n + k];
+				if(factor != 0)
+					for(int j = 0; j < cols; j++)
+						x[k * cols + j] -= factor * x[i * cols + j];
+				}
+			}
+
+		return result;
+		}
+	}
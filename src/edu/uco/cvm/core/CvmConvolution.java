@@ -0,0 +1,492 @@
+/*******************************************************************************
+ * CVM - Computer Vision Mobile.
+ * Copyright (C) 2010 CVM Luis Ciudad García
+ * 
+ * File: CvmConvolution.java - This file is part of CVM.
+ * 
+ * CVM is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * CVM is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with CVM.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package edu.uco.cvm.core;
+
+import java.util.Arrays;
+
+/**
+ * <p>Núcleos de convolución que comparten los canales.</p>
+ * 
+ * <p>Una máscara de rango 1 (gaussiana, media, Sobel...) es el producto de un núcleo horizontal
+ * y otro vertical, por lo que puede aplicarse en dos pasadas de una dimensión: primero se
+ * combinan las filas del canal con el núcleo vertical y después cada fila del resultado con el
+ * núcleo horizontal. El coste por pixel pasa de k² a 2k productos.</p>
+ * 
+ * <p>Las pasadas trabajan en coma fija: cada núcleo se escala con sus propios bits
+ * fraccionarios, la pasada vertical acumula en enteros y la horizontal en enteros largos, y al
+ * final se deshace el escalado con un desplazamiento.</p>
+ * 
+ * <p>Las máscaras pequeñas o no separables se aplican con direct, que recorre directamente los
+ * datos del canal sin crear ningún objeto por pixel.</p>
+ * 
+ * <p>Los pixels fuera del canal se obtienen según un modo de borde (constante, replicado,
+ * reflejado o periódico). El canal se divide en un interior, que se recorre sin comprobar
+ * ningún límite, y un borde, cuyas posiciones se toman de tablas de índices calculadas una
+ * sola vez por llamada.</p>
+ * 
+ * @version 1.0
+ */
+final class CvmConvolution {
+	/** Tolerancia relativa con la que una máscara se considera de rango 1. */
+	static final double SEPARABLE_TOLERANCE = 1e-9;
+	/** Tamaño mínimo de máscara a partir del cual se aplica en dos pasadas. Por debajo es más
+	 *  rápida la versión desenrollada de direct. */
+	static final int SEPARABLE_MIN_SIZE = 5;
+
+	private CvmConvolution(){ }
+
+	/**
+	 * Desplazamiento del primer elemento de un núcleo respecto al pixel central, el mismo que
+	 * utiliza CvmChannel.getCenterSquare: para tamaños pares el centro queda desplazado hacia
+	 * abajo y hacia la derecha.
+	 */
+	static int offset(int size){
+		return (size % 2 == 0) ? (size / 2) - 1 : (size / 2);
+		}
+
+	/**
+	 * <p>Comprueba si una máscara cuadrada es de rango 1 y en ese caso la descompone en sus
+	 * núcleos, de modo que mask[a * size + b] = rowKernel[a] · colKernel[b].</p>
+	 * 
+	 * <p>El elemento (a, b) de una máscara se aplica sobre el pixel desplazado a columnas y b
+	 * filas, así que rowKernel se aplica a lo largo de las filas del canal y colKernel a lo
+	 * largo de las columnas.</p>
+	 * 
+	 * @param mask Elementos de la máscara ordenados por filas.
+	 * @param size Lado de la máscara.
+	 * 
+	 * @return Array con rowKernel y colKernel, o null si la máscara no es de rango 1 o es
+	 * demasiado pequeña para que compense separarla.
+	 */
+	static double[][] separate(double[] mask, int size){
+		if(size < SEPARABLE_MIN_SIZE)
+			return null;
+
+		/** El mayor elemento fija la fila y la columna a partir de las que se obtienen los núcleos */
+		int pivot = 0;
+		for(int i = 1; i < size * size; i++)
+			if(Math.abs(mask[i]) > Math.abs(mask[pivot]))
+				pivot = i;
+
+		double max = Math.abs(mask[pivot]);
+		if(max == 0)
+			return null;
+
+		int p = pivot / size, q = pivot % size;
+		double[] rowKernel = new double[size];
+		double[] colKernel = new double[size];
+
+		for(int a = 0; a < size; a++)
+			rowKernel[a] = mask[a * size + q];
+		for(int b = 0; b < size; b++)
+			colKernel[b] = mask[p * size + b] / mask[pivot];
+
+		double tolerance = SEPARABLE_TOLERANCE * max;
+
+		for(int a = 0; a < size; a++)
+			for(int b = 0; b < size; b++)
+				if(Math.abs(mask[a * size + b] - rowKernel[a] * colKernel[b]) > tolerance)
+					return null;
+
+		return new double[][]{ rowKernel, colKernel };
+		}
+
+	/**
+	 * Descompone una máscara cuadrada de rango 1 en sus núcleos.
+	 * 
+	 * @see #separate(double[], int)
+	 */
+	static double[][] separate(CvmMatrixDouble mask){
+		return CvmConvolution.separate(mask.data, mask.cols);
+		}
+
+	/**
+	 * Descompone una máscara cuadrada de rango 1 en precisión simple en sus núcleos.
+	 * 
+	 * @see #separate(double[], int)
+	 */
+	static double[][] separate(CvmMatrixFloat mask){
+		if(mask.cols < SEPARABLE_MIN_SIZE)
+			return null;
+
+		double[] data = new double[mask.data.length];
+		for(int i = 0; i < data.length; i++)
+			data[i] = mask.data[i];
+
+		return CvmConvolution.separate(data, mask.cols);
+		}
+
+	/**
+	 * Escala un núcleo a enteros en coma fija de modo que su mayor valor absoluto quede por
+	 * debajo de Short.MAX_VALUE.
+	 * 
+	 * @param kernel Núcleo real.
+	 * @param fixed Array de la misma longitud donde se guarda el núcleo escalado.
+	 * 
+	 * @return Bits fraccionarios del núcleo escalado.
+	 */
+	static int toFixedPoint(double[] kernel, int[] fixed){
+		double max = 0;
+		for(int i = 0; i < kernel.length; i++)
+			max = Math.max(max, Math.abs(kernel[i]));
+
+		int bits = CvmMatrixInt.fractionBitsFor(max, Short.MAX_VALUE);
+		double scale = 1L << bits;
+
+		for(int i = 0; i < kernel.length; i++)
+			fixed[i] = (int)Math.round(kernel[i] * scale);
+
+		return bits;
+		}
+
+	/**
+	 * Posición dentro de [0, length) que corresponde a la posición p según el modo de borde
+	 * (CvmChannel.BORDER_CONSTANT, CvmChannel.BORDER_REPLICATE...).
+	 * 
+	 * @return Posición dentro del canal, o -1 si con BORDER_CONSTANT la posición cae fuera.
+	 * 
+	 * @exception IllegalArgumentException El modo de borde no existe.
+	 */
+	static int borderIndex(int p, int length, int mode) throws IllegalArgumentException {
+		if(p >= 0 && p < length)
+			return p;
+
+		switch(mode){
+			case CvmChannel.BORDER_CONSTANT:
+				return -1;
+			case CvmChannel.BORDER_REPLICATE:
+				return (p < 0) ? 0 : length - 1;
+			case CvmChannel.BORDER_REFLECT:{
+				/** fedcba|abcdefgh|hgfedcb: periodo 2 · length */
+				int period = 2 * length;
+				int q = ((p % period) + period) % period;
+				return (q < length) ? q : period - 1 - q;
+				}
+			case CvmChannel.BORDER_REFLECT_101:{
+				/** gfedcb|abcdefgh|gfedcba: periodo 2 · length - 2 */
+				if(length == 1)
+					return 0;
+				int period = 2 * length - 2;
+				int q = ((p % period) + period) % period;
+				return (q < length) ? q : period - q;
+				}
+			case CvmChannel.BORDER_WRAP:
+				return ((p % length) + length) % length;
+			default:
+				throw new IllegalArgumentException("Unknown border mode: " + mode);
+			}
+		}
+
+	/**
+	 * Tabla de posiciones para recorrer con un núcleo de size elementos una dimensión de length
+	 * elementos: la entrada i corresponde a la posición i - offset(size) y contiene su
+	 * posición dentro del canal multiplicada por stride, o -1 si cae fuera con BORDER_CONSTANT.
+	 * 
+	 * @exception IllegalArgumentException El modo de borde no existe.
+	 */
+	static int[] borderTable(int length, int size, int mode, int stride) throws IllegalArgumentException {
+		int off = CvmConvolution.offset(size);
+		int[] table = new int[length + size - 1];
+
+		for(int i = 0; i < table.length; i++){
+			int p = (length == 0) ? -1 : CvmConvolution.borderIndex(i - off, length, mode);
+			table[i] = (p < 0) ? -1 : p * stride;
+			}
+
+		return table;
+		}
+
+	/**
+	 * Aplica en el sitio una máscara separable dada por sus dos núcleos: escala los núcleos a
+	 * coma fija y realiza la pasada vertical sobre un array auxiliar del almacén del hilo y la
+	 * horizontal de vuelta sobre data.
+	 * 
+	 * @exception IllegalArgumentException El modo de borde no existe.
+	 */
+	static void separable(int[] data, int rows, int cols, double[] rowKernel, double[] colKernel, int mode, int value) throws IllegalArgumentException {
+		int[] rowFixed = new int[rowKernel.length];
+		int[] colFixed = new int[colKernel.length];
+		int bits = CvmConvolution.toFixedPoint(rowKernel, rowFixed) + CvmConvolution.toFixedPoint(colKernel, colFixed);
+
+		/** Resultado de la pasada vertical sobre una columna fuera del canal con BORDER_CONSTANT */
+		long outside = 0;
+		for(int b = 0; b < colFixed.length; b++)
+			outside += (long)colFixed[b] * value;
+
+		int[] tmp = CvmBufferPool.borrowInt(data.length);
+
+		CvmConvolution.vertical(data, tmp, rows, cols, colFixed, mode, value);
+		CvmConvolution.horizontal(tmp, data, rows, cols, rowFixed, bits, mode, outside);
+
+		CvmBufferPool.release(tmp);
+		}
+
+	/**
+	 * Pasada vertical: cada fila de dst es la suma de las filas de src que cubre el núcleo,
+	 * multiplicadas por su coeficiente. Se recorren filas completas, de forma secuencial, y la
+	 * fila de origen se obtiene de la tabla de bordes, por lo que el bucle interior no
+	 * comprueba nada. Las filas fuera del canal con BORDER_CONSTANT valen value.
+	 * 
+	 * @exception IllegalArgumentException El modo de borde no existe.
+	 */
+	static void vertical(int[] src, int[] dst, int rows, int cols, int[] kernel, int mode, int value) throws IllegalArgumentException {
+		int[] rowTable = CvmConvolution.borderTable(rows, kernel.length, mode, cols);
+
+		for(int r = 0; r < rows; r++){
+			int out = r * cols;
+			Arrays.fill(dst, out, out + cols, 0);
+
+			for(int b = 0; b < kernel.length; b++){
+				int k = kernel[b];
+				int in = rowTable[r + b];
+
+				if(k == 0 || (in < 0 && value == 0))
+					continue;
+
+				if(in < 0){
+					for(int c = 0; c < cols; c++)
+						dst[out + c] += k * value;
+					}
+				else{
+					for(int c = 0; c < cols; c++)
+						dst[out + c] += k * src[in + c];
+					}
+				}
+			}
+		}
+
+	/**
+	 * <p>Pasada horizontal: cada pixel de dst es la suma de los elementos de su fila de src que
+	 * cubre el núcleo, multiplicados por su coeficiente y divididos por 2^bits truncando hacia
+	 * cero, con saturación al rango de los enteros.</p>
+	 * 
+	 * <p>En las columnas interiores el núcleo cae entero dentro de la fila y el bucle no
+	 * comprueba nada; en las del borde las posiciones se toman de la tabla de bordes. Las
+	 * columnas fuera del canal con BORDER_CONSTANT valen outside, que es el resultado de la
+	 * pasada vertical sobre una columna constante.</p>
+	 * 
+	 * @exception IllegalArgumentException El modo de borde no existe.
+	 */
+	static void horizontal(int[] src, int[] dst, int rows, int cols, int[] kernel, int bits, int mode, long outside) throws IllegalArgumentException {
+		int size = kernel.length;
+		int off = CvmConvolution.offset(size);
+		int[] colTable = CvmConvolution.borderTable(cols, size, mode, 1);
+
+		int c0 = Math.min(off, cols), c1 = Math.max(c0, cols - size + off + 1);
+
+		for(int r = 0; r < rows; r++){
+			int row = r * cols;
+
+			for(int c = c0; c < c1; c++){
+				int start = row + c - off;
+				long sum = 0;
+
+				for(int a = 0; a < size; a++)
+					sum += (long)kernel[a] * src[start + a];
+
+				dst[row + c] = CvmMatrixInt.saturate(CvmConvolution.shiftTruncate(sum, bits));
+				}
+
+			CvmConvolution.horizontalBorder(src, dst, row, kernel, bits, colTable, outside, 0, c0);
+			CvmConvolution.horizontalBorder(src, dst, row, kernel, bits, colTable, outside, c1, cols);
+			}
+		}
+
+	/**
+	 * Columnas [cStart, cEnd) del borde de una fila en la pasada horizontal.
+	 */
+	private static void horizontalBorder(int[] src, int[] dst, int row, int[] kernel, int bits, int[] colTable, long outside, int cStart, int cEnd){
+		for(int c = cStart; c < cEnd; c++){
+			long sum = 0;
+
+			for(int a = 0; a < kernel.length; a++){
+				int in = colTable[c + a];
+				sum += kernel[a] * ((in < 0) ? outside : src[row + in]);
+				}
+
+			dst[row + c] = CvmMatrixInt.saturate(CvmConvolution.shiftTruncate(sum, bits));
+			}
+		}
+
+	/**
+	 * <p>Convolución directa de una máscara cuadrada sobre un canal, sin reservar memoria más
+	 * allá de una copia de la máscara: out(r, c) es la suma de mask[a * size + b] · src(r - off + b,
+	 * c - off + a), dividida por 2^bits truncando hacia cero. Los pixels fuera del canal se
+	 * obtienen según el modo de borde.</p>
+	 * 
+	 * <p>El canal se divide en el interior, donde la máscara cae entera dentro del canal y el
+	 * bucle no comprueba ningún límite, y el borde, donde las posiciones de la ventana se toman
+	 * de tablas calculadas una vez por llamada. Las máscaras de 3x3 y 5x5 tienen versiones del
+	 * interior desenrolladas.</p>
+	 * 
+	 * @param src Pixels de entrada ordenados por filas.
+	 * @param dst Array donde se guarda el resultado. No puede ser src.
+	 * @param rows Filas del canal.
+	 * @param cols Columnas del canal.
+	 * @param mask Máscara escalada a enteros, ordenada por filas.
+	 * @param size Lado de la máscara.
+	 * @param bits Bits fraccionarios de la máscara.
+	 * @param mode Modo de borde (CvmChannel.BORDER_CONSTANT, CvmChannel.BORDER_REPLICATE...).
+	 * @param value Valor de los pixels fuera del canal con BORDER_CONSTANT.
+	 * 
+	 * @exception IllegalArgumentException El modo de borde no existe.
+	 */
+	static void direct(int[] src, int[] dst, int rows, int cols, int[] mask, int size, int bits, int mode, int value) throws IllegalArgumentException {
+		int off = CvmConvolution.offset(size);
+
+		/** Se traspone la máscara para que cada fila de la ventana recorra una fila del canal */
+		int[] k = new int[size * size];
+		for(int a = 0; a < size; a++)
+			for(int b = 0; b < size; b++)
+				k[b * size + a] = mask[a * size + b];
+
+		/** Interior: [r0, r1) x [c0, c1) */
+		int r0 = Math.min(off, rows), r1 = Math.max(r0, rows - size + off + 1);
+		int c0 = Math.min(off, cols), c1 = Math.max(c0, cols - size + off + 1);
+
+		if(c1 > c0){
+			switch(size){
+				case 3:
+					CvmConvolution.interior3(src, dst, cols, k, bits, r0, r1, c0, c1);
+					break;
+				case 5:
+					CvmConvolution.interior5(src, dst, cols, k, bits, r0, r1, c0, c1);
+					break;
+				default:
+					CvmConvolution.interior(src, dst, cols, k, size, off, bits, r0, r1, c0, c1);
+					break;
+				}
+			}
+
+		int[] rowTable = CvmConvolution.borderTable(rows, size, mode, cols);
+		int[] colTable = CvmConvolution.borderTable(cols, size, mode, 1);
+
+		CvmConvolution.border(src, dst, cols, k, size, bits, rowTable, colTable, value, 0, r0, 0, cols);
+		CvmConvolution.border(src, dst, cols, k, size, bits, rowTable, colTable, value, r1, rows, 0, cols);
+		CvmConvolution.border(src, dst, cols, k, size, bits, rowTable, colTable, value, r0, r1, 0, c0);
+		CvmConvolution.border(src, dst, cols, k, size, bits, rowTable, colTable, value, r0, r1, c1, cols);
+		}
+
+	/**
+	 * Interior con máscara de cualquier tamaño. La máscara k está traspuesta.
+	 */
+	private static void interior(int[] src, int[] dst, int cols, int[] k, int size, int off, int bits, int r0, int r1, int c0, int c1){
+		for(int r = r0; r < r1; r++){
+			for(int c = c0; c < c1; c++){
+				int base = (r - off) * cols + c - off;
+				int sum = 0;
+
+				for(int b = 0, kb = 0; b < size; b++, kb += size, base += cols)
+					for(int a = 0; a < size; a++)
+						sum += k[kb + a] * src[base + a];
+
+				dst[r * cols + c] = CvmMatrixInt.shiftTruncate(sum, bits);
+				}
+			}
+		}
+
+	/**
+	 * Interior con máscara de 3x3 totalmente desenrollada: los coeficientes se guardan en
+	 * variables locales y cada fila de la ventana se recorre con un índice propio.
+	 */
+	private static void interior3(int[] src, int[] dst, int cols, int[] k, int bits, int r0, int r1, int c0, int c1){
+		int k0 = k[0], k1 = k[1], k2 = k[2];
+		int k3 = k[3], k4 = k[4], k5 = k[5];
+		int k6 = k[6], k7 = k[7], k8 = k[8];
+
+		for(int r = r0; r < r1; r++){
+			int p0 = (r - 1) * cols + c0 - 1;
+			int out = r * cols + c0;
+
+			for(int c = c0; c < c1; c++, p0++, out++){
+				int p1 = p0 + cols;
+				int p2 = p1 + cols;
+				int sum = k0 * src[p0] + k1 * src[p0 + 1] + k2 * src[p0 + 2]
+				        + k3 * src[p1] + k4 * src[p1 + 1] + k5 * src[p1 + 2]
+				        + k6 * src[p2] + k7 * src[p2 + 1] + k8 * src[p2 + 2];
+
+				dst[out] = CvmMatrixInt.shiftTruncate(sum, bits);
+				}
+			}
+		}
+
+	/**
+	 * Interior con máscara de 5x5 totalmente desenrollada: los coeficientes se guardan en
+	 * variables locales y cada fila de la ventana se recorre con un índice propio.
+	 */
+	private static void interior5(int[] src, int[] dst, int cols, int[] k, int bits, int r0, int r1, int c0, int c1){
+		int k0 = k[0], k1 = k[1], k2 = k[2], k3 = k[3], k4 = k[4];
+		int k5 = k[5], k6 = k[6], k7 = k[7], k8 = k[8], k9 = k[9];
+		int k10 = k[10], k11 = k[11], k12 = k[12], k13 = k[13], k14 = k[14];
+		int k15 = k[15], k16 = k[16], k17 = k[17], k18 = k[18], k19 = k[19];
+		int k20 = k[20], k21 = k[21], k22 = k[22], k23 = k[23], k24 = k[24];
+
+		for(int r = r0; r < r1; r++){
+			int p0 = (r - 2) * cols + c0 - 2;
+			int out = r * cols + c0;
+
+			for(int c = c0; c < c1; c++, p0++, out++){
+				int p1 = p0 + cols;
+				int p2 = p1 + cols;
+				int p3 = p2 + cols;
+				int p4 = p3 + cols;
+				int sum = k0 * src[p0] + k1 * src[p0 + 1] + k2 * src[p0 + 2] + k3 * src[p0 + 3] + k4 * src[p0 + 4]
+				        + k5 * src[p1] + k6 * src[p1 + 1] + k7 * src[p1 + 2] + k8 * src[p1 + 3] + k9 * src[p1 + 4]
+				        + k10 * src[p2] + k11 * src[p2 + 1] + k12 * src[p2 + 2] + k13 * src[p2 + 3] + k14 * src[p2 + 4]
+				        + k15 * src[p3] + k16 * src[p3 + 1] + k17 * src[p3 + 2] + k18 * src[p3 + 3] + k19 * src[p3 + 4]
+				        + k20 * src[p4] + k21 * src[p4 + 1] + k22 * src[p4 + 2] + k23 * src[p4 + 3] + k24 * src[p4 + 4];
+
+				dst[out] = CvmMatrixInt.shiftTruncate(sum, bits);
+				}
+			}
+		}
+
+	/**
+	 * Región del borde [rStart, rEnd) x [cStart, cEnd): las filas y columnas de la ventana de
+	 * cada pixel se toman de las tablas de bordes. La máscara k está traspuesta.
+	 */
+	private static void border(int[] src, int[] dst, int cols, int[] k, int size, int bits, int[] rowTable, int[] colTable, int value, int rStart, int rEnd, int cStart, int cEnd){
+		for(int r = rStart; r < rEnd; r++){
+			for(int c = cStart; c < cEnd; c++){
+				int sum = 0;
+
+				for(int b = 0, kb = 0; b < size; b++, kb += size){
+					int row = rowTable[r + b];
+
+					for(int a = 0; a < size; a++){
+						int col = colTable[c + a];
+						sum += k[kb + a] * ((row < 0 || col < 0) ? value : src[row + col]);
+						}
+					}
+
+				dst[r * cols + c] = CvmMatrixInt.shiftTruncate(sum, bits);
+				}
+			}
+		}
+
+	/**
+	 * Divide por 2^bits truncando hacia cero, igual que la conversión (int) de un número real.
+	 * Los negativos se desplazan tras sumar 2^bits - 1 en lugar de negarlos, de modo que el
+	 * valor mínimo del tipo no desborda.
+	 */
+	static long shiftTruncate(long value, int bits){
+		return (value >= 0) ? value >> bits : (value + ((1L << bits) - 1)) >> bits;
+		}
+	}
@@ -0,0 +1,169 @@
+/*******************************************************************************
+ * CVM - Computer Vision Mobile.
+ * Copyright (C) 2010 CVM Luis Ciudad García
+ * 
+ * File: CvmDirectMatrix.java - This file is part of CVM.
+ * 
+ * CVM is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * CVM is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with CVM.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package edu.uco.cvm.core;
+
+import java.io.Closeable;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * <p>Esta clase es la base de las matrices cuyos datos se guardan fuera del heap de Java, en
+ * buffers directos. Los datos de estas matrices no son recorridos ni movidos por el recolector
+ * de basura, por lo que son adecuadas para matrices muy grandes que se mantienen durante toda
+ * la ejecución.</p>
+ * 
+ * <p>Un buffer no puede superar los 2 GB, así que los datos se dividen por filas en varios
+ * buffers de como mucho MAX_CHUNK_BYTES. Cada buffer contiene filas completas, por lo que una
+ * fila nunca queda repartida entre dos buffers.</p>
+ * 
+ * <p>La memoria se libera llamando a close. A partir de ese momento cualquier acceso a la matriz
+ * lanza IllegalStateException. La plataforma no permite liberar un buffer directo de forma
+ * inmediata, pero al cerrar la matriz se sueltan todas las referencias y la memoria queda a
+ * disposición del recolector.</p>
+ * 
+ * @version 1.0
+ */
+public abstract class CvmDirectMatrix extends CvmMatrix implements Closeable {
+	/** Tamaño máximo en bytes de cada uno de los buffers en que se dividen los datos. */
+	public static final int MAX_CHUNK_BYTES = 1 << 30;
+
+	/** Número de filas que contiene cada buffer, salvo el último que puede contener menos. */
+	protected final int rowsPerChunk;
+	/** Buffers con los datos de la matriz, o null si la matriz se ha cerrado. */
+	protected ByteBuffer[] chunks;
+
+	/**
+	 * Reserva los buffers necesarios para una matriz de las dimensiones indicadas.
+	 * 
+	 * @param rows Número de filas de la matriz.
+	 * @param cols Número de columnas de la matriz.
+	 * @param elementSize Tamaño en bytes de cada elemento.
+	 * 
+	 * @exception NegativeArraySizeException Se lanza si se intenta crear una matriz de
+	 * dimensiones negativas.
+	 * @exception IllegalArgumentException Se lanza si una sola fila no cabe en un buffer.
+	 */
+	protected CvmDirectMatrix(int rows, int cols, int elementSize) throws NegativeArraySizeException, IllegalArgumentException {
+		super(rows, cols);
+
+		this.rowsPerChunk = CvmDirectMatrix.rowsPerChunk(rows, cols, elementSize);
+
+		long rowBytes = (long)cols * elementSize;
+		int numChunks = (rows + this.rowsPerChunk - 1) / this.rowsPerChunk;
+		this.chunks = new ByteBuffer[numChunks];
+
+		for(int i = 0; i < numChunks; i++){
+			int chunkRows = Math.min(this.rowsPerChunk, rows - i * this.rowsPerChunk);
+			this.chunks[i] = ByteBuffer.allocateDirect((int)(chunkRows * rowBytes)).order(ByteOrder.nativeOrder());
+			}
+		}
+
+	/**
+	 * Crea una matriz sobre buffers ya existentes, por ejemplo proyecciones en memoria de un
+	 * fichero. Los buffers deben estar divididos por filas como indica rowsPerChunk y los
+	 * datos se interpretan según el orden de bytes de cada buffer.
+	 * 
+	 * @param rows Número de filas de la matriz.
+	 * @param cols Número de columnas de la matriz.
+	 * @param elementSize Tamaño en bytes de cada elemento.
+	 * @param chunks Buffers con los datos, que pasan a ser propiedad de la matriz.
+	 */
+	protected CvmDirectMatrix(int rows, int cols, int elementSize, ByteBuffer[] chunks) throws NegativeArraySizeException, IllegalArgumentException {
+		super(rows, cols);
+
+		this.rowsPerChunk = CvmDirectMatrix.rowsPerChunk(rows, cols, elementSize);
+		this.chunks = chunks;
+		}
+
+	/**
+	 * Calcula cuántas filas caben en cada buffer para una matriz de las dimensiones indicadas.
+	 * 
+	 * @exception NegativeArraySizeException Se lanza si las dimensiones son negativas.
+	 * @exception IllegalArgumentException Se lanza si una sola fila no cabe en un buffer.
+	 */
+	static int rowsPerChunk(int rows, int cols, int elementSize) throws NegativeArraySizeException, IllegalArgumentException {
+		if(rows < 0 || cols < 0)
+			throw new NegativeArraySizeException();
+
+		long rowBytes = (long)cols * elementSize;
+		if(rowBytes > MAX_CHUNK_BYTES)
+			throw new IllegalArgumentException("Row too large: " + rowBytes + " bytes");
+
+		return (rowBytes == 0) ? Math.max(rows, 1) : (int)Math.max(1, MAX_CHUNK_BYTES / rowBytes);
+		}
+
+	/**
+	 * Número total de elementos de la matriz. Puede superar el rango de los enteros.
+	 * 
+	 * @return Filas por columnas.
+	 */
+	public long getSize(){
+		return (long)this.rows * this.cols;
+		}
+
+	/**
+	 * Indica si la matriz se ha cerrado y ya no se puede utilizar.
+	 * 
+	 * @return true si la matriz está cerrada, false en caso contrario.
+	 */
+	public boolean isClosed(){
+		return this.chunks == null;
+		}
+
+	/**
+	 * Libera los buffers de la matriz. Llamar a este método más de una vez no tiene efecto.
+	 */
+	public void close(){
+		this.chunks = null;
+		}
+
+	/**
+	 * Comprueba que la matriz no se ha cerrado.
+	 * 
+	 * @exception IllegalStateException Se lanza si la matriz está cerrada.
+	 */
+	protected void checkOpen() throws IllegalStateException {
+		if(this.chunks == null)
+			throw new IllegalStateException("Matrix closed");
+		}
+
+	/**
+	 * Comprueba que la posición indicada está dentro de los límites de la matriz.
+	 * 
+	 * @exception ArrayIndexOutOfBoundsException Se produce si los parámetros de filas y columnas
+	 * no están dentro de los límites de la matriz.
+	 */
+	protected void checkIndex(int row, int col) throws ArrayIndexOutOfBoundsException {
+		if(row < 0 || row >= this.rows)
+			throw new ArrayIndexOutOfBoundsException(row);
+		if(col < 0 || col >= this.cols)
+			throw new ArrayIndexOutOfBoundsException(col);
+		}
+
+	/**
+	 * Comprueba que el número de elementos de la matriz puede guardarse en un array de Java.
+	 * 
+	 * @exception IllegalStateException Se lanza si la matriz tiene demasiados elementos.
+	 */
+	protected void checkHeapSize() throws IllegalStateException {
+		if(this.getSize() > Integer.MAX_VALUE)
+			throw new IllegalStateException("Matrix too large for the heap: " + this.getSize() + " elements");
+		}
+	}
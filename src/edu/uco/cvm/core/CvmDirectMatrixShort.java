@@ -0,0 +1,361 @@
+/*******************************************************************************
+ * CVM - Computer Vision Mobile.
+ * Copyright (C) 2010 CVM Luis Ciudad García
+ * 
+ * File: CvmDirectMatrixShort.java - This file is part of CVM.
+ * 
+ * CVM is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * CVM is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with CVM.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package edu.uco.cvm.core;
+
+import java.nio.ByteBuffer;
+import java.nio.ShortBuffer;
+
+import edu.uco.cvm.exceptions.CvmIncompatibleMatrixSizeException;
+import edu.uco.cvm.exceptions.CvmSingularMatrixException;
+
+/**
+ * <p>Esta clase representa una matriz de enteros cortos cuyos datos se guardan fuera del heap de
+ * Java. Ofrece las mismas operaciones elemento a elemento que CvmMatrixShort y conversiones
+ * en bloque desde y hacia ella.</p>
+ * 
+ * <p>Está pensada para acumuladores de gran tamaño que se mantienen durante toda la
+ * ejecución. Debe cerrarse con close cuando deje de utilizarse.</p>
+ * 
+ * @version 1.0
+ */
+public class CvmDirectMatrixShort extends CvmDirectMatrix {
+	/** Tamaño en bytes de cada elemento. */
+	private static final int ELEMENT_SIZE = 2;
+
+	/** Vistas tipadas de cada uno de los buffers de datos. */
+	protected ShortBuffer[] buffers;
+
+	/**
+	 * Crea una matriz de las dimensiones indicadas con todos sus elementos a cero.
+	 * 
+	 * @param rows Número de filas de la matriz.
+	 * @param cols Número de columnas de la matriz.
+	 * 
+	 * @exception NegativeArraySizeException Se lanza si se intenta crear una matriz de
+	 * dimensiones negativas.
+	 */
+	public CvmDirectMatrixShort(int rows, int cols) throws NegativeArraySizeException {
+		super(rows, cols, ELEMENT_SIZE);
+
+		this.createViews();
+		}
+
+	/**
+	 * Crea una matriz sobre buffers ya existentes divididos por filas, sin copiar los datos.
+	 * Lo utiliza CvmMatrixIO para proyectar ficheros en memoria.
+	 */
+	CvmDirectMatrixShort(int rows, int cols, ByteBuffer[] chunks){
+		super(rows, cols, ELEMENT_SIZE, chunks);
+
+		this.createViews();
+		}
+
+	/**
+	 * Crea las vistas tipadas de los buffers de datos.
+	 */
+	private void createViews(){
+		this.buffers = new ShortBuffer[this.chunks.length];
+		for(int i = 0; i < this.chunks.length; i++)
+			this.buffers[i] = this.chunks[i].asShortBuffer();
+		}
+
+	/**
+	 * Crea una matriz fuera del heap con una copia de los datos de la matriz indicada.
+	 * 
+	 * @param matrix Matriz original que se copiará en la nueva.
+	 */
+	public CvmDirectMatrixShort(CvmMatrixShort matrix){
+		this(matrix.rows, matrix.cols);
+
+		this.copyFrom(matrix);
+		}
+
+	/**
+	 * Libera los buffers de la matriz. Llamar a este método más de una vez no tiene efecto.
+	 */
+	public void close(){
+		super.close();
+		this.buffers = null;
+		}
+
+   /**
+    * Devuelve el valor del elemento de la matriz que indican los parámetros.
+    * 
+    * @param row Fila del elemento al que se intenta acceder.
+    * @param col Columna del elemento al que se intenta acceder.
+    * 
+    * @return Valor del elemento apuntado por los parámetros.
+    * 
+    * @exception ArrayIndexOutOfBoundsException Se produce si los parámetros de filas y columnas
+    * no están dentro de los límites de la matriz.
+    * @exception IllegalStateException Se lanza si la matriz está cerrada.
+    */
+    public short getElement(int row, int col) throws ArrayIndexOutOfBoundsException, IllegalStateException {
+    	this.checkOpen();
+    	this.checkIndex(row, col);
+
+    	return this.buffers[row / this.rowsPerChunk].get((row % this.rowsPerChunk) * this.cols + col);
+        }
+
+   /**
+    * Guarda el valor deseado en el elemento de la matriz que indican los parámetros.
+    * 
+    * @param row Fila del elemento al que se intenta acceder.
+    * @param col Columna del elemento al que se intenta acceder.
+    * @param value Valor que se quiere guardar en la posición indicada.
+    * 
+    * @exception ArrayIndexOutOfBoundsException Se produce si los parámetros de filas y columnas
+    * no están dentro de los límites de la matriz.
+    * @exception IllegalStateException Se lanza si la matriz está cerrada.
+    */
+    public void setElement(int row, int col, short value) throws ArrayIndexOutOfBoundsException, IllegalStateException {
+    	this.checkOpen();
+    	this.checkIndex(row, col);
+
+    	this.buffers[row / this.rowsPerChunk].put((row % this.rowsPerChunk) * this.cols + col, value);
+        }
+
+   /**
+    * Copia una fila completa de la matriz en el array indicado.
+    * 
+    * @param row Fila a copiar.
+    * @param dst Array de destino. Debe tener al menos tantos elementos como columnas la matriz.
+    * 
+    * @exception ArrayIndexOutOfBoundsException La fila no existe.
+    * @exception IllegalStateException Se lanza si la matriz está cerrada.
+    */
+    public void getRow(int row, short[] dst) throws ArrayIndexOutOfBoundsException, IllegalStateException {
+    	this.checkOpen();
+    	this.checkIndex(row, 0);
+
+    	ShortBuffer buffer = this.buffers[row / this.rowsPerChunk].duplicate();
+    	buffer.position((row % this.rowsPerChunk) * this.cols);
+    	buffer.get(dst, 0, this.cols);
+    	}
+
+   /**
+    * Sustituye una fila completa de la matriz por los valores del array indicado.
+    * 
+    * @param row Fila a sustituir.
+    * @param src Array con los nuevos valores. Debe tener al menos tantos elementos como
+    * columnas la matriz.
+    * 
+    * @exception ArrayIndexOutOfBoundsException La fila no existe.
+    * @exception IllegalStateException Se lanza si la matriz está cerrada.
+    */
+    public void setRow(int row, short[] src) throws ArrayIndexOutOfBoundsException, IllegalStateException {
+    	this.checkOpen();
+    	this.checkIndex(row, 0);
+
+    	ShortBuffer buffer = this.buffers[row / this.rowsPerChunk].duplicate();
+    	buffer.position((row % this.rowsPerChunk) * this.cols);
+    	buffer.put(src, 0, this.cols);
+    	}
+
+   /**
+    * Asigna el mismo valor a todos los elementos de la matriz.
+    * 
+    * @param value Valor a asignar.
+    * 
+    * @exception IllegalStateException Se lanza si la matriz está cerrada.
+    */
+    public void fill(short value) throws IllegalStateException {
+    	this.checkOpen();
+
+    	for(int i = 0; i < this.buffers.length; i++){
+    		ShortBuffer buffer = this.buffers[i];
+    		for(int j = 0; j < buffer.capacity(); j++)
+    			buffer.put(j, value);
+    		}
+    	}
+
+   /**
+    * Suma elemento a elemento los valores de la matriz original con los de la
+    * matriz que se pasa como parámetro.
+    * 
+    * @param matrix Matriz con los elementos a sumar a la matriz original.
+    * 
+    * @exception CvmIncompatibleMatrixSizeException Se produce si las matrices no son
+    * del mismo tamaño.
+    * @exception IllegalStateException Se lanza si alguna de las matrices está cerrada.
+    */
+    public void add(CvmDirectMatrixShort matrix) throws CvmIncompatibleMatrixSizeException, IllegalStateException {
+    	this.checkSize(matrix);
+    	this.checkOpen();
+    	matrix.checkOpen();
+
+    	for(int i = 0; i < this.buffers.length; i++){
+    		ShortBuffer buffer = this.buffers[i];
+    		ShortBuffer other = matrix.buffers[i];
+    		for(int j = 0; j < buffer.capacity(); j++)
+    			buffer.put(j, (short)(buffer.get(j) + other.get(j)));
+    		}
+        }
+
+   /**
+    * Resta elemento a elemento los valores de la matriz original con los de la
+    * matriz que se pasa como parámetro.
+    * 
+    * @param matrix Matriz con los elementos a restar de la matriz original.
+    * 
+    * @exception CvmIncompatibleMatrixSizeException Se produce si las matrices no son
+    * del mismo tamaño.
+    * @exception IllegalStateException Se lanza si alguna de las matrices está cerrada.
+    */
+    public void sub(CvmDirectMatrixShort matrix) throws CvmIncompatibleMatrixSizeException, IllegalStateException {
+    	this.checkSize(matrix);
+    	this.checkOpen();
+    	matrix.checkOpen();
+
+    	for(int i = 0; i < this.buffers.length; i++){
+    		ShortBuffer buffer = this.buffers[i];
+    		ShortBuffer other = matrix.buffers[i];
+    		for(int j = 0; j < buffer.capacity(); j++)
+    			buffer.put(j, (short)(buffer.get(j) - other.get(j)));
+    		}
+        }
+
+   /**
+    * Acumula sobre la matriz los valores de una matriz del heap del mismo tamaño.
+    * 
+    * @param matrix Matriz con los elementos a sumar a la matriz original.
+    * 
+    * @exception CvmIncompatibleMatrixSizeException Se produce si las matrices no son
+    * del mismo tamaño.
+    * @exception IllegalStateException Se lanza si la matriz está cerrada.
+    */
+    public void add(CvmMatrixShort matrix) throws CvmIncompatibleMatrixSizeException, IllegalStateException {
+    	this.checkSize(matrix);
+    	this.checkOpen();
+
+    	int k = 0;
+    	for(int i = 0; i < this.buffers.length; i++){
+    		ShortBuffer buffer = this.buffers[i];
+    		for(int j = 0; j < buffer.capacity(); j++)
+    			buffer.put(j, (short)(buffer.get(j) + matrix.data[k++]));
+    		}
+        }
+
+   /**
+    * Suma un valor a todos los elementos de la matriz original.
+    * 
+    * @param value Valor a sumar a todos los elementos de la matriz original.
+    * 
+    * @exception IllegalStateException Se lanza si la matriz está cerrada.
+    */
+    public void add(short value) throws IllegalStateException {
+    	this.checkOpen();
+
+    	for(int i = 0; i < this.buffers.length; i++){
+    		ShortBuffer buffer = this.buffers[i];
+    		for(int j = 0; j < buffer.capacity(); j++)
+    			buffer.put(j, (short)(buffer.get(j) + value));
+    		}
+        }
+
+   /**
+    * Multiplica todos los elementos de la matriz original por el valor indicado como parámetro.
+    * 
+    * @param factor Valor a multiplicar por cada uno de los elementos de la matriz original.
+    * 
+    * @exception IllegalStateException Se lanza si la matriz está cerrada.
+    */
+    public void mul(short factor) throws IllegalStateException {
+    	this.checkOpen();
+
+    	for(int i = 0; i < this.buffers.length; i++){
+    		ShortBuffer buffer = this.buffers[i];
+    		for(int j = 0; j < buffer.capacity(); j++)
+    			buffer.put(j, (short)(buffer.get(j) * factor));
+    		}
+        }
+
+   /**
+    * Copia en la matriz los datos de una matriz del heap del mismo tamaño. La copia se hace
+    * en bloque, con una sola operación por cada buffer.
+    * 
+    * @param matrix Matriz con los datos a copiar.
+    * 
+    * @exception CvmIncompatibleMatrixSizeException Se produce si las matrices no son
+    * del mismo tamaño.
+    * @exception IllegalStateException Se lanza si la matriz está cerrada.
+    */
+    public void copyFrom(CvmMatrixShort matrix) throws CvmIncompatibleMatrixSizeException, IllegalStateException {
+    	this.checkSize(matrix);
+    	this.checkOpen();
+
+    	int offset = 0;
+    	for(int i = 0; i < this.buffers.length; i++){
+    		ShortBuffer buffer = this.buffers[i].duplicate();
+    		buffer.clear();
+    		buffer.put(matrix.data, offset, buffer.capacity());
+    		offset += buffer.capacity();
+    		}
+    	}
+
+   /**
+    * Copia los datos de la matriz en una nueva matriz del heap. La copia se hace en bloque,
+    * con una sola operación por cada buffer.
+    * 
+    * @return Nueva matriz con los mismos valores.
+    * 
+    * @exception IllegalStateException Se lanza si la matriz está cerrada o si tiene más
+    * elementos de los que caben en un array.
+    */
+    public CvmMatrixShort toMatrixShort() throws IllegalStateException {
+    	this.checkOpen();
+    	this.checkHeapSize();
+
+    	CvmMatrixShort copy = new CvmMatrixShort(this.rows, this.cols);
+
+    	int offset = 0;
+    	for(int i = 0; i < this.buffers.length; i++){
+    		ShortBuffer buffer = this.buffers[i].duplicate();
+    		buffer.clear();
+    		buffer.get(copy.data, offset, buffer.capacity());
+    		offset += buffer.capacity();
+    		}
+
+    	return copy;
+    	}
+
+   /**
+    * Calcula la inversa de la matriz copiándola previamente al heap.
+    * 
+    * @return Nueva matriz con la inversa.
+    * 
+    * @exception CvmSingularMatrixException La matriz es singular y no tiene inversa.
+    * @exception CvmIncompatibleMatrixSizeException La matriz no es cuadrada.
+    */
+    public CvmMatrixDouble getInverse() throws CvmSingularMatrixException, CvmIncompatibleMatrixSizeException {
+    	return this.toMatrixShort().getInverse();
+    	}
+
+    /**
+     * Comprueba que la matriz que se pasa como parámetro tiene las mismas dimensiones.
+     * 
+     * @exception CvmIncompatibleMatrixSizeException Las matrices no son del mismo tamaño.
+     */
+    private void checkSize(CvmMatrix matrix) throws CvmIncompatibleMatrixSizeException {
+        if(this.rows != matrix.rows || this.cols != matrix.cols){
+            throw new CvmIncompatibleMatrixSizeException(matrix.rows, matrix.cols);
+            }
+        }
+	}
@@ -0,0 +1,354 @@
+/*******************************************************************************
+ * CVM - Computer Vision Mobile.
+ * Copyright (C) 2010 CVM Luis Ciudad García
+ * 
+ * File: CvmEigenDecomposition.java - This file is part of CVM.
+ * 
+ * CVM is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * CVM is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with CVM.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package edu.uco.cvm.core;
+
+import edu.uco.cvm.exceptions.CvmIncompatibleMatrixSizeException;
+
+/**
+ * <p>Esta clase representa la descomposición en valores y vectores propios de una matriz
+ * simétrica, A = V·D·Vt, siendo D una matriz diagonal con los valores propios y V una matriz
+ * ortogonal cuyas columnas son los vectores propios. Los valores propios se ordenan de mayor a
+ * menor y solo se lee la mitad inferior de la matriz original.</p>
+ * 
+ * <p>Las matrices de orden 2 y 3 se resuelven de forma cerrada. El resto se diagonalizan con el
+ * método cíclico de Jacobi: cada rotación anula un elemento fuera de la diagonal, y se recorren
+ * todos los elementos hasta que su suma es despreciable. Todo el cálculo se hace sobre arrays
+ * reservados al crear el objeto.</p>
+ * 
+ * <p>Para problemas de 2x2 en cada pixel, como los tensores de estructura de un detector de
+ * esquinas, los métodos estáticos eigen2x2 y minEigenvalue2x2 no crean ningún objeto.</p>
+ * 
+ * @version 1.0
+ */
+public class CvmEigenDecomposition {
+	/** Número máximo de barridos del método de Jacobi. */
+	static final int MAX_SWEEPS = 64;
+
+	/** Orden de la matriz. */
+	private final int order;
+	/** Valores propios ordenados de mayor a menor. */
+	private final double[] values;
+	/** Vectores propios por columnas, ordenados por filas. */
+	private final double[] vectors;
+
+	/**
+	 * Calcula los valores y vectores propios de una matriz simétrica.
+	 * 
+	 * @param matrix Matriz simétrica. No se modifica y solo se lee su mitad inferior.
+	 * 
+	 * @exception CvmIncompatibleMatrixSizeException La matriz no es cuadrada.
+	 */
+	public CvmEigenDecomposition(CvmMatrixDouble matrix) throws CvmIncompatibleMatrixSizeException {
+		if(matrix.rows != matrix.cols)
+			throw new CvmIncompatibleMatrixSizeException(matrix.rows, matrix.cols);
+
+		this.order = matrix.rows;
+		this.values = new double[this.order];
+		this.vectors = new double[this.order * this.order];
+
+		int n = this.order;
+		double[] a = matrix.data;
+
+		if(n == 2){
+			double[] r = new double[4];
+			CvmEigenDecomposition.eigen2x2(a[0], a[2], a[3], r);
+
+			this.values[0] = r[0];
+			this.values[1] = r[1];
+			this.vectors[0] = r[2];
+			this.vectors[2] = r[3];
+			this.vectors[1] = -r[3];
+			this.vectors[3] = r[2];
+			}
+		else if(n != 3 || !this.decompose3x3(a)){
+			double[] work = new double[n * n];
+			for(int i = 0; i < n; i++)
+				for(int j = 0; j <= i; j++)
+					work[i * n + j] = work[j * n + i] = a[i * n + j];
+
+			this.jacobi(work);
+			this.sort();
+			}
+		}
+
+	/**
+	 * <p>Calcula de forma cerrada los valores propios de la matriz simétrica [[a, b], [b, c]] y
+	 * el vector propio unitario del mayor de ellos. El vector propio del menor es el
+	 * perpendicular, (-y, x).</p>
+	 * 
+	 * @param a Elemento (0,0).
+	 * @param b Elementos (0,1) y (1,0).
+	 * @param c Elemento (1,1).
+	 * @param result Array de al menos 4 elementos en el que se guardan el valor propio mayor,
+	 * el menor y las dos componentes (x, y) del vector propio del mayor.
+	 */
+	public static void eigen2x2(double a, double b, double c, double[] result){
+		double mean = (a + c) * 0.5;
+		double half = (a - c) * 0.5;
+		double radius = Math.sqrt(half * half + b * b);
+
+		result[0] = mean + radius;
+		result[1] = mean - radius;
+
+		/** Ángulo del vector propio: tan(2t) = 2b / (a - c) */
+		double angle = 0.5 * Math.atan2(b, half);
+		result[2] = Math.cos(angle);
+		result[3] = Math.sin(angle);
+		}
+
+	/**
+	 * Calcula de forma cerrada el menor valor propio de la matriz simétrica [[a, b], [b, c]].
+	 * 
+	 * @param a Elemento (0,0).
+	 * @param b Elementos (0,1) y (1,0).
+	 * @param c Elemento (1,1).
+	 * 
+	 * @return El menor valor propio.
+	 */
+	public static double minEigenvalue2x2(double a, double b, double c){
+		double half = (a - c) * 0.5;
+
+		return (a + c) * 0.5 - Math.sqrt(half * half + b * b);
+		}
+
+	/**
+	 * Resuelve una matriz de 3x3 con las fórmulas trigonométricas para las raíces del
+	 * polinomio característico y obtiene cada vector propio como el mayor producto vectorial
+	 * entre dos filas de A - l·I. Si hay valores propios casi repetidos los vectores quedan
+	 * mal determinados, y entonces se devuelve false para usar el método de Jacobi.
+	 */
+	private boolean decompose3x3(double[] a){
+		double a00 = a[0], a10 = a[3], a11 = a[4], a20 = a[6], a21 = a[7], a22 = a[8];
+
+		double p1 = a10 * a10 + a20 * a20 + a21 * a21;
+		double q = (a00 + a11 + a22) / 3;
+		double d0 = a00 - q, d1 = a11 - q, d2 = a22 - q;
+		double p2 = d0 * d0 + d1 * d1 + d2 * d2 + 2 * p1;
+		double p = Math.sqrt(p2 / 6);
+
+		if(p == 0)
+			return false;
+
+		/** det((A - q·I) / p) / 2 */
+		double inv = 1 / p;
+		double b00 = d0 * inv, b11 = d1 * inv, b22 = d2 * inv;
+		double b10 = a10 * inv, b20 = a20 * inv, b21 = a21 * inv;
+		double r = 0.5 * (b00 * (b11 * b22 - b21 * b21) - b10 * (b10 * b22 - b21 * b20) + b20 * (b10 * b21 - b11 * b20));
+		r = Math.max(-1, Math.min(1, r));
+
+		double phi = Math.acos(r) / 3;
+		double l0 = q + 2 * p * Math.cos(phi);
+		double l2 = q + 2 * p * Math.cos(phi + 2 * Math.PI / 3);
+		double l1 = 3 * q - l0 - l2;
+
+		double tolerance = 1e-6 * (Math.abs(l0) + Math.abs(l2) + p);
+		if(l0 - l1 < tolerance || l1 - l2 < tolerance)
+			return false;
+
+		this.values[0] = l0;
+		this.values[1] = l1;
+		this.values[2] = l2;
+
+		double[] m = new double[9];
+		for(int k = 0; k < 2; k++){
+			double l = this.values[k];
+
+			/** Filas de A - l·I */
+			m[0] = a00 - l; m[1] = a10;     m[2] = a20;
+			m[3] = a10;     m[4] = a11 - l; m[5] = a21;
+			m[6] = a20;     m[7] = a21;     m[8] = a22 - l;
+
+			double bestNorm = -1, vx = 0, vy = 0, vz = 0;
+			for(int pair = 0; pair < 3; pair++){
+				int u = (pair == 2) ? 3 : 0;
+				int w = (pair == 0) ? 3 : 6;
+
+				double cx = m[u + 1] * m[w + 2] - m[u + 2] * m[w + 1];
+				double cy = m[u + 2] * m[w] - m[u] * m[w + 2];
+				double cz = m[u] * m[w + 1] - m[u + 1] * m[w];
+				double norm = cx * cx + cy * cy + cz * cz;
+
+				if(norm > bestNorm){
+					bestNorm = norm;
+					vx = cx;
+					vy = cy;
+					vz = cz;
+					}
+				}
+
+			if(bestNorm <= 0)
+				return false;
+
+			double scale = 1 / Math.sqrt(bestNorm);
+			this.vectors[k] = vx * scale;
+			this.vectors[3 + k] = vy * scale;
+			this.vectors[6 + k] = vz * scale;
+			}
+
+		/** El tercer vector completa la base ortonormal */
+		double x0 = this.vectors[0], y0 = this.vectors[3], z0 = this.vectors[6];
+		double x1 = this.vectors[1], y1 = this.vectors[4], z1 = this.vectors[7];
+		this.vectors[2] = y0 * z1 - z0 * y1;
+		this.vectors[5] = z0 * x1 - x0 * z1;
+		this.vectors[8] = x0 * y1 - y0 * x1;
+
+		return true;
+		}
+
+	/**
+	 * Método cíclico de Jacobi sobre una copia simétrica completa de la matriz. Cada rotación
+	 * se aplica solo a las filas y columnas p y q, y se acumula en la matriz de vectores.
+	 */
+	private void jacobi(double[] a){
+		int n = this.order;
+
+		for(int i = 0; i < n; i++)
+			this.vectors[i * n + i] = 1;
+
+		for(int sweep = 0; sweep < MAX_SWEEPS; sweep++){
+			double off = 0, diag = 0;
+			for(int i = 0; i < n; i++){
+				diag += a[i * n + i] * a[i * n + i];
+				for(int j = 0; j < i; j++)
+					off += a[i * n + j] * a[i * n + j];
+				}
+
+			if(off <= 1e-30 * diag || off == 0)
+				break;
+
+			for(int p = 0; p < n - 1; p++){
+				for(int q = p + 1; q < n; q++){
+					double apq = a[p * n + q];
+					if(apq == 0)
+						continue;
+
+					double app = a[p * n + p];
+					double aqq = a[q * n + q];
+
+					/** Rotación que anula a[p][q] */
+					double theta = (aqq - app) / (2 * apq);
+					double t = ((theta >= 0) ? 1 : -1) / (Math.abs(theta) + Math.sqrt(theta * theta + 1));
+					double c = 1 / Math.sqrt(t * t + 1);
+					double s = t * c;
+
+					for(int k = 0; k < n; k++){
+						double akp = a[k * n + p];
+						double akq = a[k * n + q];
+						a[k * n + p] = c * akp - s * akq;
+						a[k * n + q] = s * akp + c * akq;
+						}
+					for(int k = 0; k < n; k++){
+						double apk = a[p * n + k];
+						double aqk = a[q * n + k];
+						a[p * n + k] = c * apk - s * aqk;
+						a[q * n + k] = s * apk + c * aqk;
+						}
+					for(int k = 0; k < n; k++){
+						double vkp = this.vectors[k * n + p];
+						double vkq = this.vectors[k * n + q];
+						this.vectors[k * n + p] = c * vkp - s * vkq;
+						this.vectors[k * n + q] = s * vkp + c * vkq;
+						}
+					}
+				}
+			}
+
+		for(int i = 0; i < n; i++)
+			this.values[i] = a[i * n + i];
+		}
+
+	/**
+	 * Ordena los valores propios de mayor a menor junto con sus vectores, por selección.
+	 */
+	private void sort(){
+		int n = this.order;
+
+		for(int i = 0; i < n - 1; i++){
+			int max = i;
+			for(int j = i + 1; j < n; j++)
+				if(this.values[j] > this.values[max])
+					max = j;
+
+			if(max != i){
+				double aux = this.values[i];
+				this.values[i] = this.values[max];
+				this.values[max] = aux;
+
+				for(int k = 0; k < n; k++){
+					aux = this.vectors[k * n + i];
+					this.vectors[k * n + i] = this.vectors[k * n + max];
+					this.vectors[k * n + max] = aux;
+					}
+				}
+			}
+		}
+
+	/**
+	 * Observador del orden de la matriz.
+	 * 
+	 * @return Orden de la matriz descompuesta.
+	 */
+	public int getOrder(){
+		return this.order;
+		}
+
+	/**
+	 * Devuelve los valores propios ordenados de mayor a menor.
+	 * 
+	 * @return Nuevo array con los valores propios.
+	 */
+	public double[] getEigenvalues(){
+		return this.values.clone();
+		}
+
+	/**
+	 * Devuelve uno de los valores propios.
+	 * 
+	 * @param index Posición del valor propio, 0 para el mayor.
+	 * 
+	 * @return Valor propio indicado.
+	 */
+	public double getEigenvalue(int index){
+		return this.values[index];
+		}
+
+	/**
+	 * Devuelve la matriz V, cuya columna i es el vector propio unitario del valor propio i.
+	 * 
+	 * @return Nueva matriz ortogonal con los vectores propios.
+	 */
+	public CvmMatrixDouble getV(){
+		return new CvmMatrixDouble(this.order, this.order, this.vectors);
+		}
+
+	/**
+	 * Devuelve la matriz diagonal D con los valores propios.
+	 * 
+	 * @return Nueva matriz diagonal.
+	 */
+	public CvmMatrixDouble getD(){
+		CvmMatrixDouble d = new CvmMatrixDouble(this.order, this.order);
+
+		for(int i = 0; i < this.order; i++)
+			d.data[i * this.order + i] = this.values[i];
+
+		return d;
+		}
+	}
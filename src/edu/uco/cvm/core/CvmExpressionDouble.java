@@ -0,0 +1,472 @@
+/*******************************************************************************
+ * CVM - Computer Vision Mobile.
+ * Copyright (C) 2010 CVM Luis Ciudad García
+ * 
+ * File: CvmExpressionDouble.java - This file is part of CVM.
+ * 
+ * CVM is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * CVM is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with CVM.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package edu.uco.cvm.core;
+
+import edu.uco.cvm.exceptions.CvmIncompatibleMatrixSizeException;
+
+/**
+ * <p>Esta clase representa una expresión aritmética elemento a elemento sobre matrices de
+ * números reales que no se calcula hasta que se llama a evaluate. Por ejemplo:</p>
+ * 
+ * <pre>
+ * CvmMatrixDouble r = CvmExpressionDouble.of(a).add(b).mul(2.0).sub(c).evaluate();
+ * </pre>
+ * 
+ * <p>calcula lo mismo que a.getAdd(b).getMul(2.0).getSub(c), pero recorriendo las matrices una
+ * sola vez y sin crear matrices intermedias. Las operaciones se registran como un programa en
+ * notación postfija que se ejecuta sobre bloques de BLOCK_SIZE elementos, de modo que los
+ * valores intermedios de cada bloque permanecen en la caché.</p>
+ * 
+ * <p>Los métodos de construcción modifican la expresión y la devuelven para poder encadenarlos.
+ * Las matrices se leen en el momento de evaluar la expresión, no al construirla.</p>
+ * 
+ * @version 1.0
+ */
+public class CvmExpressionDouble {
+	/** Número de elementos que se procesan en cada bloque de la evaluación. */
+	static final int BLOCK_SIZE = 256;
+
+	/** Apila los valores de una matriz. */
+	private static final int PUSH = 0;
+	/** Opera la cima de la pila con una matriz. */
+	private static final int ADD_MATRIX = 1;
+	private static final int SUB_MATRIX = 2;
+	private static final int MUL_MATRIX = 3;
+	private static final int DIV_MATRIX = 4;
+	/** Opera la cima de la pila con un escalar. */
+	private static final int ADD_SCALAR = 5;
+	private static final int SUB_SCALAR = 6;
+	private static final int MUL_SCALAR = 7;
+	private static final int DIV_SCALAR = 8;
+	private static final int MIN_SCALAR = 9;
+	private static final int MAX_SCALAR = 10;
+	/** Opera los dos valores de la cima de la pila. */
+	private static final int ADD = 11;
+	private static final int SUB = 12;
+	private static final int MUL = 13;
+	private static final int DIV = 14;
+	/** Opera la cima de la pila. */
+	private static final int NEG = 15;
+	private static final int ABS = 16;
+
+	/** Filas de todas las matrices de la expresión. */
+	private final int rows;
+	/** Columnas de todas las matrices de la expresión. */
+	private final int cols;
+
+	/** Código de cada operación del programa. */
+	private int[] ops;
+	/** Matriz asociada a cada operación, o null si no tiene. */
+	private CvmMatrixDouble[] matrices;
+	/** Escalar asociado a cada operación. */
+	private double[] scalars;
+	/** Número de operaciones del programa. */
+	private int size;
+	/** Altura actual de la pila al ejecutar el programa. */
+	private int depth;
+	/** Altura máxima que alcanza la pila. */
+	private int maxDepth;
+
+	private CvmExpressionDouble(CvmMatrixDouble matrix){
+		this.rows = matrix.rows;
+		this.cols = matrix.cols;
+
+		this.ops = new int[8];
+		this.matrices = new CvmMatrixDouble[8];
+		this.scalars = new double[8];
+
+		this.append(PUSH, matrix, 0);
+		this.depth = this.maxDepth = 1;
+		}
+
+	/**
+	 * Comienza una expresión con los valores de una matriz.
+	 * 
+	 * @param matrix Matriz inicial.
+	 * 
+	 * @return Nueva expresión.
+	 */
+	public static CvmExpressionDouble of(CvmMatrixDouble matrix){
+		return new CvmExpressionDouble(matrix);
+		}
+
+	/**
+	 * Suma elemento a elemento una matriz.
+	 * 
+	 * @param matrix Matriz a sumar.
+	 * 
+	 * @return La propia expresión.
+	 * 
+	 * @exception CvmIncompatibleMatrixSizeException La matriz no tiene las dimensiones de la expresión.
+	 */
+	public CvmExpressionDouble add(CvmMatrixDouble matrix) throws CvmIncompatibleMatrixSizeException {
+		this.checkSize(matrix);
+		this.append(ADD_MATRIX, matrix, 0);
+		return this;
+		}
+
+	/**
+	 * Resta elemento a elemento una matriz.
+	 * 
+	 * @param matrix Matriz a restar.
+	 * 
+	 * @return La propia expresión.
+	 * 
+	 * @exception CvmIncompatibleMatrixSizeException La matriz no tiene las dimensiones de la expresión.
+	 */
+	public CvmExpressionDouble sub(CvmMatrixDouble matrix) throws CvmIncompatibleMatrixSizeException {
+		this.checkSize(matrix);
+		this.append(SUB_MATRIX, matrix, 0);
+		return this;
+		}
+
+	/**
+	 * Multiplica elemento a elemento por una matriz (no es el producto de matrices).
+	 * 
+	 * @param matrix Matriz por la que multiplicar.
+	 * 
+	 * @return La propia expresión.
+	 * 
+	 * @exception CvmIncompatibleMatrixSizeException La matriz no tiene las dimensiones de la expresión.
+	 */
+	public CvmExpressionDouble mulElements(CvmMatrixDouble matrix) throws CvmIncompatibleMatrixSizeException {
+		this.checkSize(matrix);
+		this.append(MUL_MATRIX, matrix, 0);
+		return this;
+		}
+
+	/**
+	 * Divide elemento a elemento por una matriz.
+	 * 
+	 * @param matrix Matriz por la que dividir.
+	 * 
+	 * @return La propia expresión.
+	 * 
+	 * @exception CvmIncompatibleMatrixSizeException La matriz no tiene las dimensiones de la expresión.
+	 */
+	public CvmExpressionDouble divElements(CvmMatrixDouble matrix) throws CvmIncompatibleMatrixSizeException {
+		this.checkSize(matrix);
+		this.append(DIV_MATRIX, matrix, 0);
+		return this;
+		}
+
+	/**
+	 * Suma un valor a todos los elementos.
+	 * 
+	 * @param value Valor a sumar.
+	 * 
+	 * @return La propia expresión.
+	 */
+	public CvmExpressionDouble add(double value){
+		this.append(ADD_SCALAR, null, value);
+		return this;
+		}
+
+	/**
+	 * Resta un valor a todos los elementos.
+	 * 
+	 * @param value Valor a restar.
+	 * 
+	 * @return La propia expresión.
+	 */
+	public CvmExpressionDouble sub(double value){
+		this.append(SUB_SCALAR, null, value);
+		return this;
+		}
+
+	/**
+	 * Multiplica todos los elementos por un valor.
+	 * 
+	 * @param factor Valor por el que multiplicar.
+	 * 
+	 * @return La propia expresión.
+	 */
+	public CvmExpressionDouble mul(double factor){
+		this.append(MUL_SCALAR, null, factor);
+		return this;
+		}
+
+	/**
+	 * Divide todos los elementos por un valor.
+	 * 
+	 * @param factor Valor por el que dividir.
+	 * 
+	 * @return La propia expresión.
+	 * 
+	 */
+	public CvmExpressionDouble div(double factor) {
+		this.append(DIV_SCALAR, null, factor);
+		return this;
+		}
+
+	/**
+	 * Sustituye cada elemento por el menor entre él y el valor indicado.
+	 * 
+	 * @param value Valor máximo que pueden tomar los elementos.
+	 * 
+	 * @return La propia expresión.
+	 */
+	public CvmExpressionDouble min(double value){
+		this.append(MIN_SCALAR, null, value);
+		return this;
+		}
+
+	/**
+	 * Sustituye cada elemento por el mayor entre él y el valor indicado.
+	 * 
+	 * @param value Valor mínimo que pueden tomar los elementos.
+	 * 
+	 * @return La propia expresión.
+	 */
+	public CvmExpressionDouble max(double value){
+		this.append(MAX_SCALAR, null, value);
+		return this;
+		}
+
+	/**
+	 * Cambia el signo de todos los elementos.
+	 * 
+	 * @return La propia expresión.
+	 */
+	public CvmExpressionDouble neg(){
+		this.append(NEG, null, 0);
+		return this;
+		}
+
+	/**
+	 * Sustituye todos los elementos por su valor absoluto.
+	 * 
+	 * @return La propia expresión.
+	 */
+	public CvmExpressionDouble abs(){
+		this.append(ABS, null, 0);
+		return this;
+		}
+
+	/**
+	 * Suma elemento a elemento el resultado de otra expresión.
+	 * 
+	 * @param expression Expresión a sumar. Se copia su estado actual.
+	 * 
+	 * @return La propia expresión.
+	 * 
+	 * @exception CvmIncompatibleMatrixSizeException Las expresiones no tienen las mismas dimensiones.
+	 */
+	public CvmExpressionDouble add(CvmExpressionDouble expression) throws CvmIncompatibleMatrixSizeException {
+		return this.combine(expression, ADD);
+		}
+
+	/**
+	 * Resta elemento a elemento el resultado de otra expresión.
+	 * 
+	 * @param expression Expresión a restar. Se copia su estado actual.
+	 * 
+	 * @return La propia expresión.
+	 * 
+	 * @exception CvmIncompatibleMatrixSizeException Las expresiones no tienen las mismas dimensiones.
+	 */
+	public CvmExpressionDouble sub(CvmExpressionDouble expression) throws CvmIncompatibleMatrixSizeException {
+		return this.combine(expression, SUB);
+		}
+
+	/**
+	 * Multiplica elemento a elemento por el resultado de otra expresión.
+	 * 
+	 * @param expression Expresión por la que multiplicar. Se copia su estado actual.
+	 * 
+	 * @return La propia expresión.
+	 * 
+	 * @exception CvmIncompatibleMatrixSizeException Las expresiones no tienen las mismas dimensiones.
+	 */
+	public CvmExpressionDouble mulElements(CvmExpressionDouble expression) throws CvmIncompatibleMatrixSizeException {
+		return this.combine(expression, MUL);
+		}
+
+	/**
+	 * Divide elemento a elemento por el resultado de otra expresión.
+	 * 
+	 * @param expression Expresión por la que dividir. Se copia su estado actual.
+	 * 
+	 * @return La propia expresión.
+	 * 
+	 * @exception CvmIncompatibleMatrixSizeException Las expresiones no tienen las mismas dimensiones.
+	 */
+	public CvmExpressionDouble divElements(CvmExpressionDouble expression) throws CvmIncompatibleMatrixSizeException {
+		return this.combine(expression, DIV);
+		}
+
+	/**
+	 * Evalúa la expresión en una nueva matriz.
+	 * 
+	 * @return Nueva matriz con el resultado.
+	 */
+	public CvmMatrixDouble evaluate(){
+		return this.evaluate(new CvmMatrixDouble(this.rows, this.cols));
+		}
+
+	/**
+	 * Evalúa la expresión sobre la matriz destino. El destino puede ser una de las matrices
+	 * de la expresión, ya que cada bloque se escribe después de haber leído todos sus operandos.
+	 * 
+	 * @param dest Matriz en la que se guarda el resultado.
+	 * 
+	 * @return La matriz destino.
+	 * 
+	 * @exception CvmIncompatibleMatrixSizeException La matriz destino no tiene las dimensiones
+	 * de la expresión.
+	 */
+	public CvmMatrixDouble evaluate(CvmMatrixDouble dest) throws CvmIncompatibleMatrixSizeException {
+		this.checkSize(dest);
+
+		double[][] stack = new double[this.maxDepth][BLOCK_SIZE];
+		int length = this.rows * this.cols;
+
+		for(int start = 0; start < length; start += BLOCK_SIZE){
+			int n = Math.min(BLOCK_SIZE, length - start);
+			int sp = -1;
+
+			for(int k = 0; k < this.size; k++){
+				double scalar = this.scalars[k];
+				double[] top = (sp >= 0) ? stack[sp] : null;
+				double[] m = (this.matrices[k] != null) ? this.matrices[k].data : null;
+
+				switch(this.ops[k]){
+					case PUSH:
+						System.arraycopy(m, start, stack[++sp], 0, n);
+						break;
+					case ADD_MATRIX:
+						for(int i = 0; i < n; i++) top[i] += m[start + i];
+						break;
+					case SUB_MATRIX:
+						for(int i = 0; i < n; i++) top[i] -= m[start + i];
+						break;
+					case MUL_MATRIX:
+						for(int i = 0; i < n; i++) top[i] *= m[start + i];
+						break;
+					case DIV_MATRIX:
+						for(int i = 0; i < n; i++) top[i] /= m[start + i];
+						break;
+					case ADD_SCALAR:
+						for(int i = 0; i < n; i++) top[i] += scalar;
+						break;
+					case SUB_SCALAR:
+						for(int i = 0; i < n; i++) top[i] -= scalar;
+						break;
+					case MUL_SCALAR:
+						for(int i = 0; i < n; i++) top[i] *= scalar;
+						break;
+					case DIV_SCALAR:
+						for(int i = 0; i < n; i++) top[i] /= scalar;
+						break;
+					case MIN_SCALAR:
+						for(int i = 0; i < n; i++) top[i] = Math.min(top[i], scalar);
+						break;
+					case MAX_SCALAR:
+						for(int i = 0; i < n; i++) top[i] = Math.max(top[i], scalar);
+						break;
+					case NEG:
+						for(int i = 0; i < n; i++) top[i] = -top[i];
+						break;
+					case ABS:
+						for(int i = 0; i < n; i++) top[i] = Math.abs(top[i]);
+						break;
+					default:
+						/** Operación entre los dos valores de la cima */
+						double[] below = stack[--sp];
+						switch(this.ops[k]){
+							case ADD:
+								for(int i = 0; i < n; i++) below[i] += top[i];
+								break;
+							case SUB:
+								for(int i = 0; i < n; i++) below[i] -= top[i];
+								break;
+							case MUL:
+								for(int i = 0; i < n; i++) below[i] *= top[i];
+								break;
+							case DIV:
+								for(int i = 0; i < n; i++) below[i] /= top[i];
+								break;
+							}
+						break;
+					}
+				}
+
+			System.arraycopy(stack[0], 0, dest.data, start, n);
+			}
+
+		return dest;
+		}
+
+	/**
+	 * Añade al programa las operaciones de otra expresión seguidas de la operación binaria
+	 * que combina ambos resultados.
+	 */
+	private CvmExpressionDouble combine(CvmExpressionDouble expression, int op) throws CvmIncompatibleMatrixSizeException {
+		if(this.rows != expression.rows || this.cols != expression.cols)
+			throw new CvmIncompatibleMatrixSizeException(expression.rows, expression.cols);
+
+		int base = this.depth;
+		int otherSize = expression.size;
+
+		for(int k = 0; k < otherSize; k++)
+			this.append(expression.ops[k], expression.matrices[k], expression.scalars[k]);
+
+		this.maxDepth = Math.max(this.maxDepth, base + expression.maxDepth);
+		this.depth = base + 1;
+		this.append(op, null, 0);
+		this.depth = base;
+
+		return this;
+		}
+
+	/**
+	 * Añade una operación al final del programa.
+	 */
+	private void append(int op, CvmMatrixDouble matrix, double scalar){
+		if(this.size == this.ops.length){
+			int capacity = this.ops.length * 2;
+
+			int[] newOps = new int[capacity];
+			CvmMatrixDouble[] newMatrices = new CvmMatrixDouble[capacity];
+			double[] newScalars = new double[capacity];
+
+			System.arraycopy(this.ops, 0, newOps, 0, this.size);
+			System.arraycopy(this.matrices, 0, newMatrices, 0, this.size);
+			System.arraycopy(this.scalars, 0, newScalars, 0, this.size);
+
+			this.ops = newOps;
+			this.matrices = newMatrices;
+			this.scalars = newScalars;
+			}
+
+		this.ops[this.size] = op;
+		this.matrices[this.size] = matrix;
+		this.scalars[this.size] = scalar;
+		this.size++;
+		}
+
+	/**
+	 * Comprueba que la matriz tiene las dimensiones de la expresión.
+	 */
+	private void checkSize(CvmMatrixDouble matrix) throws CvmIncompatibleMatrixSizeException {
+		if(this.rows != matrix.rows || this.cols != matrix.cols)
+			throw new CvmIncompatibleMatrixSizeException(matrix.rows, matrix.cols);
+		}
+	}
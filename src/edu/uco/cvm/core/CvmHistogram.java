@@ -1,6 +1,6 @@
 /*******************************************************************************
  * CVM - Computer Vision Mobile.
- * Copyright (C) 2010 CVM Luis Ciudad Garca
+ * Copyright (C) 2010 CVM Luis Ciudad García
  * 
  * File: CvmHistogram.java - This file is part of CVM.
  * 
@@ -30,18 +30,18 @@ import java.util.TreeMap;
  * <p>Dichos valores pueden ser cantidad de luminosidad de pixels, modulo o angulo de un gradiente, etc.
  * En general cualquier valor entero.</p>
  * 
- * @author Luis Ciudad Garca.
+ * @author Luis Ciudad García.
  * @version 1.0
  *
  */
 public class CvmHistogram extends TreeMap<Integer, Integer>{	
 	
-	/** Clave correspondiente al valor que ms ocurrencias tiene dentro del histograma. */
+	/** Clave correspondiente al valor que más ocurrencias tiene dentro del histograma. */
 	Integer maxOcurrKey;
 	
 	/**
-	 * Constructor vaco.
-	 * Crea un histograma sin ninguna clave y ningn valor asignado.
+	 * Constructor vacío.
+	 * Crea un histograma sin ninguna clave y ningún valor asignado.
 	 */
 	public CvmHistogram(){
 		super();
@@ -52,7 +52,7 @@ public class CvmHistogram extends TreeMap<Integer, Integer>{
 	/**
 	 * Crea un histograma del canal pasado como parametro.
 	 * 
-	 * @param channel Canal usado como base en la creacin del histograma. 
+	 * @param channel Canal usado como base en la creación del histograma. 
 	 */
 	public CvmHistogram(CvmChannel channel){
 		super();
@@ -61,14 +61,27 @@ public class CvmHistogram extends TreeMap<Integer, Integer>{
 			this.increment(channel.data[i]);
 		}
 	
+	/**
+	 * Crea un histograma de la región de interés que representa la vista pasada como parámetro.
+	 * 
+	 * @param view Vista usada como base en la creación del histograma.
+	 */
+	public CvmHistogram(CvmMatrixIntView view){
+		super();
+		
+		for(int r = 0, row = view.offset; r < view.rows; r++, row += view.stride)
+			for(int c = row; c < row + view.cols; c++)
+				this.increment(view.data[c]);
+		}
+	
 	/**
 	 * Incrementa en una unidad la clave correspondiente. No es necesario crear explicitamente
-	 * la clave que se quiere incrementar ya que si esta no existe la crea este mtodo.
+	 * la clave que se quiere incrementar ya que si esta no existe la crea este método.
 	 * 
-	 * @param key Clave cuyo valor se incrementar en una unidad
+	 * @param key Clave cuyo valor se incrementará en una unidad
 	 * 
-	 * @return Si la clave ya exista devuelve el valor anterior al incremento, en caso
-	 * contrario la funcin devuelve null.
+	 * @return Si la clave ya existía devuelve el valor anterior al incremento, en caso
+	 * contrario la función devuelve null.
 	 */
 	public Integer increment(int key){
 		if(this.containsKey(key)){
@@ -95,7 +108,7 @@ public class CvmHistogram extends TreeMap<Integer, Integer>{
 	 * 
 	 * @param key Clave asociada al valor que se devuelve.
 	 * 
-	 * @return Se devuelve el valor de la clave que se especifica en el parmetro, si
+	 * @return Se devuelve el valor de la clave que se especifica en el parámetro, si
 	 * la clave no existe en el histograma se devuelve el valor cero.
 	 */
 	public Integer get(Integer key){
@@ -106,13 +119,13 @@ public class CvmHistogram extends TreeMap<Integer, Integer>{
 	
 	/**
 	 * Asigna a una clave un valor concreto. No es necesario que la clave exista con 
-	 * anterioridad ya que si esta no existe en el histograma ser creada.
+	 * anterioridad ya que si esta no existe en el histograma será creada.
 	 * 
 	 * @param key Clave a la que asignar el valor.
-	 * @param value Valor que se asociar con la clave.
+	 * @param value Valor que se asociará con la clave.
 	 * 
-	 * @return Si la clave ya exista devuelve el valor anterior al incremento, en caso
-	 * contrario la funcin devuelve null.
+	 * @return Si la clave ya existía devuelve el valor anterior al incremento, en caso
+	 * contrario la función devuelve null.
 	 * 
 	 * @exception ClassCastException
 	 * @exception NullPointerException
@@ -127,9 +140,9 @@ public class CvmHistogram extends TreeMap<Integer, Integer>{
 		}
 	
 	/**
-	 * Sustituye el mapeo del histograma por el que se pasa como paramtro.
+	 * Sustituye el mapeo del histograma por el que se pasa como paramétro.
 	 * 
-	 * @param map Mapa que sustituir al mapeo actual del histograma.
+	 * @param map Mapa que sustituirá al mapeo actual del histograma.
 	 * 
 	 * @exception ClassCastException
 	 * @exception NullPointerException
@@ -150,17 +163,17 @@ public class CvmHistogram extends TreeMap<Integer, Integer>{
 		}
 	
 	/**
-	 * <p>Obtiene una imagen que representa el histograma del canal como un grfico de barras.</p>
+	 * <p>Obtiene una imagen que representa el histograma del canal como un gráfico de barras.</p>
 	 * <p>En cada columna se representan la cantidad de pixels que toman el valor de dicha columna 
-	 * en el canal de izquierda a derecha comenzando en el mnimo hasta el mximo. La altura de la barra es 
+	 * en el canal de izquierda a derecha comenzando en el mínimo hasta el máximo. La altura de la barra es 
 	 * proporcional al alto de la imagen, lo que quiere decir que el valor de luminosidad que tengan
-	 * ms pixels siempre llegar a lo mas alto de la imagen y los dems valores sern relativos a l.</p>
-	 * <p>Para que no se produzca una prdidad de informacin, es necesario que el ancho de la imagen
+	 * más pixels siempre llegará a lo mas alto de la imagen y los demás valores serán relativos a él.</p>
+	 * <p>Para que no se produzca una pérdidad de información, es necesario que el ancho de la imagen
 	 * sea suficiente para representar cada valor en al menos un pixel, esto quiere decir que el ancho
 	 * de la imagen debe ser al menos igual al rango de valores que se desea representar.</p>
 	 * 
-	 * @param min Valor mnimo del histograma que se representa en la imagen.
-	 * @param max Valor mximo del histograma que se representa en la imagen.
+	 * @param min Valor mínimo del histograma que se representa en la imagen.
+	 * @param max Valor máximo del histograma que se representa en la imagen.
 	 * @param width Ancho de la imagen.
 	 * @param height Alto de la imagen.
 	 * 
@@ -1,6 +1,6 @@
 /*******************************************************************************
  * CVM - Computer Vision Mobile.
- * Copyright (C) 2010 CVM Luis Ciudad Garca
+ * Copyright (C) 2010 CVM Luis Ciudad García
  * 
  * File: CvmImage.java - This file is part of CVM.
  * 
@@ -19,32 +19,30 @@
  ******************************************************************************/
 package edu.uco.cvm.core;
 
-import java.util.LinkedList;
-import java.util.ListIterator;
-
 import android.graphics.Bitmap;
 import android.graphics.Bitmap.Config;
 import android.graphics.BitmapFactory;
 import android.graphics.Color;
+import edu.uco.cvm.exceptions.CvmIncompatibleMatrixSizeException;
 
 /**
  * <p>Esta clase representa una imagen.</p>
  * 
- * <p>Una imagen posee un tamao en funcin del ancho y el alto de la misma. Estos valores
- * se miden en pxeles (px). Un pxel es cada uno de los puntos de color que forman la imagen.
- * A su vez, estos puntos se diferencian por la posicin que ocupan en la imagen, siendo el
- * punto (0,0) el que est en la esquina superior izquierda de la imagen. A partir de ese pxel
+ * <p>Una imagen posee un tamaño en función del ancho y el alto de la misma. Estos valores
+ * se miden en píxeles (px). Un píxel es cada uno de los puntos de color que forman la imagen.
+ * A su vez, estos puntos se diferencian por la posición que ocupan en la imagen, siendo el
+ * punto (0,0) el que está en la esquina superior izquierda de la imagen. A partir de ese píxel
  * la primera coordenada crece hacia la derecha y la segunda hacia abajo (ancho, alto).</p>
  * 
- * <p>Se trata de una clase de alto nivel que abstrae al programador del manejo de los pxeles 
- * individuales que la componen as como de los diferentes canales en los que se pueda dividir.
+ * <p>Se trata de una clase de alto nivel que abstrae al programador del manejo de los pí­xeles 
+ * individuales que la componen así como de los diferentes canales en los que se pueda dividir.
  * Para ello se definen dos constantes que indican la codificacion de la imagen:
  *      <ul>
- *      	<li>GRAYSCALE: La imagen estar compuesta de un solo canal en tonos grises.</li>
- *      	<li>RGB: La imagen ser tratada con 3 canales: rojo, verde y azul.</li>
+ *      	<li>GRAYSCALE: La imagen estará compuesta de un solo canal en tonos grises.</li>
+ *      	<li>RGB: La imagen será tratada con 3 canales: rojo, verde y azul.</li>
  *      </ul>
  * </p>     
- * @author Luis Ciudad Garca.
+ * @author Luis Ciudad García.
  * @version 1.0 
  */
 public class CvmImage {
@@ -53,10 +51,12 @@ public class CvmImage {
 	public static final int RGB = 1;
 	public static final int HSV = 2;
 	
-	 /** Vector de canales con la informacin de los pxeles de la imagen. */
-    private CvmChannel data[];
-    /** Lista de transformacin a aplicar sobre la imagen. */
-    private LinkedList<CvmMatrixDouble> transfoList;
+	 /** Vector de canales con la información de los pí­xeles de la imagen. */
+    private CvmImageChannel data[];
+    /** Indica si los canales guardan cada pixel en un solo byte (CvmByteChannel). */
+    private boolean compact;
+    /** Composición de las transformaciones pendientes de aplicar sobre la imagen. */
+    private CvmTransform2D transform;
     /** Modo en que se representa la imagen contenida en data. */
     private int mode;                           
     
@@ -68,32 +68,48 @@ public class CvmImage {
     
     /**
      * Constructor de la clase CvmImage.
-     * Crea una imagen a partir del Bitmap referenciado, codificando la informacion segn el modo.
+     * Crea una imagen a partir del Bitmap referenciado, codificando la informacion según el modo.
      * @param bitmap Imagen de partida.
      * @param mode Modo en que se representara la imagen. Los modos admitidos son RGB y GRAYSCALE.
      */
     public CvmImage(Bitmap bitmap, int mode){
+    	this(bitmap, mode, false);
+        }
+    
+    /**
+     * Constructor de la clase CvmImage.
+     * Crea una imagen a partir del Bitmap referenciado, codificando la informacion según el modo.
+     * Si se indica, cada pixel de cada canal se guarda en un solo byte (CvmByteChannel), lo que
+     * reduce a la cuarta parte la memoria ocupada. Las imagenes HSV siempre usan canales de
+     * enteros porque la saturacion no cabe en 8 bits.
+     * 
+     * @param bitmap Imagen de partida.
+     * @param mode Modo en que se representara la imagen. Los modos admitidos son RGB y GRAYSCALE.
+     * @param compact true para guardar los canales con un byte por pixel.
+     */
+    public CvmImage(Bitmap bitmap, int mode, boolean compact){
     	
     	this.width = bitmap.getWidth();
     	this.height = bitmap.getHeight();
     	
-    	this.transfoList = new LinkedList<CvmMatrixDouble>();
+    	this.transform = new CvmTransform2D();
         this.mode = mode;
+        this.compact = compact && mode != CvmImage.HSV;
     	
     	if(this.mode == CvmImage.GRAYSCALE){
-    		this.data = new CvmChannel[1];
+    		this.data = new CvmImageChannel[1];
     		
-    		this.data[0] = new CvmChannel(bitmap, CvmChannel.GRAY); 
+    		this.data[0] = this.createChannel(bitmap, CvmChannel.GRAY); 
     		}
     	else if(this.mode == CvmImage.RGB){
-    		this.data = new CvmChannel[3];
+    		this.data = new CvmImageChannel[3];
     		
-    		this.data[0] = new CvmChannel(bitmap, CvmChannel.RED);
-    		this.data[1] = new CvmChannel(bitmap, CvmChannel.GREEN);
-    		this.data[2] = new CvmChannel(bitmap, CvmChannel.BLUE);
+    		this.data[0] = this.createChannel(bitmap, CvmChannel.RED);
+    		this.data[1] = this.createChannel(bitmap, CvmChannel.GREEN);
+    		this.data[2] = this.createChannel(bitmap, CvmChannel.BLUE);
     		}
     	else if(this.mode == CvmImage.HSV){
-    		this.data = new CvmChannel[3];
+    		this.data = new CvmImageChannel[3];
     		
     		this.data[0] = new CvmChannel(bitmap, CvmChannel.HUE);
     		this.data[1] = new CvmChannel(bitmap, CvmChannel.SATURATION);
@@ -104,67 +120,58 @@ public class CvmImage {
     /**
      * Constructor de la clase CvmImage.
      * Crea una imagen a partir del Bitmap referenciado por su ubicacion, codificando 
-     * la informacion segn el modo.
+     * la informacion según el modo.
      * 
      * @param pathName Ruta de la imagen de partida.
      * @param mode Modo en que se representara la imagen. Los modos admitidos son RGB y GRAYSCALE.
      */
     public CvmImage(String pathName, int mode) throws Exception{
-    	
-    	Bitmap bitmap = BitmapFactory.decodeFile(pathName);
-    	
-    	this.width = bitmap.getWidth();
-    	this.height = bitmap.getHeight();
-    	
-    	this.transfoList = new LinkedList<CvmMatrixDouble>();
-        this.mode = mode;
-    	
-    	if(this.mode == CvmImage.GRAYSCALE){
-    		this.data = new CvmChannel[1];
-    		
-    		this.data[0] = new CvmChannel(bitmap, CvmChannel.GRAY); 
-    		}
-    	else if(this.mode == CvmImage.RGB){
-    		this.data = new CvmChannel[3];
-    		
-    		this.data[0] = new CvmChannel(bitmap, CvmChannel.RED);
-    		this.data[1] = new CvmChannel(bitmap, CvmChannel.GREEN);
-    		this.data[2] = new CvmChannel(bitmap, CvmChannel.BLUE);
-    		}
-    	else if(this.mode == CvmImage.HSV){
-    		this.data = new CvmChannel[3];
-    		
-    		this.data[0] = new CvmChannel(bitmap, CvmChannel.HUE);
-    		this.data[1] = new CvmChannel(bitmap, CvmChannel.SATURATION);
-    		this.data[2] = new CvmChannel(bitmap, CvmChannel.VALUE);
-    		}
+    	this(BitmapFactory.decodeFile(pathName), mode, false);
         }
     
+    /**
+     * Constructor de la clase CvmImage.
+     * Crea una imagen a partir del Bitmap referenciado por su ubicacion, codificando 
+     * la informacion según el modo y, si se indica, con un byte por pixel.
+     * 
+     * @param pathName Ruta de la imagen de partida.
+     * @param mode Modo en que se representara la imagen. Los modos admitidos son RGB y GRAYSCALE.
+     * @param compact true para guardar los canales con un byte por pixel.
+     */
+    public CvmImage(String pathName, int mode, boolean compact) throws Exception{
+    	this(BitmapFactory.decodeFile(pathName), mode, compact);
+        }
+    
+    /**
+     * Crea el canal indicado del Bitmap con el tipo de almacenamiento de la imagen.
+     */
+    private CvmImageChannel createChannel(Bitmap bitmap, int channel){
+    	if(this.compact)
+    		return new CvmByteChannel(bitmap, channel);
+    	
+    	return new CvmChannel(bitmap, channel);
+    	}
+    
     public CvmImage(CvmImage copy){
     	this.width = copy.width;
     	this.height = copy.height;
     	this.mode = copy.mode;
-    	this.transfoList = new LinkedList<CvmMatrixDouble>();
-    	ListIterator<CvmMatrixDouble> it = copy.transfoList.listIterator(copy.transfoList.size());
-        while(it.hasNext())
-            try{
-                this.transfoList.add(new CvmMatrixDouble(it.next()));
-                }
-            catch(Exception e){}
+    	this.compact = copy.compact;
+    	this.transform = new CvmTransform2D(copy.transform);
     	
-    	this.data = new CvmChannel[copy.data.length];
+    	this.data = new CvmImageChannel[copy.data.length];
     	for(int i = 0; i < copy.data.length; i++)
-    		this.data[i] = new CvmChannel(copy.data[i]);
+    		this.data[i] = copy.data[i].copy();
     	}
     
     public CvmImage(CvmChannel channel){
     	this.width = channel.cols;
     	this.height = channel.rows;
     	
-    	this.transfoList = new LinkedList<CvmMatrixDouble>();
+    	this.transform = new CvmTransform2D();
     	this.mode = CvmImage.GRAYSCALE;
     	
-    	this.data = new CvmChannel[1];
+    	this.data = new CvmImageChannel[1];
     	this.data[0] = new CvmChannel(this.width, this.height, channel.data, CvmChannel.GRAY);
     	}
     
@@ -184,9 +191,27 @@ public class CvmImage {
     	return this.height;	
     	}
 
+    /**
+     * Indica si los canales de la imagen guardan cada pixel en un solo byte.
+     * @return true si los canales son de tipo CvmByteChannel.
+     */
+    public boolean isCompact(){
+    	return this.compact;
+    	}
+
+    /**
+     * Retira del ámbito de CvmBufferPool abierto los datos de los canales. Ver
+     * CvmBufferPool.keep(CvmImage).
+     */
+    void keepChannels(){
+    	for(int i = 0; i < this.data.length; i++)
+    		if(this.data[i] instanceof CvmChannel)
+    			CvmBufferPool.keep((CvmChannel)this.data[i]);
+    	}
+    
     /**Controlar que el index no se salga de rango!!!! */
     public CvmChannel getChannel(int index){
-    	CvmChannel copy = new CvmChannel(this.data[index]);
+    	CvmChannel copy = this.data[index].toChannel();
     	return copy;
     	}
     /**
@@ -212,10 +237,20 @@ public class CvmImage {
 	    			}
 	    		}
 	    	
-	    	this.data = new CvmChannel[1];
-	    	this.data[0] = new CvmChannel(this.width, this.height, pixels, CvmChannel.GRAY);
+	    	CvmChannel gray = new CvmChannel(this.width, this.height, pixels, CvmChannel.GRAY);
+	    	
+	    	this.data = new CvmImageChannel[1];
+	    	this.data[0] = this.compact ? new CvmByteChannel(gray) : gray;
     		}
-    	else if(this.mode == CvmImage.RGB && mode == CvmImage.HSV){	    	
+    	else if(this.mode == CvmImage.RGB && mode == CvmImage.HSV){
+    		/** La saturacion no cabe en 8 bits, por lo que los canales compactos se amplian */
+    		if(this.compact){
+    			for(int i = 0; i < this.data.length; i++)
+    				this.data[i] = this.data[i].toChannel();
+    			this.compact = false;
+    			}
+    		CvmChannel saturation = (CvmChannel)this.data[1];
+    		
 	    	for(int i = 0; i < this.height; i++){
 	    		for(int j = 0; j < this.width; j++){
 	    			int r = data[0].getElement(i, j);
@@ -240,7 +275,7 @@ public class CvmImage {
 	    			
 	    			data[0].setElement(i,j,h);
 	    			data[1].setElement(i,j,s);
-	    				data[1].scaleFactor = Short.MAX_VALUE;
+	    				saturation.scaleFactor = Short.MAX_VALUE;
 	    			data[2].setElement(i,j,v);
 	    			}
 	    		}
@@ -256,35 +291,16 @@ public class CvmImage {
      * @param Ty Numero de pixels de traslacion en el eje Y.
      */
     public void translate(int Tx, int Ty) throws Exception{
-        CvmMatrixDouble tr = CvmMatrixDouble.getIdentity(3);
-
-        tr.setElement(0, 2, Tx);
-        tr.setElement(1, 2, Ty);
-
-        this.transfoList.add(tr);
+        this.transform.translate(Tx, Ty);
         }
 
     /**
      * Agrega una transformacion de rotacion a la lista de transformaciones de la imagen.
-     * @param angle Grados en el sentido de las agujas del reloj que rotar la imagen con respecto
+     * @param angle Grados en el sentido de las agujas del reloj que rotará la imagen con respecto
      * al origen de coordenadas.
      */
     public void rotate(double angle) throws Exception{
-        double rad = 0;
-
-        if(angle != 0)
-            rad = (Math.PI*angle) / 180;
-        else
-            rad = 2*Math.PI;
-        
-        CvmMatrixDouble tr = CvmMatrixDouble.getIdentity(3);
-
-        tr.setElement(0, 0,  Math.cos(rad));
-        tr.setElement(0, 1, -Math.sin(rad));
-        tr.setElement(1, 0,  Math.sin(rad));
-        tr.setElement(1, 1,  Math.cos(rad));
-
-        this.transfoList.add(tr);
+        this.transform.rotate(angle);
         }
 
     /**
@@ -293,42 +309,36 @@ public class CvmImage {
      * @param Sy Factor de escala en el eje Y.
      */
     public void scale(double Sx, double Sy) throws Exception{
-        CvmMatrixDouble tr = CvmMatrixDouble.getIdentity(3);
-
-        tr.setElement(0, 0, Sx);
-        tr.setElement(1, 1, Sy);
+        this.transform.scale(Sx, Sy);
+        }
 
-        this.transfoList.add(tr);
+    /**
+     * Agrega una transformacion definida por el usuario a la lista de transformaciones de la imagen.
+     * @param tr Transfomacion a agregar a la lista de transformaciones. Debe ser de tamaño 3x3.
+     * 
+     * @exception CvmIncompatibleMatrixSizeException La matriz no es de tamaño 3x3.
+     */
+    public void addTransform(CvmMatrixDouble tr) throws CvmIncompatibleMatrixSizeException{
+        this.transform.preMul(new CvmTransform2D(tr));
         }
 
     /**
-     * IMPORTANTE!!! comprobar que la tr es de 3x3
      * Agrega una transformacion definida por el usuario a la lista de transformaciones de la imagen.
      * @param tr Transfomacion a agregar a la lista de transformaciones.
      */
-    public void addTransform(CvmMatrixDouble tr){
-        this.transfoList.add(tr);
+    public void addTransform(CvmTransform2D tr){
+        this.transform.preMul(tr);
         }
 
     /**
-     * Metodo privado que calcula la matriz necesaria para aplicar todas las transformaciones contenidas
-     * en la lista de transformaciones en el orden correcto.
-     * @return Matriz resultado de la concatenacion de las transformaciones aplicadas hasta el momento.
+     * Devuelve la composicion de las transformaciones agregadas desde la ultima llamada a
+     * applyTransform. Se devuelve el propio objeto que mantiene la imagen, de modo que las
+     * modificaciones que se hagan sobre el se aplicaran en la siguiente llamada a applyTransform.
+     * 
+     * @return Transformacion pendiente de aplicar sobre la imagen.
      */
-    private CvmMatrixDouble getTransformMatrix(){
-        CvmMatrixDouble tr = CvmMatrixDouble.getIdentity(3);
-
-        ListIterator<CvmMatrixDouble> it = this.transfoList.listIterator(this.transfoList.size());
-
-        while(it.hasPrevious())
-            try{
-                tr = tr.getMul(it.previous());
-                }
-            catch(Exception e){}
-
-        this.transfoList.clear();
-                
-        return tr;
+    public CvmTransform2D getTransform(){
+        return this.transform;
         }
 
     /**
@@ -336,15 +346,20 @@ public class CvmImage {
      * Una vez hecho esto, la lista de transformaciones vuelve a quedar vacia.
      */
     public void applyTransform() throws Exception{
-        CvmMatrixDouble tr = this.getTransformMatrix();
+        CvmTransform2D tr = this.transform;
 
-        if(this.mode == CvmImage.GRAYSCALE)
-        	this.data[0].applyTransform(tr);
-        
-        else if(this.mode == CvmImage.RGB){
-        	this.data[0].applyTransform(tr);
-        	this.data[1].applyTransform(tr);
-        	this.data[2].applyTransform(tr);
+        try{
+	        if(this.mode == CvmImage.GRAYSCALE)
+	        	this.data[0].applyTransform(tr);
+	        
+	        else if(this.mode == CvmImage.RGB){
+	        	this.data[0].applyTransform(tr);
+	        	this.data[1].applyTransform(tr);
+	        	this.data[2].applyTransform(tr);
+	        	}
+        	}
+        finally{
+        	tr.setIdentity();
         	}
         }
 
@@ -364,6 +379,93 @@ public class CvmImage {
         	}
     	}
     
+    /**
+     * Aplica una mascara definida por el usuario a los canales de la imagen, obteniendo los
+     * pixels fuera de la imagen segun el modo de borde.
+     * @param mask Matriz con los valores de la mascara que se desea aplicar
+     * @param border Modo de borde (CvmChannel.BORDER_CONSTANT, CvmChannel.BORDER_REPLICATE...)
+     * @param borderValue Valor de los pixels fuera de la imagen con BORDER_CONSTANT
+     */
+    public void applyMask(CvmMatrixDouble mask, int border, int borderValue) throws CvmIncompatibleMatrixSizeException{
+    	if(this.mode == CvmImage.GRAYSCALE){
+    		this.data[0].applyMask(mask, border, borderValue);
+    		}
+    	else if(this.mode == CvmImage.RGB){
+        	this.data[0].applyMask(mask, border, borderValue);
+        	this.data[1].applyMask(mask, border, borderValue);
+        	this.data[2].applyMask(mask, border, borderValue);
+        	}
+    	}
+    
+    /**
+     * Aplica una mascara en precisión simple definida por el usuario a los canales de la imagen.
+     * @param mask Matriz con los valores de la mascara que se desea aplicar
+     */
+    public void applyMask(CvmMatrixFloat mask) throws CvmIncompatibleMatrixSizeException{
+    	if(this.mode == CvmImage.GRAYSCALE){
+    		this.data[0].applyMask(mask);
+    		}
+    	else if(this.mode == CvmImage.RGB){
+        	this.data[0].applyMask(mask);
+        	this.data[1].applyMask(mask);
+        	this.data[2].applyMask(mask);
+        	}
+    	}
+    
+    /**
+     * Aplica una mascara en precisión simple definida por el usuario a los canales de la imagen,
+     * obteniendo los pixels fuera de la imagen segun el modo de borde.
+     * @param mask Matriz con los valores de la mascara que se desea aplicar
+     * @param border Modo de borde (CvmChannel.BORDER_CONSTANT, CvmChannel.BORDER_REPLICATE...)
+     * @param borderValue Valor de los pixels fuera de la imagen con BORDER_CONSTANT
+     */
+    public void applyMask(CvmMatrixFloat mask, int border, int borderValue) throws CvmIncompatibleMatrixSizeException{
+    	if(this.mode == CvmImage.GRAYSCALE){
+    		this.data[0].applyMask(mask, border, borderValue);
+    		}
+    	else if(this.mode == CvmImage.RGB){
+        	this.data[0].applyMask(mask, border, borderValue);
+        	this.data[1].applyMask(mask, border, borderValue);
+        	this.data[2].applyMask(mask, border, borderValue);
+        	}
+    	}
+    
+    /**
+     * Aplica una mascara separable, dada por sus nucleos horizontal y vertical, a los canales
+     * de la imagen.
+     * @param rowKernel Nucleo que se aplica a lo largo de cada fila
+     * @param colKernel Nucleo que se aplica a lo largo de cada columna
+     */
+    public void applySeparableMask(double[] rowKernel, double[] colKernel){
+    	if(this.mode == CvmImage.GRAYSCALE){
+    		this.data[0].applySeparableMask(rowKernel, colKernel);
+    		}
+    	else if(this.mode == CvmImage.RGB){
+        	this.data[0].applySeparableMask(rowKernel, colKernel);
+        	this.data[1].applySeparableMask(rowKernel, colKernel);
+        	this.data[2].applySeparableMask(rowKernel, colKernel);
+        	}
+    	}
+    
+    /**
+     * Aplica una mascara separable a los canales de la imagen, obteniendo los pixels fuera de
+     * la imagen segun el modo de borde.
+     * @param rowKernel Nucleo que se aplica a lo largo de cada fila
+     * @param colKernel Nucleo que se aplica a lo largo de cada columna
+     * @param border Modo de borde (CvmChannel.BORDER_CONSTANT, CvmChannel.BORDER_REPLICATE...)
+     * @param borderValue Valor de los pixels fuera de la imagen con BORDER_CONSTANT
+     */
+    public void applySeparableMask(double[] rowKernel, double[] colKernel, int border, int borderValue){
+    	if(this.mode == CvmImage.GRAYSCALE){
+    		this.data[0].applySeparableMask(rowKernel, colKernel, border, borderValue);
+    		}
+    	else if(this.mode == CvmImage.RGB){
+        	this.data[0].applySeparableMask(rowKernel, colKernel, border, borderValue);
+        	this.data[1].applySeparableMask(rowKernel, colKernel, border, borderValue);
+        	this.data[2].applySeparableMask(rowKernel, colKernel, border, borderValue);
+        	}
+    	}
+    
     public void normalize(){
     	for(int i = 0; i < this.data.length; i++)
     		this.data[i].normalize();
@@ -374,7 +476,7 @@ public class CvmImage {
      * @return Equivalente en el formato Bitmap a la imagen mantenida por esta clase.
      */
     public Bitmap toBitmap(){
-    	int pixels[] = new int[this.width * this.height];
+    	int pixels[] = CvmBufferPool.borrowInt(this.width * this.height);
     	
     	if(this.mode == CvmImage.GRAYSCALE){
     		for(int i = 0; i < this.width * this.height; i++){
@@ -410,7 +512,10 @@ public class CvmImage {
     			}
     		}
     	
-    	return Bitmap.createBitmap(pixels, this.width, this.height, Config.ARGB_8888);
+    	Bitmap bitmap = Bitmap.createBitmap(pixels, this.width, this.height, Config.ARGB_8888);
+    	CvmBufferPool.release(pixels);
+    	
+    	return bitmap;
     	}
     
     }
@@ -0,0 +1,175 @@
+/*******************************************************************************
+ * CVM - Computer Vision Mobile.
+ * Copyright (C) 2010 CVM Luis Ciudad García
+ * 
+ * File: CvmImageChannel.java - This file is part of CVM.
+ * 
+ * CVM is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * CVM is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with CVM.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package edu.uco.cvm.core;
+
+import edu.uco.cvm.exceptions.CvmIncompatibleMatrixSizeException;
+import edu.uco.cvm.exceptions.CvmSingularMatrixException;
+
+/**
+ * <p>Operaciones que CvmImage necesita de cada uno de sus canales, con independencia de cómo
+ * se guarden los valores de los pixels.</p>
+ * 
+ * <p>La implementa CvmChannel, que guarda cada pixel en un entero, y CvmByteChannel, que lo
+ * guarda en un solo byte sin signo.</p>
+ * 
+ * @version 1.0
+ */
+public interface CvmImageChannel {
+
+	/**
+	 * Número de filas (altura) del canal.
+	 * 
+	 * @return Número de filas del canal.
+	 */
+	public int getRows();
+
+	/**
+	 * Número de columnas (anchura) del canal.
+	 * 
+	 * @return Número de columnas del canal.
+	 */
+	public int getCols();
+
+	/**
+	 * Devuelve el valor del pixel que indican los parámetros.
+	 * 
+	 * @param row Fila del pixel.
+	 * @param col Columna del pixel.
+	 * 
+	 * @return Valor del pixel.
+	 * 
+	 * @exception ArrayIndexOutOfBoundsException La posición está fuera del canal.
+	 */
+	public int getElement(int row, int col) throws ArrayIndexOutOfBoundsException;
+
+	/**
+	 * Guarda un valor en el pixel que indican los parámetros.
+	 * 
+	 * @param row Fila del pixel.
+	 * @param col Columna del pixel.
+	 * @param value Valor a guardar.
+	 * 
+	 * @exception ArrayIndexOutOfBoundsException La posición está fuera del canal.
+	 */
+	public void setElement(int row, int col, int value) throws ArrayIndexOutOfBoundsException;
+
+	/**
+	 * Aplica una transformación geométrica sobre los pixels del canal.
+	 * 
+	 * @param tr Transformación a aplicar.
+	 * 
+	 * @exception CvmSingularMatrixException La transformación no es invertible.
+	 */
+	public void applyTransform(CvmTransform2D tr) throws CvmSingularMatrixException;
+
+	/**
+	 * Aplica una máscara de convolución sobre todos los pixels del canal.
+	 * 
+	 * @param mask Máscara de convolución. Debe ser cuadrada.
+	 * 
+	 * @exception CvmIncompatibleMatrixSizeException La máscara no es cuadrada.
+	 */
+	public void applyMask(CvmMatrixDouble mask) throws CvmIncompatibleMatrixSizeException, Exception;
+
+	/**
+	 * Aplica una máscara de convolución en precisión simple sobre todos los pixels del canal.
+	 * 
+	 * @param mask Máscara de convolución. Debe ser cuadrada.
+	 * 
+	 * @exception CvmIncompatibleMatrixSizeException La máscara no es cuadrada.
+	 */
+	public void applyMask(CvmMatrixFloat mask) throws CvmIncompatibleMatrixSizeException;
+
+	/**
+	 * Aplica una máscara de convolución obteniendo los pixels fuera del canal según un modo de
+	 * borde.
+	 * 
+	 * @param mask Máscara de convolución. Debe ser cuadrada.
+	 * @param border Modo de borde (CvmChannel.BORDER_CONSTANT, CvmChannel.BORDER_REPLICATE...).
+	 * @param borderValue Valor de los pixels fuera del canal con BORDER_CONSTANT.
+	 * 
+	 * @exception CvmIncompatibleMatrixSizeException La máscara no es cuadrada.
+	 * @exception IllegalArgumentException El modo de borde no existe.
+	 */
+	public void applyMask(CvmMatrixDouble mask, int border, int borderValue) throws CvmIncompatibleMatrixSizeException, IllegalArgumentException;
+
+	/**
+	 * Aplica una máscara de convolución en precisión simple obteniendo los pixels fuera del
+	 * canal según un modo de borde.
+	 * 
+	 * @param mask Máscara de convolución. Debe ser cuadrada.
+	 * @param border Modo de borde (CvmChannel.BORDER_CONSTANT, CvmChannel.BORDER_REPLICATE...).
+	 * @param borderValue Valor de los pixels fuera del canal con BORDER_CONSTANT.
+	 * 
+	 * @exception CvmIncompatibleMatrixSizeException La máscara no es cuadrada.
+	 * @exception IllegalArgumentException El modo de borde no existe.
+	 */
+	public void applyMask(CvmMatrixFloat mask, int border, int borderValue) throws CvmIncompatibleMatrixSizeException, IllegalArgumentException;
+
+	/**
+	 * Aplica una máscara separable dada por sus dos núcleos, equivalente a la máscara cuyo
+	 * elemento (i, j) es rowKernel[i] · colKernel[j].
+	 * 
+	 * @param rowKernel Núcleo que se aplica a lo largo de cada fila.
+	 * @param colKernel Núcleo que se aplica a lo largo de cada columna.
+	 */
+	public void applySeparableMask(double[] rowKernel, double[] colKernel);
+
+	/**
+	 * Aplica una máscara separable dada por sus dos núcleos obteniendo los pixels fuera del
+	 * canal según un modo de borde.
+	 * 
+	 * @param rowKernel Núcleo que se aplica a lo largo de cada fila.
+	 * @param colKernel Núcleo que se aplica a lo largo de cada columna.
+	 * @param border Modo de borde (CvmChannel.BORDER_CONSTANT, CvmChannel.BORDER_REPLICATE...).
+	 * @param borderValue Valor de los pixels fuera del canal con BORDER_CONSTANT.
+	 * 
+	 * @exception IllegalArgumentException El modo de borde no existe.
+	 */
+	public void applySeparableMask(double[] rowKernel, double[] colKernel, int border, int borderValue) throws IllegalArgumentException;
+
+	/**
+	 * Aplica una umbralización sobre los pixels del canal.
+	 * 
+	 * @param threshold Valor umbral.
+	 * @param max Valor máximo que se asigna a los pixels.
+	 * @param method Método de umbralización (CvmChannel.THRES_BINARY, CvmChannel.THRES_OTSU...).
+	 */
+	public void applyThreshold(int threshold, int max, int method);
+
+	/**
+	 * Escala los valores del canal al rango [0, 255].
+	 */
+	public void normalize();
+
+	/**
+	 * Crea una copia del canal con el mismo tipo de almacenamiento.
+	 * 
+	 * @return Nuevo canal con los mismos valores.
+	 */
+	public CvmImageChannel copy();
+
+	/**
+	 * Crea una copia del canal con un entero por pixel.
+	 * 
+	 * @return Nuevo canal de enteros con los mismos valores.
+	 */
+	public CvmChannel toChannel();
+	}
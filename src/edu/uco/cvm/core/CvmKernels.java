@@ -0,0 +1,539 @@
+/*******************************************************************************
+ * CVM - Computer Vision Mobile.
+ * Copyright (C) 2010 CVM Luis Ciudad García
+ * 
+ * File: CvmKernels.java - This file is part of CVM.
+ * 
+ * CVM is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * CVM is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with CVM.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package edu.uco.cvm.core;
+
+import java.util.Arrays;
+
+/**
+ * <p>Bucles elemento a elemento que comparten las matrices y los canales. Cada bucle trabaja
+ * con variables locales y está desenrollado de cuatro en cuatro elementos, con un bucle final
+ * para los elementos restantes, lo que reduce el coste del control del bucle y deja al
+ * compilador varias operaciones independientes por iteración.</p>
+ * 
+ * <p>Los arrays destino pueden ser los mismos que los de origen, ya que cada elemento se lee
+ * antes de escribirse en la misma posición.</p>
+ * 
+ * @version 1.0
+ */
+final class CvmKernels {
+	/** Número de elementos que se procesan en cada iteración de los bucles desenrollados. */
+	static final int UNROLL = 4;
+
+	private CvmKernels(){
+		}
+
+	/**
+	 * Suma elemento a elemento dos arrays.
+	 */
+	static void add(double[] a, double[] b, double[] dst, int n){
+		int i = 0;
+		for(; i <= n - UNROLL; i += UNROLL){
+			dst[i] = a[i] + b[i];
+			dst[i + 1] = a[i + 1] + b[i + 1];
+			dst[i + 2] = a[i + 2] + b[i + 2];
+			dst[i + 3] = a[i + 3] + b[i + 3];
+			}
+		for(; i < n; i++)
+			dst[i] = a[i] + b[i];
+		}
+
+	/**
+	 * Resta elemento a elemento dos arrays.
+	 */
+	static void sub(double[] a, double[] b, double[] dst, int n){
+		int i = 0;
+		for(; i <= n - UNROLL; i += UNROLL){
+			dst[i] = a[i] - b[i];
+			dst[i + 1] = a[i + 1] - b[i + 1];
+			dst[i + 2] = a[i + 2] - b[i + 2];
+			dst[i + 3] = a[i + 3] - b[i + 3];
+			}
+		for(; i < n; i++)
+			dst[i] = a[i] - b[i];
+		}
+
+	/**
+	 * Suma un valor a todos los elementos de un array.
+	 */
+	static void add(double[] a, double value, double[] dst, int n){
+		int i = 0;
+		for(; i <= n - UNROLL; i += UNROLL){
+			dst[i] = a[i] + value;
+			dst[i + 1] = a[i + 1] + value;
+			dst[i + 2] = a[i + 2] + value;
+			dst[i + 3] = a[i + 3] + value;
+			}
+		for(; i < n; i++)
+			dst[i] = a[i] + value;
+		}
+
+	/**
+	 * Resta un valor a todos los elementos de un array.
+	 */
+	static void sub(double[] a, double value, double[] dst, int n){
+		int i = 0;
+		for(; i <= n - UNROLL; i += UNROLL){
+			dst[i] = a[i] - value;
+			dst[i + 1] = a[i + 1] - value;
+			dst[i + 2] = a[i + 2] - value;
+			dst[i + 3] = a[i + 3] - value;
+			}
+		for(; i < n; i++)
+			dst[i] = a[i] - value;
+		}
+
+	/**
+	 * Multiplica todos los elementos de un array por un valor.
+	 */
+	static void mul(double[] a, double value, double[] dst, int n){
+		int i = 0;
+		for(; i <= n - UNROLL; i += UNROLL){
+			dst[i] = a[i] * value;
+			dst[i + 1] = a[i + 1] * value;
+			dst[i + 2] = a[i + 2] * value;
+			dst[i + 3] = a[i + 3] * value;
+			}
+		for(; i < n; i++)
+			dst[i] = a[i] * value;
+		}
+
+	/**
+	 * Divide todos los elementos de un array por un valor.
+	 */
+	static void div(double[] a, double value, double[] dst, int n){
+		int i = 0;
+		for(; i <= n - UNROLL; i += UNROLL){
+			dst[i] = a[i] / value;
+			dst[i + 1] = a[i + 1] / value;
+			dst[i + 2] = a[i + 2] / value;
+			dst[i + 3] = a[i + 3] / value;
+			}
+		for(; i < n; i++)
+			dst[i] = a[i] / value;
+		}
+
+	/**
+	 * Suma elemento a elemento dos arrays.
+	 */
+	static void add(float[] a, float[] b, float[] dst, int n){
+		int i = 0;
+		for(; i <= n - UNROLL; i += UNROLL){
+			dst[i] = a[i] + b[i];
+			dst[i + 1] = a[i + 1] + b[i + 1];
+			dst[i + 2] = a[i + 2] + b[i + 2];
+			dst[i + 3] = a[i + 3] + b[i + 3];
+			}
+		for(; i < n; i++)
+			dst[i] = a[i] + b[i];
+		}
+
+	/**
+	 * Resta elemento a elemento dos arrays.
+	 */
+	static void sub(float[] a, float[] b, float[] dst, int n){
+		int i = 0;
+		for(; i <= n - UNROLL; i += UNROLL){
+			dst[i] = a[i] - b[i];
+			dst[i + 1] = a[i + 1] - b[i + 1];
+			dst[i + 2] = a[i + 2] - b[i + 2];
+			dst[i + 3] = a[i + 3] - b[i + 3];
+			}
+		for(; i < n; i++)
+			dst[i] = a[i] - b[i];
+		}
+
+	/**
+	 * Suma un valor a todos los elementos de un array.
+	 */
+	static void add(float[] a, float value, float[] dst, int n){
+		int i = 0;
+		for(; i <= n - UNROLL; i += UNROLL){
+			dst[i] = a[i] + value;
+			dst[i + 1] = a[i + 1] + value;
+			dst[i + 2] = a[i + 2] + value;
+			dst[i + 3] = a[i + 3] + value;
+			}
+		for(; i < n; i++)
+			dst[i] = a[i] + value;
+		}
+
+	/**
+	 * Resta un valor a todos los elementos de un array.
+	 */
+	static void sub(float[] a, float value, float[] dst, int n){
+		int i = 0;
+		for(; i <= n - UNROLL; i += UNROLL){
+			dst[i] = a[i] - value;
+			dst[i + 1] = a[i + 1] - value;
+			dst[i + 2] = a[i + 2] - value;
+			dst[i + 3] = a[i + 3] - value;
+			}
+		for(; i < n; i++)
+			dst[i] = a[i] - value;
+		}
+
+	/**
+	 * Multiplica todos los elementos de un array por un valor.
+	 */
+	static void mul(float[] a, float value, float[] dst, int n){
+		int i = 0;
+		for(; i <= n - UNROLL; i += UNROLL){
+			dst[i] = a[i] * value;
+			dst[i + 1] = a[i + 1] * value;
+			dst[i + 2] = a[i + 2] * value;
+			dst[i + 3] = a[i + 3] * value;
+			}
+		for(; i < n; i++)
+			dst[i] = a[i] * value;
+		}
+
+	/**
+	 * Divide todos los elementos de un array por un valor.
+	 */
+	static void div(float[] a, float value, float[] dst, int n){
+		int i = 0;
+		for(; i <= n - UNROLL; i += UNROLL){
+			dst[i] = a[i] / value;
+			dst[i + 1] = a[i + 1] / value;
+			dst[i + 2] = a[i + 2] / value;
+			dst[i + 3] = a[i + 3] / value;
+			}
+		for(; i < n; i++)
+			dst[i] = a[i] / value;
+		}
+
+	/**
+	 * Suma elemento a elemento dos arrays.
+	 */
+	static void add(int[] a, int[] b, int[] dst, int n){
+		int i = 0;
+		for(; i <= n - UNROLL; i += UNROLL){
+			dst[i] = a[i] + b[i];
+			dst[i + 1] = a[i + 1] + b[i + 1];
+			dst[i + 2] = a[i + 2] + b[i + 2];
+			dst[i + 3] = a[i + 3] + b[i + 3];
+			}
+		for(; i < n; i++)
+			dst[i] = a[i] + b[i];
+		}
+
+	/**
+	 * Resta elemento a elemento dos arrays.
+	 */
+	static void sub(int[] a, int[] b, int[] dst, int n){
+		int i = 0;
+		for(; i <= n - UNROLL; i += UNROLL){
+			dst[i] = a[i] - b[i];
+			dst[i + 1] = a[i + 1] - b[i + 1];
+			dst[i + 2] = a[i + 2] - b[i + 2];
+			dst[i + 3] = a[i + 3] - b[i + 3];
+			}
+		for(; i < n; i++)
+			dst[i] = a[i] - b[i];
+		}
+
+	/**
+	 * Suma un valor a todos los elementos de un array.
+	 */
+	static void add(int[] a, int value, int[] dst, int n){
+		int i = 0;
+		for(; i <= n - UNROLL; i += UNROLL){
+			dst[i] = a[i] + value;
+			dst[i + 1] = a[i + 1] + value;
+			dst[i + 2] = a[i + 2] + value;
+			dst[i + 3] = a[i + 3] + value;
+			}
+		for(; i < n; i++)
+			dst[i] = a[i] + value;
+		}
+
+	/**
+	 * Resta un valor a todos los elementos de un array.
+	 */
+	static void sub(int[] a, int value, int[] dst, int n){
+		int i = 0;
+		for(; i <= n - UNROLL; i += UNROLL){
+			dst[i] = a[i] - value;
+			dst[i + 1] = a[i + 1] - value;
+			dst[i + 2] = a[i + 2] - value;
+			dst[i + 3] = a[i + 3] - value;
+			}
+		for(; i < n; i++)
+			dst[i] = a[i] - value;
+		}
+
+	/**
+	 * Multiplica todos los elementos de un array por un valor.
+	 */
+	static void mul(int[] a, int value, int[] dst, int n){
+		int i = 0;
+		for(; i <= n - UNROLL; i += UNROLL){
+			dst[i] = a[i] * value;
+			dst[i + 1] = a[i + 1] * value;
+			dst[i + 2] = a[i + 2] * value;
+			dst[i + 3] = a[i + 3] * value;
+			}
+		for(; i < n; i++)
+			dst[i] = a[i] * value;
+		}
+
+	/**
+	 * Divide todos los elementos de un array por un valor.
+	 */
+	static void div(int[] a, int value, int[] dst, int n){
+		int i = 0;
+		for(; i <= n - UNROLL; i += UNROLL){
+			dst[i] = a[i] / value;
+			dst[i + 1] = a[i + 1] / value;
+			dst[i + 2] = a[i + 2] / value;
+			dst[i + 3] = a[i + 3] / value;
+			}
+		for(; i < n; i++)
+			dst[i] = a[i] / value;
+		}
+
+	/**
+	 * Suma elemento a elemento dos arrays.
+	 */
+	static void add(short[] a, short[] b, short[] dst, int n){
+		int i = 0;
+		for(; i <= n - UNROLL; i += UNROLL){
+			dst[i] = (short)(a[i] + b[i]);
+			dst[i + 1] = (short)(a[i + 1] + b[i + 1]);
+			dst[i + 2] = (short)(a[i + 2] + b[i + 2]);
+			dst[i + 3] = (short)(a[i + 3] + b[i + 3]);
+			}
+		for(; i < n; i++)
+			dst[i] = (short)(a[i] + b[i]);
+		}
+
+	/**
+	 * Resta elemento a elemento dos arrays.
+	 */
+	static void sub(short[] a, short[] b, short[] dst, int n){
+		int i = 0;
+		for(; i <= n - UNROLL; i += UNROLL){
+			dst[i] = (short)(a[i] - b[i]);
+			dst[i + 1] = (short)(a[i + 1] - b[i + 1]);
+			dst[i + 2] = (short)(a[i + 2] - b[i + 2]);
+			dst[i + 3] = (short)(a[i + 3] - b[i + 3]);
+			}
+		for(; i < n; i++)
+			dst[i] = (short)(a[i] - b[i]);
+		}
+
+	/**
+	 * Suma un valor a todos los elementos de un array.
+	 */
+	static void add(short[] a, short value, short[] dst, int n){
+		int i = 0;
+		for(; i <= n - UNROLL; i += UNROLL){
+			dst[i] = (short)(a[i] + value);
+			dst[i + 1] = (short)(a[i + 1] + value);
+			dst[i + 2] = (short)(a[i + 2] + value);
+			dst[i + 3] = (short)(a[i + 3] + value);
+			}
+		for(; i < n; i++)
+			dst[i] = (short)(a[i] + value);
+		}
+
+	/**
+	 * Resta un valor a todos los elementos de un array.
+	 */
+	static void sub(short[] a, short value, short[] dst, int n){
+		int i = 0;
+		for(; i <= n - UNROLL; i += UNROLL){
+			dst[i] = (short)(a[i] - value);
+			dst[i + 1] = (short)(a[i + 1] - value);
+			dst[i + 2] = (short)(a[i + 2] - value);
+			dst[i + 3] = (short)(a[i + 3] - value);
+			}
+		for(; i < n; i++)
+			dst[i] = (short)(a[i] - value);
+		}
+
+	/**
+	 * Multiplica todos los elementos de un array por un valor.
+	 */
+	static void mul(short[] a, short value, short[] dst, int n){
+		int i = 0;
+		for(; i <= n - UNROLL; i += UNROLL){
+			dst[i] = (short)(a[i] * value);
+			dst[i + 1] = (short)(a[i + 1] * value);
+			dst[i + 2] = (short)(a[i + 2] * value);
+			dst[i + 3] = (short)(a[i + 3] * value);
+			}
+		for(; i < n; i++)
+			dst[i] = (short)(a[i] * value);
+		}
+
+	/**
+	 * Divide todos los elementos de un array por un valor.
+	 */
+	static void div(short[] a, short value, short[] dst, int n){
+		int i = 0;
+		for(; i <= n - UNROLL; i += UNROLL){
+			dst[i] = (short)(a[i] / value);
+			dst[i + 1] = (short)(a[i + 1] / value);
+			dst[i + 2] = (short)(a[i + 2] / value);
+			dst[i + 3] = (short)(a[i + 3] / value);
+			}
+		for(; i < n; i++)
+			dst[i] = (short)(a[i] / value);
+		}
+
+	/**
+	 * Asigna a cada elemento un valor u otro según supere o no el umbral.
+	 */
+	static void threshold(int[] data, int threshold, int above, int below, int n){
+		int i = 0;
+		for(; i <= n - UNROLL; i += UNROLL){
+			int v0 = data[i], v1 = data[i + 1], v2 = data[i + 2], v3 = data[i + 3];
+			data[i] = (v0 > threshold) ? above : below;
+			data[i + 1] = (v1 > threshold) ? above : below;
+			data[i + 2] = (v2 > threshold) ? above : below;
+			data[i + 3] = (v3 > threshold) ? above : below;
+			}
+		for(; i < n; i++)
+			data[i] = (data[i] > threshold) ? above : below;
+		}
+
+	/**
+	 * Sustituye por el umbral los elementos que lo superan.
+	 */
+	static void truncate(int[] data, int threshold, int n){
+		int i = 0;
+		for(; i <= n - UNROLL; i += UNROLL){
+			data[i] = Math.min(data[i], threshold);
+			data[i + 1] = Math.min(data[i + 1], threshold);
+			data[i + 2] = Math.min(data[i + 2], threshold);
+			data[i + 3] = Math.min(data[i + 3], threshold);
+			}
+		for(; i < n; i++)
+			data[i] = Math.min(data[i], threshold);
+		}
+
+	/**
+	 * Escala los elementos al rango [0, 255] según sus valores mínimo y máximo. El mínimo y el
+	 * máximo se buscan con dos parejas de acumuladores independientes, y el escalado se hace con
+	 * aritmética entera siempre que el rango lo permita.
+	 */
+	static void normalize(int[] data, int n){
+		if(n == 0)
+			return;
+
+		int min0 = data[0], max0 = data[0];
+		int min1 = min0, max1 = max0;
+
+		int i = 1;
+		for(; i <= n - 2; i += 2){
+			int v0 = data[i], v1 = data[i + 1];
+			min0 = Math.min(min0, v0);
+			max0 = Math.max(max0, v0);
+			min1 = Math.min(min1, v1);
+			max1 = Math.max(max1, v1);
+			}
+		for(; i < n; i++){
+			min0 = Math.min(min0, data[i]);
+			max0 = Math.max(max0, data[i]);
+			}
+
+		int min = Math.min(min0, min1);
+		int max = Math.max(max0, max1);
+		long range = (long)max - min;
+
+		if(range == 0){
+			/** Todos los valores son iguales */
+			Arrays.fill(data, 0, n, 0);
+			}
+		else if(range <= Integer.MAX_VALUE / 255){
+			int r = (int)range;
+
+			i = 0;
+			for(; i <= n - UNROLL; i += UNROLL){
+				data[i] = (data[i] - min) * 255 / r;
+				data[i + 1] = (data[i + 1] - min) * 255 / r;
+				data[i + 2] = (data[i + 2] - min) * 255 / r;
+				data[i + 3] = (data[i + 3] - min) * 255 / r;
+				}
+			for(; i < n; i++)
+				data[i] = (data[i] - min) * 255 / r;
+			}
+		else{
+			double r = range;
+
+			for(i = 0; i < n; i++)
+				data[i] = (int)(((data[i] - (double)min) / r) * 255);
+			}
+		}
+
+	/**
+	 * Escala al rango [0, 255] elementos tratados como bytes sin signo, con los mismos casos
+	 * especiales que la versión entera: un array vacío no se modifica y uno en el que todos los
+	 * valores son iguales queda a cero. El rango nunca supera 255, así que el escalado es
+	 * siempre entero.
+	 */
+	static void normalize(byte[] data, int n){
+		if(n == 0)
+			return;
+
+		int min = data[0] & 0xff, max = min;
+		for(int i = 1; i < n; i++){
+			int v = data[i] & 0xff;
+			min = Math.min(min, v);
+			max = Math.max(max, v);
+			}
+
+		int r = max - min;
+
+		if(r == 0){
+			/** Todos los valores son iguales */
+			Arrays.fill(data, 0, n, (byte)0);
+			return;
+			}
+
+		int i = 0;
+		for(; i <= n - UNROLL; i += UNROLL){
+			data[i] = (byte)(((data[i] & 0xff) - min) * 255 / r);
+			data[i + 1] = (byte)(((data[i + 1] & 0xff) - min) * 255 / r);
+			data[i + 2] = (byte)(((data[i + 2] & 0xff) - min) * 255 / r);
+			data[i + 3] = (byte)(((data[i + 3] & 0xff) - min) * 255 / r);
+			}
+		for(; i < n; i++)
+			data[i] = (byte)(((data[i] & 0xff) - min) * 255 / r);
+		}
+
+	/**
+	 * Sustituye cada elemento por el módulo del vector que forma con el elemento del otro array.
+	 */
+	static void module(int[] a, int[] b, int n){
+		int i = 0;
+		for(; i <= n - UNROLL; i += UNROLL){
+			int a0 = a[i], a1 = a[i + 1], a2 = a[i + 2], a3 = a[i + 3];
+			int b0 = b[i], b1 = b[i + 1], b2 = b[i + 2], b3 = b[i + 3];
+			a[i] = (int)Math.sqrt(a0 * a0 + b0 * b0);
+			a[i + 1] = (int)Math.sqrt(a1 * a1 + b1 * b1);
+			a[i + 2] = (int)Math.sqrt(a2 * a2 + b2 * b2);
+			a[i + 3] = (int)Math.sqrt(a3 * a3 + b3 * b3);
+			}
+		for(; i < n; i++)
+			a[i] = (int)Math.sqrt(a[i] * a[i] + b[i] * b[i]);
+		}
+	}
@@ -0,0 +1,300 @@
+/*******************************************************************************
+ * CVM - Computer Vision Mobile.
+ * Copyright (C) 2010 CVM Luis Ciudad García
+ * 
+ * File: CvmLUDecomposition.java - This file is part of CVM.
+ * 
+ * CVM is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * CVM is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with CVM.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package edu.uco.cvm.core;
+
+import edu.uco.cvm.exceptions.CvmIncompatibleMatrixSizeException;
+import edu.uco.cvm.exceptions.CvmSingularMatrixException;
+
+/**
+ * <p>Esta clase representa la descomposición LU de una matriz cuadrada obtenida mediante el
+ * algoritmo de Doolittle con pivotación parcial por filas, es decir, P·A = L·U, siendo L una
+ * matriz triangular inferior con unos en la diagonal, U una matriz triangular superior y P
+ * una permutación de las filas de A.</p>
+ * 
+ * <p>La factorización se calcula una sola vez al crear el objeto, con un coste del orden de
+ * n³ operaciones, y se reutiliza para obtener el determinante, la inversa o la solución de
+ * sistemas de ecuaciones lineales sin necesidad de volver a factorizar la matriz.</p>
+ * 
+ * @version 1.0
+ */
+public class CvmLUDecomposition {
+	/** Orden de la matriz factorizada. */
+	private final int order;
+	/** Elementos de L (por debajo de la diagonal) y de U (diagonal y por encima) ordenados por filas. */
+	private final double[] lu;
+	/** Fila de la matriz original que ocupa cada fila de la factorización. */
+	private final int[] pivot;
+	/** Signo de la permutación de filas: 1 si el número de intercambios es par y -1 si es impar. */
+	private int pivotSign;
+	/** Indica si se ha encontrado una columna sin ningún pivote distinto de cero. */
+	private boolean singular;
+
+	/**
+	 * Calcula la descomposición LU de una matriz de números reales.
+	 * 
+	 * @param matrix Matriz a factorizar. No se modifica.
+	 * 
+	 * @exception CvmIncompatibleMatrixSizeException La matriz no es cuadrada.
+	 */
+	public CvmLUDecomposition(CvmMatrixDouble matrix) throws CvmIncompatibleMatrixSizeException {
+		this(matrix.rows, matrix.cols);
+
+		System.arraycopy(matrix.data, 0, this.lu, 0, this.lu.length);
+		this.decompose();
+		}
+
+	/**
+	 * Calcula la descomposición LU de una matriz de números reales en precisión simple. La
+	 * factorización se realiza en doble precisión.
+	 * 
+	 * @param matrix Matriz a factorizar. No se modifica.
+	 * 
+	 * @exception CvmIncompatibleMatrixSizeException La matriz no es cuadrada.
+	 */
+	public CvmLUDecomposition(CvmMatrixFloat matrix) throws CvmIncompatibleMatrixSizeException {
+		this(matrix.rows, matrix.cols);
+
+		for(int i = 0; i < this.lu.length; i++)
+			this.lu[i] = matrix.data[i];
+		this.decompose();
+		}
+
+	/**
+	 * Calcula la descomposición LU de una matriz de enteros.
+	 * 
+	 * @param matrix Matriz a factorizar. No se modifica.
+	 * 
+	 * @exception CvmIncompatibleMatrixSizeException La matriz no es cuadrada.
+	 */
+	public CvmLUDecomposition(CvmMatrixInt matrix) throws CvmIncompatibleMatrixSizeException {
+		this(matrix.rows, matrix.cols);
+
+		for(int i = 0; i < this.lu.length; i++)
+			this.lu[i] = matrix.data[i];
+		this.decompose();
+		}
+
+	/**
+	 * Calcula la descomposición LU de una matriz de enteros cortos.
+	 * 
+	 * @param matrix Matriz a factorizar. No se modifica.
+	 * 
+	 * @exception CvmIncompatibleMatrixSizeException La matriz no es cuadrada.
+	 */
+	public CvmLUDecomposition(CvmMatrixShort matrix) throws CvmIncompatibleMatrixSizeException {
+		this(matrix.rows, matrix.cols);
+
+		for(int i = 0; i < this.lu.length; i++)
+			this.lu[i] = matrix.data[i];
+		this.decompose();
+		}
+
+	private CvmLUDecomposition(int rows, int cols) throws CvmIncompatibleMatrixSizeException {
+		if(rows != cols)
+			throw new CvmIncompatibleMatrixSizeException(rows, cols);
+
+		this.order = rows;
+		this.lu = new double[rows * cols];
+		this.pivot = new int[rows];
+		}
+
+	/**
+	 * Factoriza en el sitio los datos copiados en lu. En cada paso se elige como pivote el
+	 * elemento de mayor valor absoluto de la columna, lo que mantiene acotados los
+	 * multiplicadores de L y evita divisiones por valores cercanos a cero.
+	 */
+	private void decompose(){
+		int n = this.order;
+		double[] a = this.lu;
+
+		for(int i = 0; i < n; i++)
+			this.pivot[i] = i;
+		this.pivotSign = 1;
+		this.singular = false;
+
+		for(int k = 0; k < n; k++){
+			int pivotRow = k;
+			double maxValue = Math.abs(a[k * n + k]);
+
+			for(int i = k + 1; i < n; i++){
+				double value = Math.abs(a[i * n + k]);
+				if(maxValue < value){
+					maxValue = value;
+					pivotRow = i;
+					}
+				}
+
+			if(maxValue == 0){
+				this.singular = true;
+				continue;
+				}
+
+			if(pivotRow != k){
+				for(int j = 0; j < n; j++){
+					double aux = a[k * n + j];
+					a[k * n + j] = a[pivotRow * n + j];
+					a[pivotRow * n + j] = aux;
+					}
+
+				int aux = this.pivot[k];
+				this.pivot[k] = this.pivot[pivotRow];
+				this.pivot[pivotRow] = aux;
+				this.pivotSign = -this.pivotSign;
+				}
+
+			/** Hacer ceros por debajo de la diagonal guardando los multiplicadores en L */
+			double diagonal = a[k * n + k];
+			for(int i = k + 1; i < n; i++){
+				double factor = a[i * n + k] / diagonal;
+				a[i * n + k] = factor;
+
+				if(factor != 0)
+					for(int j = k + 1; j < n; j++)
+						a[i * n + j] -= factor * a[k * n + j];
+				}
+			}
+		}
+
+	/**
+	 * Observador de la propiedad order.
+	 * 
+	 * @return Orden de la matriz factorizada.
+	 */
+	public int getOrder(){
+		return this.order;
+		}
+
+	/**
+	 * Indica si la matriz factorizada es singular, es decir, si su determinante es cero y por
+	 * tanto no tiene inversa.
+	 * 
+	 * @return true si la matriz es singular, false en caso contrario.
+	 */
+	public boolean isSingular(){
+		return this.singular;
+		}
+
+	/**
+	 * Calcula el determinante de la matriz factorizada como el producto de la diagonal de U
+	 * por el signo de la permutación de filas.
+	 * 
+	 * @return El determinante de la matriz, que vale cero si esta es singular.
+	 */
+	public double getDeterminant(){
+		if(this.singular)
+			return 0;
+
+		double det = this.pivotSign;
+		for(int i = 0; i < this.order; i++)
+			det *= this.lu[i * this.order + i];
+
+		return det;
+		}
+
+	/**
+	 * Calcula la inversa de la matriz factorizada resolviendo el sistema A·X = I.
+	 * 
+	 * @return Nueva matriz con la inversa de la matriz factorizada.
+	 * 
+	 * @exception CvmSingularMatrixException La matriz es singular y no tiene inversa.
+	 */
+	public CvmMatrixDouble getInverse() throws CvmSingularMatrixException {
+		if(this.singular)
+			throw new CvmSingularMatrixException();
+
+		CvmMatrixDouble inverse = new CvmMatrixDouble(this.order, this.order);
+
+		/** La matriz identidad con las filas permutadas es P·I */
+		for(int i = 0; i < this.order; i++)
+			inverse.data[i * this.order + this.pivot[i]] = 1;
+
+		this.substitute(inverse.data, this.order);
+
+		return inverse;
+		}
+
+	/**
+	 * Resuelve el sistema de ecuaciones A·X = B, siendo A la matriz factorizada, mediante
+	 * sustitución hacia delante con L y hacia atrás con U. Cada columna de B es un término
+	 * independiente distinto, por lo que se pueden resolver varios sistemas con una sola llamada.
+	 * 
+	 * @param b Matriz de términos independientes. Debe tener tantas filas como orden tenga
+	 * la matriz factorizada. No se modifica.
+	 * 
+	 * @return Nueva matriz X con la solución del sistema, con las mismas dimensiones que b.
+	 * 
+	 * @exception CvmIncompatibleMatrixSizeException El número de filas de b no coincide con el
+	 * orden de la matriz factorizada.
+	 * @exception CvmSingularMatrixException La matriz es singular y el sistema no tiene
+	 * solución única.
+	 */
+	public CvmMatrixDouble solve(CvmMatrixDouble b) throws CvmIncompatibleMatrixSizeException, CvmSingularMatrixException {
+		if(b.rows != this.order)
+			throw new CvmIncompatibleMatrixSizeException(b.rows, b.cols);
+		if(this.singular)
+			throw new CvmSingularMatrixException();
+
+		CvmMatrixDouble x = new CvmMatrixDouble(b.rows, b.cols);
+
+		for(int i = 0; i < this.order; i++)
+			System.arraycopy(b.data, this.pivot[i] * b.cols, x.data, i * b.cols, b.cols);
+
+		this.substitute(x.data, b.cols);
+
+		return x;
+		}
+
+	/**
+	 * Sustituye en el sitio los términos independientes ya permutados de x por la solución
+	 * del sistema. Las operaciones se hacen por filas completas para recorrer x de forma
+	 * secuencial.
+	 * 
+	 * @param x Términos independientes ordenados por filas.
+	 * @param cols Número de columnas de x.
+	 */
+	private void substitute(double[] x, int cols){
+		int n = this.order;
+		double[] a = this.lu;
+
+		/** Sustitución hacia delante: L·Y = P·B */
+		for(int k = 0; k < n; k++){
+			for(int i = k + 1; i < n; i++){
+				double factor = a[i * n + k];
+				if(factor != 0)
+					for(int j = 0; j < cols; j++)
+						x[i * cols + j] -= factor * x[k * cols + j];
+				}
+			}
+
+		/** Sustitución hacia atrás: U·X = Y */
+		for(int k = n - 1; k >= 0; k--){
+			double diagonal = a[k * n + k];
+			for(int j = 0; j < cols; j++)
+				x[k * cols + j] /= diagonal;
+
+			for(int i = 0; i < k; i++){
+				double factor = a[i * n + k];
+				if(factor != 0)
+					for(int j = 0; j < cols; j++)
+						x[i * cols + j] -= factor * x[k * cols + j];
+				}
+			}
+		}
+	}
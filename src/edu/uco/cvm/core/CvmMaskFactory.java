@@ -1,6 +1,6 @@
 /*******************************************************************************
  * CVM - Computer Vision Mobile.
- * Copyright (C) 2010 CVM Luis Ciudad Garca
+ * Copyright (C) 2010 CVM Luis Ciudad García
  * 
  * File: CvmMaskFactory.java - This file is part of CVM.
  * 
@@ -20,12 +20,12 @@
 package edu.uco.cvm.core;
 
 /**
- * <p>Factora de mscaras para ser utilizadas sobre las imgenes.</p>
+ * <p>Factoría de máscaras para ser utilizadas sobre las imágenes.</p>
  * 
- * <p>Se trata de una clase que contiene varios mtodos estaticos que proporcionan mscaras
- * tiles en el procesamiento de imgenes.
+ * <p>Se trata de una clase que contiene varios métodos estaticos que proporcionan máscaras
+ * útiles en el procesamiento de imágenes.
  * </p>     
- * @author Luis Ciudad Garca.
+ * @author Luis Ciudad García.
  * @version 1.0 
  */
 public class CvmMaskFactory {
@@ -57,6 +57,30 @@ public class CvmMaskFactory {
         return mask;
         }
 
+    /**
+     * Devuelve el nucleo de una dimension de la mascara gaussiana, de modo que la mascara de
+     * getGaussianMask(size, sigma) es el producto de dos de estos nucleos. Se utiliza con
+     * applySeparableMask.
+     * 
+     * @param size Longitud del nucleo.
+     * @param sigma Desviacion tipica de la gaussiana.
+     * 
+     * @return Coeficientes del nucleo.
+     */
+    public static double[] getGaussianKernel(int size, double sigma){
+        double[] kernel = new double[size];
+
+        /** La raiz de la constante de la mascara se reparte entre los dos nucleos */
+        double aux = Math.sqrt(1 / (2 * Math.PI * sigma * sigma));
+
+        for(int i = 0; i < size; i++){
+            double expo = -0.5 * Math.pow(i - Math.floor(size / 2), 2) / Math.pow(sigma, 2);
+            kernel[i] = aux * Math.pow(Math.E, expo);
+            }
+
+        return kernel;
+        }
+
     public static CvmMatrixDouble getHighBoostMask(int size, int A) throws Exception{
         CvmMatrixDouble mask = new CvmMatrixDouble(size, size, -1);
 
@@ -1,6 +1,6 @@
 /*******************************************************************************
  * CVM - Computer Vision Mobile.
- * Copyright (C) 2010 CVM Luis Ciudad Garca
+ * Copyright (C) 2010 CVM Luis Ciudad García
  * 
  * File: CvmMatrix.java - This file is part of CVM.
  * 
@@ -20,14 +20,16 @@
 package edu.uco.cvm.core;
 
 public abstract class CvmMatrix {
-	/** Indica que el clculo del determinante se realice mediante el algoritmo de Doolittle*/
+	/** Indica que el cálculo del determinante se realice mediante el algoritmo de Doolittle*/
 	public final static int DOOLITTLE_METHOD = 1;	
-	/** Indica que el clculo del determinante se realice mediante el metodos de los adjuntos */
+	/** Indica que el cálculo del determinante se realice mediante el metodos de los adjuntos */
 	public final static int ADJUNCT_METHOD = 2;
+	/** Indica que el cálculo del determinante se realice de forma exacta mediante el algoritmo de Bareiss (solo matrices de enteros) */
+	public final static int BAREISS_METHOD = 3;
 	
-	/** Nmero de filas de la matriz. */
+	/** Número de filas de la matriz. */
 	protected final int rows; 
-	/** Nmero de columnas de la matriz. */
+	/** Número de columnas de la matriz. */
 	protected final int cols;
 	
 	public CvmMatrix(int rows, int cols){
@@ -38,7 +40,7 @@ public abstract class CvmMatrix {
 	/**
 	 * Observador de la propiedad rows.
 	 * 
-	 * @return Nmero de filas de la matriz.
+	 * @return Número de filas de la matriz.
 	 */
     public int getRows(){
         return this.rows;
@@ -47,7 +49,7 @@ public abstract class CvmMatrix {
    /**
     * Observador de la propiedad cols.
     * 
-    * @return Nmero de columnas de la matriz.
+    * @return Número de columnas de la matriz.
     */
     public int getCols(){
         return this.cols;
@@ -0,0 +1,287 @@
+/*******************************************************************************
+ * CVM - Computer Vision Mobile.
+ * Copyright (C) 2010 CVM Luis Ciudad García
+ * 
+ * File: CvmMatrixBatch.java - This file is part of CVM.
+ * 
+ * CVM is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * CVM is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with CVM.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package edu.uco.cvm.core;
+
+import edu.uco.cvm.exceptions.CvmIncompatibleMatrixSizeException;
+
+/**
+ * <p>Esta clase representa un conjunto de matrices pequeñas de números reales, todas de las
+ * mismas dimensiones, sobre las que se opera a la vez. Los datos se guardan por elementos
+ * (estructura de arrays): primero el elemento (0,0) de todas las matrices, después el (0,1) de
+ * todas, y así sucesivamente, de modo que el elemento (r,c) de la matriz i ocupa la posición
+ * (r * cols + c) * count + i.</p>
+ * 
+ * <p>Con esta organización los bucles de las operaciones recorren las matrices del conjunto
+ * con acceso secuencial a memoria y sin crear ningún objeto, en lugar de crear y multiplicar
+ * una CvmMatrixDouble por cada matriz.</p>
+ * 
+ * @version 1.0
+ */
+public class CvmMatrixBatch {
+	/** Número de matrices del conjunto. */
+	protected final int count;
+	/** Número de filas de cada matriz. */
+	protected final int rows;
+	/** Número de columnas de cada matriz. */
+	protected final int cols;
+	/** Elementos de las matrices, agrupados por posición. */
+	protected final double[] data;
+
+	/**
+	 * Crea un conjunto de matrices con todos sus elementos a cero.
+	 * 
+	 * @param count Número de matrices.
+	 * @param rows Número de filas de cada matriz.
+	 * @param cols Número de columnas de cada matriz.
+	 * 
+	 * @exception NegativeArraySizeException Se lanza si alguna dimensión es negativa.
+	 */
+	public CvmMatrixBatch(int count, int rows, int cols) throws NegativeArraySizeException {
+		if(count < 0 || rows < 0 || cols < 0)
+			throw new NegativeArraySizeException();
+
+		this.count = count;
+		this.rows = rows;
+		this.cols = cols;
+		this.data = new double[count * rows * cols];
+		}
+
+	/**
+	 * Crea un conjunto con una copia de las matrices indicadas.
+	 * 
+	 * @param matrices Matrices a copiar. Deben tener todas las mismas dimensiones.
+	 * 
+	 * @exception CvmIncompatibleMatrixSizeException Las matrices no tienen las mismas dimensiones.
+	 */
+	public CvmMatrixBatch(CvmMatrixDouble[] matrices) throws CvmIncompatibleMatrixSizeException {
+		this(matrices.length, (matrices.length > 0) ? matrices[0].rows : 0, (matrices.length > 0) ? matrices[0].cols : 0);
+
+		for(int i = 0; i < matrices.length; i++)
+			this.set(i, matrices[i]);
+		}
+
+	/**
+	 * Observador de la propiedad count.
+	 * 
+	 * @return Número de matrices del conjunto.
+	 */
+	public int getCount(){
+		return this.count;
+		}
+
+	/**
+	 * Observador de la propiedad rows.
+	 * 
+	 * @return Número de filas de cada matriz.
+	 */
+	public int getRows(){
+		return this.rows;
+		}
+
+	/**
+	 * Observador de la propiedad cols.
+	 * 
+	 * @return Número de columnas de cada matriz.
+	 */
+	public int getCols(){
+		return this.cols;
+		}
+
+	/**
+	 * Devuelve un elemento de una de las matrices.
+	 * 
+	 * @param index Matriz del conjunto.
+	 * @param row Fila del elemento.
+	 * @param col Columna del elemento.
+	 * 
+	 * @return Valor del elemento.
+	 * 
+	 * @exception ArrayIndexOutOfBoundsException Algún índice está fuera de los límites.
+	 */
+	public double getElement(int index, int row, int col) throws ArrayIndexOutOfBoundsException {
+		this.checkIndex(index, row, col);
+
+		return this.data[(row * this.cols + col) * this.count + index];
+		}
+
+	/**
+	 * Guarda un valor en un elemento de una de las matrices.
+	 * 
+	 * @param index Matriz del conjunto.
+	 * @param row Fila del elemento.
+	 * @param col Columna del elemento.
+	 * @param value Valor a guardar.
+	 * 
+	 * @exception ArrayIndexOutOfBoundsException Algún índice está fuera de los límites.
+	 */
+	public void setElement(int index, int row, int col, double value) throws ArrayIndexOutOfBoundsException {
+		this.checkIndex(index, row, col);
+
+		this.data[(row * this.cols + col) * this.count + index] = value;
+		}
+
+	/**
+	 * Copia una matriz en la posición indicada del conjunto.
+	 * 
+	 * @param index Posición de la matriz en el conjunto.
+	 * @param matrix Matriz a copiar.
+	 * 
+	 * @exception CvmIncompatibleMatrixSizeException La matriz no tiene las dimensiones del conjunto.
+	 * @exception ArrayIndexOutOfBoundsException La posición está fuera del conjunto.
+	 */
+	public void set(int index, CvmMatrixDouble matrix) throws CvmIncompatibleMatrixSizeException, ArrayIndexOutOfBoundsException {
+		if(matrix.rows != this.rows || matrix.cols != this.cols)
+			throw new CvmIncompatibleMatrixSizeException(matrix.rows, matrix.cols);
+		if(index < 0 || index >= this.count)
+			throw new ArrayIndexOutOfBoundsException(index);
+
+		for(int e = 0; e < matrix.data.length; e++)
+			this.data[e * this.count + index] = matrix.data[e];
+		}
+
+	/**
+	 * Devuelve una copia de una de las matrices del conjunto.
+	 * 
+	 * @param index Posición de la matriz en el conjunto.
+	 * 
+	 * @return Nueva matriz con los valores de la matriz indicada.
+	 * 
+	 * @exception ArrayIndexOutOfBoundsException La posición está fuera del conjunto.
+	 */
+	public CvmMatrixDouble get(int index) throws ArrayIndexOutOfBoundsException {
+		if(index < 0 || index >= this.count)
+			throw new ArrayIndexOutOfBoundsException(index);
+
+		CvmMatrixDouble matrix = new CvmMatrixDouble(this.rows, this.cols);
+		for(int e = 0; e < matrix.data.length; e++)
+			matrix.data[e] = this.data[e * this.count + index];
+
+		return matrix;
+		}
+
+	/**
+	 * Multiplica cada matriz del conjunto por la matriz que ocupa la misma posición en el otro
+	 * conjunto y devuelve los productos en un nuevo conjunto.
+	 * 
+	 * @param batch Conjunto con las matrices que se multiplican por la derecha.
+	 * 
+	 * @return Nuevo conjunto con los productos.
+	 * 
+	 * @exception CvmIncompatibleMatrixSizeException Los conjuntos no tienen el mismo número de
+	 * matrices o estas no pueden ser multiplicadas.
+	 */
+	public CvmMatrixBatch getMul(CvmMatrixBatch batch) throws CvmIncompatibleMatrixSizeException {
+		return this.getMul(batch, new CvmMatrixBatch(this.count, this.rows, batch.cols));
+		}
+
+	/**
+	 * Multiplica cada matriz del conjunto por la matriz que ocupa la misma posición en el otro
+	 * conjunto y guarda los productos en el conjunto destino, sin reservar memoria. Las matrices
+	 * de 3x3 se multiplican con un bucle específico que calcula los nueve elementos de cada
+	 * producto en una sola pasada.
+	 * 
+	 * @param batch Conjunto con las matrices que se multiplican por la derecha.
+	 * @param dest Conjunto en el que se guardan los productos. No puede ser ninguno de los operandos.
+	 * 
+	 * @return El conjunto destino.
+	 * 
+	 * @exception CvmIncompatibleMatrixSizeException Los conjuntos no tienen el mismo número de
+	 * matrices, estas no pueden ser multiplicadas o el destino no tiene las dimensiones del producto.
+	 * @exception IllegalArgumentException El destino es uno de los operandos.
+	 */
+	public CvmMatrixBatch getMul(CvmMatrixBatch batch, CvmMatrixBatch dest) throws CvmIncompatibleMatrixSizeException, IllegalArgumentException {
+		if(this.cols != batch.rows || this.count != batch.count)
+			throw new CvmIncompatibleMatrixSizeException(batch.rows, batch.cols);
+		if(dest.rows != this.rows || dest.cols != batch.cols || dest.count != this.count)
+			throw new CvmIncompatibleMatrixSizeException(dest.rows, dest.cols);
+		if(dest == this || dest == batch)
+			throw new IllegalArgumentException("Destination aliases an operand");
+
+		if(this.rows == 3 && this.cols == 3 && batch.cols == 3)
+			CvmMatrixBatch.mul3x3(this.data, batch.data, dest.data, this.count);
+		else
+			CvmMatrixBatch.mul(this.data, batch.data, dest.data, this.count, this.rows, this.cols, batch.cols);
+
+		return dest;
+		}
+
+	/**
+	 * Producto de conjuntos de matrices de 3x3 en una sola pasada.
+	 */
+	static void mul3x3(double[] a, double[] b, double[] c, int count){
+		int s1 = count, s2 = 2 * count, s3 = 3 * count, s4 = 4 * count, s5 = 5 * count;
+		int s6 = 6 * count, s7 = 7 * count, s8 = 8 * count;
+
+		for(int i = 0; i < count; i++){
+			double a00 = a[i], a01 = a[s1 + i], a02 = a[s2 + i];
+			double a10 = a[s3 + i], a11 = a[s4 + i], a12 = a[s5 + i];
+			double a20 = a[s6 + i], a21 = a[s7 + i], a22 = a[s8 + i];
+
+			double b00 = b[i], b01 = b[s1 + i], b02 = b[s2 + i];
+			double b10 = b[s3 + i], b11 = b[s4 + i], b12 = b[s5 + i];
+			double b20 = b[s6 + i], b21 = b[s7 + i], b22 = b[s8 + i];
+
+			c[i] = a00 * b00 + a01 * b10 + a02 * b20;
+			c[s1 + i] = a00 * b01 + a01 * b11 + a02 * b21;
+			c[s2 + i] = a00 * b02 + a01 * b12 + a02 * b22;
+			c[s3 + i] = a10 * b00 + a11 * b10 + a12 * b20;
+			c[s4 + i] = a10 * b01 + a11 * b11 + a12 * b21;
+			c[s5 + i] = a10 * b02 + a11 * b12 + a12 * b22;
+			c[s6 + i] = a20 * b00 + a21 * b10 + a22 * b20;
+			c[s7 + i] = a20 * b01 + a21 * b11 + a22 * b21;
+			c[s8 + i] = a20 * b02 + a21 * b12 + a22 * b22;
+			}
+		}
+
+	/**
+	 * Producto de conjuntos de matrices de rows x n por n x m. Cada elemento del resultado se
+	 * acumula para todas las matrices a la vez en el bucle más interno.
+	 */
+	static void mul(double[] a, double[] b, double[] c, int count, int rows, int n, int m){
+		for(int r = 0; r < rows; r++){
+			for(int j = 0; j < m; j++){
+				int pc = (r * m + j) * count;
+
+				for(int i = 0; i < count; i++)
+					c[pc + i] = 0;
+
+				for(int p = 0; p < n; p++){
+					int pa = (r * n + p) * count;
+					int pb = (p * m + j) * count;
+
+					for(int i = 0; i < count; i++)
+						c[pc + i] += a[pa + i] * b[pb + i];
+					}
+				}
+			}
+		}
+
+	/**
+	 * Comprueba que los índices están dentro de los límites del conjunto.
+	 */
+	private void checkIndex(int index, int row, int col) throws ArrayIndexOutOfBoundsException {
+		if(index < 0 || index >= this.count)
+			throw new ArrayIndexOutOfBoundsException(index);
+		if(row < 0 || row >= this.rows)
+			throw new ArrayIndexOutOfBoundsException(row);
+		if(col < 0 || col >= this.cols)
+			throw new ArrayIndexOutOfBoundsException(col);
+		}
+	}
@@ -1,6 +1,6 @@
 /*******************************************************************************
  * CVM - Computer Vision Mobile.
- * Copyright (C) 2010 CVM Luis Ciudad Garca
+ * Copyright (C) 2010 CVM Luis Ciudad García
  * 
  * File: CvmMatrixDouble.java - This file is part of CVM.
  * 
@@ -19,7 +19,13 @@
  ******************************************************************************/
 package edu.uco.cvm.core;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 import android.util.Log;
 import edu.uco.cvm.exceptions.CvmIncompatibleMatrixSizeException;
@@ -27,18 +33,18 @@ import edu.uco.cvm.exceptions.CvmSingularMatrixException;
 
 /**
  * <p>Esta clase representa un conjunto de valores ordenados en forma de matriz, los cuales
- * pueden ser accedidos a partir de la posicin que ocupan.</p>
+ * pueden ser accedidos a partir de la posición que ocupan.</p>
  * 
- * <p>En una representacin visual, el primer elemento ser el que ocupa la posicion (0,0) y
- * estara situado en la esquina superior izquierda de la matriz. A partir de ese punto la
+ * <p>En una representación visual, el primer elemento será el que ocupa la posicion (0,0) y
+ * estarí­a situado en la esquina superior izquierda de la matriz. A partir de ese punto la
  * primera coordenada crece hacia abajo, y la segunda hacia la derecha. (filas, columnas)</p>
  * 
- * <p>Una vez creado un objeto de este tipo su tamao permanece inalterado sin importar qu
- * operacin se realize sobre l. En caso de ejecutarse una accin que modificase el tamao
- * de la matriz, el resultado de ser retornado como un objeto nuevo permaneciendo el original 
- * sin ningn cambio.</p>
+ * <p>Una vez creado un objeto de este tipo su tamaño permanece inalterado sin importar qué
+ * operación se realize sobre él. En caso de ejecutarse una acción que modificase el tamaño
+ * de la matriz, el resultado de será retornado como un objeto nuevo permaneciendo el original 
+ * sin ningún cambio.</p>
  * 
- * @author Luis Ciudad Garca.
+ * @author Luis Ciudad García.
  * @version 1.0
  */
 
@@ -46,12 +52,39 @@ public class CvmMatrixDouble extends CvmMatrix{
 	/** Datos contenidos por la matriz. */
 	protected double[] data;
 	
+	/** Lado de los bloques en que se divide el producto de matrices grandes. */
+	static final int MUL_BLOCK_SIZE = 64;
+	/** Número de productos escalares a partir del cual el producto de matrices se realiza por bloques. */
+	static final long MUL_BLOCK_THRESHOLD = 64L * 64L * 64L;
+	/** Lado de los bloques en que se divide la trasposición de matrices. */
+	static final int TRANSPOSE_BLOCK_SIZE = 32;
+	/** Número de productos escalares a partir del cual getMul reparte el trabajo entre varios hilos. */
+	public static final long PARALLEL_MUL_THRESHOLD = 256L * 256L * 256L;
+	/** Lado de las regiones del resultado que se calculan en cada tarea del producto en paralelo. */
+	static final int PARALLEL_MUL_TILE = 4 * MUL_BLOCK_SIZE;
+	
+	/** Ejecutor con el que getMul reparte los productos grandes. Si es null se calculan en el hilo actual. */
+	private static volatile ExecutorService mulExecutor = null;
+	
+	/** Indica que el producto de matrices se realice con el algoritmo clásico (por bloques si es grande). */
+	public static final int STANDARD_MUL_METHOD = 0;
+	/** Indica que el producto de matrices se realice con el algoritmo de Strassen-Winograd. */
+	public static final int STRASSEN_MUL_METHOD = 1;
+	
+	/** Tamaño de corte por defecto por debajo del cual Strassen-Winograd usa el producto clásico. */
+	public static final int DEFAULT_STRASSEN_CROSSOVER = 128;
+	
+	/** Tamaño de corte por debajo del cual Strassen-Winograd usa el producto clásico. */
+	private static volatile int strassenCrossover = DEFAULT_STRASSEN_CROSSOVER;
+	/** Dimensión mínima a partir de la cual getMul elige Strassen-Winograd. Por defecto nunca. */
+	private static volatile int strassenThreshold = Integer.MAX_VALUE;
+	
 	/** 
 	 * Crea una matriz de las dimensiones correspondientes a los parametros e inicializa los 
 	 * datos al valor por defecto.
 	 * 
-	 * @param rows Nmero de filas de la matriz.
-	 * @param cols Nmero de columnas de la matriz.
+	 * @param rows Número de filas de la matriz.
+	 * @param cols Número de columnas de la matriz.
 	 * 
 	 * @exception NegativeArraySizeException Se lanza si se intenta crear una matriz de
 	 * dimensiones negativas.
@@ -59,26 +92,26 @@ public class CvmMatrixDouble extends CvmMatrix{
 	public CvmMatrixDouble(int rows, int cols) throws NegativeArraySizeException{
 		super(rows, cols);
 		
-		this.data = new double[rows*cols];
+		this.data = CvmBufferPool.allocDouble(rows * cols, true);
 		}
 
 	/**
 	 * Copia la matriz nativa de Java a una matriz CVM con las dimensiones indicadas y
 	 * los valores proporcionados.
 	 * 
-	 * @param rows Nmero de filas de la matriz.
-	 * @param cols Nmero de columnas de la matriz.
-	 * @param value Matriz nativa con el valor que tomar cada uno de los elementos.
+	 * @param rows Número de filas de la matriz.
+	 * @param cols Número de columnas de la matriz.
+	 * @param value Matriz nativa con el valor que tomará cada uno de los elementos.
 	 * 
 	 * @exception NegativeArraySizeException Se lanza si se intenta crear una matriz de
 	 * dimensiones negativas.
-	 * @exception ArrayIndexOutOfBoundsException Se lanza si el tamao de la matriz nativa no coincide con la que
+	 * @exception ArrayIndexOutOfBoundsException Se lanza si el tamaño de la matriz nativa no coincide con la que
 	 * se quiere crear.
 	 */
      public CvmMatrixDouble(int rows, int cols, double[][] values) throws NegativeArraySizeException, ArrayIndexOutOfBoundsException {    	 
     	 super(rows, cols);
 
-         this.data = new double[this.rows*this.cols];
+         this.data = CvmBufferPool.allocDouble(this.rows * this.cols, false);
 
          if(values.length != this.rows)
     		 throw new ArrayIndexOutOfBoundsException(values.length);
@@ -96,9 +129,9 @@ public class CvmMatrixDouble extends CvmMatrix{
 	 * Crea una matriz a partir de un vector de elementos, los cuales se consideran
 	 * ordenados por filas.
 	 * 
-	 * @param rows Nmero de filas de la matriz.
-	 * @param cols Nmero de columnas de la matriz.
-	 * @param value Valor que tomar cada uno de los elementos.
+	 * @param rows Número de filas de la matriz.
+	 * @param cols Número de columnas de la matriz.
+	 * @param value Valor que tomará cada uno de los elementos.
 	 * 
 	 * @exception NegativeArraySizeException Se lanza si se intenta crear una matriz de
 	 * dimensiones negativas.
@@ -111,16 +144,17 @@ public class CvmMatrixDouble extends CvmMatrix{
 		if(values.length != this.rows*this.cols)
 			throw new ArrayIndexOutOfBoundsException(values.length);
 				
-		this.data = values.clone();
+		this.data = CvmBufferPool.allocDouble(values.length, false);
+		System.arraycopy(values, 0, this.data, 0, values.length);
 		}
     
 	/**
 	 * Crea una matriz de las dimensiones correspondientes cuyos elementos toman
-	 * el valor pasado como parmetro.
+	 * el valor pasado como parámetro.
 	 * 
-	 * @param rows Nmero de filas de la matriz.
-	 * @param cols Nmero de columnas de la matriz.
-	 * @param value Valor que tomarn todos los elementos de la matriz creada.
+	 * @param rows Número de filas de la matriz.
+	 * @param cols Número de columnas de la matriz.
+	 * @param value Valor que tomarán todos los elementos de la matriz creada.
 	 * 
 	 * @exception NegativeArraySizeException Se lanza si se intenta crear una matriz de
 	 * dimensiones negativas.
@@ -128,7 +162,7 @@ public class CvmMatrixDouble extends CvmMatrix{
     public CvmMatrixDouble(int rows, int cols, double value) throws NegativeArraySizeException{
         super(rows, cols);
 
-        this.data = new double[rows * cols];
+        this.data = CvmBufferPool.allocDouble(rows * cols, false);
 
         Arrays.fill(this.data, value);
         }
@@ -136,15 +170,19 @@ public class CvmMatrixDouble extends CvmMatrix{
    /**
     * <p>Constructor de copia de la clase CvmMatrixDouble.</p>
     * 
-    * <p>Crea una matriz realizando una copia exacta de la que se pasa por parmetro
+    * <p>Crea una matriz realizando una copia exacta de la que se pasa por parámetro
     * manteniendo dos referencias distintas e independientes.</p>
     * 
-    * @param matrix Matriz original que se copiar en la nueva.
+    * <p>Si hay un ámbito de CvmBufferPool abierto en el hilo, la copia también toma sus datos
+    * del almacén y los pierde al cerrarlo. Para conservarla utilice CvmBufferPool.keep.</p>
+    * 
+    * @param matrix Matriz original que se copiará en la nueva.
     */
     public CvmMatrixDouble(CvmMatrixDouble matrix){
         super(matrix.rows, matrix.cols);
 
-        this.data = matrix.data.clone();
+        this.data = CvmBufferPool.allocDouble(matrix.data.length, false);
+        System.arraycopy(matrix.data, 0, this.data, 0, matrix.data.length);
         }
 
    /**
@@ -164,15 +202,15 @@ public class CvmMatrixDouble extends CvmMatrix{
 
 
    /**
-    * Devuelve el valor del elemento de la matriz que indican los parmetros.
+    * Devuelve el valor del elemento de la matriz que indican los parámetros.
     * 
     * @param row Fila del elemento al que se intenta acceder.
     * @param col Columna del elemento al que se intenta acceder.
     * 
-    * @return Valor del elemento apuntado por los parmetros.
+    * @return Valor del elemento apuntado por los parámetros.
     * 
-    * @exception ArrayIndexOutOfBoundsException Se produce si los parmetros de filas y columnas 
-    * no estn dentro de los lmites de la matriz.
+    * @exception ArrayIndexOutOfBoundsException Se produce si los parámetros de filas y columnas 
+    * no están dentro de los límites de la matriz.
     */
     public double getElement (int row, int col) throws ArrayIndexOutOfBoundsException {
     	if(row < 0 || row >= this.rows)
@@ -184,14 +222,14 @@ public class CvmMatrixDouble extends CvmMatrix{
         }
 
    /**
-    * Guarda el valor deseado en el elemento de la matriz que indican los parmetros.
+    * Guarda el valor deseado en el elemento de la matriz que indican los parámetros.
     * 
     * @param row Fila del elemento al que se intenta acceder.
     * @param col Columna del elemento al que se intenta acceder.
-    * @param value Valor que se quiere guardar en la posicin indicada.
+    * @param value Valor que se quiere guardar en la posición indicada.
     * 
-    * @exception ArrayIndexOutOfBoundsException Se produce si los parmetros de filas y columnas
-    * no estn dentro de los lmites de la matriz.
+    * @exception ArrayIndexOutOfBoundsException Se produce si los parámetros de filas y columnas
+    * no están dentro de los límites de la matriz.
     */
     public void setElement(int row, int col, double value) throws ArrayIndexOutOfBoundsException {
     	if(row < 0 || row >= this.rows)
@@ -204,38 +242,36 @@ public class CvmMatrixDouble extends CvmMatrix{
 
    /**
     * Suma elemento a elemento los valores de la matriz original con los de la
-    * matriz que se pasa como parmetro.
+    * matriz que se pasa como parámetro.
     * 
     * @param matrix Matriz con los elementos a sumar a la matriz original.
     * 
     * @exception CvmIcompatibleMatrixSizeException Se produce si las matrices no son 
-    * del mismo tamao.
+    * del mismo tamaño.
     */
     public void add(CvmMatrixDouble matrix) throws CvmIncompatibleMatrixSizeException {
         if(this.rows != matrix.rows || this.cols != matrix.cols){
             throw new CvmIncompatibleMatrixSizeException(matrix.rows, matrix.cols);
             }
 
-        for(int i = 0; i < this.data.length; i++)
-        	this.data[i] += matrix.data[i];
+        CvmKernels.add(this.data, matrix.data, this.data, this.data.length);
         }
 
    /**
     * Resta elemento a elemento los valores de la matriz original con los de la
-    * matriz que se pasa como parmetro.
+    * matriz que se pasa como parámetro.
     * 
     * @param matrix Matriz con los elementos a restar de la matriz original.
     * 
     * @exception CvmIcompatibleMatrixSizeException Se produce si las matrices no son 
-    * del mismo tamao.
+    * del mismo tamaño.
     */
     public void sub(CvmMatrixDouble matrix) throws CvmIncompatibleMatrixSizeException {
     	if(this.rows != matrix.rows || this.cols != matrix.cols){
             throw new CvmIncompatibleMatrixSizeException(matrix.rows, matrix.cols);
             }
 
-        for(int i = 0; i < this.data.length; i++)
-        	this.data[i] -= matrix.data[i];
+        CvmKernels.sub(this.data, matrix.data, this.data, this.data.length);
         }
 
 	/**
@@ -244,8 +280,7 @@ public class CvmMatrixDouble extends CvmMatrix{
 	 * @param value Valor a sumar a todos los elementos de la matriz original.
 	 */
 	 public void add(double value) {
-	 	for(int i = 0; i < this.data.length; i++)
-	     	this.data[i] += value;
+	 	CvmKernels.add(this.data, value, this.data, this.data.length);
 	     }
     
 	 /**
@@ -254,49 +289,42 @@ public class CvmMatrixDouble extends CvmMatrix{
 	  * @param value Valor a restar a todos los elementos de la matriz original.
 	  */
 	 public void sub(double value) {
-		 for(int i = 0; i < this.data.length; i++)
-			 this.data[i] -= value;
+		 CvmKernels.sub(this.data, value, this.data, this.data.length);
 	 	}
 
    /**
-    * Multiplica todos los elementos de la matriz original por el valor indicado como parmetro.
+    * Multiplica todos los elementos de la matriz original por el valor indicado como parámetro.
     * 
     * @param factor Valor a multiplicar por cada uno de los elementos de la matriz original.
     */
     public void mul(double factor){
-    	for(int i = 0; i < this.data.length; i++)
-        	this.data[i] *= factor;
+    	CvmKernels.mul(this.data, factor, this.data, this.data.length);
         }
 
    /**
-    * Divide todos los elementos de la matriz original por el valor indicado como parmetro.
+    * Divide todos los elementos de la matriz original por el valor indicado como parámetro.
     * 
     * @param factor Valor por el que dividir cada uno de los elementos de la matriz original.
     * 
     * @exception ArithmeticException Se lanza si se intenta una division entre cero.
     */
     public void div(double factor) throws ArithmeticException{
-    	for(int i = 0; i < this.data.length; i++)
-        	this.data[i] /= factor;
+    	CvmKernels.div(this.data, factor, this.data, this.data.length);
         }
 
    /**
     * Suma elemento a elemento los valores de la matriz original con los de la
-    * matriz que se pasa como parmetro y devuelve el resultado en una nueva instancia.
+    * matriz que se pasa como parámetro y devuelve el resultado en una nueva instancia.
     * 
     * @param matrix Matriz con los elementos a sumar a la matriz original.
     * 
-    * @return Nueva matriz con el resultado de la operacin de suma de las dos matrices.
+    * @return Nueva matriz con el resultado de la operación de suma de las dos matrices.
     * 
     * @exception CvmIncompatibleMatrixSizeException Se produce si las matrices no son 
-    * del mismo tamao.
+    * del mismo tamaño.
     */
     public CvmMatrixDouble getAdd(CvmMatrixDouble matrix) throws CvmIncompatibleMatrixSizeException {
-        CvmMatrixDouble copy = new CvmMatrixDouble(this);
-
-        copy.add(matrix);
-
-        return copy;
+        return this.getAdd(matrix, new CvmMatrixDouble(this.rows, this.cols));
         }
 
    /**
@@ -305,34 +333,26 @@ public class CvmMatrixDouble extends CvmMatrix{
     * 
     * @param value Valor a sumar a todos los elementos de la matriz original.
     * 
-    * @return Nueva matriz con el resultado de la operacin de suma de la matriz
-    * original y el valor que se pasa como parmetro.
+    * @return Nueva matriz con el resultado de la operación de suma de la matriz
+    * original y el valor que se pasa como parámetro.
     */
     public CvmMatrixDouble getAdd(double value){
-        CvmMatrixDouble copy = new CvmMatrixDouble(this);
-
-        copy.add(value);
-
-        return copy;
+        return this.getAdd(value, new CvmMatrixDouble(this.rows, this.cols));
         }
 
    /**
     * Resta elemento a elemento los valores de la matriz original con los de la
-    * matriz que se pasa como parmetro y devuelve el resultado en una nueva instancia.
+    * matriz que se pasa como parámetro y devuelve el resultado en una nueva instancia.
     * 
     * @param matrix Matriz con los elementos a restar a la matriz original.
     * 
-    * @return Nueva matriz con el resultado de la operacin de resta de las dos matrices.
+    * @return Nueva matriz con el resultado de la operación de resta de las dos matrices.
     * 
     * @exception CvmIncompatibleMatrixSizeException Se produce si las matrices no son 
-    * del mismo tamao.
+    * del mismo tamaño.
     */
     public CvmMatrixDouble getSub(CvmMatrixDouble matrix) throws CvmIncompatibleMatrixSizeException {
-        CvmMatrixDouble copy = new CvmMatrixDouble(this);
-
-        copy.sub(matrix);
-
-        return copy;
+        return this.getSub(matrix, new CvmMatrixDouble(this.rows, this.cols));
         }
 
    /**
@@ -341,49 +361,338 @@ public class CvmMatrixDouble extends CvmMatrix{
     * 
     * @param value Valor a restar a todos los elementos de la matriz original.
     * 
-    * @return Nueva matriz con el resultado de la operacin de resta de la matriz
-    * original y el valor que se pasa como parmetro.
+    * @return Nueva matriz con el resultado de la operación de resta de la matriz
+    * original y el valor que se pasa como parámetro.
     */
     public CvmMatrixDouble getSub(double value) {
-        CvmMatrixDouble copy = new CvmMatrixDouble(this);
-
-        copy.sub(value);
-
-        return copy;
+        return this.getSub(value, new CvmMatrixDouble(this.rows, this.cols));
         }
 
 
    /**
-    * Realiza la multiplicacin de dos matrices, siempre que sea posible, y devuelve
+    * Realiza la multiplicación de dos matrices, siempre que sea posible, y devuelve
     * el resultado en una nueva matriz.
     * 
-    * @param matrix Matriz que se multiplicar por la derecha de la matriz original.
+    * @param matrix Matriz que se multiplicará por la derecha de la matriz original.
     * 
-    * @return Nueva matriz con el resultado de la operacin de multiplicacin de
+    * @return Nueva matriz con el resultado de la operación de multiplicación de
     * ambas matrices.
     * 
     * @exception CvmIcompatibleMatrixSizeException La matrices no pueden ser multiplicadas.
-    * La matriz original debe tener el mismo nmero de columnas que filas tenga la
-    * matriz que se pasa por parmetro.
+    * La matriz original debe tener el mismo número de columnas que filas tenga la
+    * matriz que se pasa por parámetro.
     */
     public CvmMatrixDouble getMul(CvmMatrixDouble matrix) throws CvmIncompatibleMatrixSizeException {
         if(this.cols != matrix.rows){
             throw new CvmIncompatibleMatrixSizeException(matrix.rows, matrix.cols);
             }
 
+        int size = Math.min(this.rows, Math.min(this.cols, matrix.cols));
+        if(size >= CvmMatrixDouble.strassenThreshold)
+        	return this.getMul(matrix, CvmMatrixDouble.STRASSEN_MUL_METHOD);
+
+        ExecutorService executor = CvmMatrixDouble.mulExecutor;
+
+        if(executor != null && (long)this.rows * this.cols * matrix.cols >= CvmMatrixDouble.PARALLEL_MUL_THRESHOLD)
+        	return this.getMul(matrix, executor);
+
         CvmMatrixDouble result = new CvmMatrixDouble(this.rows, matrix.cols);
 
-        for(int r = 0; r < result.rows; r++){
-            for(int c = 0; c < result.cols; c++){
-                for(int k = 0; k < this.cols; k++) {
-                    result.data[r * result.cols + c] += this.data[r * this.cols + k] * matrix.data[k * matrix.cols + c];
-                    }
-                }
+        CvmMatrixDouble.mul(this.data, matrix.data, result.data, this.rows, this.cols, matrix.cols);
+
+        return result;
+        }
+
+   /**
+    * <p>Realiza la multiplicación de dos matrices con el método indicado y devuelve el resultado
+    * en una nueva matriz.</p>
+    * 
+    * <p>STRASSEN_MUL_METHOD divide las matrices recursivamente hasta que alguna dimensión no
+    * supera el tamaño de corte (setStrassenCrossover) y necesita menos operaciones que el
+    * producto clásico en matrices grandes. Su error de redondeo es algo mayor, por lo que el
+    * resultado puede diferir ligeramente del de STANDARD_MUL_METHOD.</p>
+    * 
+    * @param matrix Matriz que se multiplicará por la derecha de la matriz original.
+    * @param method Método de multiplicación (STANDARD_MUL_METHOD o STRASSEN_MUL_METHOD).
+    * 
+    * @return Nueva matriz con el resultado de la operación de multiplicación de
+    * ambas matrices.
+    * 
+    * @exception CvmIcompatibleMatrixSizeException La matrices no pueden ser multiplicadas.
+    * @exception IllegalArgumentException Se lanza si el método no es ninguno de los anteriores.
+    */
+    public CvmMatrixDouble getMul(CvmMatrixDouble matrix, int method) throws CvmIncompatibleMatrixSizeException, IllegalArgumentException {
+        if(method != CvmMatrixDouble.STANDARD_MUL_METHOD && method != CvmMatrixDouble.STRASSEN_MUL_METHOD)
+        	throw new IllegalArgumentException("Invalid multiplication method: " + method);
+
+        if(this.cols != matrix.rows){
+            throw new CvmIncompatibleMatrixSizeException(matrix.rows, matrix.cols);
             }
 
+        CvmMatrixDouble result = new CvmMatrixDouble(this.rows, matrix.cols);
+
+        if(method == CvmMatrixDouble.STRASSEN_MUL_METHOD)
+        	CvmStrassen.mul(this.data, 0, this.cols, matrix.data, 0, matrix.cols, result.data, 0, result.cols,
+        			this.rows, this.cols, matrix.cols, CvmMatrixDouble.strassenCrossover);
+        else
+        	CvmMatrixDouble.mul(this.data, matrix.data, result.data, this.rows, this.cols, matrix.cols);
+
         return result;
         }
 
+    /**
+     * Establece el tamaño de corte de Strassen-Winograd: cuando alguna dimensión de un
+     * subproducto no lo supera, este se calcula con el producto clásico por bloques.
+     * 
+     * @param crossover Tamaño de corte, al menos 1.
+     * 
+     * @exception IllegalArgumentException Se lanza si el tamaño es menor que 1.
+     */
+    public static void setStrassenCrossover(int crossover) throws IllegalArgumentException {
+        if(crossover < 1)
+        	throw new IllegalArgumentException("Invalid crossover: " + crossover);
+
+        CvmMatrixDouble.strassenCrossover = crossover;
+        }
+
+    /**
+     * Observador del tamaño de corte de Strassen-Winograd.
+     * 
+     * @return Tamaño de corte actual.
+     */
+    public static int getStrassenCrossover(){
+        return CvmMatrixDouble.strassenCrossover;
+        }
+
+    /**
+     * Establece a partir de qué tamaño getMul elige automáticamente Strassen-Winograd: se usa
+     * cuando las tres dimensiones del producto alcanzan el valor indicado.
+     * 
+     * @param threshold Dimensión mínima, o Integer.MAX_VALUE para no usarlo nunca (por defecto).
+     */
+    public static void setStrassenThreshold(int threshold){
+        CvmMatrixDouble.strassenThreshold = threshold;
+        }
+
+    /**
+     * Observador de la dimensión a partir de la cual getMul elige Strassen-Winograd.
+     * 
+     * @return Dimensión mínima, Integer.MAX_VALUE si no se usa nunca.
+     */
+    public static int getStrassenThreshold(){
+        return CvmMatrixDouble.strassenThreshold;
+        }
+
+   /**
+    * Realiza la multiplicación de dos matrices y guarda el resultado en la matriz destino,
+    * de modo que se puede reutilizar la misma matriz en sucesivas operaciones. Si la matriz
+    * destino comparte los datos con alguno de los operandos el producto se calcula en una
+    * matriz auxiliar y después se copia sobre ella.
+    * 
+    * @param matrix Matriz que se multiplicará por la derecha de la matriz original.
+    * @param dest Matriz en la que se guarda el resultado. Debe tener tantas filas como la
+    * matriz original y tantas columnas como la matriz que se pasa por parámetro.
+    * 
+    * @return La matriz destino.
+    * 
+    * @exception CvmIcompatibleMatrixSizeException La matrices no pueden ser multiplicadas o
+    * la matriz destino no tiene las dimensiones del resultado.
+    */
+    public CvmMatrixDouble getMul(CvmMatrixDouble matrix, CvmMatrixDouble dest) throws CvmIncompatibleMatrixSizeException {
+        if(this.cols != matrix.rows){
+            throw new CvmIncompatibleMatrixSizeException(matrix.rows, matrix.cols);
+            }
+        if(dest.rows != this.rows || dest.cols != matrix.cols){
+            throw new CvmIncompatibleMatrixSizeException(dest.rows, dest.cols);
+            }
+
+        if(dest.data == this.data || dest.data == matrix.data){
+        	double[] result = new double[dest.data.length];
+        	CvmMatrixDouble.mul(this.data, matrix.data, result, this.rows, this.cols, matrix.cols);
+        	System.arraycopy(result, 0, dest.data, 0, result.length);
+        	}
+        else{
+        	Arrays.fill(dest.data, (double)0);
+        	CvmMatrixDouble.mul(this.data, matrix.data, dest.data, this.rows, this.cols, matrix.cols);
+        	}
+
+        return dest;
+        }
+
+    /**
+     * Acumula sobre c el producto de a (rows x n) por b (n x m), eligiendo el producto por
+     * bloques cuando el número de productos escalares alcanza MUL_BLOCK_THRESHOLD.
+     */
+    static void mul(double[] a, double[] b, double[] c, int rows, int n, int m){
+        if((long)rows * n * m < CvmMatrixDouble.MUL_BLOCK_THRESHOLD)
+        	CvmMatrixDouble.mulBlock(a, b, c, n, m, 0, rows, 0, m, 0, n);
+        else
+        	CvmMatrixDouble.mulBlocked(a, b, c, n, m, 0, rows, 0, m);
+        }
+
+   /**
+    * <p>Realiza la multiplicación de dos matrices repartiendo el cálculo entre los hilos del
+    * ejecutor indicado. El resultado se divide en regiones de PARALLEL_MUL_TILE filas por
+    * PARALLEL_MUL_TILE columnas y cada región se calcula en una tarea independiente.</p>
+    * 
+    * <p>Cada elemento del resultado se obtiene con las mismas operaciones y en el mismo orden que
+    * en el producto secuencial, por lo que ambos resultados son idénticos bit a bit. Si el
+    * producto no alcanza PARALLEL_MUL_THRESHOLD se calcula en el hilo actual.</p>
+    * 
+    * <p>Este método espera a que terminen todas las tareas, por lo que no debe llamarse desde
+    * un hilo del propio ejecutor si este tiene un número limitado de hilos.</p>
+    * 
+    * @param matrix Matriz que se multiplicará por la derecha de la matriz original.
+    * @param executor Ejecutor en el que se lanzan las tareas.
+    * 
+    * @return Nueva matriz con el resultado de la operación de multiplicación de
+    * ambas matrices.
+    * 
+    * @exception CvmIcompatibleMatrixSizeException La matrices no pueden ser multiplicadas.
+    * @exception IllegalStateException Se lanza si el hilo es interrumpido mientras espera
+    * a que terminen las tareas.
+    */
+    public CvmMatrixDouble getMul(CvmMatrixDouble matrix, ExecutorService executor) throws CvmIncompatibleMatrixSizeException {
+        if(this.cols != matrix.rows){
+            throw new CvmIncompatibleMatrixSizeException(matrix.rows, matrix.cols);
+            }
+
+        final CvmMatrixDouble result = new CvmMatrixDouble(this.rows, matrix.cols);
+        final double[] a = this.data;
+        final double[] b = matrix.data;
+        final int n = this.cols;
+
+        if((long)this.rows * this.cols * matrix.cols < CvmMatrixDouble.PARALLEL_MUL_THRESHOLD){
+        	CvmMatrixDouble.mulBlocked(a, b, result.data, n, result.cols, 0, result.rows, 0, result.cols);
+        	return result;
+        	}
+
+        List<Callable<Object>> tasks = new ArrayList<Callable<Object>>();
+
+        for(int r = 0; r < result.rows; r += CvmMatrixDouble.PARALLEL_MUL_TILE){
+        	for(int c = 0; c < result.cols; c += CvmMatrixDouble.PARALLEL_MUL_TILE){
+        		final int r0 = r;
+        		final int r1 = Math.min(r + CvmMatrixDouble.PARALLEL_MUL_TILE, result.rows);
+        		final int c0 = c;
+        		final int c1 = Math.min(c + CvmMatrixDouble.PARALLEL_MUL_TILE, result.cols);
+
+        		tasks.add(new Callable<Object>(){
+        			public Object call(){
+        				CvmMatrixDouble.mulBlocked(a, b, result.data, n, result.cols, r0, r1, c0, c1);
+        				return null;
+        				}
+        			});
+        		}
+        	}
+
+        try{
+        	for(Future<Object> future : executor.invokeAll(tasks))
+        		future.get();
+        	}
+        catch(InterruptedException e){
+        	Thread.currentThread().interrupt();
+        	throw new IllegalStateException(e);
+        	}
+        catch(ExecutionException e){
+        	if(e.getCause() instanceof RuntimeException)
+        		throw (RuntimeException)e.getCause();
+        	throw new IllegalStateException(e.getCause());
+        	}
+
+        return result;
+        }
+
+    /**
+     * Establece el ejecutor con el que getMul reparte entre varios hilos los productos que
+     * alcanzan PARALLEL_MUL_THRESHOLD. El ejecutor no es gestionado por la librería, por lo
+     * que debe ser finalizado por quien lo crea.
+     * 
+     * @param executor Ejecutor a utilizar, o null para calcular todos los productos en el hilo
+     * que los solicita.
+     */
+    public static void setMulExecutor(ExecutorService executor){
+        CvmMatrixDouble.mulExecutor = executor;
+        }
+
+    /**
+     * Observador del ejecutor usado por getMul para los productos grandes.
+     * 
+     * @return Ejecutor configurado, o null si los productos se calculan en el hilo actual.
+     */
+    public static ExecutorService getMulExecutor(){
+        return CvmMatrixDouble.mulExecutor;
+        }
+
+    /**
+     * <p>Acumula sobre c el producto de la submatriz de a formada por las filas [r0, r1) y las
+     * columnas [k0, k1) por la submatriz de b formada por las filas [k0, k1) y las columnas
+     * [c0, c1). Todas las matrices se almacenan por filas.</p>
+     * 
+     * <p>El bucle sigue el orden fila-interno-columna (i-k-j), de modo que b y c se recorren
+     * siempre por filas, y procesa cuatro elementos de a por iteración para reutilizar cada
+     * fila de c mientras está en los registros.</p>
+     * 
+     * @param a Datos de la matriz izquierda.
+     * @param b Datos de la matriz derecha.
+     * @param c Datos de la matriz resultado.
+     * @param n Número de columnas de a (y de filas de b).
+     * @param m Número de columnas de b (y de c).
+     */
+    static void mulBlock(double[] a, double[] b, double[] c, int n, int m, int r0, int r1, int c0, int c1, int k0, int k1){
+        for(int r = r0; r < r1; r++){
+            int rowA = r * n;
+            int rowC = r * m;
+            int k = k0;
+
+            for(; k + 3 < k1; k += 4){
+                double a0 = a[rowA + k];
+                double a1 = a[rowA + k + 1];
+                double a2 = a[rowA + k + 2];
+                double a3 = a[rowA + k + 3];
+                int b0 = k * m;
+                int b1 = b0 + m;
+                int b2 = b1 + m;
+                int b3 = b2 + m;
+
+                for(int j = c0; j < c1; j++)
+                    c[rowC + j] += a0 * b[b0 + j] + a1 * b[b1 + j] + a2 * b[b2 + j] + a3 * b[b3 + j];
+                }
+
+            for(; k < k1; k++){
+                double a0 = a[rowA + k];
+                int b0 = k * m;
+
+                for(int j = c0; j < c1; j++)
+                    c[rowC + j] += a0 * b[b0 + j];
+                }
+            }
+        }
+
+    /**
+     * Calcula por bloques de MUL_BLOCK_SIZE la región [r0, r1) x [c0, c1) del producto de a por b,
+     * de forma que los bloques de ambas matrices que intervienen en cada paso quepan en la caché.
+     * Cada elemento del resultado acumula los bloques internos siempre en el mismo orden, por lo
+     * que el resultado no depende de cómo se reparta la región.
+     * 
+     * @param a Datos de la matriz izquierda.
+     * @param b Datos de la matriz derecha.
+     * @param c Datos de la matriz resultado.
+     * @param n Número de columnas de a (y de filas de b).
+     * @param m Número de columnas de b (y de c).
+     */
+    static void mulBlocked(double[] a, double[] b, double[] c, int n, int m, int r0, int r1, int c0, int c1){
+        for(int rb = r0; rb < r1; rb += CvmMatrixDouble.MUL_BLOCK_SIZE){
+            int re = Math.min(rb + CvmMatrixDouble.MUL_BLOCK_SIZE, r1);
+
+            for(int kb = 0; kb < n; kb += CvmMatrixDouble.MUL_BLOCK_SIZE){
+                int ke = Math.min(kb + CvmMatrixDouble.MUL_BLOCK_SIZE, n);
+
+                for(int cb = c0; cb < c1; cb += CvmMatrixDouble.MUL_BLOCK_SIZE)
+                    CvmMatrixDouble.mulBlock(a, b, c, n, m, rb, re, cb, Math.min(cb + CvmMatrixDouble.MUL_BLOCK_SIZE, c1), kb, ke);
+                }
+            }
+        }
+
 
    /**
     * Multiplica por un valor todos los elementos de la matriz original y devuelve el
@@ -391,15 +700,11 @@ public class CvmMatrixDouble extends CvmMatrix{
     * 
     * @param factor Valor por el que se multiplican todos los elementos de la matriz original.
     * 
-    * @return Nueva matriz con el resultado de la operacin de multiplicacin de la matriz
-    * original y el valor que se pasa como parmetro.
+    * @return Nueva matriz con el resultado de la operación de multiplicación de la matriz
+    * original y el valor que se pasa como parámetro.
     */
     public CvmMatrixDouble getMul(double factor){
-        CvmMatrixDouble copy = new CvmMatrixDouble(this);
-
-        copy.mul(factor);
-
-        return copy;
+        return this.getMul(factor, new CvmMatrixDouble(this.rows, this.cols));
         }
 
    /**
@@ -408,39 +713,231 @@ public class CvmMatrixDouble extends CvmMatrix{
     * 
     * @param factor Valor por el que se dividen todos los elementos de la matriz original.
     * 
-    * @return Nueva matriz con el resultado de la operacin de divisin de la matriz
-    * original y el valor que se pasa como parmetro.
+    * @return Nueva matriz con el resultado de la operación de división de la matriz
+    * original y el valor que se pasa como parámetro.
     */
     public CvmMatrixDouble getDiv(double factor){
-        CvmMatrixDouble copy = new CvmMatrixDouble(this);
+        return this.getDiv(factor, new CvmMatrixDouble(this.rows, this.cols));
+        }
+
+   /**
+    * Suma elemento a elemento los valores de la matriz original con los de la matriz que se
+    * pasa como parámetro y guarda el resultado en la matriz destino, que puede ser cualquiera
+    * de los dos operandos.
+    * 
+    * @param matrix Matriz con los elementos a sumar a la matriz original.
+    * @param dest Matriz en la que se guarda el resultado.
+    * 
+    * @return La matriz destino.
+    * 
+    * @exception CvmIncompatibleMatrixSizeException Se produce si las matrices no son 
+    * del mismo tamaño.
+    */
+    public CvmMatrixDouble getAdd(CvmMatrixDouble matrix, CvmMatrixDouble dest) throws CvmIncompatibleMatrixSizeException {
+        this.checkSize(matrix);
+        this.checkSize(dest);
 
-        copy.div(factor);
+        CvmKernels.add(this.data, matrix.data, dest.data, this.data.length);
 
-        return copy;
+        return dest;
+        }
+
+   /**
+    * Resta elemento a elemento los valores de la matriz que se pasa como parámetro a los de
+    * la matriz original y guarda el resultado en la matriz destino, que puede ser cualquiera
+    * de los dos operandos.
+    * 
+    * @param matrix Matriz con los elementos a restar a la matriz original.
+    * @param dest Matriz en la que se guarda el resultado.
+    * 
+    * @return La matriz destino.
+    * 
+    * @exception CvmIncompatibleMatrixSizeException Se produce si las matrices no son 
+    * del mismo tamaño.
+    */
+    public CvmMatrixDouble getSub(CvmMatrixDouble matrix, CvmMatrixDouble dest) throws CvmIncompatibleMatrixSizeException {
+        this.checkSize(matrix);
+        this.checkSize(dest);
+
+        CvmKernels.sub(this.data, matrix.data, dest.data, this.data.length);
+
+        return dest;
+        }
+
+   /**
+    * Suma un valor a todos los elementos de la matriz original y guarda el resultado en
+    * la matriz destino, que puede ser la propia matriz original.
+    * 
+    * @param value Valor a sumar a todos los elementos de la matriz original.
+    * @param dest Matriz en la que se guarda el resultado.
+    * 
+    * @return La matriz destino.
+    * 
+    * @exception CvmIncompatibleMatrixSizeException Se produce si la matriz destino no es
+    * del mismo tamaño.
+    */
+    public CvmMatrixDouble getAdd(double value, CvmMatrixDouble dest) throws CvmIncompatibleMatrixSizeException {
+        this.checkSize(dest);
+
+        CvmKernels.add(this.data, value, dest.data, this.data.length);
+
+        return dest;
+        }
+
+   /**
+    * Resta un valor a todos los elementos de la matriz original y guarda el resultado en
+    * la matriz destino, que puede ser la propia matriz original.
+    * 
+    * @param value Valor a restar a todos los elementos de la matriz original.
+    * @param dest Matriz en la que se guarda el resultado.
+    * 
+    * @return La matriz destino.
+    * 
+    * @exception CvmIncompatibleMatrixSizeException Se produce si la matriz destino no es
+    * del mismo tamaño.
+    */
+    public CvmMatrixDouble getSub(double value, CvmMatrixDouble dest) throws CvmIncompatibleMatrixSizeException {
+        this.checkSize(dest);
+
+        CvmKernels.sub(this.data, value, dest.data, this.data.length);
+
+        return dest;
+        }
+
+   /**
+    * Multiplica por un valor todos los elementos de la matriz original y guarda el resultado
+    * en la matriz destino, que puede ser la propia matriz original.
+    * 
+    * @param factor Valor por el que se multiplican todos los elementos de la matriz original.
+    * @param dest Matriz en la que se guarda el resultado.
+    * 
+    * @return La matriz destino.
+    * 
+    * @exception CvmIncompatibleMatrixSizeException Se produce si la matriz destino no es
+    * del mismo tamaño.
+    */
+    public CvmMatrixDouble getMul(double factor, CvmMatrixDouble dest) throws CvmIncompatibleMatrixSizeException {
+        this.checkSize(dest);
+
+        CvmKernels.mul(this.data, factor, dest.data, this.data.length);
+
+        return dest;
+        }
+
+   /**
+    * Divide por un valor todos los elementos de la matriz original y guarda el resultado
+    * en la matriz destino, que puede ser la propia matriz original.
+    * 
+    * @param factor Valor por el que se dividen todos los elementos de la matriz original.
+    * @param dest Matriz en la que se guarda el resultado.
+    * 
+    * @return La matriz destino.
+    * 
+    * @exception CvmIncompatibleMatrixSizeException Se produce si la matriz destino no es
+    * del mismo tamaño.
+    * @exception ArithmeticException Se lanza si se intenta una division entre cero.
+    */
+    public CvmMatrixDouble getDiv(double factor, CvmMatrixDouble dest) throws CvmIncompatibleMatrixSizeException, ArithmeticException {
+        this.checkSize(dest);
+
+        CvmKernels.div(this.data, factor, dest.data, this.data.length);
+
+        return dest;
+        }
+
+    /**
+     * Comprueba que la matriz que se pasa como parámetro tiene las mismas dimensiones que
+     * la matriz original.
+     * 
+     * @exception CvmIncompatibleMatrixSizeException Las matrices no son del mismo tamaño.
+     */
+    private void checkSize(CvmMatrixDouble matrix) throws CvmIncompatibleMatrixSizeException {
+        if(this.rows != matrix.rows || this.cols != matrix.cols){
+            throw new CvmIncompatibleMatrixSizeException(matrix.rows, matrix.cols);
+            }
         }
 
    /**
     * Intercambia los elementos de filas y columnas de manera que se devuelve la
     * matriz traspuesta de la matriz original.
     * 
-    * @return Nueva matriz de tamao columnas por filas, que contiene los elementos
+    * @return Nueva matriz de tamaño columnas por filas, que contiene los elementos
     * de la matriz original pero cambiando filas por columnas.
     */
     public CvmMatrixDouble getTranspose(){
         CvmMatrixDouble copy = new CvmMatrixDouble(this.cols, this.rows);
 
-        for(int r = 0; r < copy.rows; r++)
-            for(int c = 0; c < copy.cols; c++)
-                copy.setElement(r, c, this.getElement(c, r));
+        CvmMatrixDouble.transpose(this.data, copy.data, this.rows, this.cols, 0, this.rows, 0, this.cols);
 
         return copy;
         }
 
+   /**
+    * Traspone la matriz sobre sus propios datos, sin reservar memoria adicional. Solo es
+    * posible si la matriz es cuadrada, ya que en otro caso cambiarían sus dimensiones.
+    * 
+    * @exception CvmIncompatibleMatrixSizeException La matriz no es cuadrada.
+    */
+    public void transpose() throws CvmIncompatibleMatrixSizeException {
+        if(this.rows != this.cols){
+            throw new CvmIncompatibleMatrixSizeException(this.rows, this.cols);
+            }
+
+        int n = this.rows;
+
+        for(int rb = 0; rb < n; rb += CvmMatrixDouble.TRANSPOSE_BLOCK_SIZE){
+            int re = Math.min(rb + CvmMatrixDouble.TRANSPOSE_BLOCK_SIZE, n);
+
+            for(int cb = rb; cb < n; cb += CvmMatrixDouble.TRANSPOSE_BLOCK_SIZE){
+                int ce = Math.min(cb + CvmMatrixDouble.TRANSPOSE_BLOCK_SIZE, n);
+
+                for(int r = rb; r < re; r++){
+                    /** En los bloques de la diagonal solo se recorre la parte superior */
+                    for(int c = Math.max(cb, r + 1); c < ce; c++){
+                        double aux = this.data[r * n + c];
+                        this.data[r * n + c] = this.data[c * n + r];
+                        this.data[c * n + r] = aux;
+                        }
+                    }
+                }
+            }
+        }
+
     /**
-     * Crea una matriz cuadrada del orden seleccionado cuya diagonal principal est
+     * <p>Copia en dst la traspuesta de la región [r0, r1) x [c0, c1) de src, siendo src una
+     * matriz de rows x cols almacenada por filas y dst una de cols x rows.</p>
+     * 
+     * <p>La región se divide por la mitad de su lado mayor hasta que cabe en un bloque de
+     * TRANSPOSE_BLOCK_SIZE, de modo que las filas de src y de dst que se recorren en cada
+     * bloque permanecen en la caché sea cual sea el tamaño de la matriz.</p>
+     */
+    static void transpose(double[] src, double[] dst, int rows, int cols, int r0, int r1, int c0, int c1){
+        while(r1 - r0 > CvmMatrixDouble.TRANSPOSE_BLOCK_SIZE || c1 - c0 > CvmMatrixDouble.TRANSPOSE_BLOCK_SIZE){
+            if(r1 - r0 >= c1 - c0){
+                int rm = (r0 + r1) >>> 1;
+                CvmMatrixDouble.transpose(src, dst, rows, cols, r0, rm, c0, c1);
+                r0 = rm;
+                }
+            else{
+                int cm = (c0 + c1) >>> 1;
+                CvmMatrixDouble.transpose(src, dst, rows, cols, r0, r1, c0, cm);
+                c0 = cm;
+                }
+            }
+
+        for(int r = r0; r < r1; r++){
+            int rowSrc = r * cols;
+
+            for(int c = c0; c < c1; c++)
+                dst[c * rows + r] = src[rowSrc + c];
+            }
+        }
+
+    /**
+     * Crea una matriz cuadrada del orden seleccionado cuya diagonal principal está
      * formada por el elemento 1.
      * 
-     * @param order Orden de la matriz (Nmero de filas y columnas).
+     * @param order Orden de la matriz (Número de filas y columnas).
      * 
      * @return Matriz identidad del orden especificado.
      * 
@@ -458,17 +955,23 @@ public class CvmMatrixDouble extends CvmMatrix{
     
     /**
      * Calcula el determinante de la matriz, esta debe ser cuadrada.
-     * El mtodo usado para matrices de orden superior a 2 es el de Dolittle.
-     * Si la matriz es singular no se puede obtener el determinante y se lanza
-     * una excepcin.
+     * Para matrices de orden superior a 3 se usa el método indicado: DOOLITTLE_METHOD
+     * obtiene el determinante a partir de la descomposición LU con pivotación parcial
+     * (CvmLUDecomposition) y ADJUNCT_METHOD lo desarrolla por adjuntos.
+     * 
+     * @param method Método de cálculo para matrices de orden superior a 3 (DOOLITTLE_METHOD o
+     * ADJUNCT_METHOD).
      * 
-     * @return El determinante de la matriz.
+     * @return El determinante de la matriz, que vale cero si esta es singular.
      * 
      * @exception CvmIncompatibleMatrixSizeException La matriz no es cuadrada.
-     * @exception CvmSingularMatrixException Se lanza si el determinante no puede ser calculado
-     * mediante el algoritmo de Doolittle.
+     * @exception IllegalArgumentException El método no es ninguno de los anteriores; en
+     * particular BAREISS_METHOD solo se admite en matrices de enteros.
      */    
-    public double getDeterminant(int method) throws CvmIncompatibleMatrixSizeException, CvmSingularMatrixException {
+    public double getDeterminant(int method) throws CvmIncompatibleMatrixSizeException, CvmSingularMatrixException, IllegalArgumentException {
+        if(method != CvmMatrixDouble.DOOLITTLE_METHOD && method != CvmMatrixDouble.ADJUNCT_METHOD)
+        	throw new IllegalArgumentException("Invalid determinant method: " + method);
+
         if(this.cols != this.rows){
             throw new CvmIncompatibleMatrixSizeException(this.rows, this.cols);
             }
@@ -495,63 +998,13 @@ public class CvmMatrixDouble extends CvmMatrix{
         	break;
         default:
         	if(method == CvmMatrixDouble.DOOLITTLE_METHOD){
-	        	CvmMatrixDouble P = CvmMatrixDouble.getIdentity(this.rows);
-	        	CvmMatrixDouble L = new CvmMatrixDouble(this.rows, this.cols, 0);
-	        	CvmMatrixDouble U = new CvmMatrixDouble(this);
-	        	
-	        	int pivotRow = 0;
-	        	double maxValue = 0;
-	        	
-	        	for(int i = 0; i < this.rows; i++){
-	        		
-	        		pivotRow = i;
-	        		
-	        		for(int j = i; j < this.rows; j++){
-	        			
-	        			if(maxValue < this.data[j * this.cols + i]){
-	        				maxValue = this.data[j * this.cols + i];
-	        				pivotRow = j;
-	        				}
-	        			}
-	        		
-	        		if(maxValue == 0)
-	        			throw new CvmSingularMatrixException(); //No se puede factorizar
-	        		
-	        		else if(pivotRow != i){
-	        			for(int j = 0; j < this.cols; j++){
-	        				double aux = P.data[i * this.cols + j];
-	        				P.data[i * this.cols + j] = P.data[pivotRow * this.cols + j];
-	        				P.data[pivotRow * this.cols + j] = aux;
-	        				
-	        				aux = L.data[i * this.cols + j];
-	        				L.data[i * this.cols + j] = L.data[pivotRow * this.cols + j];
-	        				L.data[pivotRow * this.cols + j] = aux;
-	        				
-	        				aux = U.data[i * this.cols + j];
-	        				U.data[i * this.cols + j] = U.data[pivotRow * this.cols + j];
-	        				U.data[pivotRow * this.cols + j] = aux;
-	        				}
-	        			}
-	        		
-	        		/** Hacer ceros por debajo de la diagonal */
-	        		for(int j = i+1; j < this.rows; j++){
-	        			double factor = U.data[j * this.cols + i] / U.data[i * this.cols + i];
-	        			for(int k = i; k < this.cols; k++){
-	        				U.data[j * this.cols + k] -= factor * U.data[i * this.cols + k];
-	        				}
-	        			
-	        			L.data[j * this.cols + i] = -factor;
-	        			}
-	        		}
-	        	
-	        	det = 1;
-	            for(int i = 0; i < this.cols; i++)
-	            	det *= U.data[i * this.cols + i];
-	        	}
+        		det = new CvmLUDecomposition(this).getDeterminant();
+        		}
         	else if(method == CvmMatrixDouble.ADJUNCT_METHOD){
+        		/** Desarrollo por los adjuntos de la primera fila */
         		det = 0;
-        		for(int i = 0; i < this.data.length; i++){
-        			det += this.data[i] * this.getAdjunctElement(i / this.cols, i % this.cols); 
+        		for(int c = 0; c < this.cols; c++){
+        			det += this.data[c] * this.getAdjunctElement(0, c); 
         			}
         		}
             
@@ -566,13 +1019,13 @@ public class CvmMatrixDouble extends CvmMatrix{
      * elementos que la original en la que se han suprimido los elementos de la fila y la columna
      * indicados.
      * 
-     * @param row Fila del elemento. Esta fila ser eliminada en la matriz resultante.
-     * @param col Columna del elemento. Esta columna ser eliminada en la matriz resultante.
+     * @param row Fila del elemento. Esta fila será eliminada en la matriz resultante.
+     * @param col Columna del elemento. Esta columna será eliminada en la matriz resultante.
      * 
      * @return Matriz adjunta al elemento seleccionado.
      * 
-     * @exception ArrayIndexOutOfBoundsException Se produce si los parmetros de filas y columnas
-     * no estn dentro de los lmites de la matriz.
+     * @exception ArrayIndexOutOfBoundsException Se produce si los parámetros de filas y columnas
+     * no están dentro de los límites de la matriz.
      */
     public CvmMatrixDouble getAdjunctMatrix(int row, int col) throws ArrayIndexOutOfBoundsException {
     	if(row < 0 || row >= this.rows)
@@ -605,16 +1058,16 @@ public class CvmMatrixDouble extends CvmMatrix{
     
     /**
      * Calcula el adjunto a un elemento. Esto significa que calcula el determinante de la
-     * matriz adjunta al elemento seleccionado. Esta operacin solo es vlida sobre matrices
+     * matriz adjunta al elemento seleccionado. Esta operación solo es válida sobre matrices
      * cuadradas.
      * 
      * @param row Fila del elemento.
      * @param col Columna del elemento.
      * 
-     * @return Valor del adjunto de la matriz que ocupa la posicin indicada.
+     * @return Valor del adjunto de la matriz que ocupa la posición indicada.
      * 
-     * @exception ArrayIndexOutOfBoundsException Se produce si los parmetros de filas y columnas
-     * no estn dentro de los lmites de la matriz.
+     * @exception ArrayIndexOutOfBoundsException Se produce si los parámetros de filas y columnas
+     * no están dentro de los límites de la matriz.
      * @exception CvmIncompatibleMatrixSizeException La matriz debe ser cuadrada.
      */
     public double getAdjunctElement(int row, int col) throws ArrayIndexOutOfBoundsException, CvmIncompatibleMatrixSizeException{
@@ -625,12 +1078,7 @@ public class CvmMatrixDouble extends CvmMatrix{
         
     	CvmMatrixDouble adjunctMatrix = this.getAdjunctMatrix(row, col);
     	
-        try{
-        	det = adjunctMatrix.getDeterminant(CvmMatrixDouble.DOOLITTLE_METHOD);
-        	}
-        catch(CvmSingularMatrixException e){
-        	det = adjunctMatrix.getDeterminant(CvmMatrixDouble.ADJUNCT_METHOD);
-        	}
+        det = adjunctMatrix.getDeterminant(CvmMatrixDouble.DOOLITTLE_METHOD);
     	
     	return Math.pow(-1, row+col) * det;
     	}
@@ -660,7 +1108,8 @@ public class CvmMatrixDouble extends CvmMatrix{
         }
     
     /**
-     * Calcula la inversa de una matriz si es posible.
+     * Calcula la inversa de una matriz si es posible a partir de su descomposición LU
+     * con pivotación parcial (CvmLUDecomposition).
      * 
      * @return La matriz inversa.
      * 
@@ -668,22 +1117,75 @@ public class CvmMatrixDouble extends CvmMatrix{
      * @exception CvmIncompatibleMatrixSizeException La matriz no es cuadrada.
      */ 
     public CvmMatrixDouble getInverse() throws CvmSingularMatrixException, CvmIncompatibleMatrixSizeException{
-        double det = 0;
-        
-        try{
-        	det = this.getDeterminant(CvmMatrixDouble.DOOLITTLE_METHOD);
-        	}
-        catch(Exception e){
-        	det = this.getDeterminant(CvmMatrixDouble.ADJUNCT_METHOD);
+        return new CvmLUDecomposition(this).getInverse();
+        }
+
+    /**
+     * <p>Resuelve el sistema de ecuaciones A·X = B, siendo A la matriz original, sin calcular
+     * su inversa. Cada columna de B es un término independiente distinto, por lo que se pueden
+     * resolver varios sistemas con la misma matriz en una sola llamada.</p>
+     * 
+     * <p>Si la matriz es simétrica se intenta primero la descomposición de Cholesky, que
+     * requiere la mitad de operaciones; si no es definida positiva, o no es simétrica, se
+     * utiliza la descomposición LU con pivotación parcial.</p>
+     * 
+     * @param b Matriz de términos independientes, con tantas filas como la matriz original.
+     * 
+     * @return Nueva matriz X con la solución del sistema, con las mismas dimensiones que b.
+     * 
+     * @exception CvmIncompatibleMatrixSizeException La matriz no es cuadrada o b no tiene
+     * tantas filas como la matriz original.
+     * @exception CvmSingularMatrixException La matriz es singular y el sistema no tiene
+     * solución única.
+     */
+    public CvmMatrixDouble solve(CvmMatrixDouble b) throws CvmIncompatibleMatrixSizeException, CvmSingularMatrixException {
+        if(this.cols != this.rows)
+            throw new CvmIncompatibleMatrixSizeException(this.rows, this.cols);
+        if(b.rows != this.rows)
+            throw new CvmIncompatibleMatrixSizeException(b.rows, b.cols);
+
+        if(this.isSymmetric()){
+        	CvmCholeskyDecomposition cholesky = new CvmCholeskyDecomposition(this);
+        	if(cholesky.isPositiveDefinite())
+        		return cholesky.solve(b);
         	}
-        
-        if(det == 0)
-        	throw new CvmSingularMatrixException();
-        
-    	CvmMatrixDouble copy = this.getAdjunctElementsMatrix().getTranspose();
-        copy.div(det);
 
-        return copy;
+        return new CvmLUDecomposition(this).solve(b);
+        }
+
+    /**
+     * Resuelve por mínimos cuadrados el sistema sobredeterminado A·X = B, siendo A la matriz
+     * original, a partir de su descomposición QR (CvmQRDecomposition). Para resolver muchos
+     * sistemas seguidos conviene utilizar directamente un CvmQRDecomposition, que reutiliza
+     * sus arrays de trabajo.
+     * 
+     * @param b Matriz de términos independientes, con tantas filas como la matriz original.
+     * 
+     * @return Nueva matriz X que minimiza la norma de A·X - B, con tantas filas como columnas
+     * tiene la matriz original y tantas columnas como b.
+     * 
+     * @exception CvmIncompatibleMatrixSizeException La matriz tiene más columnas que filas o b
+     * no tiene tantas filas como la matriz original.
+     */
+    public CvmMatrixDouble getLeastSquares(CvmMatrixDouble b) throws CvmIncompatibleMatrixSizeException {
+        return new CvmQRDecomposition(this).leastSquares(b);
+        }
+
+    /**
+     * Comprueba si la matriz es cuadrada y coincide con su traspuesta.
+     * 
+     * @return true si la matriz es simétrica, false en caso contrario.
+     */
+    public boolean isSymmetric(){
+        if(this.cols != this.rows)
+            return false;
+
+        for(int r = 0; r < this.rows; r++)
+            for(int c = r + 1; c < this.cols; c++)
+                if(this.data[r * this.cols + c] != this.data[c * this.cols + r])
+                    return false;
+
+        return true;
         }
 
     /**
@@ -701,22 +1203,42 @@ public class CvmMatrixDouble extends CvmMatrix{
     	}
     
     /**
-     * Devuelve los datos contenidos en la matriz en una CvmMatrix de tipo entero.
+     * Devuelve los datos contenidos en la matriz en una CvmMatrix de tipo entero en coma fija.
+     * Los elementos se redondean con la mayor escala potencia de dos que deja el mayor
+     * valor absoluto por debajo de Short.MAX_VALUE, así que el resultado se deshace con un
+     * desplazamiento.
      * 
-     * @return Matriz de enteros que contiene los valores de la matriz original.
+     * @return Matriz de enteros que contiene los valores de la matriz original escalados por
+     * 2^getFractionBits().
      */
     public CvmMatrixInt scaledMatrixInt(){
-    	CvmMatrixInt copy = new CvmMatrixInt(this.rows, this.cols);
+    	double max = 0;
     	
-    	double max = this.data[0];
+    	for(int i = 0; i < this.data.length; i++)
+    		if(max < Math.abs(this.data[i])) max = Math.abs(this.data[i]);
     	
-    	for(int i = 1; i < this.data.length; i++)
-    		if(max < Math.abs(this.data[i])) max = this.data[i];
+    	return this.toFixedPoint(CvmMatrixInt.fractionBitsFor(max, Short.MAX_VALUE));
+    	}
+    
+    /**
+     * Convierte la matriz a una matriz de enteros en coma fija con el formato indicado: cada
+     * elemento se multiplica por 2^bits, se redondea al entero más cercano y se satura al
+     * rango de los enteros.
+     * 
+     * @param bits Número de bits fraccionarios, entre 0 y CvmMatrixInt.MAX_FRACTION_BITS.
+     * 
+     * @return Nueva matriz en coma fija con getFractionBits() igual a bits.
+     * 
+     * @exception IllegalArgumentException El número de bits está fuera de rango.
+     */
+    public CvmMatrixInt toFixedPoint(int bits) throws IllegalArgumentException {
+    	CvmMatrixInt copy = new CvmMatrixInt(this.rows, this.cols);
+    	copy.setFractionBits(bits);
     	
-    	copy.scaleFactor = Short.MAX_VALUE / max;    	
+    	double scale = 1L << bits;
     	
     	for(int i = 0; i < this.data.length; i++)
-    		copy.data[i] = (int)(this.data[i] * copy.scaleFactor);
+    		copy.data[i] = CvmMatrixInt.saturate(Math.round(this.data[i] * scale));
     	
     	return copy;
     	}
@@ -735,6 +1257,21 @@ public class CvmMatrixDouble extends CvmMatrix{
     	return copy;
     	}
     
+    /**
+     * Devuelve los datos contenidos en la matriz en una CvmMatrix de tipo float.
+     * 
+     * @return Matriz de números reales en precisión simple que contiene los valores de la
+     * matriz original.
+     */
+    public CvmMatrixFloat toMatrixFloat(){
+    	CvmMatrixFloat copy = new CvmMatrixFloat(this.rows, this.cols);
+
+    	for(int i = 0; i < this.data.length; i++)
+    		copy.data[i] = (float)this.data[i];
+    	
+    	return copy;
+    	}
+    
    /**
     * Representa mediante una cadena de texto los distintos valores que contiene la matriz.
     * 
@@ -743,17 +1280,17 @@ public class CvmMatrixDouble extends CvmMatrix{
     */
     @Override
     public String toString(){
-        String str = new String("");
+        StringBuilder str = new StringBuilder();
 
         for(int r = 0; r < this.rows; r++){
             for(int c = 0; c < this.cols; c++){
                 double f = this.data[r * this.cols + c];
-                str += f + " ";
+                str.append(f).append(' ');
                 }
-            str += "\n";
+            str.append('\n');
             }
 
-        return str;
+        return str.toString();
         }
     
     /**
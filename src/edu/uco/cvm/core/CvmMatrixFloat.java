@@ -0,0 +1,1158 @@
+/*******************************************************************************
+ * CVM - Computer Vision Mobile.
+ * Copyright (C) 2010 CVM Luis Ciudad García
+ * 
+ * File: CvmMatrixFloat.java - This file is part of CVM.
+ * 
+ * CVM is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * CVM is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with CVM.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package edu.uco.cvm.core;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import edu.uco.cvm.exceptions.CvmIncompatibleMatrixSizeException;
+import edu.uco.cvm.exceptions.CvmSingularMatrixException;
+
+/**
+ * <p>Esta clase representa un conjunto de valores ordenados en forma de matriz, los cuales
+ * pueden ser accedidos a partir de la posición que ocupan.</p>
+ * 
+ * <p>En una representación visual, el primer elemento será el que ocupa la posicion (0,0) y
+ * estarí­a situado en la esquina superior izquierda de la matriz. A partir de ese punto la
+ * primera coordenada crece hacia abajo, y la segunda hacia la derecha. (filas, columnas)</p>
+ * 
+ * <p>Una vez creado un objeto de este tipo su tamaño permanece inalterado sin importar qué
+ * operación se realize sobre él. En caso de ejecutarse una acción que modificase el tamaño
+ * de la matriz, el resultado de será retornado como un objeto nuevo permaneciendo el original 
+ * sin ningún cambio.</p>
+ * 
+ * <p>Los elementos se guardan en precisión simple, lo que reduce a la mitad la memoria que
+ * ocupa la matriz respecto a CvmMatrixDouble y es suficiente para máscaras de convolución y
+ * transformaciones geométricas.</p>
+ * 
+ * @version 1.0
+ */
+
+public class CvmMatrixFloat extends CvmMatrix{	
+	/** Datos contenidos por la matriz. */
+	protected float[] data;
+	
+	/** Lado de los bloques en que se divide el producto de matrices grandes. */
+	static final int MUL_BLOCK_SIZE = 64;
+	/** Número de productos escalares a partir del cual el producto de matrices se realiza por bloques. */
+	static final long MUL_BLOCK_THRESHOLD = 64L * 64L * 64L;
+	/** Lado de los bloques en que se divide la trasposición de matrices. */
+	static final int TRANSPOSE_BLOCK_SIZE = 32;
+	/** Número de productos escalares a partir del cual getMul reparte el trabajo entre varios hilos. */
+	public static final long PARALLEL_MUL_THRESHOLD = 256L * 256L * 256L;
+	/** Lado de las regiones del resultado que se calculan en cada tarea del producto en paralelo. */
+	static final int PARALLEL_MUL_TILE = 4 * MUL_BLOCK_SIZE;
+	
+	/** Ejecutor con el que getMul reparte los productos grandes. Si es null se calculan en el hilo actual. */
+	private static volatile ExecutorService mulExecutor = null;
+	
+	/** 
+	 * Crea una matriz de las dimensiones correspondientes a los parametros e inicializa los 
+	 * datos al valor por defecto.
+	 * 
+	 * @param rows Número de filas de la matriz.
+	 * @param cols Número de columnas de la matriz.
+	 * 
+	 * @exception NegativeArraySizeException Se lanza si se intenta crear una matriz de
+	 * dimensiones negativas.
+	 */
+	public CvmMatrixFloat(int rows, int cols) throws NegativeArraySizeException{
+		super(rows, cols);
+		
+		this.data = new float[rows*cols];
+		}
+
+	/**
+	 * Copia la matriz nativa de Java a una matriz CVM con las dimensiones indicadas y
+	 * los valores proporcionados.
+	 * 
+	 * @param rows Número de filas de la matriz.
+	 * @param cols Número de columnas de la matriz.
+	 * @param value Matriz nativa con el valor que tomará cada uno de los elementos.
+	 * 
+	 * @exception NegativeArraySizeException Se lanza si se intenta crear una matriz de
+	 * dimensiones negativas.
+	 * @exception ArrayIndexOutOfBoundsException Se lanza si el tamaño de la matriz nativa no coincide con la que
+	 * se quiere crear.
+	 */
+     public CvmMatrixFloat(int rows, int cols, float[][] values) throws NegativeArraySizeException, ArrayIndexOutOfBoundsException {    	 
+    	 super(rows, cols);
+
+         this.data = new float[this.rows*this.cols];
+
+         if(values.length != this.rows)
+    		 throw new ArrayIndexOutOfBoundsException(values.length);
+         
+         for(int r = 0; r < this.rows; r++){
+        	 if(values[r].length != cols)
+        		 throw new ArrayIndexOutOfBoundsException(values[r].length);
+        	 
+        	 for(int c = 0; c < this.cols; c++)
+        		 this.data[r * this.cols + c] = values[r][c];
+         	}
+         }
+     
+	/**
+	 * Crea una matriz a partir de un vector de elementos, los cuales se consideran
+	 * ordenados por filas.
+	 * 
+	 * @param rows Número de filas de la matriz.
+	 * @param cols Número de columnas de la matriz.
+	 * @param value Valor que tomará cada uno de los elementos.
+	 * 
+	 * @exception NegativeArraySizeException Se lanza si se intenta crear una matriz de
+	 * dimensiones negativas.
+	 * @exception ArrayIndexOutOfBoundsException Se lanza si el numero de elementos del vector no coincide con
+	 * el numero de elementos de la matriz que se quiere crear.
+	 */
+	public CvmMatrixFloat(int rows, int cols, float[] values) throws NegativeArraySizeException, ArrayIndexOutOfBoundsException {    	 
+		super(rows, cols);
+		
+		if(values.length != this.rows*this.cols)
+			throw new ArrayIndexOutOfBoundsException(values.length);
+				
+		this.data = values.clone();
+		}
+    
+	/**
+	 * Crea una matriz de las dimensiones correspondientes cuyos elementos toman
+	 * el valor pasado como parámetro.
+	 * 
+	 * @param rows Número de filas de la matriz.
+	 * @param cols Número de columnas de la matriz.
+	 * @param value Valor que tomarán todos los elementos de la matriz creada.
+	 * 
+	 * @exception NegativeArraySizeException Se lanza si se intenta crear una matriz de
+	 * dimensiones negativas.
+	 */
+    public CvmMatrixFloat(int rows, int cols, float value) throws NegativeArraySizeException{
+        super(rows, cols);
+
+        this.data = new float[rows * cols];
+
+        Arrays.fill(this.data, value);
+        }
+
+   /**
+    * <p>Constructor de copia de la clase CvmMatrixFloat.</p>
+    * 
+    * <p>Crea una matriz realizando una copia exacta de la que se pasa por parámetro
+    * manteniendo dos referencias distintas e independientes.</p>
+    * 
+    * @param matrix Matriz original que se copiará en la nueva.
+    */
+    public CvmMatrixFloat(CvmMatrixFloat matrix){
+        super(matrix.rows, matrix.cols);
+
+        this.data = matrix.data.clone();
+        }
+
+   /**
+    * Observador de la propiedad data.
+    * 
+    * @return Los datos mantenidos por la clase en forma de matriz nativa.
+    */
+    public float[][] getData(){
+        float[][] datacopy = new float[this.rows][this.cols];
+
+        for(int r = 0; r < this.rows; r++)
+        	for(int c = 0; c < this.cols; c++)
+        		datacopy[r][c] = this.data[r * this.cols + c];
+
+        return datacopy;
+        }
+
+
+   /**
+    * Devuelve el valor del elemento de la matriz que indican los parámetros.
+    * 
+    * @param row Fila del elemento al que se intenta acceder.
+    * @param col Columna del elemento al que se intenta acceder.
+    * 
+    * @return Valor del elemento apuntado por los parámetros.
+    * 
+    * @exception ArrayIndexOutOfBoundsException Se produce si los parámetros de filas y columnas 
+    * no están dentro de los límites de la matriz.
+    */
+    public float getElement (int row, int col) throws ArrayIndexOutOfBoundsException {
+    	if(row < 0 || row >= this.rows)
+    		throw new ArrayIndexOutOfBoundsException(row);
+    	if(col < 0 || col >= this.cols)
+    		throw new ArrayIndexOutOfBoundsException(col);
+    	
+    	return this.data[row * this.cols + col];
+        }
+
+   /**
+    * Guarda el valor deseado en el elemento de la matriz que indican los parámetros.
+    * 
+    * @param row Fila del elemento al que se intenta acceder.
+    * @param col Columna del elemento al que se intenta acceder.
+    * @param value Valor que se quiere guardar en la posición indicada.
+    * 
+    * @exception ArrayIndexOutOfBoundsException Se produce si los parámetros de filas y columnas
+    * no están dentro de los límites de la matriz.
+    */
+    public void setElement(int row, int col, float value) throws ArrayIndexOutOfBoundsException {
+    	if(row < 0 || row >= this.rows)
+    		throw new ArrayIndexOutOfBoundsException(row);
+    	if(col < 0 || col >= this.cols)
+    		throw new ArrayIndexOutOfBoundsException(col);
+    	
+        this.data[row * this.cols + col] = value;
+        }
+
+   /**
+    * Suma elemento a elemento los valores de la matriz original con los de la
+    * matriz que se pasa como parámetro.
+    * 
+    * @param matrix Matriz con los elementos a sumar a la matriz original.
+    * 
+    * @exception CvmIcompatibleMatrixSizeException Se produce si las matrices no son 
+    * del mismo tamaño.
+    */
+    public void add(CvmMatrixFloat matrix) throws CvmIncompatibleMatrixSizeException {
+        if(this.rows != matrix.rows || this.cols != matrix.cols){
+            throw new CvmIncompatibleMatrixSizeException(matrix.rows, matrix.cols);
+            }
+
+        CvmKernels.add(this.data, matrix.data, this.data, this.data.length);
+        }
+
+   /**
+    * Resta elemento a elemento los valores de la matriz original con los de la
+    * matriz que se pasa como parámetro.
+    * 
+    * @param matrix Matriz con los elementos a restar de la matriz original.
+    * 
+    * @exception CvmIcompatibleMatrixSizeException Se produce si las matrices no son 
+    * del mismo tamaño.
+    */
+    public void sub(CvmMatrixFloat matrix) throws CvmIncompatibleMatrixSizeException {
+    	if(this.rows != matrix.rows || this.cols != matrix.cols){
+            throw new CvmIncompatibleMatrixSizeException(matrix.rows, matrix.cols);
+            }
+
+        CvmKernels.sub(this.data, matrix.data, this.data, this.data.length);
+        }
+
+	/**
+	 * Suma un valor a todos los elementos de la matriz original.
+	 * 
+	 * @param value Valor a sumar a todos los elementos de la matriz original.
+	 */
+	 public void add(float value) {
+	 	CvmKernels.add(this.data, value, this.data, this.data.length);
+	     }
+    
+	 /**
+	  * Resta un valor a todos los elementos de la matriz original.
+	  * 
+	  * @param value Valor a restar a todos los elementos de la matriz original.
+	  */
+	 public void sub(float value) {
+		 CvmKernels.sub(this.data, value, this.data, this.data.length);
+	 	}
+
+   /**
+    * Multiplica todos los elementos de la matriz original por el valor indicado como parámetro.
+    * 
+    * @param factor Valor a multiplicar por cada uno de los elementos de la matriz original.
+    */
+    public void mul(float factor){
+    	CvmKernels.mul(this.data, factor, this.data, this.data.length);
+        }
+
+   /**
+    * Divide todos los elementos de la matriz original por el valor indicado como parámetro.
+    * 
+    * @param factor Valor por el que dividir cada uno de los elementos de la matriz original.
+    * 
+    * @exception ArithmeticException Se lanza si se intenta una division entre cero.
+    */
+    public void div(float factor) throws ArithmeticException{
+    	CvmKernels.div(this.data, factor, this.data, this.data.length);
+        }
+
+   /**
+    * Suma elemento a elemento los valores de la matriz original con los de la
+    * matriz que se pasa como parámetro y devuelve el resultado en una nueva instancia.
+    * 
+    * @param matrix Matriz con los elementos a sumar a la matriz original.
+    * 
+    * @return Nueva matriz con el resultado de la operación de suma de las dos matrices.
+    * 
+    * @exception CvmIncompatibleMatrixSizeException Se produce si las matrices no son 
+    * del mismo tamaño.
+    */
+    public CvmMatrixFloat getAdd(CvmMatrixFloat matrix) throws CvmIncompatibleMatrixSizeException {
+        return this.getAdd(matrix, new CvmMatrixFloat(this.rows, this.cols));
+        }
+
+   /**
+    * Suma un valor a todos los elementos de la matriz original y devuelve el
+    * resultado en una nueva matriz.
+    * 
+    * @param value Valor a sumar a todos los elementos de la matriz original.
+    * 
+    * @return Nueva matriz con el resultado de la operación de suma de la matriz
+    * original y el valor que se pasa como parámetro.
+    */
+    public CvmMatrixFloat getAdd(float value){
+        return this.getAdd(value, new CvmMatrixFloat(this.rows, this.cols));
+        }
+
+   /**
+    * Resta elemento a elemento los valores de la matriz original con los de la
+    * matriz que se pasa como parámetro y devuelve el resultado en una nueva instancia.
+    * 
+    * @param matrix Matriz con los elementos a restar a la matriz original.
+    * 
+    * @return Nueva matriz con el resultado de la operación de resta de las dos matrices.
+    * 
+    * @exception CvmIncompatibleMatrixSizeException Se produce si las matrices no son 
+    * del mismo tamaño.
+    */
+    public CvmMatrixFloat getSub(CvmMatrixFloat matrix) throws CvmIncompatibleMatrixSizeException {
+        return this.getSub(matrix, new CvmMatrixFloat(this.rows, this.cols));
+        }
+
+   /**
+    * Resta un valor a todos los elementos de la matriz original y devuelve el
+    * resultado en una nueva matriz.
+    * 
+    * @param value Valor a restar a todos los elementos de la matriz original.
+    * 
+    * @return Nueva matriz con el resultado de la operación de resta de la matriz
+    * original y el valor que se pasa como parámetro.
+    */
+    public CvmMatrixFloat getSub(float value) {
+        return this.getSub(value, new CvmMatrixFloat(this.rows, this.cols));
+        }
+
+
+   /**
+    * Realiza la multiplicación de dos matrices, siempre que sea posible, y devuelve
+    * el resultado en una nueva matriz.
+    * 
+    * @param matrix Matriz que se multiplicará por la derecha de la matriz original.
+    * 
+    * @return Nueva matriz con el resultado de la operación de multiplicación de
+    * ambas matrices.
+    * 
+    * @exception CvmIcompatibleMatrixSizeException La matrices no pueden ser multiplicadas.
+    * La matriz original debe tener el mismo número de columnas que filas tenga la
+    * matriz que se pasa por parámetro.
+    */
+    public CvmMatrixFloat getMul(CvmMatrixFloat matrix) throws CvmIncompatibleMatrixSizeException {
+        if(this.cols != matrix.rows){
+            throw new CvmIncompatibleMatrixSizeException(matrix.rows, matrix.cols);
+            }
+
+        ExecutorService executor = CvmMatrixFloat.mulExecutor;
+
+        if(executor != null && (long)this.rows * this.cols * matrix.cols >= CvmMatrixFloat.PARALLEL_MUL_THRESHOLD)
+        	return this.getMul(matrix, executor);
+
+        CvmMatrixFloat result = new CvmMatrixFloat(this.rows, matrix.cols);
+
+        CvmMatrixFloat.mul(this.data, matrix.data, result.data, this.rows, this.cols, matrix.cols);
+
+        return result;
+        }
+
+   /**
+    * Realiza la multiplicación de dos matrices y guarda el resultado en la matriz destino,
+    * de modo que se puede reutilizar la misma matriz en sucesivas operaciones. Si la matriz
+    * destino comparte los datos con alguno de los operandos el producto se calcula en una
+    * matriz auxiliar y después se copia sobre ella.
+    * 
+    * @param matrix Matriz que se multiplicará por la derecha de la matriz original.
+    * @param dest Matriz en la que se guarda el resultado. Debe tener tantas filas como la
+    * matriz original y tantas columnas como la matriz que se pasa por parámetro.
+    * 
+    * @return La matriz destino.
+    * 
+    * @exception CvmIcompatibleMatrixSizeException La matrices no pueden ser multiplicadas o
+    * la matriz destino no tiene las dimensiones del resultado.
+    */
+    public CvmMatrixFloat getMul(CvmMatrixFloat matrix, CvmMatrixFloat dest) throws CvmIncompatibleMatrixSizeException {
+        if(this.cols != matrix.rows){
+            throw new CvmIncompatibleMatrixSizeException(matrix.rows, matrix.cols);
+            }
+        if(dest.rows != this.rows || dest.cols != matrix.cols){
+            throw new CvmIncompatibleMatrixSizeException(dest.rows, dest.cols);
+            }
+
+        if(dest.data == this.data || dest.data == matrix.data){
+        	float[] result = new float[dest.data.length];
+        	CvmMatrixFloat.mul(this.data, matrix.data, result, this.rows, this.cols, matrix.cols);
+        	System.arraycopy(result, 0, dest.data, 0, result.length);
+        	}
+        else{
+        	Arrays.fill(dest.data, (float)0);
+        	CvmMatrixFloat.mul(this.data, matrix.data, dest.data, this.rows, this.cols, matrix.cols);
+        	}
+
+        return dest;
+        }
+
+    /**
+     * Acumula sobre c el producto de a (rows x n) por b (n x m), eligiendo el producto por
+     * bloques cuando el número de productos escalares alcanza MUL_BLOCK_THRESHOLD.
+     */
+    static void mul(float[] a, float[] b, float[] c, int rows, int n, int m){
+        if((long)rows * n * m < CvmMatrixFloat.MUL_BLOCK_THRESHOLD)
+        	CvmMatrixFloat.mulBlock(a, b, c, n, m, 0, rows, 0, m, 0, n);
+        else
+        	CvmMatrixFloat.mulBlocked(a, b, c, n, m, 0, rows, 0, m);
+        }
+
+   /**
+    * <p>Realiza la multiplicación de dos matrices repartiendo el cálculo entre los hilos del
+    * ejecutor indicado. El resultado se divide en regiones de PARALLEL_MUL_TILE filas por
+    * PARALLEL_MUL_TILE columnas y cada región se calcula en una tarea independiente.</p>
+    * 
+    * <p>Cada elemento del resultado se obtiene con las mismas operaciones y en el mismo orden que
+    * en el producto secuencial, por lo que ambos resultados son idénticos bit a bit. Si el
+    * producto no alcanza PARALLEL_MUL_THRESHOLD se calcula en el hilo actual.</p>
+    * 
+    * <p>Este método espera a que terminen todas las tareas, por lo que no debe llamarse desde
+    * un hilo del propio ejecutor si este tiene un número limitado de hilos.</p>
+    * 
+    * @param matrix Matriz que se multiplicará por la derecha de la matriz original.
+    * @param executor Ejecutor en el que se lanzan las tareas.
+    * 
+    * @return Nueva matriz con el resultado de la operación de multiplicación de
+    * ambas matrices.
+    * 
+    * @exception CvmIcompatibleMatrixSizeException La matrices no pueden ser multiplicadas.
+    * @exception IllegalStateException Se lanza si el hilo es interrumpido mientras espera
+    * a que terminen las tareas.
+    */
+    public CvmMatrixFloat getMul(CvmMatrixFloat matrix, ExecutorService executor) throws CvmIncompatibleMatrixSizeException {
+        if(this.cols != matrix.rows){
+            throw new CvmIncompatibleMatrixSizeException(matrix.rows, matrix.cols);
+            }
+
+        final CvmMatrixFloat result = new CvmMatrixFloat(this.rows, matrix.cols);
+        final float[] a = this.data;
+        final float[] b = matrix.data;
+        final int n = this.cols;
+
+        if((long)this.rows * this.cols * matrix.cols < CvmMatrixFloat.PARALLEL_MUL_THRESHOLD){
+        	CvmMatrixFloat.mulBlocked(a, b, result.data, n, result.cols, 0, result.rows, 0, result.cols);
+        	return result;
+        	}
+
+        List<Callable<Object>> tasks = new ArrayList<Callable<Object>>();
+
+        for(int r = 0; r < result.rows; r += CvmMatrixFloat.PARALLEL_MUL_TILE){
+        	for(int c = 0; c < result.cols; c += CvmMatrixFloat.PARALLEL_MUL_TILE){
+        		final int r0 = r;
+        		final int r1 = Math.min(r + CvmMatrixFloat.PARALLEL_MUL_TILE, result.rows);
+        		final int c0 = c;
+        		final int c1 = Math.min(c + CvmMatrixFloat.PARALLEL_MUL_TILE, result.cols);
+
+        		tasks.add(new Callable<Object>(){
+        			public Object call(){
+        				CvmMatrixFloat.mulBlocked(a, b, result.data, n, result.cols, r0, r1, c0, c1);
+        				return null;
+        				}
+        			});
+        		}
+        	}
+
+        try{
+        	for(Future<Object> future : executor.invokeAll(tasks))
+        		future.get();
+        	}
+        catch(InterruptedException e){
+        	Thread.currentThread().interrupt();
+        	throw new IllegalStateException(e);
+        	}
+        catch(ExecutionException e){
+        	if(e.getCause() instanceof RuntimeException)
+        		throw (RuntimeException)e.getCause();
+        	throw new IllegalStateException(e.getCause());
+        	}
+
+        return result;
+        }
+
+    /**
+     * Establece el ejecutor con el que getMul reparte entre varios hilos los productos que
+     * alcanzan PARALLEL_MUL_THRESHOLD. El ejecutor no es gestionado por la librería, por lo
+     * que debe ser finalizado por quien lo crea.
+     * 
+     * @param executor Ejecutor a utilizar, o null para calcular todos los productos en el hilo
+     * que los solicita.
+     */
+    public static void setMulExecutor(ExecutorService executor){
+        CvmMatrixFloat.mulExecutor = executor;
+        }
+
+    /**
+     * Observador del ejecutor usado por getMul para los productos grandes.
+     * 
+     * @return Ejecutor configurado, o null si los productos se calculan en el hilo actual.
+     */
+    public static ExecutorService getMulExecutor(){
+        return CvmMatrixFloat.mulExecutor;
+        }
+
+    /**
+     * <p>Acumula sobre c el producto de la submatriz de a formada por las filas [r0, r1) y las
+     * columnas [k0, k1) por la submatriz de b formada por las filas [k0, k1) y las columnas
+     * [c0, c1). Todas las matrices se almacenan por filas.</p>
+     * 
+     * <p>El bucle sigue el orden fila-interno-columna (i-k-j), de modo que b y c se recorren
+     * siempre por filas, y procesa cuatro elementos de a por iteración para reutilizar cada
+     * fila de c mientras está en los registros.</p>
+     * 
+     * @param a Datos de la matriz izquierda.
+     * @param b Datos de la matriz derecha.
+     * @param c Datos de la matriz resultado.
+     * @param n Número de columnas de a (y de filas de b).
+     * @param m Número de columnas de b (y de c).
+     */
+    static void mulBlock(float[] a, float[] b, float[] c, int n, int m, int r0, int r1, int c0, int c1, int k0, int k1){
+        for(int r = r0; r < r1; r++){
+            int rowA = r * n;
+            int rowC = r * m;
+            int k = k0;
+
+            for(; k + 3 < k1; k += 4){
+                float a0 = a[rowA + k];
+                float a1 = a[rowA + k + 1];
+                float a2 = a[rowA + k + 2];
+                float a3 = a[rowA + k + 3];
+                int b0 = k * m;
+                int b1 = b0 + m;
+                int b2 = b1 + m;
+                int b3 = b2 + m;
+
+                for(int j = c0; j < c1; j++)
+                    c[rowC + j] += a0 * b[b0 + j] + a1 * b[b1 + j] + a2 * b[b2 + j] + a3 * b[b3 + j];
+                }
+
+            for(; k < k1; k++){
+                float a0 = a[rowA + k];
+                int b0 = k * m;
+
+                for(int j = c0; j < c1; j++)
+                    c[rowC + j] += a0 * b[b0 + j];
+                }
+            }
+        }
+
+    /**
+     * Calcula por bloques de MUL_BLOCK_SIZE la región [r0, r1) x [c0, c1) del producto de a por b,
+     * de forma que los bloques de ambas matrices que intervienen en cada paso quepan en la caché.
+     * Cada elemento del resultado acumula los bloques internos siempre en el mismo orden, por lo
+     * que el resultado no depende de cómo se reparta la región.
+     * 
+     * @param a Datos de la matriz izquierda.
+     * @param b Datos de la matriz derecha.
+     * @param c Datos de la matriz resultado.
+     * @param n Número de columnas de a (y de filas de b).
+     * @param m Número de columnas de b (y de c).
+     */
+    static void mulBlocked(float[] a, float[] b, float[] c, int n, int m, int r0, int r1, int c0, int c1){
+        for(int rb = r0; rb < r1; rb += CvmMatrixFloat.MUL_BLOCK_SIZE){
+            int re = Math.min(rb + CvmMatrixFloat.MUL_BLOCK_SIZE, r1);
+
+            for(int kb = 0; kb < n; kb += CvmMatrixFloat.MUL_BLOCK_SIZE){
+                int ke = Math.min(kb + CvmMatrixFloat.MUL_BLOCK_SIZE, n);
+
+                for(int cb = c0; cb < c1; cb += CvmMatrixFloat.MUL_BLOCK_SIZE)
+                    CvmMatrixFloat.mulBlock(a, b, c, n, m, rb, re, cb, Math.min(cb + CvmMatrixFloat.MUL_BLOCK_SIZE, c1), kb, ke);
+                }
+            }
+        }
+
+
+   /**
+    * Multiplica por un valor todos los elementos de la matriz original y devuelve el
+    * resultado en una nueva matriz.
+    * 
+    * @param factor Valor por el que se multiplican todos los elementos de la matriz original.
+    * 
+    * @return Nueva matriz con el resultado de la operación de multiplicación de la matriz
+    * original y el valor que se pasa como parámetro.
+    */
+    public CvmMatrixFloat getMul(float factor){
+        return this.getMul(factor, new CvmMatrixFloat(this.rows, this.cols));
+        }
+
+   /**
+    * Divide por un valor todos los elementos de la matriz original y devuelve el
+    * resultado en una nueva matriz.
+    * 
+    * @param factor Valor por el que se dividen todos los elementos de la matriz original.
+    * 
+    * @return Nueva matriz con el resultado de la operación de división de la matriz
+    * original y el valor que se pasa como parámetro.
+    */
+    public CvmMatrixFloat getDiv(float factor){
+        return this.getDiv(factor, new CvmMatrixFloat(this.rows, this.cols));
+        }
+
+   /**
+    * Suma elemento a elemento los valores de la matriz original con los de la matriz que se
+    * pasa como parámetro y guarda el resultado en la matriz destino, que puede ser cualquiera
+    * de los dos operandos.
+    * 
+    * @param matrix Matriz con los elementos a sumar a la matriz original.
+    * @param dest Matriz en la que se guarda el resultado.
+    * 
+    * @return La matriz destino.
+    * 
+    * @exception CvmIncompatibleMatrixSizeException Se produce si las matrices no son 
+    * del mismo tamaño.
+    */
+    public CvmMatrixFloat getAdd(CvmMatrixFloat matrix, CvmMatrixFloat dest) throws CvmIncompatibleMatrixSizeException {
+        this.checkSize(matrix);
+        this.checkSize(dest);
+
+        CvmKernels.add(this.data, matrix.data, dest.data, this.data.length);
+
+        return dest;
+        }
+
+   /**
+    * Resta elemento a elemento los valores de la matriz que se pasa como parámetro a los de
+    * la matriz original y guarda el resultado en la matriz destino, que puede ser cualquiera
+    * de los dos operandos.
+    * 
+    * @param matrix Matriz con los elementos a restar a la matriz original.
+    * @param dest Matriz en la que se guarda el resultado.
+    * 
+    * @return La matriz destino.
+    * 
+    * @exception CvmIncompatibleMatrixSizeException Se produce si las matrices no son 
+    * del mismo tamaño.
+    */
+    public CvmMatrixFloat getSub(CvmMatrixFloat matrix, CvmMatrixFloat dest) throws CvmIncompatibleMatrixSizeException {
+        this.checkSize(matrix);
+        this.checkSize(dest);
+
+        CvmKernels.sub(this.data, matrix.data, dest.data, this.data.length);
+
+        return dest;
+        }
+
+   /**
+    * Suma un valor a todos los elementos de la matriz original y guarda el resultado en
+    * la matriz destino, que puede ser la propia matriz original.
+    * 
+    * @param value Valor a sumar a todos los elementos de la matriz original.
+    * @param dest Matriz en la que se guarda el resultado.
+    * 
+    * @return La matriz destino.
+    * 
+    * @exception CvmIncompatibleMatrixSizeException Se produce si la matriz destino no es
+    * del mismo tamaño.
+    */
+    public CvmMatrixFloat getAdd(float value, CvmMatrixFloat dest) throws CvmIncompatibleMatrixSizeException {
+        this.checkSize(dest);
+
+        CvmKernels.add(this.data, value, dest.data, this.data.length);
+
+        return dest;
+        }
+
+   /**
+    * Resta un valor a todos los elementos de la matriz original y guarda el resultado en
+    * la matriz destino, que puede ser la propia matriz original.
+    * 
+    * @param value Valor a restar a todos los elementos de la matriz original.
+    * @param dest Matriz en la que se guarda el resultado.
+    * 
+    * @return La matriz destino.
+    * 
+    * @exception CvmIncompatibleMatrixSizeException Se produce si la matriz destino no es
+    * del mismo tamaño.
+    */
+    public CvmMatrixFloat getSub(float value, CvmMatrixFloat dest) throws CvmIncompatibleMatrixSizeException {
+        this.checkSize(dest);
+
+        CvmKernels.sub(this.data, value, dest.data, this.data.length);
+
+        return dest;
+        }
+
+   /**
+    * Multiplica por un valor todos los elementos de la matriz original y guarda el resultado
+    * en la matriz destino, que puede ser la propia matriz original.
+    * 
+    * @param factor Valor por el que se multiplican todos los elementos de la matriz original.
+    * @param dest Matriz en la que se guarda el resultado.
+    * 
+    * @return La matriz destino.
+    * 
+    * @exception CvmIncompatibleMatrixSizeException Se produce si la matriz destino no es
+    * del mismo tamaño.
+    */
+    public CvmMatrixFloat getMul(float factor, CvmMatrixFloat dest) throws CvmIncompatibleMatrixSizeException {
+        this.checkSize(dest);
+
+        CvmKernels.mul(this.data, factor, dest.data, this.data.length);
+
+        return dest;
+        }
+
+   /**
+    * Divide por un valor todos los elementos de la matriz original y guarda el resultado
+    * en la matriz destino, que puede ser la propia matriz original.
+    * 
+    * @param factor Valor por el que se dividen todos los elementos de la matriz original.
+    * @param dest Matriz en la que se guarda el resultado.
+    * 
+    * @return La matriz destino.
+    * 
+    * @exception CvmIncompatibleMatrixSizeException Se produce si la matriz destino no es
+    * del mismo tamaño.
+    * @exception ArithmeticException Se lanza si se intenta una division entre cero.
+    */
+    public CvmMatrixFloat getDiv(float factor, CvmMatrixFloat dest) throws CvmIncompatibleMatrixSizeException, ArithmeticException {
+        this.checkSize(dest);
+
+        CvmKernels.div(this.data, factor, dest.data, this.data.length);
+
+        return dest;
+        }
+
+    /**
+     * Comprueba que la matriz que se pasa como parámetro tiene las mismas dimensiones que
+     * la matriz original.
+     * 
+     * @exception CvmIncompatibleMatrixSizeException Las matrices no son del mismo tamaño.
+     */
+    private void checkSize(CvmMatrixFloat matrix) throws CvmIncompatibleMatrixSizeException {
+        if(this.rows != matrix.rows || this.cols != matrix.cols){
+            throw new CvmIncompatibleMatrixSizeException(matrix.rows, matrix.cols);
+            }
+        }
+
+   /**
+    * Intercambia los elementos de filas y columnas de manera que se devuelve la
+    * matriz traspuesta de la matriz original.
+    * 
+    * @return Nueva matriz de tamaño columnas por filas, que contiene los elementos
+    * de la matriz original pero cambiando filas por columnas.
+    */
+    public CvmMatrixFloat getTranspose(){
+        CvmMatrixFloat copy = new CvmMatrixFloat(this.cols, this.rows);
+
+        CvmMatrixFloat.transpose(this.data, copy.data, this.rows, this.cols, 0, this.rows, 0, this.cols);
+
+        return copy;
+        }
+
+   /**
+    * Traspone la matriz sobre sus propios datos, sin reservar memoria adicional. Solo es
+    * posible si la matriz es cuadrada, ya que en otro caso cambiarían sus dimensiones.
+    * 
+    * @exception CvmIncompatibleMatrixSizeException La matriz no es cuadrada.
+    */
+    public void transpose() throws CvmIncompatibleMatrixSizeException {
+        if(this.rows != this.cols){
+            throw new CvmIncompatibleMatrixSizeException(this.rows, this.cols);
+            }
+
+        int n = this.rows;
+
+        for(int rb = 0; rb < n; rb += CvmMatrixFloat.TRANSPOSE_BLOCK_SIZE){
+            int re = Math.min(rb + CvmMatrixFloat.TRANSPOSE_BLOCK_SIZE, n);
+
+            for(int cb = rb; cb < n; cb += CvmMatrixFloat.TRANSPOSE_BLOCK_SIZE){
+                int ce = Math.min(cb + CvmMatrixFloat.TRANSPOSE_BLOCK_SIZE, n);
+
+                for(int r = rb; r < re; r++){
+                    /** En los bloques de la diagonal solo se recorre la parte superior */
+                    for(int c = Math.max(cb, r + 1); c < ce; c++){
+                        float aux = this.data[r * n + c];
+                        this.data[r * n + c] = this.data[c * n + r];
+                        this.data[c * n + r] = aux;
+                        }
+                    }
+                }
+            }
+        }
+
+    /**
+     * <p>Copia en dst la traspuesta de la región [r0, r1) x [c0, c1) de src, siendo src una
+     * matriz de rows x cols almacenada por filas y dst una de cols x rows.</p>
+     * 
+     * <p>La región se divide por la mitad de su lado mayor hasta que cabe en un bloque de
+     * TRANSPOSE_BLOCK_SIZE, de modo que las filas de src y de dst que se recorren en cada
+     * bloque permanecen en la caché sea cual sea el tamaño de la matriz.</p>
+     */
+    static void transpose(float[] src, float[] dst, int rows, int cols, int r0, int r1, int c0, int c1){
+        while(r1 - r0 > CvmMatrixFloat.TRANSPOSE_BLOCK_SIZE || c1 - c0 > CvmMatrixFloat.TRANSPOSE_BLOCK_SIZE){
+            if(r1 - r0 >= c1 - c0){
+                int rm = (r0 + r1) >>> 1;
+                CvmMatrixFloat.transpose(src, dst, rows, cols, r0, rm, c0, c1);
+                r0 = rm;
+                }
+            else{
+                int cm = (c0 + c1) >>> 1;
+                CvmMatrixFloat.transpose(src, dst, rows, cols, r0, r1, c0, cm);
+                c0 = cm;
+                }
+            }
+
+        for(int r = r0; r < r1; r++){
+            int rowSrc = r * cols;
+
+            for(int c = c0; c < c1; c++)
+                dst[c * rows + r] = src[rowSrc + c];
+            }
+        }
+
+    /**
+     * Crea una matriz cuadrada del orden seleccionado cuya diagonal principal está
+     * formada por el elemento 1.
+     * 
+     * @param order Orden de la matriz (Número de filas y columnas).
+     * 
+     * @return Matriz identidad del orden especificado.
+     * 
+     * @exception NegativeArraySizeException Se lanza si el orden indicado es negativo.
+     */
+    public static CvmMatrixFloat getIdentity(int order) throws NegativeArraySizeException{
+        CvmMatrixFloat copy = new CvmMatrixFloat(order, order);
+
+        for(int i = 0; i < order; i++){
+            copy.data[i * copy.cols + i] = 1;
+            }
+
+        return copy;
+        }
+    
+    /**
+     * Calcula el determinante de la matriz, esta debe ser cuadrada.
+     * Para matrices de orden superior a 3 se usa el método indicado: DOOLITTLE_METHOD
+     * obtiene el determinante a partir de la descomposición LU con pivotación parcial
+     * (CvmLUDecomposition) y ADJUNCT_METHOD lo desarrolla por adjuntos.
+     * 
+     * @param method Método de cálculo para matrices de orden superior a 3 (DOOLITTLE_METHOD o
+     * ADJUNCT_METHOD).
+     * 
+     * @return El determinante de la matriz, que vale cero si esta es singular.
+     * 
+     * @exception CvmIncompatibleMatrixSizeException La matriz no es cuadrada.
+     * @exception IllegalArgumentException El método no es ninguno de los anteriores; en
+     * particular BAREISS_METHOD solo se admite en matrices de enteros.
+     */    
+    public double getDeterminant(int method) throws CvmIncompatibleMatrixSizeException, CvmSingularMatrixException, IllegalArgumentException {
+        if(method != CvmMatrixFloat.DOOLITTLE_METHOD && method != CvmMatrixFloat.ADJUNCT_METHOD)
+        	throw new IllegalArgumentException("Invalid determinant method: " + method);
+
+        if(this.cols != this.rows){
+            throw new CvmIncompatibleMatrixSizeException(this.rows, this.cols);
+            }
+
+        double det = 0;
+
+        switch(this.cols){
+        case 0:
+        	det = 0;
+        	break;
+        case 1:
+            det = this.data[0];
+            break;
+        case 2:
+        	det = this.data[0] * this.data[3] - this.data[1] * this.data[2];
+        	break;
+        case 3:
+        	det =   this.data[0] * this.data[4] * this.data[8] +
+		        	this.data[3] * this.data[7] * this.data[2] +
+		        	this.data[1] * this.data[5] * this.data[6] -
+		        	this.data[2] * this.data[4] * this.data[6] -
+		        	this.data[3] * this.data[1] * this.data[8] -
+		        	this.data[7] * this.data[5] * this.data[0];
+        	break;
+        default:
+        	if(method == CvmMatrixFloat.DOOLITTLE_METHOD){
+        		det = new CvmLUDecomposition(this).getDeterminant();
+        		}
+        	else if(method == CvmMatrixFloat.ADJUNCT_METHOD){
+        		/** Desarrollo por los adjuntos de la primera fila */
+        		det = 0;
+        		for(int c = 0; c < this.cols; c++){
+        			det += this.data[c] * this.getAdjunctElement(0, c); 
+        			}
+        		}
+            
+            break;
+        	}
+        
+        return det;
+        }
+
+    /**
+     * Recupera la matriz adjunta a un elemento, es decir, devuelve una matriz con los mismos
+     * elementos que la original en la que se han suprimido los elementos de la fila y la columna
+     * indicados.
+     * 
+     * @param row Fila del elemento. Esta fila será eliminada en la matriz resultante.
+     * @param col Columna del elemento. Esta columna será eliminada en la matriz resultante.
+     * 
+     * @return Matriz adjunta al elemento seleccionado.
+     * 
+     * @exception ArrayIndexOutOfBoundsException Se produce si los parámetros de filas y columnas
+     * no están dentro de los límites de la matriz.
+     */
+    public CvmMatrixFloat getAdjunctMatrix(int row, int col) throws ArrayIndexOutOfBoundsException {
+    	if(row < 0 || row >= this.rows)
+    		throw new ArrayIndexOutOfBoundsException(row);
+    	if(col < 0 || col >= this.cols)
+    		throw new ArrayIndexOutOfBoundsException(col);
+    	
+    	if(this.rows <= 1 || this.cols <= 1)
+    		return new CvmMatrixFloat(this.rows, this.cols);
+    	
+    	CvmMatrixFloat copy = new CvmMatrixFloat(this.rows - 1, this.cols - 1);
+    	
+    	int k = 0;
+    	for(int i = 0; i < this.data.length; i++){
+    		if(!(i % this.cols == col || i / this.cols == row)){
+    			copy.data[k] = this.data[i];
+    			k++;
+    			}
+    		}
+    	
+    	return copy;
+    	} 
+    
+    /**
+     * Calcula el adjunto a un elemento. Esto significa que calcula el determinante de la
+     * matriz adjunta al elemento seleccionado. Esta operación solo es válida sobre matrices
+     * cuadradas.
+     * 
+     * @param row Fila del elemento.
+     * @param col Columna del elemento.
+     * 
+     * @return Valor del adjunto de la matriz que ocupa la posición indicada.
+     * 
+     * @exception ArrayIndexOutOfBoundsException Se produce si los parámetros de filas y columnas
+     * no están dentro de los límites de la matriz.
+     * @exception CvmIncompatibleMatrixSizeException La matriz debe ser cuadrada.
+     */
+    public double getAdjunctElement(int row, int col) throws ArrayIndexOutOfBoundsException, CvmIncompatibleMatrixSizeException{
+    	if(this.cols != this.rows)
+            throw new CvmIncompatibleMatrixSizeException(this.rows, this.cols);
+    	
+    	double det = 0;
+        
+    	CvmMatrixFloat adjunctMatrix = this.getAdjunctMatrix(row, col);
+    	
+        det = adjunctMatrix.getDeterminant(CvmMatrixFloat.DOOLITTLE_METHOD);
+    	
+    	return Math.pow(-1, row+col) * det;
+    	}
+    
+    
+    /**
+     * Calcula la matriz de adjuntos. La matriz debe ser cuadrada.
+     * 
+     * @return Una nueva matriz cuyos elementos son los adjuntos de cada uno de los elementos 
+     * de la matriz original.
+     * 
+     * @exception CvmIncompatibleMatrixSizeException La matriz no es cuadrada.
+     */ 
+    public CvmMatrixFloat getAdjunctElementsMatrix() throws CvmIncompatibleMatrixSizeException {
+    	if(this.cols != this.rows)
+            throw new CvmIncompatibleMatrixSizeException(this.rows, this.cols);
+    	
+    	if(this.rows <= 1 || this.cols <= 1)
+    		return new CvmMatrixFloat(this.cols, this.rows);
+    	
+        CvmMatrixFloat copy = new CvmMatrixFloat(this.rows, this.cols);
+        
+        for(int i = 0; i < copy.data.length; i++)
+        	copy.data[i] = (float)this.getAdjunctElement(i / copy.cols, i % copy.cols);
+
+        return copy;
+        }
+    
+    /**
+     * Calcula la inversa de una matriz si es posible a partir de su descomposición LU
+     * con pivotación parcial (CvmLUDecomposition). La factorización se realiza en doble
+     * precisión, por lo que el resultado se devuelve como una matriz de tipo double.
+     * 
+     * @return La matriz inversa.
+     * 
+     * @exception CvmSingularMatrixException No es posible calcular la inversa de la matriz.
+     * @exception CvmIncompatibleMatrixSizeException La matriz no es cuadrada.
+     */ 
+    public CvmMatrixDouble getInverse() throws CvmSingularMatrixException, CvmIncompatibleMatrixSizeException{
+        return new CvmLUDecomposition(this).getInverse();
+        }
+
+    /**
+     * Comprueba si la matriz es cuadrada y coincide con su traspuesta.
+     * 
+     * @return true si la matriz es simétrica, false en caso contrario.
+     */
+    public boolean isSymmetric(){
+        if(this.cols != this.rows)
+            return false;
+
+        for(int r = 0; r < this.rows; r++)
+            for(int c = r + 1; c < this.cols; c++)
+                if(this.data[r * this.cols + c] != this.data[c * this.cols + r])
+                    return false;
+
+        return true;
+        }
+
+    /**
+     * Devuelve los datos contenidos en la matriz en un Array de tipo entero.
+     * 
+     * @return Array de enteros que contiene los valores de la matriz ordenados por filas.
+     */
+    public int[] toArray(){
+    	int[] arr = new int[this.cols * this.rows];
+    	
+    	for(int i = 0; i < this.data.length; i++)
+    		arr[i] = (int)this.data[i];
+    	
+    	return arr;
+    	}
+    
+    /**
+     * Devuelve los datos contenidos en la matriz en una CvmMatrix de tipo entero en coma fija.
+     * Los elementos se redondean con la mayor escala potencia de dos que deja el mayor
+     * valor absoluto por debajo de Short.MAX_VALUE, así que el resultado se deshace con un
+     * desplazamiento.
+     * 
+     * @return Matriz de enteros que contiene los valores de la matriz original escalados por
+     * 2^getFractionBits().
+     */
+    public CvmMatrixInt scaledMatrixInt(){
+    	double max = 0;
+    	
+    	for(int i = 0; i < this.data.length; i++)
+    		if(max < Math.abs(this.data[i])) max = Math.abs(this.data[i]);
+    	
+    	return this.toFixedPoint(CvmMatrixInt.fractionBitsFor(max, Short.MAX_VALUE));
+    	}
+    
+    /**
+     * Convierte la matriz a una matriz de enteros en coma fija con el formato indicado: cada
+     * elemento se multiplica por 2^bits, se redondea al entero más cercano y se satura al
+     * rango de los enteros.
+     * 
+     * @param bits Número de bits fraccionarios, entre 0 y CvmMatrixInt.MAX_FRACTION_BITS.
+     * 
+     * @return Nueva matriz en coma fija con getFractionBits() igual a bits.
+     * 
+     * @exception IllegalArgumentException El número de bits está fuera de rango.
+     */
+    public CvmMatrixInt toFixedPoint(int bits) throws IllegalArgumentException {
+    	CvmMatrixInt copy = new CvmMatrixInt(this.rows, this.cols);
+    	copy.setFractionBits(bits);
+    	
+    	double scale = 1L << bits;
+    	
+    	for(int i = 0; i < this.data.length; i++)
+    		copy.data[i] = CvmMatrixInt.saturate(Math.round(this.data[i] * scale));
+    	
+    	return copy;
+    	}
+    
+    /**
+     * Devuelve los datos contenidos en la matriz en una CvmMatrix de tipo entero.
+     * 
+     * @return Matriz de enteros que contiene los valores de la matriz original.
+     */
+    public CvmMatrixInt toMatrixInt(){
+    	CvmMatrixInt copy = new CvmMatrixInt(this.rows, this.cols);
+
+    	for(int i = 0; i < this.data.length; i++)
+    		copy.data[i] = (int)(this.data[i]);
+    	
+    	return copy;
+    	}
+    
+    /**
+     * Devuelve los datos contenidos en la matriz en una CvmMatrix de tipo double.
+     * 
+     * @return Matriz de números reales en doble precisión que contiene los valores de la
+     * matriz original.
+     */
+    public CvmMatrixDouble toMatrixDouble(){
+    	CvmMatrixDouble copy = new CvmMatrixDouble(this.rows, this.cols);
+
+    	for(int i = 0; i < this.data.length; i++)
+    		copy.data[i] = this.data[i];
+    	
+    	return copy;
+    	}
+    
+   /**
+    * Representa mediante una cadena de texto los distintos valores que contiene la matriz.
+    * 
+    * @return Cadena de texto formateada con lo valores de todos los elementos de
+    * la matriz organizados por filas y columnas.
+    */
+    @Override
+    public String toString(){
+        StringBuilder str = new StringBuilder();
+
+        for(int r = 0; r < this.rows; r++){
+            for(int c = 0; c < this.cols; c++){
+                float f = this.data[r * this.cols + c];
+                str.append(f).append(' ');
+                }
+            str.append('\n');
+            }
+
+        return str.toString();
+        }
+    
+    /**
+     * Compara las dimensiones y los valores contenido en dos matrices para determinar si estas
+     * son iguales.
+     * 
+     * @param matrix Matriz a comparar con este objeto.
+     * 
+     * @return Si las dos matrices tienen las mismas dimensiones y almacenan los mismos valores
+     * en las mismas posiciones la funcion devuelve true, en caso contrario devuelve false.
+     */ 
+    public boolean equals(CvmMatrixFloat matrix){
+    	if(this.rows != matrix.rows || this.cols != matrix.cols)
+    		return false;
+    	
+    	for(int i = 0; i < this.data.length; i++)
+    		if(this.data[i] != matrix.data[i])
+    			return false;
+    	
+    	return true;
+    	}
+    }
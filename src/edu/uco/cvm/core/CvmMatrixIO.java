@@ -0,0 +1,682 @@
+/*******************************************************************************
+ * CVM - Computer Vision Mobile.
+ * Copyright (C) 2010 CVM Luis Ciudad García
+ * 
+ * File: CvmMatrixIO.java - This file is part of CVM.
+ * 
+ * CVM is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * CVM is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with CVM.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package edu.uco.cvm.core;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.ShortBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * <p>Lectura y escritura de matrices en un formato binario compacto. Cada fichero empieza con
+ * una cabecera de HEADER_SIZE bytes:</p>
+ * 
+ * <pre>
+ * 0-3    Firma 'C' 'V' 'M' 'X'
+ * 4      Versión del formato (FORMAT_VERSION)
+ * 5      Tipo de los elementos (TYPE_DOUBLE, TYPE_INT o TYPE_SHORT)
+ * 6-7    Reservados, a cero
+ * 8-11   Número de filas
+ * 12-15  Número de columnas
+ * </pre>
+ * 
+ * <p>seguida de los elementos ordenados por filas. Todos los valores se guardan en orden de
+ * bytes little-endian. Como la cabecera ocupa 16 bytes, los datos quedan alineados al tamaño de
+ * cualquiera de los tipos.</p>
+ * 
+ * <p>Además de leer el fichero en una matriz normal, los métodos map proyectan el fichero en
+ * memoria y devuelven una matriz fuera del heap que trabaja directamente sobre él, sin copiar
+ * los datos. Los ficheros se leen y escriben a través de FileChannel en bloques de
+ * BUFFER_SIZE bytes.</p>
+ * 
+ * @version 1.0
+ */
+public final class CvmMatrixIO {
+	/** Tamaño en bytes de la cabecera. */
+	public static final int HEADER_SIZE = 16;
+	/** Versión del formato que se escribe. */
+	public static final int FORMAT_VERSION = 1;
+
+	/** Elementos de tipo double. */
+	public static final int TYPE_DOUBLE = 1;
+	/** Elementos de tipo int. */
+	public static final int TYPE_INT = 2;
+	/** Elementos de tipo short. */
+	public static final int TYPE_SHORT = 3;
+
+	/** Tamaño del buffer intermedio de lectura y escritura. */
+	static final int BUFFER_SIZE = 64 * 1024;
+
+	/** Firma con la que empiezan los ficheros. */
+	private static final byte[] MAGIC = {'C', 'V', 'M', 'X'};
+
+	private CvmMatrixIO(){
+		}
+
+	/**
+	 * Guarda una matriz de números reales en un fichero.
+	 * 
+	 * @param matrix Matriz a guardar.
+	 * @param file Fichero destino. Si existe se sobrescribe.
+	 * 
+	 * @exception IOException Error al escribir el fichero.
+	 */
+	public static void write(CvmMatrixDouble matrix, File file) throws IOException {
+		FileOutputStream out = new FileOutputStream(file);
+
+		try{
+			FileChannel channel = out.getChannel();
+			CvmMatrixIO.writeHeader(channel, TYPE_DOUBLE, matrix.rows, matrix.cols);
+
+			ByteBuffer buffer = CvmMatrixIO.createBuffer();
+			DoubleBuffer view = buffer.asDoubleBuffer();
+
+			for(int pos = 0; pos < matrix.data.length; ){
+				int n = Math.min(view.capacity(), matrix.data.length - pos);
+
+				view.clear();
+				view.put(matrix.data, pos, n);
+				buffer.clear();
+				buffer.limit(n * 8);
+				CvmMatrixIO.writeFully(channel, buffer);
+
+				pos += n;
+				}
+			}
+		finally{
+			out.close();
+			}
+		}
+
+	/**
+	 * Guarda una matriz de números reales fuera del heap en un fichero.
+	 * 
+	 * @param matrix Matriz a guardar.
+	 * @param file Fichero destino. Si existe se sobrescribe.
+	 * 
+	 * @exception IOException Error al escribir el fichero.
+	 * @exception IllegalStateException La matriz está cerrada.
+	 */
+	public static void write(CvmDirectMatrixDouble matrix, File file) throws IOException, IllegalStateException {
+		matrix.checkOpen();
+
+		FileOutputStream out = new FileOutputStream(file);
+
+		try{
+			FileChannel channel = out.getChannel();
+			CvmMatrixIO.writeHeader(channel, TYPE_DOUBLE, matrix.rows, matrix.cols);
+
+			ByteBuffer buffer = null;
+			DoubleBuffer view = null;
+
+			for(int k = 0; k < matrix.chunks.length; k++){
+				if(matrix.chunks[k].order() == ByteOrder.LITTLE_ENDIAN){
+					/** Los bytes ya están en el orden del fichero */
+					ByteBuffer raw = matrix.chunks[k].duplicate();
+					raw.clear();
+					CvmMatrixIO.writeFully(channel, raw);
+					continue;
+					}
+
+				if(buffer == null){
+					buffer = CvmMatrixIO.createBuffer();
+					view = buffer.asDoubleBuffer();
+					}
+
+				DoubleBuffer src = matrix.buffers[k].duplicate();
+				src.clear();
+
+				while(src.hasRemaining()){
+					int n = Math.min(view.capacity(), src.remaining());
+
+					DoubleBuffer part = src.slice();
+					part.limit(n);
+					view.clear();
+					view.put(part);
+					src.position(src.position() + n);
+
+					buffer.clear();
+					buffer.limit(n * 8);
+					CvmMatrixIO.writeFully(channel, buffer);
+					}
+				}
+			}
+		finally{
+			out.close();
+			}
+		}
+
+	/**
+	 * Lee de un fichero una matriz de números reales.
+	 * 
+	 * @param file Fichero con la matriz.
+	 * 
+	 * @return Nueva matriz con los datos del fichero.
+	 * 
+	 * @exception IOException Error al leer el fichero, o el fichero no contiene una matriz
+	 * de este tipo.
+	 */
+	public static CvmMatrixDouble readDouble(File file) throws IOException {
+		FileInputStream in = new FileInputStream(file);
+
+		try{
+			FileChannel channel = in.getChannel();
+			int[] size = CvmMatrixIO.readHeader(channel, TYPE_DOUBLE, 8);
+
+			CvmMatrixDouble matrix = new CvmMatrixDouble(size[0], size[1]);
+			ByteBuffer buffer = CvmMatrixIO.createBuffer();
+			DoubleBuffer view = buffer.asDoubleBuffer();
+
+			for(int pos = 0; pos < matrix.data.length; ){
+				int n = Math.min(view.capacity(), matrix.data.length - pos);
+
+				buffer.clear();
+				buffer.limit(n * 8);
+				CvmMatrixIO.readFully(channel, buffer);
+				view.clear();
+				view.get(matrix.data, pos, n);
+
+				pos += n;
+				}
+
+			return matrix;
+			}
+		finally{
+			in.close();
+			}
+		}
+
+	/**
+	 * Proyecta en memoria un fichero con una matriz de números reales. La matriz devuelta trabaja
+	 * directamente sobre el fichero, por lo que no se copia ningún dato y las páginas se cargan
+	 * según se accede a ellas. Con MapMode.READ_ONLY cualquier modificación lanza
+	 * ReadOnlyBufferException, con MapMode.READ_WRITE las modificaciones se guardan en el
+	 * fichero y con MapMode.PRIVATE solo afectan a la matriz. Los modos READ_WRITE y PRIVATE
+	 * necesitan permiso de escritura sobre el fichero.
+	 * 
+	 * @param file Fichero con la matriz.
+	 * @param mode Modo de proyección.
+	 * 
+	 * @return Matriz fuera del heap sobre el contenido del fichero.
+	 * 
+	 * @exception IOException Error al leer el fichero, o el fichero no contiene una matriz
+	 * de este tipo.
+	 */
+	public static CvmDirectMatrixDouble mapDouble(File file, FileChannel.MapMode mode) throws IOException {
+		RandomAccessFile raf = new RandomAccessFile(file, CvmMatrixIO.accessMode(mode));
+
+		try{
+			FileChannel channel = raf.getChannel();
+			int[] size = CvmMatrixIO.readHeader(channel, TYPE_DOUBLE, 8);
+
+			return new CvmDirectMatrixDouble(size[0], size[1], CvmMatrixIO.map(channel, mode, size[0], size[1], 8));
+			}
+		finally{
+			/** La proyección sigue siendo válida después de cerrar el fichero */
+			raf.close();
+			}
+		}
+
+	/**
+	 * Guarda una matriz de enteros en un fichero.
+	 * 
+	 * @param matrix Matriz a guardar.
+	 * @param file Fichero destino. Si existe se sobrescribe.
+	 * 
+	 * @exception IOException Error al escribir el fichero.
+	 */
+	public static void write(CvmMatrixInt matrix, File file) throws IOException {
+		FileOutputStream out = new FileOutputStream(file);
+
+		try{
+			FileChannel channel = out.getChannel();
+			CvmMatrixIO.writeHeader(channel, TYPE_INT, matrix.rows, matrix.cols);
+
+			ByteBuffer buffer = CvmMatrixIO.createBuffer();
+			IntBuffer view = buffer.asIntBuffer();
+
+			for(int pos = 0; pos < matrix.data.length; ){
+				int n = Math.min(view.capacity(), matrix.data.length - pos);
+
+				view.clear();
+				view.put(matrix.data, pos, n);
+				buffer.clear();
+				buffer.limit(n * 4);
+				CvmMatrixIO.writeFully(channel, buffer);
+
+				pos += n;
+				}
+			}
+		finally{
+			out.close();
+			}
+		}
+
+	/**
+	 * Guarda una matriz de enteros fuera del heap en un fichero.
+	 * 
+	 * @param matrix Matriz a guardar.
+	 * @param file Fichero destino. Si existe se sobrescribe.
+	 * 
+	 * @exception IOException Error al escribir el fichero.
+	 * @exception IllegalStateException La matriz está cerrada.
+	 */
+	public static void write(CvmDirectMatrixInt matrix, File file) throws IOException, IllegalStateException {
+		matrix.checkOpen();
+
+		FileOutputStream out = new FileOutputStream(file);
+
+		try{
+			FileChannel channel = out.getChannel();
+			CvmMatrixIO.writeHeader(channel, TYPE_INT, matrix.rows, matrix.cols);
+
+			ByteBuffer buffer = null;
+			IntBuffer view = null;
+
+			for(int k = 0; k < matrix.chunks.length; k++){
+				if(matrix.chunks[k].order() == ByteOrder.LITTLE_ENDIAN){
+					/** Los bytes ya están en el orden del fichero */
+					ByteBuffer raw = matrix.chunks[k].duplicate();
+					raw.clear();
+					CvmMatrixIO.writeFully(channel, raw);
+					continue;
+					}
+
+				if(buffer == null){
+					buffer = CvmMatrixIO.createBuffer();
+					view = buffer.asIntBuffer();
+					}
+
+				IntBuffer src = matrix.buffers[k].duplicate();
+				src.clear();
+
+				while(src.hasRemaining()){
+					int n = Math.min(view.capacity(), src.remaining());
+
+					IntBuffer part = src.slice();
+					part.limit(n);
+					view.clear();
+					view.put(part);
+					src.position(src.position() + n);
+
+					buffer.clear();
+					buffer.limit(n * 4);
+					CvmMatrixIO.writeFully(channel, buffer);
+					}
+				}
+			}
+		finally{
+			out.close();
+			}
+		}
+
+	/**
+	 * Lee de un fichero una matriz de enteros.
+	 * 
+	 * @param file Fichero con la matriz.
+	 * 
+	 * @return Nueva matriz con los datos del fichero.
+	 * 
+	 * @exception IOException Error al leer el fichero, o el fichero no contiene una matriz
+	 * de este tipo.
+	 */
+	public static CvmMatrixInt readInt(File file) throws IOException {
+		FileInputStream in = new FileInputStream(file);
+
+		try{
+			FileChannel channel = in.getChannel();
+			int[] size = CvmMatrixIO.readHeader(channel, TYPE_INT, 4);
+
+			CvmMatrixInt matrix = new CvmMatrixInt(size[0], size[1]);
+			ByteBuffer buffer = CvmMatrixIO.createBuffer();
+			IntBuffer view = buffer.asIntBuffer();
+
+			for(int pos = 0; pos < matrix.data.length; ){
+				int n = Math.min(view.capacity(), matrix.data.length - pos);
+
+				buffer.clear();
+				buffer.limit(n * 4);
+				CvmMatrixIO.readFully(channel, buffer);
+				view.clear();
+				view.get(matrix.data, pos, n);
+
+				pos += n;
+				}
+
+			return matrix;
+			}
+		finally{
+			in.close();
+			}
+		}
+
+	/**
+	 * Proyecta en memoria un fichero con una matriz de enteros. La matriz devuelta trabaja
+	 * directamente sobre el fichero, por lo que no se copia ningún dato y las páginas se cargan
+	 * según se accede a ellas. Con MapMode.READ_ONLY cualquier modificación lanza
+	 * ReadOnlyBufferException, con MapMode.READ_WRITE las modificaciones se guardan en el
+	 * fichero y con MapMode.PRIVATE solo afectan a la matriz. Los modos READ_WRITE y PRIVATE
+	 * necesitan permiso de escritura sobre el fichero.
+	 * 
+	 * @param file Fichero con la matriz.
+	 * @param mode Modo de proyección.
+	 * 
+	 * @return Matriz fuera del heap sobre el contenido del fichero.
+	 * 
+	 * @exception IOException Error al leer el fichero, o el fichero no contiene una matriz
+	 * de este tipo.
+	 */
+	public static CvmDirectMatrixInt mapInt(File file, FileChannel.MapMode mode) throws IOException {
+		RandomAccessFile raf = new RandomAccessFile(file, CvmMatrixIO.accessMode(mode));
+
+		try{
+			FileChannel channel = raf.getChannel();
+			int[] size = CvmMatrixIO.readHeader(channel, TYPE_INT, 4);
+
+			return new CvmDirectMatrixInt(size[0], size[1], CvmMatrixIO.map(channel, mode, size[0], size[1], 4));
+			}
+		finally{
+			/** La proyección sigue siendo válida después de cerrar el fichero */
+			raf.close();
+			}
+		}
+
+	/**
+	 * Guarda una matriz de enteros cortos en un fichero.
+	 * 
+	 * @param matrix Matriz a guardar.
+	 * @param file Fichero destino. Si existe se sobrescribe.
+	 * 
+	 * @exception IOException Error al escribir el fichero.
+	 */
+	public static void write(CvmMatrixShort matrix, File file) throws IOException {
+		FileOutputStream out = new FileOutputStream(file);
+
+		try{
+			FileChannel channel = out.getChannel();
+			CvmMatrixIO.writeHeader(channel, TYPE_SHORT, matrix.rows, matrix.cols);
+
+			ByteBuffer buffer = CvmMatrixIO.createBuffer();
+			ShortBuffer view = buffer.asShortBuffer();
+
+			for(int pos = 0; pos < matrix.data.length; ){
+				int n = Math.min(view.capacity(), matrix.data.length - pos);
+
+				view.clear();
+				view.put(matrix.data, pos, n);
+				buffer.clear();
+				buffer.limit(n * 2);
+				CvmMatrixIO.writeFully(channel, buffer);
+
+				pos += n;
+				}
+			}
+		finally{
+			out.close();
+			}
+		}
+
+	/**
+	 * Guarda una matriz de enteros cortos fuera del heap en un fichero.
+	 * 
+	 * @param matrix Matriz a guardar.
+	 * @param file Fichero destino. Si existe se sobrescribe.
+	 * 
+	 * @exception IOException Error al escribir el fichero.
+	 * @exception IllegalStateException La matriz está cerrada.
+	 */
+	public static void write(CvmDirectMatrixShort matrix, File file) throws IOException, IllegalStateException {
+		matrix.checkOpen();
+
+		FileOutputStream out = new FileOutputStream(file);
+
+		try{
+			FileChannel channel = out.getChannel();
+			CvmMatrixIO.writeHeader(channel, TYPE_SHORT, matrix.rows, matrix.cols);
+
+			ByteBuffer buffer = null;
+			ShortBuffer view = null;
+
+			for(int k = 0; k < matrix.chunks.length; k++){
+				if(matrix.chunks[k].order() == ByteOrder.LITTLE_ENDIAN){
+					/** Los bytes ya están en el orden del fichero */
+					ByteBuffer raw = matrix.chunks[k].duplicate();
+					raw.clear();
+					CvmMatrixIO.writeFully(channel, raw);
+					continue;
+					}
+
+				if(buffer == null){
+					buffer = CvmMatrixIO.createBuffer();
+					view = buffer.asShortBuffer();
+					}
+
+				ShortBuffer src = matrix.buffers[k].duplicate();
+				src.clear();
+
+				while(src.hasRemaining()){
+					int n = Math.min(view.capacity(), src.remaining());
+
+					ShortBuffer part = src.slice();
+					part.limit(n);
+					view.clear();
+					view.put(part);
+					src.position(src.position() + n);
+
+					buffer.clear();
+					buffer.limit(n * 2);
+					CvmMatrixIO.writeFully(channel, buffer);
+					}
+				}
+			}
+		finally{
+			out.close();
+			}
+		}
+
+	/**
+	 * Lee de un fichero una matriz de enteros cortos.
+	 * 
+	 * @param file Fichero con la matriz.
+	 * 
+	 * @return Nueva matriz con los datos del fichero.
+	 * 
+	 * @exception IOException Error al leer el fichero, o el fichero no contiene una matriz
+	 * de este tipo.
+	 */
+	public static CvmMatrixShort readShort(File file) throws IOException {
+		FileInputStream in = new FileInputStream(file);
+
+		try{
+			FileChannel channel = in.getChannel();
+			int[] size = CvmMatrixIO.readHeader(channel, TYPE_SHORT, 2);
+
+			CvmMatrixShort matrix = new CvmMatrixShort(size[0], size[1]);
+			ByteBuffer buffer = CvmMatrixIO.createBuffer();
+			ShortBuffer view = buffer.asShortBuffer();
+
+			for(int pos = 0; pos < matrix.data.length; ){
+				int n = Math.min(view.capacity(), matrix.data.length - pos);
+
+				buffer.clear();
+				buffer.limit(n * 2);
+				CvmMatrixIO.readFully(channel, buffer);
+				view.clear();
+				view.get(matrix.data, pos, n);
+
+				pos += n;
+				}
+
+			return matrix;
+			}
+		finally{
+			in.close();
+			}
+		}
+
+	/**
+	 * Proyecta en memoria un fichero con una matriz de enteros cortos. La matriz devuelta trabaja
+	 * directamente sobre el fichero, por lo que no se copia ningún dato y las páginas se cargan
+	 * según se accede a ellas. Con MapMode.READ_ONLY cualquier modificación lanza
+	 * ReadOnlyBufferException, con MapMode.READ_WRITE las modificaciones se guardan en el
+	 * fichero y con MapMode.PRIVATE solo afectan a la matriz. Los modos READ_WRITE y PRIVATE
+	 * necesitan permiso de escritura sobre el fichero.
+	 * 
+	 * @param file Fichero con la matriz.
+	 * @param mode Modo de proyección.
+	 * 
+	 * @return Matriz fuera del heap sobre el contenido del fichero.
+	 * 
+	 * @exception IOException Error al leer el fichero, o el fichero no contiene una matriz
+	 * de este tipo.
+	 */
+	public static CvmDirectMatrixShort mapShort(File file, FileChannel.MapMode mode) throws IOException {
+		RandomAccessFile raf = new RandomAccessFile(file, CvmMatrixIO.accessMode(mode));
+
+		try{
+			FileChannel channel = raf.getChannel();
+			int[] size = CvmMatrixIO.readHeader(channel, TYPE_SHORT, 2);
+
+			return new CvmDirectMatrixShort(size[0], size[1], CvmMatrixIO.map(channel, mode, size[0], size[1], 2));
+			}
+		finally{
+			/** La proyección sigue siendo válida después de cerrar el fichero */
+			raf.close();
+			}
+		}
+
+	/**
+	 * Crea el buffer intermedio de lectura y escritura, en el orden de bytes del fichero.
+	 */
+	private static ByteBuffer createBuffer(){
+		return ByteBuffer.allocateDirect(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+		}
+
+	/**
+	 * Escribe la cabecera del fichero.
+	 */
+	private static void writeHeader(FileChannel channel, int type, int rows, int cols) throws IOException {
+		ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+
+		header.put(MAGIC);
+		header.put((byte)FORMAT_VERSION);
+		header.put((byte)type);
+		header.putShort((short)0);
+		header.putInt(rows);
+		header.putInt(cols);
+		header.flip();
+
+		CvmMatrixIO.writeFully(channel, header);
+		}
+
+	/**
+	 * Lee y valida la cabecera del fichero.
+	 * 
+	 * @return Filas y columnas de la matriz.
+	 * 
+	 * @exception IOException El fichero no contiene una matriz del tipo indicado o su tamaño
+	 * no corresponde con las dimensiones de la cabecera.
+	 */
+	private static int[] readHeader(FileChannel channel, int type, int elementSize) throws IOException {
+		ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+		CvmMatrixIO.readFully(channel, header);
+		header.flip();
+
+		for(int i = 0; i < MAGIC.length; i++)
+			if(header.get() != MAGIC[i])
+				throw new IOException("Not a CVM matrix file");
+
+		int version = header.get();
+		if(version != FORMAT_VERSION)
+			throw new IOException("Unsupported format version: " + version);
+
+		int fileType = header.get();
+		if(fileType != type)
+			throw new IOException("Unexpected element type: " + fileType);
+
+		header.getShort();
+		int rows = header.getInt();
+		int cols = header.getInt();
+
+		if(rows < 0 || cols < 0)
+			throw new IOException("Invalid dimensions: " + rows + "x" + cols);
+
+		long expected = HEADER_SIZE + (long)rows * cols * elementSize;
+		if(channel.size() != expected)
+			throw new IOException("File size " + channel.size() + " does not match " + expected);
+
+		return new int[] {rows, cols};
+		}
+
+	/**
+	 * Modo de apertura del fichero para el modo de proyección indicado. FileChannel.map exige
+	 * un canal de lectura y escritura tanto para READ_WRITE como para PRIVATE.
+	 */
+	private static String accessMode(FileChannel.MapMode mode){
+		return (mode == FileChannel.MapMode.READ_ONLY) ? "r" : "rw";
+		}
+
+	/**
+	 * Proyecta en memoria los datos del fichero, divididos por filas igual que los buffers
+	 * de CvmDirectMatrix.
+	 */
+	private static ByteBuffer[] map(FileChannel channel, FileChannel.MapMode mode, int rows, int cols, int elementSize) throws IOException {
+		int rowsPerChunk = CvmDirectMatrix.rowsPerChunk(rows, cols, elementSize);
+		long rowBytes = (long)cols * elementSize;
+
+		ByteBuffer[] chunks = new ByteBuffer[(rows + rowsPerChunk - 1) / rowsPerChunk];
+
+		for(int i = 0; i < chunks.length; i++){
+			int chunkRows = Math.min(rowsPerChunk, rows - i * rowsPerChunk);
+			long position = HEADER_SIZE + i * rowsPerChunk * rowBytes;
+
+			chunks[i] = channel.map(mode, position, chunkRows * rowBytes).order(ByteOrder.LITTLE_ENDIAN);
+			}
+
+		return chunks;
+		}
+
+	/**
+	 * Escribe todos los bytes restantes del buffer.
+	 */
+	private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+		while(buffer.hasRemaining())
+			channel.write(buffer);
+		}
+
+	/**
+	 * Llena los bytes restantes del buffer.
+	 * 
+	 * @exception EOFException El fichero termina antes de llenar el buffer.
+	 */
+	private static void readFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+		while(buffer.hasRemaining())
+			if(channel.read(buffer) < 0)
+				throw new EOFException();
+		}
+	}
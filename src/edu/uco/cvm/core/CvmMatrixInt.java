@@ -1,6 +1,6 @@
 /*******************************************************************************
  * CVM - Computer Vision Mobile.
- * Copyright (C) 2010 CVM Luis Ciudad Garca
+ * Copyright (C) 2010 CVM Luis Ciudad García
  * 
  * File: CvmMatrixInt.java - This file is part of CVM.
  * 
@@ -19,6 +19,7 @@
  ******************************************************************************/
 package edu.uco.cvm.core;
 
+import java.math.BigInteger;
 import java.util.Arrays;
 
 import edu.uco.cvm.exceptions.CvmIncompatibleMatrixSizeException;
@@ -26,34 +27,46 @@ import edu.uco.cvm.exceptions.CvmSingularMatrixException;
 
 /**
  * <p>Esta clase representa un conjunto de valores ordenados en forma de matriz, los cuales
- * pueden ser accedidos a partir de la posicin que ocupan.</p>
+ * pueden ser accedidos a partir de la posición que ocupan.</p>
  * 
- * <p>En una representacin visual, el primer elemento ser el que ocupa la posicion (0,0) y
- * estara situado en la esquina superior izquierda de la matriz. A partir de ese punto la
+ * <p>En una representación visual, el primer elemento será el que ocupa la posicion (0,0) y
+ * estarí­a situado en la esquina superior izquierda de la matriz. A partir de ese punto la
  * primera coordenada crece hacia abajo, y la segunda hacia la derecha. (filas, columnas)</p>
  * 
- * <p>Una vez creado un objeto de este tipo su tamao permanece inalterado sin importar qu
- * operacin se realize sobre l. En caso de ejecutarse una accin que modificase el tamao
- * de la matriz, el resultado de ser retornado como un objeto nuevo permaneciendo el original 
- * sin ningn cambio.</p>
+ * <p>Una vez creado un objeto de este tipo su tamaño permanece inalterado sin importar qué
+ * operación se realize sobre él. En caso de ejecutarse una acción que modificase el tamaño
+ * de la matriz, el resultado de será retornado como un objeto nuevo permaneciendo el original 
+ * sin ningún cambio.</p>
  * 
- * @author Luis Ciudad Garca.
+ * @author Luis Ciudad García.
  * @version 1.0
  */
 
 public class CvmMatrixInt extends CvmMatrix{
 	/** Datos contenidos por la matriz. */
 	protected int[] data;
+	
+	/** Lado de los bloques en que se divide el producto de matrices grandes. */
+	static final int MUL_BLOCK_SIZE = 64;
+	/** Número de productos escalares a partir del cual el producto de matrices se realiza por bloques. */
+	static final long MUL_BLOCK_THRESHOLD = 64L * 64L * 64L;
+	/** Lado de los bloques en que se divide la trasposición de matrices. */
+	static final int TRANSPOSE_BLOCK_SIZE = 32;
     
 	/** Factor de escala de la matriz */
 	public double scaleFactor = 1;
+	/** Número de bits fraccionarios del formato en coma fija (Qm.n) de los elementos. */
+	protected int fractionBits = 0;
+	
+	/** Número máximo de bits fraccionarios que admite el formato en coma fija. */
+	public static final int MAX_FRACTION_BITS = 30;
 	
 	/** 
 	 * Crea una matriz de las dimensiones correspondientes a los parametros e inicializa los 
 	 * datos al valor por defecto.
 	 * 
-	 * @param rows Nmero de filas de la matriz.
-	 * @param cols Nmero de columnas de la matriz.
+	 * @param rows Número de filas de la matriz.
+	 * @param cols Número de columnas de la matriz.
 	 * 
 	 * @exception NegativeArraySizeException Se lanza si se intenta crear una matriz de
 	 * dimensiones negativas.
@@ -61,26 +74,26 @@ public class CvmMatrixInt extends CvmMatrix{
 	public CvmMatrixInt(int rows, int cols) throws NegativeArraySizeException{
 		super(rows, cols);
 		
-		this.data = new int[rows*cols];
+		this.data = CvmBufferPool.allocInt(rows * cols, true);
 		}
 
 	/**
 	 * Copia la matriz nativa de Java a una matriz CVM con las dimensiones indicadas y
 	 * los valores proporcionados.
 	 * 
-	 * @param rows Nmero de filas de la matriz.
-	 * @param cols Nmero de columnas de la matriz.
-	 * @param value Matriz nativa con el valor que tomar cada uno de los elementos.
+	 * @param rows Número de filas de la matriz.
+	 * @param cols Número de columnas de la matriz.
+	 * @param value Matriz nativa con el valor que tomará cada uno de los elementos.
 	 * 
 	 * @exception NegativeArraySizeException Se lanza si se intenta crear una matriz de
 	 * dimensiones negativas.
-	 * @exception ArrayIndexOutOfBoundsException Se lanza si el tamao de la matriz nativa no coincide con la que
+	 * @exception ArrayIndexOutOfBoundsException Se lanza si el tamaño de la matriz nativa no coincide con la que
 	 * se quiere crear.
 	 */
      public CvmMatrixInt (int rows, int cols, int[][] values) throws NegativeArraySizeException, ArrayIndexOutOfBoundsException {    	 
     	 super(rows, cols);
 
-         this.data = new int[this.rows*this.cols];
+         this.data = CvmBufferPool.allocInt(this.rows * this.cols, false);
 
          if(values.length != this.rows)
     		 throw new ArrayIndexOutOfBoundsException(values.length);
@@ -98,9 +111,9 @@ public class CvmMatrixInt extends CvmMatrix{
 	 * Crea una matriz a partir de un vector de elementos, los cuales se consideran
 	 * ordenados por filas.
 	 * 
-	 * @param rows Nmero de filas de la matriz.
-	 * @param cols Nmero de columnas de la matriz.
-	 * @param value Valor que tomar cada uno de los elementos.
+	 * @param rows Número de filas de la matriz.
+	 * @param cols Número de columnas de la matriz.
+	 * @param value Valor que tomará cada uno de los elementos.
 	 * 
 	 * @exception NegativeArraySizeException Se lanza si se intenta crear una matriz de
 	 * dimensiones negativas.
@@ -113,16 +126,17 @@ public class CvmMatrixInt extends CvmMatrix{
 		if(values.length != this.rows*this.cols)
 			throw new ArrayIndexOutOfBoundsException(values.length);
 				
-		this.data = values.clone();
+		this.data = CvmBufferPool.allocInt(values.length, false);
+		System.arraycopy(values, 0, this.data, 0, values.length);
 		}
     
 	/**
 	 * Crea una matriz de las dimensiones correspondientes cuyos elementos toman
-	 * el valor pasado como parmetro.
+	 * el valor pasado como parámetro.
 	 * 
-	 * @param rows Nmero de filas de la matriz.
-	 * @param cols Nmero de columnas de la matriz.
-	 * @param value Valor que tomarn todos los elementos de la matriz creada.
+	 * @param rows Número de filas de la matriz.
+	 * @param cols Número de columnas de la matriz.
+	 * @param value Valor que tomarán todos los elementos de la matriz creada.
 	 * 
 	 * @exception NegativeArraySizeException Se lanza si se intenta crear una matriz de
 	 * dimensiones negativas.
@@ -130,7 +144,7 @@ public class CvmMatrixInt extends CvmMatrix{
     public CvmMatrixInt(int rows, int cols, int value) throws NegativeArraySizeException{
         super(rows, cols);
 
-        this.data = new int[rows * cols];
+        this.data = CvmBufferPool.allocInt(rows * cols, false);
 
         Arrays.fill(this.data, value);
         }
@@ -138,15 +152,22 @@ public class CvmMatrixInt extends CvmMatrix{
    /**
     * <p>Constructor de copia de la clase CvmMatrix.</p>
     * 
-    * <p>Crea una matriz realizando una copia exacta de la que se pasa por parmetro
+    * <p>Crea una matriz realizando una copia exacta de la que se pasa por parámetro
     * manteniendo dos referencias distintas e independientes.</p>
     * 
-    * @param matrix Matriz original que se copiar en la nueva.
+    * <p>Si hay un ámbito de CvmBufferPool abierto en el hilo, la copia también toma sus datos
+    * del almacén y los pierde al cerrarlo. Para conservarla utilice CvmBufferPool.keep.</p>
+    * 
+    * @param matrix Matriz original que se copiará en la nueva.
     */
     public CvmMatrixInt(CvmMatrixInt matrix){
         super(matrix.rows, matrix.cols);
 
-        this.data = matrix.data.clone();
+        this.data = CvmBufferPool.allocInt(matrix.data.length, false);
+        System.arraycopy(matrix.data, 0, this.data, 0, matrix.data.length);
+
+        this.scaleFactor = matrix.scaleFactor;
+        this.fractionBits = matrix.fractionBits;
         }
 
    /**
@@ -166,15 +187,15 @@ public class CvmMatrixInt extends CvmMatrix{
 
 
    /**
-    * Devuelve el valor del elemento de la matriz que indican los parmetros.
+    * Devuelve el valor del elemento de la matriz que indican los parámetros.
     * 
     * @param row Fila del elemento al que se intenta acceder.
     * @param col Columna del elemento al que se intenta acceder.
     * 
-    * @return Valor del elemento apuntado por los parmetros.
+    * @return Valor del elemento apuntado por los parámetros.
     * 
-    * @exception ArrayIndexOutOfBoundsException Se produce si los parmetros de filas y columnas 
-    * no estn dentro de los lmites de la matriz.
+    * @exception ArrayIndexOutOfBoundsException Se produce si los parámetros de filas y columnas 
+    * no están dentro de los límites de la matriz.
     */
     public int getElement (int row, int col) throws ArrayIndexOutOfBoundsException {
     	if(row < 0 || row >= this.rows)
@@ -186,14 +207,14 @@ public class CvmMatrixInt extends CvmMatrix{
         }
 
    /**
-    * Guarda el valor deseado en el elemento de la matriz que indican los parmetros.
+    * Guarda el valor deseado en el elemento de la matriz que indican los parámetros.
     * 
     * @param row Fila del elemento al que se intenta acceder.
     * @param col Columna del elemento al que se intenta acceder.
-    * @param value Valor que se quiere guardar en la posicin indicada.
+    * @param value Valor que se quiere guardar en la posición indicada.
     * 
-    * @exception ArrayIndexOutOfBoundsException Se produce si los parmetros de filas y columnas
-    * no estn dentro de los lmites de la matriz.
+    * @exception ArrayIndexOutOfBoundsException Se produce si los parámetros de filas y columnas
+    * no están dentro de los límites de la matriz.
     */
     public void setElement(int row, int col, int value) throws ArrayIndexOutOfBoundsException {
     	if(row < 0 || row >= this.rows)
@@ -204,40 +225,56 @@ public class CvmMatrixInt extends CvmMatrix{
         this.data[row * this.cols + col] = value;
         }
 
+   /**
+    * Crea una vista sobre una región de la matriz sin copiar sus datos. Los cambios hechos
+    * a través de la vista modifican la matriz original.
+    * 
+    * @param row Fila de la matriz que ocupa la primera fila de la vista.
+    * @param col Columna de la matriz que ocupa la primera columna de la vista.
+    * @param rows Número de filas de la vista.
+    * @param cols Número de columnas de la vista.
+    * 
+    * @return Nueva vista sobre la región indicada.
+    * 
+    * @exception ArrayIndexOutOfBoundsException Se lanza si la región no está completamente
+    * contenida en la matriz.
+    */
+    public CvmMatrixIntView getView(int row, int col, int rows, int cols) throws ArrayIndexOutOfBoundsException {
+    	return new CvmMatrixIntView(this, row, col, rows, cols);
+    	}
+
    /**
     * Suma elemento a elemento los valores de la matriz original con los de la
-    * matriz que se pasa como parmetro.
+    * matriz que se pasa como parámetro.
     * 
     * @param matrix Matriz con los elementos a sumar a la matriz original.
     * 
     * @exception CvmIcompatibleMatrixSizeException Se produce si las matrices no son 
-    * del mismo tamao.
+    * del mismo tamaño.
     */
     public void add(CvmMatrixInt matrix) throws CvmIncompatibleMatrixSizeException {
         if(this.rows != matrix.rows || this.cols != matrix.cols){
             throw new CvmIncompatibleMatrixSizeException(matrix.rows, matrix.cols);
             }
 
-        for(int i = 0; i < this.data.length; i++)
-        	this.data[i] += matrix.data[i];
+        CvmKernels.add(this.data, matrix.data, this.data, this.data.length);
         }
 
    /**
     * Resta elemento a elemento los valores de la matriz original con los de la
-    * matriz que se pasa como parmetro.
+    * matriz que se pasa como parámetro.
     * 
     * @param matrix Matriz con los elementos a restar de la matriz original.
     * 
     * @exception CvmIcompatibleMatrixSizeException Se produce si las matrices no son 
-    * del mismo tamao.
+    * del mismo tamaño.
     */
     public void sub(CvmMatrixInt matrix) throws CvmIncompatibleMatrixSizeException {
     	if(this.rows != matrix.rows || this.cols != matrix.cols){
             throw new CvmIncompatibleMatrixSizeException(matrix.rows, matrix.cols);
             }
 
-        for(int i = 0; i < this.data.length; i++)
-        	this.data[i] -= matrix.data[i];
+        CvmKernels.sub(this.data, matrix.data, this.data, this.data.length);
         }
 
 	/**
@@ -246,8 +283,7 @@ public class CvmMatrixInt extends CvmMatrix{
 	 * @param value Valor a sumar a todos los elementos de la matriz original.
 	 */
 	 public void add(int value) {
-	 	for(int i = 0; i < this.data.length; i++)
-	     	this.data[i] += value;
+	 	CvmKernels.add(this.data, value, this.data, this.data.length);
 	     }
     
 	 /**
@@ -256,22 +292,20 @@ public class CvmMatrixInt extends CvmMatrix{
 	  * @param value Valor a restar a todos los elementos de la matriz original.
 	  */
 	 public void sub(int value) {
-		 for(int i = 0; i < this.data.length; i++)
-			 this.data[i] -= value;
+		 CvmKernels.sub(this.data, value, this.data, this.data.length);
 	 	}
 
    /**
-    * Multiplica todos los elementos de la matriz original por el valor indicado como parmetro.
+    * Multiplica todos los elementos de la matriz original por el valor indicado como parámetro.
     * 
     * @param factor Valor a multiplicar por cada uno de los elementos de la matriz original.
     */
     public void mul(int factor){
-    	for(int i = 0; i < this.data.length; i++)
-        	this.data[i] *= factor;
+    	CvmKernels.mul(this.data, factor, this.data, this.data.length);
         }
 
    /**
-    * Divide todos los elementos de la matriz original por el valor indicado como parmetro.
+    * Divide todos los elementos de la matriz original por el valor indicado como parámetro.
     * 
     * @param factor Valor por el que dividir cada uno de los elementos de la matriz original.
     * 
@@ -281,29 +315,22 @@ public class CvmMatrixInt extends CvmMatrix{
     	if(factor == 0)
     		throw new ArithmeticException();
     	
-    	double aux = 1/factor;
-    	
-    	for(int i = 0; i < this.data.length; i++)
-        	this.data[i] = (int)(this.data[i] * aux);
+    	CvmKernels.div(this.data, factor, this.data, this.data.length);
         }
 
    /**
     * Suma elemento a elemento los valores de la matriz original con los de la
-    * matriz que se pasa como parmetro y devuelve el resultado en una nueva instancia.
+    * matriz que se pasa como parámetro y devuelve el resultado en una nueva instancia.
     * 
     * @param matrix Matriz con los elementos a sumar a la matriz original.
     * 
-    * @return Nueva matriz con el resultado de la operacin de suma de las dos matrices.
+    * @return Nueva matriz con el resultado de la operación de suma de las dos matrices.
     * 
     * @exception CvmIncompatibleMatrixSizeException Se produce si las matrices no son 
-    * del mismo tamao.
+    * del mismo tamaño.
     */
     public CvmMatrixInt getAdd(CvmMatrixInt matrix) throws CvmIncompatibleMatrixSizeException {
-        CvmMatrixInt copy = new CvmMatrixInt(this);
-
-        copy.add(matrix);
-
-        return copy;
+        return this.getAdd(matrix, new CvmMatrixInt(this.rows, this.cols));
         }
 
    /**
@@ -312,34 +339,26 @@ public class CvmMatrixInt extends CvmMatrix{
     * 
     * @param value Valor a sumar a todos los elementos de la matriz original.
     * 
-    * @return Nueva matriz con el resultado de la operacin de suma de la matriz
-    * original y el valor que se pasa como parmetro.
+    * @return Nueva matriz con el resultado de la operación de suma de la matriz
+    * original y el valor que se pasa como parámetro.
     */
     public CvmMatrixInt getAdd(int value){
-        CvmMatrixInt copy = new CvmMatrixInt(this);
-
-        copy.add(value);
-
-        return copy;
+        return this.getAdd(value, new CvmMatrixInt(this.rows, this.cols));
         }
 
    /**
     * Resta elemento a elemento los valores de la matriz original con los de la
-    * matriz que se pasa como parmetro y devuelve el resultado en una nueva instancia.
+    * matriz que se pasa como parámetro y devuelve el resultado en una nueva instancia.
     * 
     * @param matrix Matriz con los elementos a restar a la matriz original.
     * 
-    * @return Nueva matriz con el resultado de la operacin de resta de las dos matrices.
+    * @return Nueva matriz con el resultado de la operación de resta de las dos matrices.
     * 
     * @exception CvmIncompatibleMatrixSizeException Se produce si las matrices no son 
-    * del mismo tamao.
+    * del mismo tamaño.
     */
     public CvmMatrixInt getSub(CvmMatrixInt matrix) throws CvmIncompatibleMatrixSizeException {
-        CvmMatrixInt copy = new CvmMatrixInt(this);
-
-        copy.sub(matrix);
-
-        return copy;
+        return this.getSub(matrix, new CvmMatrixInt(this.rows, this.cols));
         }
 
    /**
@@ -348,30 +367,26 @@ public class CvmMatrixInt extends CvmMatrix{
     * 
     * @param value Valor a restar a todos los elementos de la matriz original.
     * 
-    * @return Nueva matriz con el resultado de la operacin de resta de la matriz
-    * original y el valor que se pasa como parmetro.
+    * @return Nueva matriz con el resultado de la operación de resta de la matriz
+    * original y el valor que se pasa como parámetro.
     */
     public CvmMatrixInt getSub(int value) {
-        CvmMatrixInt copy = new CvmMatrixInt(this);
-
-        copy.sub(value);
-
-        return copy;
+        return this.getSub(value, new CvmMatrixInt(this.rows, this.cols));
         }
 
 
    /**
-    * Realiza la multiplicacin de dos matrices, siempre que sea posible, y devuelve
+    * Realiza la multiplicación de dos matrices, siempre que sea posible, y devuelve
     * el resultado en una nueva matriz.
     * 
-    * @param matrix Matriz que se multiplicar por la derecha de la matriz original.
+    * @param matrix Matriz que se multiplicará por la derecha de la matriz original.
     * 
-    * @return Nueva matriz con el resultado de la operacin de multiplicacin de
+    * @return Nueva matriz con el resultado de la operación de multiplicación de
     * ambas matrices.
     * 
     * @exception CvmIcompatibleMatrixSizeException La matrices no pueden ser multiplicadas.
-    * La matriz original debe tener el mismo nmero de columnas que filas tenga la
-    * matriz que se pasa por parmetro.
+    * La matriz original debe tener el mismo número de columnas que filas tenga la
+    * matriz que se pasa por parámetro.
     */
     public CvmMatrixInt getMul(CvmMatrixInt matrix) throws CvmIncompatibleMatrixSizeException {
         if(this.cols != matrix.rows){
@@ -380,15 +395,126 @@ public class CvmMatrixInt extends CvmMatrix{
 
         CvmMatrixInt result = new CvmMatrixInt(this.rows, matrix.cols);
 
-        for(int r = 0; r < result.rows; r++){
-            for(int c = 0; c < result.cols; c++){
-                for(int k = 0; k < this.cols; k++) {
-                    result.data[r * result.cols + c] += this.data[r * this.cols + k] * matrix.data[k * matrix.cols + c];
-                    }
+        CvmMatrixInt.mul(this.data, matrix.data, result.data, this.rows, this.cols, matrix.cols);
+
+        return result;
+        }
+
+   /**
+    * Realiza la multiplicación de dos matrices y guarda el resultado en la matriz destino,
+    * de modo que se puede reutilizar la misma matriz en sucesivas operaciones. Si la matriz
+    * destino comparte los datos con alguno de los operandos el producto se calcula en una
+    * matriz auxiliar y después se copia sobre ella.
+    * 
+    * @param matrix Matriz que se multiplicará por la derecha de la matriz original.
+    * @param dest Matriz en la que se guarda el resultado. Debe tener tantas filas como la
+    * matriz original y tantas columnas como la matriz que se pasa por parámetro.
+    * 
+    * @return La matriz destino.
+    * 
+    * @exception CvmIcompatibleMatrixSizeException La matrices no pueden ser multiplicadas o
+    * la matriz destino no tiene las dimensiones del resultado.
+    */
+    public CvmMatrixInt getMul(CvmMatrixInt matrix, CvmMatrixInt dest) throws CvmIncompatibleMatrixSizeException {
+        if(this.cols != matrix.rows){
+            throw new CvmIncompatibleMatrixSizeException(matrix.rows, matrix.cols);
+            }
+        if(dest.rows != this.rows || dest.cols != matrix.cols){
+            throw new CvmIncompatibleMatrixSizeException(dest.rows, dest.cols);
+            }
+
+        if(dest.data == this.data || dest.data == matrix.data){
+        	int[] result = new int[dest.data.length];
+        	CvmMatrixInt.mul(this.data, matrix.data, result, this.rows, this.cols, matrix.cols);
+        	System.arraycopy(result, 0, dest.data, 0, result.length);
+        	}
+        else{
+        	Arrays.fill(dest.data, 0);
+        	CvmMatrixInt.mul(this.data, matrix.data, dest.data, this.rows, this.cols, matrix.cols);
+        	}
+
+        return dest;
+        }
+
+    /**
+     * Acumula sobre c el producto de a (rows x n) por b (n x m), eligiendo el producto por
+     * bloques cuando el número de productos escalares alcanza MUL_BLOCK_THRESHOLD.
+     */
+    static void mul(int[] a, int[] b, int[] c, int rows, int n, int m){
+        if((long)rows * n * m < CvmMatrixInt.MUL_BLOCK_THRESHOLD)
+        	CvmMatrixInt.mulBlock(a, b, c, n, m, 0, rows, 0, m, 0, n);
+        else
+        	CvmMatrixInt.mulBlocked(a, b, c, n, m, 0, rows, 0, m);
+        }
+
+    /**
+     * <p>Acumula sobre c el producto de la submatriz de a formada por las filas [r0, r1) y las
+     * columnas [k0, k1) por la submatriz de b formada por las filas [k0, k1) y las columnas
+     * [c0, c1). Todas las matrices se almacenan por filas.</p>
+     * 
+     * <p>El bucle sigue el orden fila-interno-columna (i-k-j), de modo que b y c se recorren
+     * siempre por filas, y procesa cuatro elementos de a por iteración para reutilizar cada
+     * fila de c mientras está en los registros.</p>
+     * 
+     * @param a Datos de la matriz izquierda.
+     * @param b Datos de la matriz derecha.
+     * @param c Datos de la matriz resultado.
+     * @param n Número de columnas de a (y de filas de b).
+     * @param m Número de columnas de b (y de c).
+     */
+    static void mulBlock(int[] a, int[] b, int[] c, int n, int m, int r0, int r1, int c0, int c1, int k0, int k1){
+        for(int r = r0; r < r1; r++){
+            int rowA = r * n;
+            int rowC = r * m;
+            int k = k0;
+
+            for(; k + 3 < k1; k += 4){
+                int a0 = a[rowA + k];
+                int a1 = a[rowA + k + 1];
+                int a2 = a[rowA + k + 2];
+                int a3 = a[rowA + k + 3];
+                int b0 = k * m;
+                int b1 = b0 + m;
+                int b2 = b1 + m;
+                int b3 = b2 + m;
+
+                for(int j = c0; j < c1; j++)
+                    c[rowC + j] += a0 * b[b0 + j] + a1 * b[b1 + j] + a2 * b[b2 + j] + a3 * b[b3 + j];
+                }
+
+            for(; k < k1; k++){
+                int a0 = a[rowA + k];
+                int b0 = k * m;
+
+                for(int j = c0; j < c1; j++)
+                    c[rowC + j] += a0 * b[b0 + j];
                 }
             }
+        }
 
-        return result;
+    /**
+     * Calcula por bloques de MUL_BLOCK_SIZE la región [r0, r1) x [c0, c1) del producto de a por b,
+     * de forma que los bloques de ambas matrices que intervienen en cada paso quepan en la caché.
+     * Cada elemento del resultado acumula los bloques internos siempre en el mismo orden, por lo
+     * que el resultado no depende de cómo se reparta la región.
+     * 
+     * @param a Datos de la matriz izquierda.
+     * @param b Datos de la matriz derecha.
+     * @param c Datos de la matriz resultado.
+     * @param n Número de columnas de a (y de filas de b).
+     * @param m Número de columnas de b (y de c).
+     */
+    static void mulBlocked(int[] a, int[] b, int[] c, int n, int m, int r0, int r1, int c0, int c1){
+        for(int rb = r0; rb < r1; rb += CvmMatrixInt.MUL_BLOCK_SIZE){
+            int re = Math.min(rb + CvmMatrixInt.MUL_BLOCK_SIZE, r1);
+
+            for(int kb = 0; kb < n; kb += CvmMatrixInt.MUL_BLOCK_SIZE){
+                int ke = Math.min(kb + CvmMatrixInt.MUL_BLOCK_SIZE, n);
+
+                for(int cb = c0; cb < c1; cb += CvmMatrixInt.MUL_BLOCK_SIZE)
+                    CvmMatrixInt.mulBlock(a, b, c, n, m, rb, re, cb, Math.min(cb + CvmMatrixInt.MUL_BLOCK_SIZE, c1), kb, ke);
+                }
+            }
         }
 
 
@@ -398,15 +524,11 @@ public class CvmMatrixInt extends CvmMatrix{
     * 
     * @param factor Valor por el que se multiplican todos los elementos de la matriz original.
     * 
-    * @return Nueva matriz con el resultado de la operacin de multiplicacin de la matriz
-    * original y el valor que se pasa como parmetro.
+    * @return Nueva matriz con el resultado de la operación de multiplicación de la matriz
+    * original y el valor que se pasa como parámetro.
     */
     public CvmMatrixInt getMul(int factor){
-        CvmMatrixInt copy = new CvmMatrixInt(this);
-
-        copy.mul(factor);
-
-        return copy;
+        return this.getMul(factor, new CvmMatrixInt(this.rows, this.cols));
         }
 
    /**
@@ -415,39 +537,234 @@ public class CvmMatrixInt extends CvmMatrix{
     * 
     * @param factor Valor por el que se dividen todos los elementos de la matriz original.
     * 
-    * @return Nueva matriz con el resultado de la operacin de divisin de la matriz
-    * original y el valor que se pasa como parmetro.
+    * @return Nueva matriz con el resultado de la operación de división de la matriz
+    * original y el valor que se pasa como parámetro.
     */
     public CvmMatrixInt getDiv(int factor){
-        CvmMatrixInt copy = new CvmMatrixInt(this);
+        return this.getDiv(factor, new CvmMatrixInt(this.rows, this.cols));
+        }
+
+   /**
+    * Suma elemento a elemento los valores de la matriz original con los de la matriz que se
+    * pasa como parámetro y guarda el resultado en la matriz destino, que puede ser cualquiera
+    * de los dos operandos.
+    * 
+    * @param matrix Matriz con los elementos a sumar a la matriz original.
+    * @param dest Matriz en la que se guarda el resultado.
+    * 
+    * @return La matriz destino.
+    * 
+    * @exception CvmIncompatibleMatrixSizeException Se produce si las matrices no son 
+    * del mismo tamaño.
+    */
+    public CvmMatrixInt getAdd(CvmMatrixInt matrix, CvmMatrixInt dest) throws CvmIncompatibleMatrixSizeException {
+        this.checkSize(matrix);
+        this.checkSize(dest);
 
-        copy.div(factor);
+        CvmKernels.add(this.data, matrix.data, dest.data, this.data.length);
 
-        return copy;
+        return dest;
+        }
+
+   /**
+    * Resta elemento a elemento los valores de la matriz que se pasa como parámetro a los de
+    * la matriz original y guarda el resultado en la matriz destino, que puede ser cualquiera
+    * de los dos operandos.
+    * 
+    * @param matrix Matriz con los elementos a restar a la matriz original.
+    * @param dest Matriz en la que se guarda el resultado.
+    * 
+    * @return La matriz destino.
+    * 
+    * @exception CvmIncompatibleMatrixSizeException Se produce si las matrices no son 
+    * del mismo tamaño.
+    */
+    public CvmMatrixInt getSub(CvmMatrixInt matrix, CvmMatrixInt dest) throws CvmIncompatibleMatrixSizeException {
+        this.checkSize(matrix);
+        this.checkSize(dest);
+
+        CvmKernels.sub(this.data, matrix.data, dest.data, this.data.length);
+
+        return dest;
+        }
+
+   /**
+    * Suma un valor a todos los elementos de la matriz original y guarda el resultado en
+    * la matriz destino, que puede ser la propia matriz original.
+    * 
+    * @param value Valor a sumar a todos los elementos de la matriz original.
+    * @param dest Matriz en la que se guarda el resultado.
+    * 
+    * @return La matriz destino.
+    * 
+    * @exception CvmIncompatibleMatrixSizeException Se produce si la matriz destino no es
+    * del mismo tamaño.
+    */
+    public CvmMatrixInt getAdd(int value, CvmMatrixInt dest) throws CvmIncompatibleMatrixSizeException {
+        this.checkSize(dest);
+
+        CvmKernels.add(this.data, value, dest.data, this.data.length);
+
+        return dest;
+        }
+
+   /**
+    * Resta un valor a todos los elementos de la matriz original y guarda el resultado en
+    * la matriz destino, que puede ser la propia matriz original.
+    * 
+    * @param value Valor a restar a todos los elementos de la matriz original.
+    * @param dest Matriz en la que se guarda el resultado.
+    * 
+    * @return La matriz destino.
+    * 
+    * @exception CvmIncompatibleMatrixSizeException Se produce si la matriz destino no es
+    * del mismo tamaño.
+    */
+    public CvmMatrixInt getSub(int value, CvmMatrixInt dest) throws CvmIncompatibleMatrixSizeException {
+        this.checkSize(dest);
+
+        CvmKernels.sub(this.data, value, dest.data, this.data.length);
+
+        return dest;
+        }
+
+   /**
+    * Multiplica por un valor todos los elementos de la matriz original y guarda el resultado
+    * en la matriz destino, que puede ser la propia matriz original.
+    * 
+    * @param factor Valor por el que se multiplican todos los elementos de la matriz original.
+    * @param dest Matriz en la que se guarda el resultado.
+    * 
+    * @return La matriz destino.
+    * 
+    * @exception CvmIncompatibleMatrixSizeException Se produce si la matriz destino no es
+    * del mismo tamaño.
+    */
+    public CvmMatrixInt getMul(int factor, CvmMatrixInt dest) throws CvmIncompatibleMatrixSizeException {
+        this.checkSize(dest);
+
+        CvmKernels.mul(this.data, factor, dest.data, this.data.length);
+
+        return dest;
+        }
+
+   /**
+    * Divide por un valor todos los elementos de la matriz original y guarda el resultado
+    * en la matriz destino, que puede ser la propia matriz original.
+    * 
+    * @param factor Valor por el que se dividen todos los elementos de la matriz original.
+    * @param dest Matriz en la que se guarda el resultado.
+    * 
+    * @return La matriz destino.
+    * 
+    * @exception CvmIncompatibleMatrixSizeException Se produce si la matriz destino no es
+    * del mismo tamaño.
+    * @exception ArithmeticException Se lanza si se intenta una division entre cero.
+    */
+    public CvmMatrixInt getDiv(int factor, CvmMatrixInt dest) throws CvmIncompatibleMatrixSizeException, ArithmeticException {
+        this.checkSize(dest);
+
+    	if(factor == 0)
+    		throw new ArithmeticException();
+    	
+        CvmKernels.div(this.data, factor, dest.data, this.data.length);
+
+        return dest;
+        }
+
+    /**
+     * Comprueba que la matriz que se pasa como parámetro tiene las mismas dimensiones que
+     * la matriz original.
+     * 
+     * @exception CvmIncompatibleMatrixSizeException Las matrices no son del mismo tamaño.
+     */
+    private void checkSize(CvmMatrixInt matrix) throws CvmIncompatibleMatrixSizeException {
+        if(this.rows != matrix.rows || this.cols != matrix.cols){
+            throw new CvmIncompatibleMatrixSizeException(matrix.rows, matrix.cols);
+            }
         }
     
    /**
     * Intercambia los elementos de filas y columnas de manera que se devuelve la
     * matriz traspuesta de la matriz original.
     * 
-    * @return Nueva matriz de tamao columnas por filas, que contiene los elementos
+    * @return Nueva matriz de tamaño columnas por filas, que contiene los elementos
     * de la matriz original pero cambiando filas por columnas.
     */
     public CvmMatrixInt getTranspose(){
         CvmMatrixInt copy = new CvmMatrixInt(this.cols, this.rows);
 
-        for(int r = 0; r < copy.rows; r++)
-            for(int c = 0; c < copy.cols; c++)
-                copy.setElement(r, c, this.getElement(c, r));
+        CvmMatrixInt.transpose(this.data, copy.data, this.rows, this.cols, 0, this.rows, 0, this.cols);
 
         return copy;
         }
 
+   /**
+    * Traspone la matriz sobre sus propios datos, sin reservar memoria adicional. Solo es
+    * posible si la matriz es cuadrada, ya que en otro caso cambiarían sus dimensiones.
+    * 
+    * @exception CvmIncompatibleMatrixSizeException La matriz no es cuadrada.
+    */
+    public void transpose() throws CvmIncompatibleMatrixSizeException {
+        if(this.rows != this.cols){
+            throw new CvmIncompatibleMatrixSizeException(this.rows, this.cols);
+            }
+
+        int n = this.rows;
+
+        for(int rb = 0; rb < n; rb += CvmMatrixInt.TRANSPOSE_BLOCK_SIZE){
+            int re = Math.min(rb + CvmMatrixInt.TRANSPOSE_BLOCK_SIZE, n);
+
+            for(int cb = rb; cb < n; cb += CvmMatrixInt.TRANSPOSE_BLOCK_SIZE){
+                int ce = Math.min(cb + CvmMatrixInt.TRANSPOSE_BLOCK_SIZE, n);
+
+                for(int r = rb; r < re; r++){
+                    /** En los bloques de la diagonal solo se recorre la parte superior */
+                    for(int c = Math.max(cb, r + 1); c < ce; c++){
+                        int aux = this.data[r * n + c];
+                        this.data[r * n + c] = this.data[c * n + r];
+                        this.data[c * n + r] = aux;
+                        }
+                    }
+                }
+            }
+        }
+
     /**
-     * Crea una matriz cuadrada del orden seleccionado cuya diagonal principal est
+     * <p>Copia en dst la traspuesta de la región [r0, r1) x [c0, c1) de src, siendo src una
+     * matriz de rows x cols almacenada por filas y dst una de cols x rows.</p>
+     * 
+     * <p>La región se divide por la mitad de su lado mayor hasta que cabe en un bloque de
+     * TRANSPOSE_BLOCK_SIZE, de modo que las filas de src y de dst que se recorren en cada
+     * bloque permanecen en la caché sea cual sea el tamaño de la matriz.</p>
+     */
+    static void transpose(int[] src, int[] dst, int rows, int cols, int r0, int r1, int c0, int c1){
+        while(r1 - r0 > CvmMatrixInt.TRANSPOSE_BLOCK_SIZE || c1 - c0 > CvmMatrixInt.TRANSPOSE_BLOCK_SIZE){
+            if(r1 - r0 >= c1 - c0){
+                int rm = (r0 + r1) >>> 1;
+                CvmMatrixInt.transpose(src, dst, rows, cols, r0, rm, c0, c1);
+                r0 = rm;
+                }
+            else{
+                int cm = (c0 + c1) >>> 1;
+                CvmMatrixInt.transpose(src, dst, rows, cols, r0, r1, c0, cm);
+                c0 = cm;
+                }
+            }
+
+        for(int r = r0; r < r1; r++){
+            int rowSrc = r * cols;
+
+            for(int c = c0; c < c1; c++)
+                dst[c * rows + r] = src[rowSrc + c];
+            }
+        }
+
+    /**
+     * Crea una matriz cuadrada del orden seleccionado cuya diagonal principal está
      * formada por el elemento 1.
      * 
-     * @param order Orden de la matriz (Nmero de filas y columnas).
+     * @param order Orden de la matriz (Número de filas y columnas).
      * 
      * @return Matriz identidad del orden especificado.
      * 
@@ -465,21 +782,29 @@ public class CvmMatrixInt extends CvmMatrix{
     
     /**
      * Calcula el determinante de la matriz, esta debe ser cuadrada.
-     * El mtodo usado para matrices de orden superior a 2 es el de Dolittle.
-     * Si la matriz es singular no se puede obtener el determinante y se lanza
-     * una excepcin.
+     * Para matrices de orden superior a 3 se usa el método indicado: DOOLITTLE_METHOD
+     * obtiene el determinante a partir de la descomposición LU con pivotación parcial
+     * (CvmLUDecomposition) y ADJUNCT_METHOD lo desarrolla por adjuntos. BAREISS_METHOD lo
+     * calcula de forma exacta con getExactDeterminant para cualquier orden.
+     * 
+     * @param method Método de cálculo (DOOLITTLE_METHOD, ADJUNCT_METHOD o BAREISS_METHOD).
      * 
-     * @return El determinante de la matriz.
+     * @return El determinante de la matriz, que vale cero si esta es singular.
      * 
      * @exception CvmIncompatibleMatrixSizeException La matriz no es cuadrada.
-     * @exception CvmSingularMatrixException Se lanza si el determinante no puede ser calculado
-     * mediante el algoritmo de Doolittle.
+     * @exception IllegalArgumentException El método no es ninguno de los anteriores.
      */    
-    public double getDeterminant(int method) throws CvmIncompatibleMatrixSizeException, CvmSingularMatrixException {
+    public double getDeterminant(int method) throws CvmIncompatibleMatrixSizeException, CvmSingularMatrixException, IllegalArgumentException {
         if(this.cols != this.rows){
             throw new CvmIncompatibleMatrixSizeException(this.rows, this.cols);
             }
 
+        /** El método exacto se usa en todos los órdenes, ya que la forma cerrada desborda */
+        if(method == CvmMatrixInt.BAREISS_METHOD)
+        	return this.getExactDeterminant().doubleValue();
+        if(method != CvmMatrixInt.DOOLITTLE_METHOD && method != CvmMatrixInt.ADJUNCT_METHOD)
+        	throw new IllegalArgumentException("Invalid determinant method: " + method);
+
         double det = 0;
 
         switch(this.cols){
@@ -502,64 +827,13 @@ public class CvmMatrixInt extends CvmMatrix{
         	break;
         default:
         	if(method == CvmMatrixInt.DOOLITTLE_METHOD){
-	        	CvmMatrixInt P = CvmMatrixInt.getIdentity(this.rows);
-	        	CvmMatrixInt L = new CvmMatrixInt(this.rows, this.cols, 0);
-	        	CvmMatrixInt U = new CvmMatrixInt(this);
-	        	
-	        	int pivotRow = 0;
-	        	double maxValue = 0;
-	        	
-	        	for(int i = 0; i < this.rows; i++){
-	        		
-	        		pivotRow = i;
-	        		
-	        		for(int j = i; j < this.rows; j++){
-	        			
-	        			if(maxValue < this.data[j * this.cols + i]){
-	        				maxValue = this.data[j * this.cols + i];
-	        				pivotRow = j;
-	        				}
-	        			}
-	        		
-	        		if(maxValue == 0)
-	        			throw new CvmSingularMatrixException(); //No se puede factorizar
-	        		
-	        		else if(pivotRow != i){
-	        			for(int j = 0; j < this.cols; j++){
-	        				int aux = P.data[i * this.cols + j];
-	        				P.data[i * this.cols + j] = P.data[pivotRow * this.cols + j];
-	        				P.data[pivotRow * this.cols + j] = aux;
-	        				
-	        				aux = L.data[i * this.cols + j];
-	        				L.data[i * this.cols + j] = L.data[pivotRow * this.cols + j];
-	        				L.data[pivotRow * this.cols + j] = aux;
-	        				
-	        				aux = U.data[i * this.cols + j];
-	        				U.data[i * this.cols + j] = U.data[pivotRow * this.cols + j];
-	        				U.data[pivotRow * this.cols + j] = aux;
-	        				}
-	        			}
-	        		
-	        		/** Hacer ceros por debajo de la diagonal */
-	        		for(int j = i+1; j < this.rows; j++){
-	        			double factor = U.data[j * this.cols + i] / U.data[i * this.cols + i];
-	        			for(int k = i; k < this.cols; k++){
-	        				U.data[j * this.cols + k] -= factor * U.data[i * this.cols + k];
-	        				}
-	        			
-	        			/** No es necesaria esta instruccion, solo informativa */
-	        			L.data[j * this.cols + i] = (int)-factor;
-	        			}
-	        		}
-	        	
-	        	det = 1;
-	            for(int i = 0; i < this.cols; i++)
-	            	det *= U.data[i * this.cols + i];
-	        	}
+        		det = new CvmLUDecomposition(this).getDeterminant();
+        		}
         	else if(method == CvmMatrixInt.ADJUNCT_METHOD){
+        		/** Desarrollo por los adjuntos de la primera fila */
         		det = 0;
-        		for(int i = 0; i < this.data.length; i++){
-        			det += this.data[i] * this.getAdjunctElement(i / this.cols, i % this.cols); 
+        		for(int c = 0; c < this.cols; c++){
+        			det += this.data[c] * this.getAdjunctElement(0, c); 
         			}
         		}
             
@@ -569,18 +843,40 @@ public class CvmMatrixInt extends CvmMatrix{
         return det;
         }
 
+    /**
+     * Calcula el determinante exacto de la matriz con el algoritmo de Bareiss, una
+     * eliminación gaussiana sin fracciones de coste n³. Se opera con longs y, si los valores
+     * intermedios crecen demasiado, se continúa con BigInteger, por lo que el resultado no
+     * tiene error de redondeo ni desbordamiento.
+     * 
+     * @return El determinante de la matriz, que vale cero si esta es singular o está vacía.
+     * 
+     * @exception CvmIncompatibleMatrixSizeException La matriz no es cuadrada.
+     */
+    public BigInteger getExactDeterminant() throws CvmIncompatibleMatrixSizeException {
+        if(this.cols != this.rows){
+            throw new CvmIncompatibleMatrixSizeException(this.rows, this.cols);
+            }
+
+        long[] values = new long[this.data.length];
+        for(int i = 0; i < values.length; i++)
+        	values[i] = this.data[i];
+
+        return CvmBareissDeterminant.determinant(values, this.rows);
+        }
+
     /**
      * Recupera la matriz adjunta a un elemento, es decir, devuelve una matriz con los mismos
      * elementos que la original en la que se han suprimido los elementos de la fila y la columna
      * indicados.
      * 
-     * @param row Fila del elemento. Esta fila ser eliminada en la matriz resultante.
-     * @param col Columna del elemento. Esta columna ser eliminada en la matriz resultante.
+     * @param row Fila del elemento. Esta fila será eliminada en la matriz resultante.
+     * @param col Columna del elemento. Esta columna será eliminada en la matriz resultante.
      * 
      * @return Matriz adjunta al elemento seleccionado.
      * 
-     * @exception ArrayIndexOutOfBoundsException Se produce si los parmetros de filas y columnas
-     * no estn dentro de los lmites de la matriz.
+     * @exception ArrayIndexOutOfBoundsException Se produce si los parámetros de filas y columnas
+     * no están dentro de los límites de la matriz.
      */
     public CvmMatrixInt getAdjunctMatrix(int row, int col) throws ArrayIndexOutOfBoundsException {
     	if(row < 0 || row >= this.rows)
@@ -606,16 +902,16 @@ public class CvmMatrixInt extends CvmMatrix{
     
     /**
      * Calcula el adjunto a un elemento. Esto significa que calcula el determinante de la
-     * matriz adjunta al elemento seleccionado. Esta operacin solo es vlida sobre matrices
+     * matriz adjunta al elemento seleccionado. Esta operación solo es válida sobre matrices
      * cuadradas.
      * 
      * @param row Fila del elemento.
      * @param col Columna del elemento.
      * 
-     * @return Valor del adjunto de la matriz que ocupa la posicin indicada.
+     * @return Valor del adjunto de la matriz que ocupa la posición indicada.
      * 
-     * @exception ArrayIndexOutOfBoundsException Se produce si los parmetros de filas y columnas
-     * no estn dentro de los lmites de la matriz.
+     * @exception ArrayIndexOutOfBoundsException Se produce si los parámetros de filas y columnas
+     * no están dentro de los límites de la matriz.
      * @exception CvmIncompatibleMatrixSizeException La matriz debe ser cuadrada.
      */
     public double getAdjunctElement(int row, int col) throws ArrayIndexOutOfBoundsException, CvmIncompatibleMatrixSizeException{
@@ -626,12 +922,7 @@ public class CvmMatrixInt extends CvmMatrix{
         
     	CvmMatrixInt adjunctMatrix = this.getAdjunctMatrix(row, col);
     	
-        try{
-        	det = adjunctMatrix.getDeterminant(CvmMatrixInt.DOOLITTLE_METHOD);
-        	}
-        catch(CvmSingularMatrixException e){
-        	det = adjunctMatrix.getDeterminant(CvmMatrixInt.ADJUNCT_METHOD);
-        	}
+        det = adjunctMatrix.getDeterminant(CvmMatrixInt.DOOLITTLE_METHOD);
     	
     	return Math.pow(-1, row+col) * det;
     	}
@@ -661,7 +952,8 @@ public class CvmMatrixInt extends CvmMatrix{
         }
     
     /**
-     * Calcula la inversa de una matriz si es posible.
+     * Calcula la inversa de una matriz si es posible a partir de su descomposición LU
+     * con pivotación parcial (CvmLUDecomposition).
      * 
      * @return La matriz inversa.
      * 
@@ -669,24 +961,198 @@ public class CvmMatrixInt extends CvmMatrix{
      * @exception CvmIncompatibleMatrixSizeException La matriz no es cuadrada.
      */ 
     public CvmMatrixDouble getInverse() throws CvmSingularMatrixException, CvmIncompatibleMatrixSizeException{
-        double det = 0;
-        
-        try{
-        	det = this.getDeterminant(CvmMatrixInt.DOOLITTLE_METHOD);
-        	}
-        catch(Exception e){
-        	det = this.getDeterminant(CvmMatrixInt.ADJUNCT_METHOD);
-        	}
-        
-        if(det == 0)
-        	throw new CvmSingularMatrixException();
-        
-    	CvmMatrixDouble copy = this.getAdjunctElementsMatrix().getTranspose();
-        copy.div(det);
-
-        return copy;
+        return new CvmLUDecomposition(this).getInverse();
         }
 
+   /**
+    * Observador del formato en coma fija de la matriz.
+    * 
+    * @return Número de bits fraccionarios n: cada elemento representa el valor real
+    * elemento / 2^n.
+    */
+    public int getFractionBits(){
+    	return this.fractionBits;
+    	}
+
+   /**
+    * <p>Declara el formato en coma fija (Qm.n) de la matriz sin modificar sus elementos, que
+    * pasan a interpretarse como valor / 2^n. El factor de escala se actualiza a 2^n.</p>
+    * 
+    * <p>Con cero bits fraccionarios la matriz es una matriz de enteros normal.</p>
+    * 
+    * @param bits Número de bits fraccionarios, entre 0 y MAX_FRACTION_BITS.
+    * 
+    * @exception IllegalArgumentException El número de bits está fuera de rango.
+    */
+    public void setFractionBits(int bits) throws IllegalArgumentException {
+    	if(bits < 0 || bits > MAX_FRACTION_BITS)
+    		throw new IllegalArgumentException("Fraction bits out of range: " + bits);
+
+    	this.fractionBits = bits;
+    	this.scaleFactor = 1 << bits;
+    	}
+
+   /**
+    * Cambia el formato en coma fija de la matriz desplazando sus elementos, con redondeo al
+    * más cercano si se pierden bits y saturación si el valor no cabe en un entero.
+    * 
+    * @param bits Nuevo número de bits fraccionarios, entre 0 y MAX_FRACTION_BITS.
+    * 
+    * @exception IllegalArgumentException El número de bits está fuera de rango.
+    */
+    public void rescale(int bits) throws IllegalArgumentException {
+    	if(bits < 0 || bits > MAX_FRACTION_BITS)
+    		throw new IllegalArgumentException("Fraction bits out of range: " + bits);
+
+    	int shift = this.fractionBits - bits;
+
+    	if(shift > 0)
+    		for(int i = 0; i < this.data.length; i++)
+    			this.data[i] = CvmMatrixInt.saturate(CvmMatrixInt.shiftRound(this.data[i], shift));
+    	else if(shift < 0)
+    		for(int i = 0; i < this.data.length; i++)
+    			this.data[i] = CvmMatrixInt.saturate((long)this.data[i] << -shift);
+
+    	this.setFractionBits(bits);
+    	}
+
+   /**
+    * Multiplica elemento a elemento por otra matriz en coma fija. El producto de cada pareja
+    * se calcula en 64 bits y se desplaza los bits fraccionarios de la matriz parámetro, de
+    * modo que el resultado conserva el formato de esta matriz.
+    * 
+    * @param matrix Matriz de las mismas dimensiones.
+    * 
+    * @exception CvmIncompatibleMatrixSizeException Las matrices no tienen las mismas dimensiones.
+    */
+    public void mulElementsFixed(CvmMatrixInt matrix) throws CvmIncompatibleMatrixSizeException {
+    	if(this.rows != matrix.rows || this.cols != matrix.cols)
+    		throw new CvmIncompatibleMatrixSizeException(matrix.rows, matrix.cols);
+
+    	int shift = matrix.fractionBits;
+
+    	for(int i = 0; i < this.data.length; i++)
+    		this.data[i] = CvmMatrixInt.saturate(CvmMatrixInt.shiftRound((long)this.data[i] * matrix.data[i], shift));
+    	}
+
+   /**
+    * Producto de matrices en coma fija. Las sumas de productos se acumulan en 64 bits, sin
+    * pérdida, y al final se desplazan los bits fraccionarios de la matriz parámetro con
+    * redondeo y saturación, de modo que el resultado tiene el formato de esta matriz. No se
+    * realiza ninguna operación en coma flotante.
+    * 
+    * @param matrix Matriz que se multiplicará por la derecha.
+    * 
+    * @return Nueva matriz con el producto, con los mismos bits fraccionarios que esta matriz.
+    * 
+    * @exception CvmIncompatibleMatrixSizeException La matrices no pueden ser multiplicadas.
+    */
+    public CvmMatrixInt getFixedMul(CvmMatrixInt matrix) throws CvmIncompatibleMatrixSizeException {
+    	if(this.cols != matrix.rows)
+    		throw new CvmIncompatibleMatrixSizeException(matrix.rows, matrix.cols);
+
+    	int m = matrix.cols, shift = matrix.fractionBits;
+    	CvmMatrixInt result = new CvmMatrixInt(this.rows, m);
+    	result.setFractionBits(this.fractionBits);
+
+    	long[] acc = new long[m];
+
+    	for(int r = 0; r < this.rows; r++){
+    		Arrays.fill(acc, 0);
+
+    		for(int k = 0; k < this.cols; k++){
+    			long a = this.data[r * this.cols + k];
+    			if(a == 0)
+    				continue;
+
+    			int rowB = k * m;
+    			for(int j = 0; j < m; j++)
+    				acc[j] += a * matrix.data[rowB + j];
+    			}
+
+    		for(int j = 0; j < m; j++)
+    			result.data[r * m + j] = CvmMatrixInt.saturate(CvmMatrixInt.shiftRound(acc[j], shift));
+    		}
+
+    	return result;
+    	}
+
+   /**
+    * Producto de dos valores en coma fija: (a · b) / 2^bits con redondeo al más cercano y
+    * saturación al rango de los enteros.
+    * 
+    * @param a Primer factor.
+    * @param b Segundo factor.
+    * @param bits Bits fraccionarios que se eliminan del producto.
+    * 
+    * @return Producto reescalado.
+    */
+    public static int mulFixed(int a, int b, int bits){
+    	return CvmMatrixInt.saturate(CvmMatrixInt.shiftRound((long)a * b, bits));
+    	}
+
+   /**
+    * Divide por 2^bits con redondeo al más cercano.
+    */
+    static long shiftRound(long value, int bits){
+    	return (bits == 0) ? value : (value + (1L << (bits - 1))) >> bits;
+    	}
+
+   /**
+    * Divide por 2^bits truncando hacia cero, igual que la conversión (int) de un número real.
+    * Los negativos se desplazan tras sumar 2^bits - 1 en lugar de negarlos, de modo que el
+    * valor mínimo del tipo no desborda.
+    */
+    static int shiftTruncate(int value, int bits){
+    	return (value >= 0) ? value >> bits : (value + ((1 << bits) - 1)) >> bits;
+    	}
+
+   /**
+    * Limita un valor al rango de los enteros.
+    */
+    static int saturate(long value){
+    	if(value > Integer.MAX_VALUE)
+    		return Integer.MAX_VALUE;
+    	if(value < Integer.MIN_VALUE)
+    		return Integer.MIN_VALUE;
+
+    	return (int)value;
+    	}
+
+   /**
+    * Calcula los bits fraccionarios con los que el mayor valor absoluto de una matriz real
+    * ocupa la mayor parte posible de [-limit, limit] sin superarlo.
+    * 
+    * @param maxAbs Mayor valor absoluto de la matriz.
+    * @param limit Mayor valor entero admitido.
+    * 
+    * @return Bits fraccionarios entre 0 y MAX_FRACTION_BITS.
+    */
+    static int fractionBitsFor(double maxAbs, int limit){
+    	int bits = 0;
+
+    	while(bits < MAX_FRACTION_BITS && maxAbs * (1L << (bits + 1)) <= limit)
+    		bits++;
+
+    	return bits;
+    	}
+
+   /**
+    * Convierte la matriz en coma fija a una matriz de números reales, dividiendo cada
+    * elemento por 2^n.
+    * 
+    * @return Nueva matriz de números reales con los valores representados.
+    */
+    public CvmMatrixDouble toMatrixDouble(){
+    	CvmMatrixDouble copy = new CvmMatrixDouble(this.rows, this.cols);
+    	double scale = 1.0 / (1L << this.fractionBits);
+
+    	for(int i = 0; i < this.data.length; i++)
+    		copy.data[i] = this.data[i] * scale;
+
+    	return copy;
+    	}
+
     /**
      * Devuelve los datos contenido en la matriz en un Array de tipo entero.
      * 
@@ -709,17 +1175,17 @@ public class CvmMatrixInt extends CvmMatrix{
     */
     @Override
     public String toString(){
-        String str = new String("");
+        StringBuilder str = new StringBuilder();
 
         for(int r = 0; r < this.rows; r++){
             for(int c = 0; c < this.cols; c++){
                 double f = this.data[r * this.cols + c];
-                str += f + " ";
+                str.append(f).append(' ');
                 }
-            str += "\n";
+            str.append('\n');
             }
 
-        return str;
+        return str.toString();
         }
     
     /**
@@ -0,0 +1,495 @@
+/*******************************************************************************
+ * CVM - Computer Vision Mobile.
+ * Copyright (C) 2010 CVM Luis Ciudad García
+ * 
+ * File: CvmMatrixIntView.java - This file is part of CVM.
+ * 
+ * CVM is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * CVM is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with CVM.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package edu.uco.cvm.core;
+
+import edu.uco.cvm.exceptions.CvmIncompatibleMatrixSizeException;
+import edu.uco.cvm.exceptions.CvmSingularMatrixException;
+
+/**
+ * <p>Esta clase representa una región rectangular de una matriz de enteros (o de un canal) sin
+ * copiar sus datos. La vista guarda una referencia a los datos de la matriz original junto con
+ * la posición del primer elemento de la región y la longitud de cada fila de la matriz
+ * original, de modo que cualquier cambio hecho a través de la vista se refleja en la matriz
+ * original y viceversa.</p>
+ * 
+ * <p>Permite aplicar operaciones elemento a elemento, umbralizaciones, máscaras de convolución
+ * y calcular estadísticas sobre una región de interés de una imagen grande sin reservar
+ * memoria para una copia de la región.</p>
+ * 
+ * @version 1.0
+ */
+public class CvmMatrixIntView extends CvmMatrix {
+	/** Datos de la matriz original. */
+	protected final int[] data;
+	/** Posición en data del elemento (0, 0) de la vista. */
+	protected final int offset;
+	/** Número de elementos entre el comienzo de dos filas consecutivas, es decir, columnas de la matriz original. */
+	protected final int stride;
+
+	/**
+	 * Crea una vista sobre la región de la matriz indicada por los parámetros.
+	 * 
+	 * @param matrix Matriz sobre la que se crea la vista.
+	 * @param row Fila de la matriz original que ocupa la primera fila de la vista.
+	 * @param col Columna de la matriz original que ocupa la primera columna de la vista.
+	 * @param rows Número de filas de la vista.
+	 * @param cols Número de columnas de la vista.
+	 * 
+	 * @exception ArrayIndexOutOfBoundsException Se lanza si la región no está completamente
+	 * contenida en la matriz original.
+	 */
+	public CvmMatrixIntView(CvmMatrixInt matrix, int row, int col, int rows, int cols) throws ArrayIndexOutOfBoundsException {
+		this(matrix.data, matrix.rows, matrix.cols, 0, row, col, rows, cols, matrix.cols);
+		}
+
+	/**
+	 * Crea una vista sobre la región de otra vista indicada por los parámetros. La nueva vista
+	 * comparte los datos de la matriz original de la vista que se pasa como parámetro.
+	 * 
+	 * @param view Vista sobre la que se crea la nueva vista.
+	 * @param row Fila de la vista original que ocupa la primera fila de la nueva vista.
+	 * @param col Columna de la vista original que ocupa la primera columna de la nueva vista.
+	 * @param rows Número de filas de la nueva vista.
+	 * @param cols Número de columnas de la nueva vista.
+	 * 
+	 * @exception ArrayIndexOutOfBoundsException Se lanza si la región no está completamente
+	 * contenida en la vista original.
+	 */
+	public CvmMatrixIntView(CvmMatrixIntView view, int row, int col, int rows, int cols) throws ArrayIndexOutOfBoundsException {
+		this(view.data, view.rows, view.cols, view.offset, row, col, rows, cols, view.stride);
+		}
+
+	private CvmMatrixIntView(int[] data, int parentRows, int parentCols, int parentOffset, int row, int col, int rows, int cols, int stride) throws ArrayIndexOutOfBoundsException {
+		super(rows, cols);
+
+		if(rows < 0 || row < 0 || row + rows > parentRows)
+			throw new ArrayIndexOutOfBoundsException(row);
+		if(cols < 0 || col < 0 || col + cols > parentCols)
+			throw new ArrayIndexOutOfBoundsException(col);
+
+		this.data = data;
+		this.stride = stride;
+		this.offset = parentOffset + row * stride + col;
+		}
+
+	/**
+	 * Observador de la propiedad offset.
+	 * 
+	 * @return Posición en los datos de la matriz original del primer elemento de la vista.
+	 */
+	public int getOffset(){
+		return this.offset;
+		}
+
+	/**
+	 * Observador de la propiedad stride.
+	 * 
+	 * @return Número de elementos entre el comienzo de dos filas consecutivas de la vista.
+	 */
+	public int getStride(){
+		return this.stride;
+		}
+
+   /**
+    * Devuelve el valor del elemento de la vista que indican los parámetros.
+    * 
+    * @param row Fila del elemento al que se intenta acceder.
+    * @param col Columna del elemento al que se intenta acceder.
+    * 
+    * @return Valor del elemento apuntado por los parámetros.
+    * 
+    * @exception ArrayIndexOutOfBoundsException Se produce si los parámetros de filas y columnas
+    * no están dentro de los límites de la vista.
+    */
+    public int getElement(int row, int col) throws ArrayIndexOutOfBoundsException {
+    	if(row < 0 || row >= this.rows)
+    		throw new ArrayIndexOutOfBoundsException(row);
+    	if(col < 0 || col >= this.cols)
+    		throw new ArrayIndexOutOfBoundsException(col);
+
+    	return this.data[this.offset + row * this.stride + col];
+        }
+
+   /**
+    * Guarda el valor deseado en el elemento de la vista que indican los parámetros.
+    * 
+    * @param row Fila del elemento al que se intenta acceder.
+    * @param col Columna del elemento al que se intenta acceder.
+    * @param value Valor que se quiere guardar en la posición indicada.
+    * 
+    * @exception ArrayIndexOutOfBoundsException Se produce si los parámetros de filas y columnas
+    * no están dentro de los límites de la vista.
+    */
+    public void setElement(int row, int col, int value) throws ArrayIndexOutOfBoundsException {
+    	if(row < 0 || row >= this.rows)
+    		throw new ArrayIndexOutOfBoundsException(row);
+    	if(col < 0 || col >= this.cols)
+    		throw new ArrayIndexOutOfBoundsException(col);
+
+    	this.data[this.offset + row * this.stride + col] = value;
+        }
+
+   /**
+    * Crea una vista sobre una región de esta vista.
+    * 
+    * @param row Fila de la primera fila de la nueva vista.
+    * @param col Columna de la primera columna de la nueva vista.
+    * @param rows Número de filas de la nueva vista.
+    * @param cols Número de columnas de la nueva vista.
+    * 
+    * @return Nueva vista que comparte los datos con esta.
+    * 
+    * @exception ArrayIndexOutOfBoundsException Se lanza si la región no está completamente
+    * contenida en la vista.
+    */
+    public CvmMatrixIntView getView(int row, int col, int rows, int cols) throws ArrayIndexOutOfBoundsException {
+    	return new CvmMatrixIntView(this, row, col, rows, cols);
+    	}
+
+   /**
+    * Asigna el mismo valor a todos los elementos de la vista.
+    * 
+    * @param value Valor a asignar.
+    */
+    public void fill(int value){
+    	for(int r = 0, row = this.offset; r < this.rows; r++, row += this.stride)
+    		for(int c = row; c < row + this.cols; c++)
+    			this.data[c] = value;
+    	}
+
+   /**
+    * Copia en la región de la vista los valores de la matriz que se pasa como parámetro.
+    * 
+    * @param matrix Matriz con los valores a copiar.
+    * 
+    * @exception CvmIncompatibleMatrixSizeException Se produce si la matriz y la vista no son
+    * del mismo tamaño.
+    */
+    public void set(CvmMatrixInt matrix) throws CvmIncompatibleMatrixSizeException {
+    	this.checkSize(matrix);
+
+    	for(int r = 0; r < this.rows; r++)
+    		System.arraycopy(matrix.data, r * this.cols, this.data, this.offset + r * this.stride, this.cols);
+    	}
+
+   /**
+    * Suma elemento a elemento los valores de la vista con los de la matriz que se pasa
+    * como parámetro.
+    * 
+    * @param matrix Matriz con los elementos a sumar a la vista.
+    * 
+    * @exception CvmIncompatibleMatrixSizeException Se produce si la matriz y la vista no son
+    * del mismo tamaño.
+    */
+    public void add(CvmMatrixInt matrix) throws CvmIncompatibleMatrixSizeException {
+    	this.checkSize(matrix);
+
+    	for(int r = 0, i = 0, row = this.offset; r < this.rows; r++, row += this.stride)
+    		for(int c = row; c < row + this.cols; c++)
+    			this.data[c] += matrix.data[i++];
+        }
+
+   /**
+    * Resta elemento a elemento los valores de la matriz que se pasa como parámetro a los
+    * de la vista.
+    * 
+    * @param matrix Matriz con los elementos a restar de la vista.
+    * 
+    * @exception CvmIncompatibleMatrixSizeException Se produce si la matriz y la vista no son
+    * del mismo tamaño.
+    */
+    public void sub(CvmMatrixInt matrix) throws CvmIncompatibleMatrixSizeException {
+    	this.checkSize(matrix);
+
+    	for(int r = 0, i = 0, row = this.offset; r < this.rows; r++, row += this.stride)
+    		for(int c = row; c < row + this.cols; c++)
+    			this.data[c] -= matrix.data[i++];
+        }
+
+   /**
+    * Suma un valor a todos los elementos de la vista.
+    * 
+    * @param value Valor a sumar a todos los elementos de la vista.
+    */
+    public void add(int value){
+    	for(int r = 0, row = this.offset; r < this.rows; r++, row += this.stride)
+    		for(int c = row; c < row + this.cols; c++)
+    			this.data[c] += value;
+        }
+
+   /**
+    * Resta un valor a todos los elementos de la vista.
+    * 
+    * @param value Valor a restar a todos los elementos de la vista.
+    */
+    public void sub(int value){
+    	for(int r = 0, row = this.offset; r < this.rows; r++, row += this.stride)
+    		for(int c = row; c < row + this.cols; c++)
+    			this.data[c] -= value;
+        }
+
+   /**
+    * Multiplica todos los elementos de la vista por el valor indicado como parámetro.
+    * 
+    * @param factor Valor a multiplicar por cada uno de los elementos de la vista.
+    */
+    public void mul(int factor){
+    	for(int r = 0, row = this.offset; r < this.rows; r++, row += this.stride)
+    		for(int c = row; c < row + this.cols; c++)
+    			this.data[c] *= factor;
+        }
+
+   /**
+    * Divide todos los elementos de la vista por el valor indicado como parámetro.
+    * 
+    * @param factor Valor por el que dividir cada uno de los elementos de la vista.
+    * 
+    * @exception ArithmeticException Se lanza si se intenta una division entre cero.
+    */
+    public void div(int factor) throws ArithmeticException {
+    	if(factor == 0)
+    		throw new ArithmeticException();
+
+    	for(int r = 0, row = this.offset; r < this.rows; r++, row += this.stride)
+    		for(int c = row; c < row + this.cols; c++)
+    			this.data[c] /= factor;
+        }
+
+   /**
+    * Aplica una umbralización a los elementos de la vista con la misma semántica que
+    * CvmChannel.applyThreshold. En el método de Otsu el umbral se calcula a partir del
+    * histograma de la región.
+    * 
+    * @param threshold Valor umbral.
+    * @param max Valor máximo que se asigna a los elementos.
+    * @param method Método de umbralización (CvmChannel.THRES_BINARY, CvmChannel.THRES_OTSU...).
+    */
+    public void applyThreshold(int threshold, int max, int method){
+    	int min = 0;
+
+    	if(method == CvmChannel.THRES_OTSU)
+    		threshold = CvmChannel.calculateOtsuThreshold(new CvmHistogram(this), this.rows * this.cols);
+
+    	for(int r = 0, row = this.offset; r < this.rows; r++, row += this.stride){
+    		for(int c = row; c < row + this.cols; c++){
+    			int value = this.data[c];
+
+    			switch(method){
+    				default:
+    				case CvmChannel.THRES_BINARY:
+    				case CvmChannel.THRES_OTSU:
+    					this.data[c] = (value > threshold) ? max : min;
+    					break;
+    				case CvmChannel.THRES_BINARY_INV:
+    					this.data[c] = (value > threshold) ? min : max;
+    					break;
+    				case CvmChannel.THRES_TRUNC:
+    					this.data[c] = (value > threshold) ? threshold : value;
+    					break;
+    				case CvmChannel.THRES_TO_ZERO:
+    					this.data[c] = (value > threshold) ? threshold : min;
+    					break;
+    				case CvmChannel.THRES_TO_ZERO_INV:
+    					this.data[c] = (value > threshold) ? threshold : max;
+    					break;
+    				}
+    			}
+    		}
+    	}
+
+   /**
+    * <p>Aplica una máscara de convolución sobre los elementos de la vista con la misma
+    * semántica que CvmChannel.applyMask.</p>
+    * 
+    * <p>Los elementos vecinos se leen de la matriz original, por lo que los pixels del borde
+    * de la región usan los valores que la rodean. Solo se consideran cero los pixels que caen
+    * fuera de la matriz original. Únicamente se modifican los elementos de la vista.</p>
+    * 
+    * @param mask Máscara de convolución que se aplica. Debe ser cuadrada.
+    * 
+    * @exception CvmIncompatibleMatrixSizeException Se lanza si la máscara no es cuadrada.
+    */
+    public void applyMask(CvmMatrixDouble mask) throws CvmIncompatibleMatrixSizeException {
+    	if(mask.cols != mask.rows)
+    		throw new CvmIncompatibleMatrixSizeException(mask.rows, mask.cols);
+
+    	/** Una vista vacía no tiene pixels, y su stride puede ser cero */
+    	if(this.rows == 0 || this.cols == 0)
+    		return;
+
+    	int size = mask.cols;
+    	int off = (size % 2 == 0) ? (size / 2) - 1 : (size / 2);
+    	int parentRows = this.data.length / this.stride;
+    	int row0 = this.offset / this.stride;
+    	int col0 = this.offset % this.stride;
+
+    	CvmMatrixInt auxMask = mask.scaledMatrixInt();
+    	int bits = auxMask.getFractionBits();
+
+    	int[] outdata = new int[this.rows * this.cols];
+
+    	for(int r = 0; r < this.rows; r++){
+    		for(int c = 0; c < this.cols; c++){
+    			int pixelValue = 0;
+
+    			/** El elemento (a, b) de la máscara se aplica sobre el pixel desplazado b filas y a columnas */
+    			for(int a = 0; a < size; a++){
+    				int pc = col0 + c - off + a;
+    				if(pc < 0 || pc >= this.stride)
+    					continue;
+
+    				for(int b = 0; b < size; b++){
+    					int pr = row0 + r - off + b;
+    					if(pr < 0 || pr >= parentRows)
+    						continue;
+
+    					pixelValue += this.data[pr * this.stride + pc] * auxMask.data[a * size + b];
+    					}
+    				}
+
+    			outdata[r * this.cols + c] = CvmMatrixInt.shiftTruncate(pixelValue, bits);
+    			}
+    		}
+
+    	for(int r = 0; r < this.rows; r++)
+    		System.arraycopy(outdata, r * this.cols, this.data, this.offset + r * this.stride, this.cols);
+    	}
+
+   /**
+    * Calcula el valor mínimo de los elementos de la vista.
+    * 
+    * @return Valor mínimo de la región.
+    */
+    public int getMin(){
+    	int min = Integer.MAX_VALUE;
+
+    	for(int r = 0, row = this.offset; r < this.rows; r++, row += this.stride)
+    		for(int c = row; c < row + this.cols; c++)
+    			if(this.data[c] < min) min = this.data[c];
+
+    	return min;
+    	}
+
+   /**
+    * Calcula el valor máximo de los elementos de la vista.
+    * 
+    * @return Valor máximo de la región.
+    */
+    public int getMax(){
+    	int max = Integer.MIN_VALUE;
+
+    	for(int r = 0, row = this.offset; r < this.rows; r++, row += this.stride)
+    		for(int c = row; c < row + this.cols; c++)
+    			if(this.data[c] > max) max = this.data[c];
+
+    	return max;
+    	}
+
+   /**
+    * Calcula la suma de los elementos de la vista. Se acumula en un entero largo para que
+    * no se desborde con regiones grandes.
+    * 
+    * @return Suma de los elementos de la región.
+    */
+    public long getSum(){
+    	long sum = 0;
+
+    	for(int r = 0, row = this.offset; r < this.rows; r++, row += this.stride)
+    		for(int c = row; c < row + this.cols; c++)
+    			sum += this.data[c];
+
+    	return sum;
+    	}
+
+   /**
+    * Calcula la media de los elementos de la vista.
+    * 
+    * @return Media de los elementos de la región.
+    */
+    public double getMean(){
+    	return this.getSum() / (double)(this.rows * this.cols);
+    	}
+
+   /**
+    * Calcula la varianza de los elementos de la vista.
+    * 
+    * @return Varianza de los elementos de la región.
+    */
+    public double getVariance(){
+    	double mean = this.getMean();
+    	double variance = 0;
+
+    	for(int r = 0, row = this.offset; r < this.rows; r++, row += this.stride){
+    		for(int c = row; c < row + this.cols; c++){
+    			double diff = this.data[c] - mean;
+    			variance += diff * diff;
+    			}
+    		}
+
+    	return variance / (this.rows * this.cols);
+    	}
+
+   /**
+    * Calcula el histograma de los valores de la vista.
+    * 
+    * @return Nuevo histograma de la región.
+    */
+    public CvmHistogram getValuesHistogram(){
+    	return new CvmHistogram(this);
+    	}
+
+   /**
+    * Copia los elementos de la vista en una nueva matriz.
+    * 
+    * @return Nueva matriz con los valores de la región.
+    */
+    public CvmMatrixInt toMatrixInt(){
+    	CvmMatrixInt copy = new CvmMatrixInt(this.rows, this.cols);
+
+    	for(int r = 0; r < this.rows; r++)
+    		System.arraycopy(this.data, this.offset + r * this.stride, copy.data, r * this.cols, this.cols);
+
+    	return copy;
+    	}
+
+   /**
+    * Calcula la inversa de los valores de la región.
+    * 
+    * @return Nueva matriz con la inversa de la región.
+    * 
+    * @exception CvmSingularMatrixException La región es singular y no tiene inversa.
+    * @exception CvmIncompatibleMatrixSizeException La región no es cuadrada.
+    */
+    public CvmMatrixDouble getInverse() throws CvmSingularMatrixException, CvmIncompatibleMatrixSizeException {
+    	return this.toMatrixInt().getInverse();
+    	}
+
+    /**
+     * Comprueba que la matriz que se pasa como parámetro tiene las mismas dimensiones que
+     * la vista.
+     * 
+     * @exception CvmIncompatibleMatrixSizeException Las dimensiones no coinciden.
+     */
+    private void checkSize(CvmMatrixInt matrix) throws CvmIncompatibleMatrixSizeException {
+        if(this.rows != matrix.rows || this.cols != matrix.cols){
+            throw new CvmIncompatibleMatrixSizeException(matrix.rows, matrix.cols);
+            }
+        }
+	}
@@ -1,6 +1,6 @@
 /*******************************************************************************
  * CVM - Computer Vision Mobile.
- * Copyright (C) 2010 CVM Luis Ciudad Garca
+ * Copyright (C) 2010 CVM Luis Ciudad García
  * 
  * File: CvmMatrixShort.java - This file is part of CVM.
  * 
@@ -19,6 +19,7 @@
  ******************************************************************************/
 package edu.uco.cvm.core;
 
+import java.math.BigInteger;
 import java.util.Arrays;
 
 import edu.uco.cvm.exceptions.CvmIncompatibleMatrixSizeException;
@@ -26,24 +27,31 @@ import edu.uco.cvm.exceptions.CvmSingularMatrixException;
 
 /**
  * <p>Esta clase representa un conjunto de valores ordenados en forma de matriz, los cuales
- * pueden ser accedidos a partir de la posicin que ocupan.</p>
+ * pueden ser accedidos a partir de la posición que ocupan.</p>
  * 
- * <p>En una representacin visual, el primer elemento ser el que ocupa la posicion (0,0) y
- * estara situado en la esquina superior izquierda de la matriz. A partir de ese punto la
+ * <p>En una representación visual, el primer elemento será el que ocupa la posicion (0,0) y
+ * estarí­a situado en la esquina superior izquierda de la matriz. A partir de ese punto la
  * primera coordenada crece hacia abajo, y la segunda hacia la derecha. (filas, columnas)</p>
  * 
- * <p>Una vez creado un objeto de este tipo su tamao permanece inalterado sin importar qu
- * operacin se realize sobre l. En caso de ejecutarse una accin que modificase el tamao
- * de la matriz, el resultado de ser retornado como un objeto nuevo permaneciendo el original 
- * sin ningn cambio.</p>
+ * <p>Una vez creado un objeto de este tipo su tamaño permanece inalterado sin importar qué
+ * operación se realize sobre él. En caso de ejecutarse una acción que modificase el tamaño
+ * de la matriz, el resultado de será retornado como un objeto nuevo permaneciendo el original 
+ * sin ningún cambio.</p>
  * 
- * @author Luis Ciudad Garca.
+ * @author Luis Ciudad García.
  * @version 1.0
  */
 
 public class CvmMatrixShort extends CvmMatrix{
 	/** Datos contenidos por la matriz. */
 	protected short[] data;
+	
+	/** Lado de los bloques en que se divide el producto de matrices grandes. */
+	static final int MUL_BLOCK_SIZE = 64;
+	/** Número de productos escalares a partir del cual el producto de matrices se realiza por bloques. */
+	static final long MUL_BLOCK_THRESHOLD = 64L * 64L * 64L;
+	/** Lado de los bloques en que se divide la trasposición de matrices. */
+	static final int TRANSPOSE_BLOCK_SIZE = 32;
     
 	/** Factor de escala de la matriz */
 	public double scaleFactor = 1;
@@ -52,8 +60,8 @@ public class CvmMatrixShort extends CvmMatrix{
 	 * Crea una matriz de las dimensiones correspondientes a los parametros e inicializa los 
 	 * datos al valor por defecto.
 	 * 
-	 * @param rows Nmero de filas de la matriz.
-	 * @param cols Nmero de columnas de la matriz.
+	 * @param rows Número de filas de la matriz.
+	 * @param cols Número de columnas de la matriz.
 	 * 
 	 * @exception NegativeArraySizeException Se lanza si se shortenta crear una matriz de
 	 * dimensiones negativas.
@@ -61,26 +69,26 @@ public class CvmMatrixShort extends CvmMatrix{
 	public CvmMatrixShort(int rows, int cols) throws NegativeArraySizeException{
 		super(rows, cols);
 		
-		this.data = new short[rows*cols];
+		this.data = CvmBufferPool.allocShort(rows * cols, true);
 		}
 
 	/**
 	 * Copia la matriz nativa de Java a una matriz CVM con las dimensiones indicadas y
 	 * los valores proporcionados.
 	 * 
-	 * @param rows Nmero de filas de la matriz.
-	 * @param cols Nmero de columnas de la matriz.
-	 * @param value Matriz nativa con el valor que tomar cada uno de los elementos.
+	 * @param rows Número de filas de la matriz.
+	 * @param cols Número de columnas de la matriz.
+	 * @param value Matriz nativa con el valor que tomará cada uno de los elementos.
 	 * 
 	 * @exception NegativeArraySizeException Se lanza si se shortenta crear una matriz de
 	 * dimensiones negativas.
-	 * @exception ArrayIndexOutOfBoundsException Se lanza si el tamao de la matriz nativa no coincide con la que
+	 * @exception ArrayIndexOutOfBoundsException Se lanza si el tamaño de la matriz nativa no coincide con la que
 	 * se quiere crear.
 	 */
      public CvmMatrixShort (int rows, int cols, short[][] values) throws NegativeArraySizeException, ArrayIndexOutOfBoundsException {    	 
     	 super(rows, cols);
 
-         this.data = new short[this.rows*this.cols];
+         this.data = CvmBufferPool.allocShort(this.rows * this.cols, false);
 
          if(values.length != this.rows)
     		 throw new ArrayIndexOutOfBoundsException(values.length);
@@ -98,9 +106,9 @@ public class CvmMatrixShort extends CvmMatrix{
 	 * Crea una matriz a partir de un vector de elementos, los cuales se consideran
 	 * ordenados por filas.
 	 * 
-	 * @param rows Nmero de filas de la matriz.
-	 * @param cols Nmero de columnas de la matriz.
-	 * @param value Valor que tomar cada uno de los elementos.
+	 * @param rows Número de filas de la matriz.
+	 * @param cols Número de columnas de la matriz.
+	 * @param value Valor que tomará cada uno de los elementos.
 	 * 
 	 * @exception NegativeArraySizeException Se lanza si se shortenta crear una matriz de
 	 * dimensiones negativas.
@@ -113,16 +121,17 @@ public class CvmMatrixShort extends CvmMatrix{
 		if(values.length != this.rows*this.cols)
 			throw new ArrayIndexOutOfBoundsException(values.length);
 				
-		this.data = values.clone();
+		this.data = CvmBufferPool.allocShort(values.length, false);
+		System.arraycopy(values, 0, this.data, 0, values.length);
 		}
     
 	/**
 	 * Crea una matriz de las dimensiones correspondientes cuyos elementos toman
-	 * el valor pasado como parmetro.
+	 * el valor pasado como parámetro.
 	 * 
-	 * @param rows Nmero de filas de la matriz.
-	 * @param cols Nmero de columnas de la matriz.
-	 * @param value Valor que tomarn todos los elementos de la matriz creada.
+	 * @param rows Número de filas de la matriz.
+	 * @param cols Número de columnas de la matriz.
+	 * @param value Valor que tomarán todos los elementos de la matriz creada.
 	 * 
 	 * @exception NegativeArraySizeException Se lanza si se shortenta crear una matriz de
 	 * dimensiones negativas.
@@ -130,7 +139,7 @@ public class CvmMatrixShort extends CvmMatrix{
     public CvmMatrixShort(int rows, int cols, short value) throws NegativeArraySizeException{
         super(rows, cols);
 
-        this.data = new short[rows * cols];
+        this.data = CvmBufferPool.allocShort(rows * cols, false);
 
         Arrays.fill(this.data, value);
         }
@@ -138,15 +147,19 @@ public class CvmMatrixShort extends CvmMatrix{
    /**
     * <p>Constructor de copia de la clase CvmMatrix.</p>
     * 
-    * <p>Crea una matriz realizando una copia exacta de la que se pasa por parmetro
+    * <p>Crea una matriz realizando una copia exacta de la que se pasa por parámetro
     * manteniendo dos referencias distshortas e independientes.</p>
     * 
-    * @param matrix Matriz original que se copiar en la nueva.
+    * <p>Si hay un ámbito de CvmBufferPool abierto en el hilo, la copia también toma sus datos
+    * del almacén y los pierde al cerrarlo. Para conservarla utilice CvmBufferPool.keep.</p>
+    * 
+    * @param matrix Matriz original que se copiará en la nueva.
     */
     public CvmMatrixShort(CvmMatrixShort matrix){
         super(matrix.rows, matrix.cols);
 
-        this.data = matrix.data.clone();
+        this.data = CvmBufferPool.allocShort(matrix.data.length, false);
+        System.arraycopy(matrix.data, 0, this.data, 0, matrix.data.length);
         }
 
    /**
@@ -166,15 +179,15 @@ public class CvmMatrixShort extends CvmMatrix{
 
 
    /**
-    * Devuelve el valor del elemento de la matriz que indican los parmetros.
+    * Devuelve el valor del elemento de la matriz que indican los parámetros.
     * 
     * @param row Fila del elemento al que se shortenta acceder.
     * @param col Columna del elemento al que se shortenta acceder.
     * 
-    * @return Valor del elemento apuntado por los parmetros.
+    * @return Valor del elemento apuntado por los parámetros.
     * 
-    * @exception ArrayIndexOutOfBoundsException Se produce si los parmetros de filas y columnas 
-    * no estn dentro de los lmites de la matriz.
+    * @exception ArrayIndexOutOfBoundsException Se produce si los parámetros de filas y columnas 
+    * no están dentro de los límites de la matriz.
     */
     public short getElement (int row, int col) throws ArrayIndexOutOfBoundsException {
     	if(row < 0 || row >= this.rows)
@@ -186,14 +199,14 @@ public class CvmMatrixShort extends CvmMatrix{
         }
 
    /**
-    * Guarda el valor deseado en el elemento de la matriz que indican los parmetros.
+    * Guarda el valor deseado en el elemento de la matriz que indican los parámetros.
     * 
     * @param row Fila del elemento al que se shortenta acceder.
     * @param col Columna del elemento al que se shortenta acceder.
-    * @param value Valor que se quiere guardar en la posicin indicada.
+    * @param value Valor que se quiere guardar en la posición indicada.
     * 
-    * @exception ArrayIndexOutOfBoundsException Se produce si los parmetros de filas y columnas
-    * no estn dentro de los lmites de la matriz.
+    * @exception ArrayIndexOutOfBoundsException Se produce si los parámetros de filas y columnas
+    * no están dentro de los límites de la matriz.
     */
     public void setElement(int row, int col, short value) throws ArrayIndexOutOfBoundsException {
     	if(row < 0 || row >= this.rows)
@@ -206,38 +219,36 @@ public class CvmMatrixShort extends CvmMatrix{
 
    /**
     * Suma elemento a elemento los valores de la matriz original con los de la
-    * matriz que se pasa como parmetro.
+    * matriz que se pasa como parámetro.
     * 
     * @param matrix Matriz con los elementos a sumar a la matriz original.
     * 
     * @exception CvmIcompatibleMatrixSizeException Se produce si las matrices no son 
-    * del mismo tamao.
+    * del mismo tamaño.
     */
     public void add(CvmMatrixShort matrix) throws CvmIncompatibleMatrixSizeException {
         if(this.rows != matrix.rows || this.cols != matrix.cols){
             throw new CvmIncompatibleMatrixSizeException(matrix.rows, matrix.cols);
             }
 
-        for(int i = 0; i < this.data.length; i++)
-        	this.data[i] += matrix.data[i];
+        CvmKernels.add(this.data, matrix.data, this.data, this.data.length);
         }
 
    /**
     * Resta elemento a elemento los valores de la matriz original con los de la
-    * matriz que se pasa como parmetro.
+    * matriz que se pasa como parámetro.
     * 
     * @param matrix Matriz con los elementos a restar de la matriz original.
     * 
     * @exception CvmIcompatibleMatrixSizeException Se produce si las matrices no son 
-    * del mismo tamao.
+    * del mismo tamaño.
     */
     public void sub(CvmMatrixShort matrix) throws CvmIncompatibleMatrixSizeException {
     	if(this.rows != matrix.rows || this.cols != matrix.cols){
             throw new CvmIncompatibleMatrixSizeException(matrix.rows, matrix.cols);
             }
 
-        for(int i = 0; i < this.data.length; i++)
-        	this.data[i] -= matrix.data[i];
+        CvmKernels.sub(this.data, matrix.data, this.data, this.data.length);
         }
 
 	/**
@@ -246,8 +257,7 @@ public class CvmMatrixShort extends CvmMatrix{
 	 * @param value Valor a sumar a todos los elementos de la matriz original.
 	 */
 	 public void add(short value) {
-	 	for(int i = 0; i < this.data.length; i++)
-	     	this.data[i] += value;
+	 	CvmKernels.add(this.data, value, this.data, this.data.length);
 	     }
     
 	 /**
@@ -256,22 +266,20 @@ public class CvmMatrixShort extends CvmMatrix{
 	  * @param value Valor a restar a todos los elementos de la matriz original.
 	  */
 	 public void sub(short value) {
-		 for(int i = 0; i < this.data.length; i++)
-			 this.data[i] -= value;
+		 CvmKernels.sub(this.data, value, this.data, this.data.length);
 	 	}
 
    /**
-    * Multiplica todos los elementos de la matriz original por el valor indicado como parmetro.
+    * Multiplica todos los elementos de la matriz original por el valor indicado como parámetro.
     * 
     * @param factor Valor a multiplicar por cada uno de los elementos de la matriz original.
     */
     public void mul(short factor){
-    	for(int i = 0; i < this.data.length; i++)
-        	this.data[i] *= factor;
+    	CvmKernels.mul(this.data, factor, this.data, this.data.length);
         }
 
    /**
-    * Divide todos los elementos de la matriz original por el valor indicado como parmetro.
+    * Divide todos los elementos de la matriz original por el valor indicado como parámetro.
     * 
     * @param factor Valor por el que dividir cada uno de los elementos de la matriz original.
     * 
@@ -281,29 +289,22 @@ public class CvmMatrixShort extends CvmMatrix{
     	if(factor == 0)
     		throw new ArithmeticException();
     	
-    	double aux = 1/factor;
-    	
-    	for(int i = 0; i < this.data.length; i++)
-        	this.data[i] = (short)(this.data[i] * aux);
+    	CvmKernels.div(this.data, factor, this.data, this.data.length);
         }
 
    /**
     * Suma elemento a elemento los valores de la matriz original con los de la
-    * matriz que se pasa como parmetro y devuelve el resultado en una nueva instancia.
+    * matriz que se pasa como parámetro y devuelve el resultado en una nueva instancia.
     * 
     * @param matrix Matriz con los elementos a sumar a la matriz original.
     * 
-    * @return Nueva matriz con el resultado de la operacin de suma de las dos matrices.
+    * @return Nueva matriz con el resultado de la operación de suma de las dos matrices.
     * 
     * @exception CvmIncompatibleMatrixSizeException Se produce si las matrices no son 
-    * del mismo tamao.
+    * del mismo tamaño.
     */
     public CvmMatrixShort getAdd(CvmMatrixShort matrix) throws CvmIncompatibleMatrixSizeException {
-        CvmMatrixShort copy = new CvmMatrixShort(this);
-
-        copy.add(matrix);
-
-        return copy;
+        return this.getAdd(matrix, new CvmMatrixShort(this.rows, this.cols));
         }
 
    /**
@@ -312,34 +313,26 @@ public class CvmMatrixShort extends CvmMatrix{
     * 
     * @param value Valor a sumar a todos los elementos de la matriz original.
     * 
-    * @return Nueva matriz con el resultado de la operacin de suma de la matriz
-    * original y el valor que se pasa como parmetro.
+    * @return Nueva matriz con el resultado de la operación de suma de la matriz
+    * original y el valor que se pasa como parámetro.
     */
     public CvmMatrixShort getAdd(short value){
-        CvmMatrixShort copy = new CvmMatrixShort(this);
-
-        copy.add(value);
-
-        return copy;
+        return this.getAdd(value, new CvmMatrixShort(this.rows, this.cols));
         }
 
    /**
     * Resta elemento a elemento los valores de la matriz original con los de la
-    * matriz que se pasa como parmetro y devuelve el resultado en una nueva instancia.
+    * matriz que se pasa como parámetro y devuelve el resultado en una nueva instancia.
     * 
     * @param matrix Matriz con los elementos a restar a la matriz original.
     * 
-    * @return Nueva matriz con el resultado de la operacin de resta de las dos matrices.
+    * @return Nueva matriz con el resultado de la operación de resta de las dos matrices.
     * 
     * @exception CvmIncompatibleMatrixSizeException Se produce si las matrices no son 
-    * del mismo tamao.
+    * del mismo tamaño.
     */
     public CvmMatrixShort getSub(CvmMatrixShort matrix) throws CvmIncompatibleMatrixSizeException {
-        CvmMatrixShort copy = new CvmMatrixShort(this);
-
-        copy.sub(matrix);
-
-        return copy;
+        return this.getSub(matrix, new CvmMatrixShort(this.rows, this.cols));
         }
 
    /**
@@ -348,30 +341,26 @@ public class CvmMatrixShort extends CvmMatrix{
     * 
     * @param value Valor a restar a todos los elementos de la matriz original.
     * 
-    * @return Nueva matriz con el resultado de la operacin de resta de la matriz
-    * original y el valor que se pasa como parmetro.
+    * @return Nueva matriz con el resultado de la operación de resta de la matriz
+    * original y el valor que se pasa como parámetro.
     */
     public CvmMatrixShort getSub(short value) {
-        CvmMatrixShort copy = new CvmMatrixShort(this);
-
-        copy.sub(value);
-
-        return copy;
+        return this.getSub(value, new CvmMatrixShort(this.rows, this.cols));
         }
 
 
    /**
-    * Realiza la multiplicacin de dos matrices, siempre que sea posible, y devuelve
+    * Realiza la multiplicación de dos matrices, siempre que sea posible, y devuelve
     * el resultado en una nueva matriz.
     * 
-    * @param matrix Matriz que se multiplicar por la derecha de la matriz original.
+    * @param matrix Matriz que se multiplicará por la derecha de la matriz original.
     * 
-    * @return Nueva matriz con el resultado de la operacin de multiplicacin de
+    * @return Nueva matriz con el resultado de la operación de multiplicación de
     * ambas matrices.
     * 
     * @exception CvmIcompatibleMatrixSizeException La matrices no pueden ser multiplicadas.
-    * La matriz original debe tener el mismo nmero de columnas que filas tenga la
-    * matriz que se pasa por parmetro.
+    * La matriz original debe tener el mismo número de columnas que filas tenga la
+    * matriz que se pasa por parámetro.
     */
     public CvmMatrixShort getMul(CvmMatrixShort matrix) throws CvmIncompatibleMatrixSizeException {
         if(this.cols != matrix.rows){
@@ -380,15 +369,126 @@ public class CvmMatrixShort extends CvmMatrix{
 
         CvmMatrixShort result = new CvmMatrixShort(this.rows, matrix.cols);
 
-        for(int r = 0; r < result.rows; r++){
-            for(int c = 0; c < result.cols; c++){
-                for(short k = 0; k < this.cols; k++) {
-                    result.data[r * result.cols + c] += this.data[r * this.cols + k] * matrix.data[k * matrix.cols + c];
-                    }
+        CvmMatrixShort.mul(this.data, matrix.data, result.data, this.rows, this.cols, matrix.cols);
+
+        return result;
+        }
+
+   /**
+    * Realiza la multiplicación de dos matrices y guarda el resultado en la matriz destino,
+    * de modo que se puede reutilizar la misma matriz en sucesivas operaciones. Si la matriz
+    * destino comparte los datos con alguno de los operandos el producto se calcula en una
+    * matriz auxiliar y después se copia sobre ella.
+    * 
+    * @param matrix Matriz que se multiplicará por la derecha de la matriz original.
+    * @param dest Matriz en la que se guarda el resultado. Debe tener tantas filas como la
+    * matriz original y tantas columnas como la matriz que se pasa por parámetro.
+    * 
+    * @return La matriz destino.
+    * 
+    * @exception CvmIcompatibleMatrixSizeException La matrices no pueden ser multiplicadas o
+    * la matriz destino no tiene las dimensiones del resultado.
+    */
+    public CvmMatrixShort getMul(CvmMatrixShort matrix, CvmMatrixShort dest) throws CvmIncompatibleMatrixSizeException {
+        if(this.cols != matrix.rows){
+            throw new CvmIncompatibleMatrixSizeException(matrix.rows, matrix.cols);
+            }
+        if(dest.rows != this.rows || dest.cols != matrix.cols){
+            throw new CvmIncompatibleMatrixSizeException(dest.rows, dest.cols);
+            }
+
+        if(dest.data == this.data || dest.data == matrix.data){
+        	short[] result = new short[dest.data.length];
+        	CvmMatrixShort.mul(this.data, matrix.data, result, this.rows, this.cols, matrix.cols);
+        	System.arraycopy(result, 0, dest.data, 0, result.length);
+        	}
+        else{
+        	Arrays.fill(dest.data, (short)0);
+        	CvmMatrixShort.mul(this.data, matrix.data, dest.data, this.rows, this.cols, matrix.cols);
+        	}
+
+        return dest;
+        }
+
+    /**
+     * Acumula sobre c el producto de a (rows x n) por b (n x m), eligiendo el producto por
+     * bloques cuando el número de productos escalares alcanza MUL_BLOCK_THRESHOLD.
+     */
+    static void mul(short[] a, short[] b, short[] c, int rows, int n, int m){
+        if((long)rows * n * m < CvmMatrixShort.MUL_BLOCK_THRESHOLD)
+        	CvmMatrixShort.mulBlock(a, b, c, n, m, 0, rows, 0, m, 0, n);
+        else
+        	CvmMatrixShort.mulBlocked(a, b, c, n, m, 0, rows, 0, m);
+        }
+
+    /**
+     * <p>Acumula sobre c el producto de la submatriz de a formada por las filas [r0, r1) y las
+     * columnas [k0, k1) por la submatriz de b formada por las filas [k0, k1) y las columnas
+     * [c0, c1). Todas las matrices se almacenan por filas.</p>
+     * 
+     * <p>El bucle sigue el orden fila-interno-columna (i-k-j), de modo que b y c se recorren
+     * siempre por filas, y procesa cuatro elementos de a por iteración para reutilizar cada
+     * fila de c mientras está en los registros.</p>
+     * 
+     * @param a Datos de la matriz izquierda.
+     * @param b Datos de la matriz derecha.
+     * @param c Datos de la matriz resultado.
+     * @param n Número de columnas de a (y de filas de b).
+     * @param m Número de columnas de b (y de c).
+     */
+    static void mulBlock(short[] a, short[] b, short[] c, int n, int m, int r0, int r1, int c0, int c1, int k0, int k1){
+        for(int r = r0; r < r1; r++){
+            int rowA = r * n;
+            int rowC = r * m;
+            int k = k0;
+
+            for(; k + 3 < k1; k += 4){
+                int a0 = a[rowA + k];
+                int a1 = a[rowA + k + 1];
+                int a2 = a[rowA + k + 2];
+                int a3 = a[rowA + k + 3];
+                int b0 = k * m;
+                int b1 = b0 + m;
+                int b2 = b1 + m;
+                int b3 = b2 + m;
+
+                for(int j = c0; j < c1; j++)
+                    c[rowC + j] += a0 * b[b0 + j] + a1 * b[b1 + j] + a2 * b[b2 + j] + a3 * b[b3 + j];
+                }
+
+            for(; k < k1; k++){
+                int a0 = a[rowA + k];
+                int b0 = k * m;
+
+                for(int j = c0; j < c1; j++)
+                    c[rowC + j] += a0 * b[b0 + j];
                 }
             }
+        }
 
-        return result;
+    /**
+     * Calcula por bloques de MUL_BLOCK_SIZE la región [r0, r1) x [c0, c1) del producto de a por b,
+     * de forma que los bloques de ambas matrices que intervienen en cada paso quepan en la caché.
+     * Cada elemento del resultado acumula los bloques internos siempre en el mismo orden, por lo
+     * que el resultado no depende de cómo se reparta la región.
+     * 
+     * @param a Datos de la matriz izquierda.
+     * @param b Datos de la matriz derecha.
+     * @param c Datos de la matriz resultado.
+     * @param n Número de columnas de a (y de filas de b).
+     * @param m Número de columnas de b (y de c).
+     */
+    static void mulBlocked(short[] a, short[] b, short[] c, int n, int m, int r0, int r1, int c0, int c1){
+        for(int rb = r0; rb < r1; rb += CvmMatrixShort.MUL_BLOCK_SIZE){
+            int re = Math.min(rb + CvmMatrixShort.MUL_BLOCK_SIZE, r1);
+
+            for(int kb = 0; kb < n; kb += CvmMatrixShort.MUL_BLOCK_SIZE){
+                int ke = Math.min(kb + CvmMatrixShort.MUL_BLOCK_SIZE, n);
+
+                for(int cb = c0; cb < c1; cb += CvmMatrixShort.MUL_BLOCK_SIZE)
+                    CvmMatrixShort.mulBlock(a, b, c, n, m, rb, re, cb, Math.min(cb + CvmMatrixShort.MUL_BLOCK_SIZE, c1), kb, ke);
+                }
+            }
         }
 
 
@@ -398,15 +498,11 @@ public class CvmMatrixShort extends CvmMatrix{
     * 
     * @param factor Valor por el que se multiplican todos los elementos de la matriz original.
     * 
-    * @return Nueva matriz con el resultado de la operacin de multiplicacin de la matriz
-    * original y el valor que se pasa como parmetro.
+    * @return Nueva matriz con el resultado de la operación de multiplicación de la matriz
+    * original y el valor que se pasa como parámetro.
     */
     public CvmMatrixShort getMul(short factor){
-        CvmMatrixShort copy = new CvmMatrixShort(this);
-
-        copy.mul(factor);
-
-        return copy;
+        return this.getMul(factor, new CvmMatrixShort(this.rows, this.cols));
         }
 
    /**
@@ -415,39 +511,234 @@ public class CvmMatrixShort extends CvmMatrix{
     * 
     * @param factor Valor por el que se dividen todos los elementos de la matriz original.
     * 
-    * @return Nueva matriz con el resultado de la operacin de divisin de la matriz
-    * original y el valor que se pasa como parmetro.
+    * @return Nueva matriz con el resultado de la operación de división de la matriz
+    * original y el valor que se pasa como parámetro.
     */
     public CvmMatrixShort getDiv(short factor){
-        CvmMatrixShort copy = new CvmMatrixShort(this);
+        return this.getDiv(factor, new CvmMatrixShort(this.rows, this.cols));
+        }
 
-        copy.div(factor);
+   /**
+    * Suma elemento a elemento los valores de la matriz original con los de la matriz que se
+    * pasa como parámetro y guarda el resultado en la matriz destino, que puede ser cualquiera
+    * de los dos operandos.
+    * 
+    * @param matrix Matriz con los elementos a sumar a la matriz original.
+    * @param dest Matriz en la que se guarda el resultado.
+    * 
+    * @return La matriz destino.
+    * 
+    * @exception CvmIncompatibleMatrixSizeException Se produce si las matrices no son 
+    * del mismo tamaño.
+    */
+    public CvmMatrixShort getAdd(CvmMatrixShort matrix, CvmMatrixShort dest) throws CvmIncompatibleMatrixSizeException {
+        this.checkSize(matrix);
+        this.checkSize(dest);
 
-        return copy;
+        CvmKernels.add(this.data, matrix.data, dest.data, this.data.length);
+
+        return dest;
+        }
+
+   /**
+    * Resta elemento a elemento los valores de la matriz que se pasa como parámetro a los de
+    * la matriz original y guarda el resultado en la matriz destino, que puede ser cualquiera
+    * de los dos operandos.
+    * 
+    * @param matrix Matriz con los elementos a restar a la matriz original.
+    * @param dest Matriz en la que se guarda el resultado.
+    * 
+    * @return La matriz destino.
+    * 
+    * @exception CvmIncompatibleMatrixSizeException Se produce si las matrices no son 
+    * del mismo tamaño.
+    */
+    public CvmMatrixShort getSub(CvmMatrixShort matrix, CvmMatrixShort dest) throws CvmIncompatibleMatrixSizeException {
+        this.checkSize(matrix);
+        this.checkSize(dest);
+
+        CvmKernels.sub(this.data, matrix.data, dest.data, this.data.length);
+
+        return dest;
+        }
+
+   /**
+    * Suma un valor a todos los elementos de la matriz original y guarda el resultado en
+    * la matriz destino, que puede ser la propia matriz original.
+    * 
+    * @param value Valor a sumar a todos los elementos de la matriz original.
+    * @param dest Matriz en la que se guarda el resultado.
+    * 
+    * @return La matriz destino.
+    * 
+    * @exception CvmIncompatibleMatrixSizeException Se produce si la matriz destino no es
+    * del mismo tamaño.
+    */
+    public CvmMatrixShort getAdd(short value, CvmMatrixShort dest) throws CvmIncompatibleMatrixSizeException {
+        this.checkSize(dest);
+
+        CvmKernels.add(this.data, value, dest.data, this.data.length);
+
+        return dest;
+        }
+
+   /**
+    * Resta un valor a todos los elementos de la matriz original y guarda el resultado en
+    * la matriz destino, que puede ser la propia matriz original.
+    * 
+    * @param value Valor a restar a todos los elementos de la matriz original.
+    * @param dest Matriz en la que se guarda el resultado.
+    * 
+    * @return La matriz destino.
+    * 
+    * @exception CvmIncompatibleMatrixSizeException Se produce si la matriz destino no es
+    * del mismo tamaño.
+    */
+    public CvmMatrixShort getSub(short value, CvmMatrixShort dest) throws CvmIncompatibleMatrixSizeException {
+        this.checkSize(dest);
+
+        CvmKernels.sub(this.data, value, dest.data, this.data.length);
+
+        return dest;
+        }
+
+   /**
+    * Multiplica por un valor todos los elementos de la matriz original y guarda el resultado
+    * en la matriz destino, que puede ser la propia matriz original.
+    * 
+    * @param factor Valor por el que se multiplican todos los elementos de la matriz original.
+    * @param dest Matriz en la que se guarda el resultado.
+    * 
+    * @return La matriz destino.
+    * 
+    * @exception CvmIncompatibleMatrixSizeException Se produce si la matriz destino no es
+    * del mismo tamaño.
+    */
+    public CvmMatrixShort getMul(short factor, CvmMatrixShort dest) throws CvmIncompatibleMatrixSizeException {
+        this.checkSize(dest);
+
+        CvmKernels.mul(this.data, factor, dest.data, this.data.length);
+
+        return dest;
+        }
+
+   /**
+    * Divide por un valor todos los elementos de la matriz original y guarda el resultado
+    * en la matriz destino, que puede ser la propia matriz original.
+    * 
+    * @param factor Valor por el que se dividen todos los elementos de la matriz original.
+    * @param dest Matriz en la que se guarda el resultado.
+    * 
+    * @return La matriz destino.
+    * 
+    * @exception CvmIncompatibleMatrixSizeException Se produce si la matriz destino no es
+    * del mismo tamaño.
+    * @exception ArithmeticException Se lanza si se intenta una division entre cero.
+    */
+    public CvmMatrixShort getDiv(short factor, CvmMatrixShort dest) throws CvmIncompatibleMatrixSizeException, ArithmeticException {
+        this.checkSize(dest);
+
+    	if(factor == 0)
+    		throw new ArithmeticException();
+    	
+        CvmKernels.div(this.data, factor, dest.data, this.data.length);
+
+        return dest;
+        }
+
+    /**
+     * Comprueba que la matriz que se pasa como parámetro tiene las mismas dimensiones que
+     * la matriz original.
+     * 
+     * @exception CvmIncompatibleMatrixSizeException Las matrices no son del mismo tamaño.
+     */
+    private void checkSize(CvmMatrixShort matrix) throws CvmIncompatibleMatrixSizeException {
+        if(this.rows != matrix.rows || this.cols != matrix.cols){
+            throw new CvmIncompatibleMatrixSizeException(matrix.rows, matrix.cols);
+            }
         }
     
    /**
     * shortercambia los elementos de filas y columnas de manera que se devuelve la
     * matriz traspuesta de la matriz original.
     * 
-    * @return Nueva matriz de tamao columnas por filas, que contiene los elementos
+    * @return Nueva matriz de tamaño columnas por filas, que contiene los elementos
     * de la matriz original pero cambiando filas por columnas.
     */
     public CvmMatrixShort getTranspose(){
         CvmMatrixShort copy = new CvmMatrixShort(this.cols, this.rows);
 
-        for(int r = 0; r < copy.rows; r++)
-            for(int c = 0; c < copy.cols; c++)
-                copy.setElement(r, c, this.getElement(c, r));
+        CvmMatrixShort.transpose(this.data, copy.data, this.rows, this.cols, 0, this.rows, 0, this.cols);
 
         return copy;
         }
 
+   /**
+    * Traspone la matriz sobre sus propios datos, sin reservar memoria adicional. Solo es
+    * posible si la matriz es cuadrada, ya que en otro caso cambiarían sus dimensiones.
+    * 
+    * @exception CvmIncompatibleMatrixSizeException La matriz no es cuadrada.
+    */
+    public void transpose() throws CvmIncompatibleMatrixSizeException {
+        if(this.rows != this.cols){
+            throw new CvmIncompatibleMatrixSizeException(this.rows, this.cols);
+            }
+
+        int n = this.rows;
+
+        for(int rb = 0; rb < n; rb += CvmMatrixShort.TRANSPOSE_BLOCK_SIZE){
+            int re = Math.min(rb + CvmMatrixShort.TRANSPOSE_BLOCK_SIZE, n);
+
+            for(int cb = rb; cb < n; cb += CvmMatrixShort.TRANSPOSE_BLOCK_SIZE){
+                int ce = Math.min(cb + CvmMatrixShort.TRANSPOSE_BLOCK_SIZE, n);
+
+                for(int r = rb; r < re; r++){
+                    /** En los bloques de la diagonal solo se recorre la parte superior */
+                    for(int c = Math.max(cb, r + 1); c < ce; c++){
+                        short aux = this.data[r * n + c];
+                        this.data[r * n + c] = this.data[c * n + r];
+                        this.data[c * n + r] = aux;
+                        }
+                    }
+                }
+            }
+        }
+
     /**
-     * Crea una matriz cuadrada del orden seleccionado cuya diagonal principal est
+     * <p>Copia en dst la traspuesta de la región [r0, r1) x [c0, c1) de src, siendo src una
+     * matriz de rows x cols almacenada por filas y dst una de cols x rows.</p>
+     * 
+     * <p>La región se divide por la mitad de su lado mayor hasta que cabe en un bloque de
+     * TRANSPOSE_BLOCK_SIZE, de modo que las filas de src y de dst que se recorren en cada
+     * bloque permanecen en la caché sea cual sea el tamaño de la matriz.</p>
+     */
+    static void transpose(short[] src, short[] dst, int rows, int cols, int r0, int r1, int c0, int c1){
+        while(r1 - r0 > CvmMatrixShort.TRANSPOSE_BLOCK_SIZE || c1 - c0 > CvmMatrixShort.TRANSPOSE_BLOCK_SIZE){
+            if(r1 - r0 >= c1 - c0){
+                int rm = (r0 + r1) >>> 1;
+                CvmMatrixShort.transpose(src, dst, rows, cols, r0, rm, c0, c1);
+                r0 = rm;
+                }
+            else{
+                int cm = (c0 + c1) >>> 1;
+                CvmMatrixShort.transpose(src, dst, rows, cols, r0, r1, c0, cm);
+                c0 = cm;
+                }
+            }
+
+        for(int r = r0; r < r1; r++){
+            int rowSrc = r * cols;
+
+            for(int c = c0; c < c1; c++)
+                dst[c * rows + r] = src[rowSrc + c];
+            }
+        }
+
+    /**
+     * Crea una matriz cuadrada del orden seleccionado cuya diagonal principal está
      * formada por el elemento 1.
      * 
-     * @param order Orden de la matriz (Nmero de filas y columnas).
+     * @param order Orden de la matriz (Número de filas y columnas).
      * 
      * @return Matriz identidad del orden especificado.
      * 
@@ -465,21 +756,29 @@ public class CvmMatrixShort extends CvmMatrix{
     
     /**
      * Calcula el determinante de la matriz, esta debe ser cuadrada.
-     * El mtodo usado para matrices de orden superior a 2 es el de Dolittle.
-     * Si la matriz es singular no se puede obtener el determinante y se lanza
-     * una excepcin.
+     * Para matrices de orden superior a 3 se usa el método indicado: DOOLITTLE_METHOD
+     * obtiene el determinante a partir de la descomposición LU con pivotación parcial
+     * (CvmLUDecomposition) y ADJUNCT_METHOD lo desarrolla por adjuntos. BAREISS_METHOD lo
+     * calcula de forma exacta con getExactDeterminant para cualquier orden.
+     * 
+     * @param method Método de cálculo (DOOLITTLE_METHOD, ADJUNCT_METHOD o BAREISS_METHOD).
      * 
-     * @return El determinante de la matriz.
+     * @return El determinante de la matriz, que vale cero si esta es singular.
      * 
      * @exception CvmIncompatibleMatrixSizeException La matriz no es cuadrada.
-     * @exception CvmSingularMatrixException Se lanza si el determinante no puede ser calculado
-     * mediante el algoritmo de Doolittle.
+     * @exception IllegalArgumentException El método no es ninguno de los anteriores.
      */    
-    public double getDeterminant(int method) throws CvmIncompatibleMatrixSizeException, CvmSingularMatrixException {
+    public double getDeterminant(int method) throws CvmIncompatibleMatrixSizeException, CvmSingularMatrixException, IllegalArgumentException {
         if(this.cols != this.rows){
             throw new CvmIncompatibleMatrixSizeException(this.rows, this.cols);
             }
 
+        /** El método exacto se usa en todos los órdenes, ya que la forma cerrada desborda */
+        if(method == CvmMatrixShort.BAREISS_METHOD)
+        	return this.getExactDeterminant().doubleValue();
+        if(method != CvmMatrixShort.DOOLITTLE_METHOD && method != CvmMatrixShort.ADJUNCT_METHOD)
+        	throw new IllegalArgumentException("Invalid determinant method: " + method);
+
         double det = 0;
 
         switch(this.cols){
@@ -502,64 +801,13 @@ public class CvmMatrixShort extends CvmMatrix{
         	break;
         default:
         	if(method == CvmMatrixShort.DOOLITTLE_METHOD){
-	        	CvmMatrixShort P = CvmMatrixShort.getIdentity(this.rows);
-	        	CvmMatrixShort L = new CvmMatrixShort(this.rows, this.cols, (short)0);
-	        	CvmMatrixShort U = new CvmMatrixShort(this);
-	        	
-	        	int pivotRow = 0;
-	        	double maxValue = 0;
-	        	
-	        	for(int i = 0; i < this.rows; i++){
-	        		
-	        		pivotRow = i;
-	        		
-	        		for(int j = i; j < this.rows; j++){
-	        			
-	        			if(maxValue < this.data[j * this.cols + i]){
-	        				maxValue = this.data[j * this.cols + i];
-	        				pivotRow = j;
-	        				}
-	        			}
-	        		
-	        		if(maxValue == 0)
-	        			throw new CvmSingularMatrixException(); //No se puede factorizar
-	        		
-	        		else if(pivotRow != i){
-	        			for(short j = 0; j < this.cols; j++){
-	        				short aux = P.data[i * this.cols + j];
-	        				P.data[i * this.cols + j] = P.data[pivotRow * this.cols + j];
-	        				P.data[pivotRow * this.cols + j] = aux;
-	        				
-	        				aux = L.data[i * this.cols + j];
-	        				L.data[i * this.cols + j] = L.data[pivotRow * this.cols + j];
-	        				L.data[pivotRow * this.cols + j] = aux;
-	        				
-	        				aux = U.data[i * this.cols + j];
-	        				U.data[i * this.cols + j] = U.data[pivotRow * this.cols + j];
-	        				U.data[pivotRow * this.cols + j] = aux;
-	        				}
-	        			}
-	        		
-	        		/** Hacer ceros por debajo de la diagonal */
-	        		for(int j = i+1; j < this.rows; j++){
-	        			double factor = U.data[j * this.cols + i] / U.data[i * this.cols + i];
-	        			for(int k = i; k < this.cols; k++){
-	        				U.data[j * this.cols + k] -= factor * U.data[i * this.cols + k];
-	        				}
-	        			
-	        			/** No es necesaria esta instruccion, solo informativa */
-	        			L.data[j * this.cols + i] = (short)-factor;
-	        			}
-	        		}
-	        	
-	        	det = 1;
-	            for(int i = 0; i < this.cols; i++)
-	            	det *= U.data[i * this.cols + i];
-	        	}
+        		det = new CvmLUDecomposition(this).getDeterminant();
+        		}
         	else if(method == CvmMatrixShort.ADJUNCT_METHOD){
+        		/** Desarrollo por los adjuntos de la primera fila */
         		det = 0;
-        		for(int i = 0; i < this.data.length; i++){
-        			det += this.data[i] * this.getAdjunctElement(i / this.cols, i % this.cols); 
+        		for(int c = 0; c < this.cols; c++){
+        			det += this.data[c] * this.getAdjunctElement(0, c); 
         			}
         		}
             
@@ -569,18 +817,40 @@ public class CvmMatrixShort extends CvmMatrix{
         return det;
         }
 
+    /**
+     * Calcula el determinante exacto de la matriz con el algoritmo de Bareiss, una
+     * eliminación gaussiana sin fracciones de coste n³. Se opera con longs y, si los valores
+     * intermedios crecen demasiado, se continúa con BigInteger, por lo que el resultado no
+     * tiene error de redondeo ni desbordamiento.
+     * 
+     * @return El determinante de la matriz, que vale cero si esta es singular o está vacía.
+     * 
+     * @exception CvmIncompatibleMatrixSizeException La matriz no es cuadrada.
+     */
+    public BigInteger getExactDeterminant() throws CvmIncompatibleMatrixSizeException {
+        if(this.cols != this.rows){
+            throw new CvmIncompatibleMatrixSizeException(this.rows, this.cols);
+            }
+
+        long[] values = new long[this.data.length];
+        for(int i = 0; i < values.length; i++)
+        	values[i] = this.data[i];
+
+        return CvmBareissDeterminant.determinant(values, this.rows);
+        }
+
     /**
      * Recupera la matriz adjunta a un elemento, es decir, devuelve una matriz con los mismos
      * elementos que la original en la que se han suprimido los elementos de la fila y la columna
      * indicados.
      * 
-     * @param row Fila del elemento. Esta fila ser eliminada en la matriz resultante.
-     * @param col Columna del elemento. Esta columna ser eliminada en la matriz resultante.
+     * @param row Fila del elemento. Esta fila será eliminada en la matriz resultante.
+     * @param col Columna del elemento. Esta columna será eliminada en la matriz resultante.
      * 
      * @return Matriz adjunta al elemento seleccionado.
      * 
-     * @exception ArrayIndexOutOfBoundsException Se produce si los parmetros de filas y columnas
-     * no estn dentro de los lmites de la matriz.
+     * @exception ArrayIndexOutOfBoundsException Se produce si los parámetros de filas y columnas
+     * no están dentro de los límites de la matriz.
      */
     public CvmMatrixShort getAdjunctMatrix(int row, int col) throws ArrayIndexOutOfBoundsException {
     	if(row < 0 || row >= this.rows)
@@ -606,16 +876,16 @@ public class CvmMatrixShort extends CvmMatrix{
     
     /**
      * Calcula el adjunto a un elemento. Esto significa que calcula el determinante de la
-     * matriz adjunta al elemento seleccionado. Esta operacin solo es vlida sobre matrices
+     * matriz adjunta al elemento seleccionado. Esta operación solo es válida sobre matrices
      * cuadradas.
      * 
      * @param row Fila del elemento.
      * @param col Columna del elemento.
      * 
-     * @return Valor del adjunto de la matriz que ocupa la posicin indicada.
+     * @return Valor del adjunto de la matriz que ocupa la posición indicada.
      * 
-     * @exception ArrayIndexOutOfBoundsException Se produce si los parmetros de filas y columnas
-     * no estn dentro de los lmites de la matriz.
+     * @exception ArrayIndexOutOfBoundsException Se produce si los parámetros de filas y columnas
+     * no están dentro de los límites de la matriz.
      * @exception CvmIncompatibleMatrixSizeException La matriz debe ser cuadrada.
      */
     public double getAdjunctElement(int row, int col) throws ArrayIndexOutOfBoundsException, CvmIncompatibleMatrixSizeException{
@@ -626,12 +896,7 @@ public class CvmMatrixShort extends CvmMatrix{
         
     	CvmMatrixShort adjunctMatrix = this.getAdjunctMatrix(row, col);
     	
-        try{
-        	det = adjunctMatrix.getDeterminant(CvmMatrixShort.DOOLITTLE_METHOD);
-        	}
-        catch(CvmSingularMatrixException e){
-        	det = adjunctMatrix.getDeterminant(CvmMatrixShort.ADJUNCT_METHOD);
-        	}
+        det = adjunctMatrix.getDeterminant(CvmMatrixShort.DOOLITTLE_METHOD);
     	
     	return Math.pow(-1, row+col) * det;
     	}
@@ -661,7 +926,8 @@ public class CvmMatrixShort extends CvmMatrix{
         }
     
     /**
-     * Calcula la inversa de una matriz si es posible.
+     * Calcula la inversa de una matriz si es posible a partir de su descomposición LU
+     * con pivotación parcial (CvmLUDecomposition).
      * 
      * @return La matriz inversa.
      * 
@@ -669,22 +935,7 @@ public class CvmMatrixShort extends CvmMatrix{
      * @exception CvmIncompatibleMatrixSizeException La matriz no es cuadrada.
      */ 
     public CvmMatrixDouble getInverse() throws CvmSingularMatrixException, CvmIncompatibleMatrixSizeException{
-        double det = 0;
-        
-        try{
-        	det = this.getDeterminant(CvmMatrixShort.DOOLITTLE_METHOD);
-        	}
-        catch(Exception e){
-        	det = this.getDeterminant(CvmMatrixShort.ADJUNCT_METHOD);
-        	}
-        
-        if(det == 0)
-        	throw new CvmSingularMatrixException();
-        
-    	CvmMatrixDouble copy = this.getAdjunctElementsMatrix().getTranspose();
-        copy.div(det);
-
-        return copy;
+        return new CvmLUDecomposition(this).getInverse();
         }
 
     /**
@@ -709,17 +960,17 @@ public class CvmMatrixShort extends CvmMatrix{
     */
     @Override
     public String toString(){
-        String str = new String("");
+        StringBuilder str = new StringBuilder();
 
         for(int r = 0; r < this.rows; r++){
             for(int c = 0; c < this.cols; c++){
                 short f = this.data[r * this.cols + c];
-                str += f + " ";
+                str.append(f).append(' ');
                 }
-            str += "\n";
+            str.append('\n');
             }
 
-        return str;
+        return str.toString();
         }
     
     /**
@@ -0,0 +1,439 @@
+/*******************************************************************************
+ * CVM - Computer Vision Mobile.
+ * Copyright (C) 2010 CVM Luis Ciudad García
+ * 
+ * File: CvmQRDecomposition.java - This file is part of CVM.
+ * 
+ * CVM is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * CVM is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with CVM.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package edu.uco.cvm.core;
+
+import edu.uco.cvm.exceptions.CvmIncompatibleMatrixSizeException;
+
+/**
+ * <p>Esta clase representa la descomposición QR de una matriz de m x n, con m &gt;= n, obtenida
+ * mediante reflexiones de Householder con pivotación de columnas, es decir, A·P = Q·R, siendo Q
+ * una matriz ortogonal, R una matriz triangular superior y P una permutación de las columnas de A.
+ * En cada paso se elige la columna restante de mayor norma, de modo que los elementos de la
+ * diagonal de R quedan ordenados de mayor a menor valor absoluto y el rango de la matriz se
+ * obtiene contando los que no son despreciables.</p>
+ * 
+ * <p>Su uso principal es resolver sistemas sobredeterminados por mínimos cuadrados (ajuste de
+ * rectas, planos u homografías a muchos puntos) con leastSquares, que es más preciso que
+ * resolver las ecuaciones normales porque no eleva al cuadrado el número de condición.</p>
+ * 
+ * <p>Un mismo objeto puede factorizar varias matrices llamando a decompose. Los arrays de
+ * trabajo solo se reservan de nuevo si la matriz no cabe en ellos, por lo que dentro de un
+ * bucle (por ejemplo en RANSAC) no se crea ningún objeto por iteración:</p>
+ * 
+ * <pre>
+ * CvmQRDecomposition qr = new CvmQRDecomposition(points, 3);
+ * for(...){
+ *     qr.decompose(sample);
+ *     qr.leastSquares(rhs, solution);
+ *     }
+ * </pre>
+ * 
+ * @version 1.0
+ */
+public class CvmQRDecomposition {
+	/** Filas de la matriz factorizada. */
+	private int rows;
+	/** Columnas de la matriz factorizada. */
+	private int cols;
+	/** Rango numérico de la matriz factorizada. */
+	private int rank;
+
+	/**
+	 * Vectores de Householder (diagonal y por debajo) y elementos de R (por encima de la diagonal)
+	 * ordenados por columnas: el elemento (i, j) ocupa la posición j * rows + i.
+	 */
+	private double[] qr;
+	/** Diagonal de R. Un cero indica que no se aplicó ninguna reflexión en esa columna. */
+	private double[] rdiag;
+	/** Columna de la matriz original que ocupa cada columna de la factorización. */
+	private int[] pivot;
+	/** Cuadrado de la norma de la parte restante de cada columna durante la factorización. */
+	private double[] norms;
+	/** Cuadrado de la norma de cada columna la última vez que se calculó de forma exacta. */
+	private double[] exactNorms;
+	/** Término independiente transformado por Q traspuesta durante la resolución. */
+	private double[] work;
+
+	/**
+	 * Crea un objeto sin ninguna matriz factorizada con los arrays de trabajo necesarios para
+	 * matrices de hasta rows x cols elementos.
+	 * 
+	 * @param rows Número máximo de filas previsto.
+	 * @param cols Número máximo de columnas previsto.
+	 */
+	public CvmQRDecomposition(int rows, int cols){
+		this.allocate(rows, cols);
+		}
+
+	/**
+	 * Calcula la descomposición QR de una matriz.
+	 * 
+	 * @param matrix Matriz a factorizar. No se modifica.
+	 * 
+	 * @exception CvmIncompatibleMatrixSizeException La matriz tiene más columnas que filas.
+	 */
+	public CvmQRDecomposition(CvmMatrixDouble matrix) throws CvmIncompatibleMatrixSizeException {
+		this(matrix.rows, matrix.cols);
+
+		this.decompose(matrix);
+		}
+
+	/**
+	 * Reserva los arrays de trabajo si los actuales son demasiado pequeños.
+	 */
+	private void allocate(int rows, int cols){
+		if(this.qr == null || this.qr.length < rows * cols)
+			this.qr = new double[rows * cols];
+		if(this.work == null || this.work.length < rows)
+			this.work = new double[rows];
+
+		if(this.rdiag == null || this.rdiag.length < cols){
+			this.rdiag = new double[cols];
+			this.pivot = new int[cols];
+			this.norms = new double[cols];
+			this.exactNorms = new double[cols];
+			}
+		}
+
+	/**
+	 * Factoriza una nueva matriz reutilizando los arrays de trabajo. La factorización anterior
+	 * se pierde.
+	 * 
+	 * @param matrix Matriz a factorizar. No se modifica.
+	 * 
+	 * @exception CvmIncompatibleMatrixSizeException La matriz tiene más columnas que filas.
+	 */
+	public void decompose(CvmMatrixDouble matrix) throws CvmIncompatibleMatrixSizeException {
+		if(matrix.rows < matrix.cols)
+			throw new CvmIncompatibleMatrixSizeException(matrix.rows, matrix.cols);
+
+		int m = matrix.rows, n = matrix.cols;
+
+		this.allocate(m, n);
+		this.rows = m;
+		this.cols = n;
+
+		/** Guardar por columnas para que las reflexiones recorran memoria contigua */
+		CvmMatrixDouble.transpose(matrix.data, this.qr, m, n, 0, m, 0, n);
+
+		double[] a = this.qr;
+
+		for(int j = 0; j < n; j++){
+			this.pivot[j] = j;
+			this.norms[j] = CvmQRDecomposition.dot(a, j * m, j * m, m);
+			this.exactNorms[j] = this.norms[j];
+			}
+
+		for(int k = 0; k < n; k++){
+			/** Elegir como pivote la columna restante de mayor norma */
+			int p = k;
+			for(int j = k + 1; j < n; j++)
+				if(this.norms[j] > this.norms[p])
+					p = j;
+
+			if(p != k){
+				for(int i = 0; i < m; i++){
+					double aux = a[k * m + i];
+					a[k * m + i] = a[p * m + i];
+					a[p * m + i] = aux;
+					}
+
+				int aux = this.pivot[k];
+				this.pivot[k] = this.pivot[p];
+				this.pivot[p] = aux;
+
+				this.norms[p] = this.norms[k];
+				this.exactNorms[p] = this.exactNorms[k];
+				}
+
+			/** Reflexión que anula la columna k por debajo de la diagonal */
+			int colK = k * m;
+			double norm = Math.sqrt(CvmQRDecomposition.dot(a, colK + k, colK + k, m - k));
+
+			if(norm == 0){
+				this.rdiag[k] = 0;
+				continue;
+				}
+
+			if(a[colK + k] < 0)
+				norm = -norm;
+			for(int i = k; i < m; i++)
+				a[colK + i] /= norm;
+			a[colK + k] += 1;
+
+			for(int j = k + 1; j < n; j++){
+				int colJ = j * m;
+				double s = -CvmQRDecomposition.dot(a, colK + k, colJ + k, m - k) / a[colK + k];
+
+				for(int i = k; i < m; i++)
+					a[colJ + i] += s * a[colK + i];
+
+				/** Descontar de la norma restante el elemento que pasa a formar parte de R.
+				 *  Si la cancelación la deja sin precisión se vuelve a calcular. */
+				double r = a[colJ + k];
+				this.norms[j] -= r * r;
+				if(this.norms[j] <= 1e-8 * this.exactNorms[j]){
+					this.norms[j] = CvmQRDecomposition.dot(a, colJ + k + 1, colJ + k + 1, m - k - 1);
+					this.exactNorms[j] = this.norms[j];
+					}
+				}
+
+			this.rdiag[k] = -norm;
+			}
+
+		/** Rango: elementos de la diagonal mayores que max(m, n) · |r00| · 2^-52 */
+		double tolerance = (n > 0) ? m * Math.abs(this.rdiag[0]) * Math.ulp(1.0) : 0;
+
+		this.rank = 0;
+		while(this.rank < n && Math.abs(this.rdiag[this.rank]) > tolerance)
+			this.rank++;
+		}
+
+	/**
+	 * Producto escalar de dos tramos de un array.
+	 */
+	private static double dot(double[] a, int i, int j, int length){
+		double s = 0;
+
+		for(int k = 0; k < length; k++)
+			s += a[i + k] * a[j + k];
+
+		return s;
+		}
+
+	/**
+	 * Número de filas de la matriz factorizada.
+	 * 
+	 * @return Filas de la matriz.
+	 */
+	public int getRows(){
+		return this.rows;
+		}
+
+	/**
+	 * Número de columnas de la matriz factorizada.
+	 * 
+	 * @return Columnas de la matriz.
+	 */
+	public int getCols(){
+		return this.cols;
+		}
+
+	/**
+	 * Rango numérico de la matriz factorizada, es decir, número de elementos de la diagonal de
+	 * R mayores que filas · |r00| · 2^-52.
+	 * 
+	 * @return Rango de la matriz.
+	 */
+	public int getRank(){
+		return this.rank;
+		}
+
+	/**
+	 * Indica si las columnas de la matriz factorizada son linealmente independientes.
+	 * 
+	 * @return true si el rango coincide con el número de columnas, false en caso contrario.
+	 */
+	public boolean isFullRank(){
+		return this.rank == this.cols;
+		}
+
+	/**
+	 * Devuelve la permutación de columnas P: la columna j de Q·R es la columna pivot[j] de la
+	 * matriz original.
+	 * 
+	 * @return Nuevo array con los índices de las columnas.
+	 */
+	public int[] getPivot(){
+		int[] copy = new int[this.cols];
+
+		System.arraycopy(this.pivot, 0, copy, 0, this.cols);
+
+		return copy;
+		}
+
+	/**
+	 * Devuelve la matriz triangular superior R.
+	 * 
+	 * @return Nueva matriz de columnas x columnas.
+	 */
+	public CvmMatrixDouble getR(){
+		int m = this.rows, n = this.cols;
+		CvmMatrixDouble r = new CvmMatrixDouble(n, n);
+
+		for(int i = 0; i < n; i++){
+			r.data[i * n + i] = this.rdiag[i];
+			for(int j = i + 1; j < n; j++)
+				r.data[i * n + j] = this.qr[j * m + i];
+			}
+
+		return r;
+		}
+
+	/**
+	 * Devuelve las primeras columnas de la matriz ortogonal Q, tantas como columnas tenga la
+	 * matriz factorizada, de modo que A·P = Q·R.
+	 * 
+	 * @return Nueva matriz de filas x columnas con columnas ortonormales.
+	 */
+	public CvmMatrixDouble getQ(){
+		int m = this.rows, n = this.cols;
+		double[] q = new double[n * m];
+
+		/** Aplicar las reflexiones en orden inverso a las columnas de la identidad */
+		for(int j = 0; j < n; j++){
+			int colJ = j * m;
+			q[colJ + j] = 1;
+
+			for(int k = n - 1; k >= 0; k--)
+				this.reflect(k, q, colJ);
+			}
+
+		CvmMatrixDouble result = new CvmMatrixDouble(m, n);
+		CvmMatrixDouble.transpose(q, result.data, n, m, 0, n, 0, m);
+
+		return result;
+		}
+
+	/**
+	 * Aplica la reflexión k al vector de rows elementos que empieza en offset.
+	 */
+	private void reflect(int k, double[] x, int offset){
+		if(this.rdiag[k] == 0)
+			return;
+
+		int m = this.rows, colK = k * m;
+		double s = 0;
+
+		for(int i = k; i < m; i++)
+			s += this.qr[colK + i] * x[offset + i];
+		s = -s / this.qr[colK + k];
+
+		for(int i = k; i < m; i++)
+			x[offset + i] += s * this.qr[colK + i];
+		}
+
+	/**
+	 * <p>Resuelve por mínimos cuadrados el sistema A·x = b, es decir, obtiene el x que minimiza
+	 * la norma de A·x - b, sin reservar memoria.</p>
+	 * 
+	 * <p>Si la matriz no tiene rango completo se devuelve la solución básica: las incógnitas de
+	 * las columnas que la pivotación deja fuera del rango valen cero.</p>
+	 * 
+	 * @param b Término independiente, con tantos elementos como filas tenga la matriz. No se
+	 * modifica.
+	 * @param x Array donde se guarda la solución, con tantos elementos como columnas tenga la
+	 * matriz.
+	 * 
+	 * @return Norma del residuo A·x - b.
+	 * 
+	 * @exception CvmIncompatibleMatrixSizeException Los arrays no tienen la longitud adecuada.
+	 */
+	public double leastSquares(double[] b, double[] x) throws CvmIncompatibleMatrixSizeException {
+		if(b.length != this.rows)
+			throw new CvmIncompatibleMatrixSizeException(b.length, 1);
+		if(x.length != this.cols)
+			throw new CvmIncompatibleMatrixSizeException(x.length, 1);
+
+		System.arraycopy(b, 0, this.work, 0, this.rows);
+
+		return this.solve(x, 0, 1);
+		}
+
+	/**
+	 * Resuelve por mínimos cuadrados el sistema A·X = B. Cada columna de B es un término
+	 * independiente distinto.
+	 * 
+	 * @param b Matriz de términos independientes, con tantas filas como la matriz factorizada.
+	 * No se modifica.
+	 * 
+	 * @return Nueva matriz X de columnas x b.getCols() con la solución.
+	 * 
+	 * @exception CvmIncompatibleMatrixSizeException El número de filas de b no coincide con el
+	 * de la matriz factorizada.
+	 */
+	public CvmMatrixDouble leastSquares(CvmMatrixDouble b) throws CvmIncompatibleMatrixSizeException {
+		CvmMatrixDouble x = new CvmMatrixDouble(this.cols, b.cols);
+
+		this.leastSquares(b, x);
+
+		return x;
+		}
+
+	/**
+	 * Resuelve por mínimos cuadrados el sistema A·X = B guardando la solución en una matriz ya
+	 * creada, sin reservar memoria.
+	 * 
+	 * @param b Matriz de términos independientes, con tantas filas como la matriz factorizada.
+	 * No se modifica.
+	 * @param x Matriz donde se guarda la solución, de columnas x b.getCols().
+	 * 
+	 * @exception CvmIncompatibleMatrixSizeException Las dimensiones de b o de x no son las
+	 * adecuadas.
+	 */
+	public void leastSquares(CvmMatrixDouble b, CvmMatrixDouble x) throws CvmIncompatibleMatrixSizeException {
+		if(b.rows != this.rows)
+			throw new CvmIncompatibleMatrixSizeException(b.rows, b.cols);
+		if(x.rows != this.cols || x.cols != b.cols)
+			throw new CvmIncompatibleMatrixSizeException(x.rows, x.cols);
+
+		for(int c = 0; c < b.cols; c++){
+			for(int i = 0; i < this.rows; i++)
+				this.work[i] = b.data[i * b.cols + c];
+
+			this.solve(x.data, c, b.cols);
+			}
+		}
+
+	/**
+	 * Transforma el término independiente guardado en work por Q traspuesta y resuelve el
+	 * sistema triangular con las primeras rank filas de R.
+	 * 
+	 * @param x Array donde se guarda la solución.
+	 * @param offset Posición de la primera incógnita en x.
+	 * @param stride Distancia entre dos incógnitas consecutivas en x.
+	 * 
+	 * @return Norma del residuo.
+	 */
+	private double solve(double[] x, int offset, int stride){
+		int m = this.rows, n = this.cols, r = this.rank;
+		double[] y = this.work;
+
+		for(int k = 0; k < n; k++)
+			this.reflect(k, y, 0);
+
+		/** Los elementos de Q traspuesta · b fuera del rango son el residuo */
+		double residual = CvmQRDecomposition.dot(y, r, r, m - r);
+
+		/** Sustitución hacia atrás por columnas de R, que están contiguas en qr */
+		for(int k = r - 1; k >= 0; k--){
+			y[k] /= this.rdiag[k];
+
+			int colK = k * m;
+			for(int i = 0; i < k; i++)
+				y[i] -= y[k] * this.qr[colK + i];
+			}
+
+		for(int k = 0; k < n; k++)
+			x[offset + this.pivot[k] * stride] = (k < r) ? y[k] : 0;
+
+		return Math.sqrt(residual);
+		}
+	}
@@ -0,0 +1,290 @@
+/*******************************************************************************
+ * CVM - Computer Vision Mobile.
+ * Copyright (C) 2010 CVM Luis Ciudad García
+ * 
+ * File: CvmSingularValueDecomposition.java - This file is part of CVM.
+ * 
+ * CVM is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * CVM is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with CVM.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package edu.uco.cvm.core;
+
+/**
+ * <p>Esta clase representa la descomposición en valores singulares de una matriz de m x n,
+ * A = U·S·Vt, siendo S una matriz diagonal con los valores singulares ordenados de mayor a menor
+ * y U y V matrices con columnas ortonormales. Se calcula la forma reducida: si m &gt;= n, U tiene
+ * m x n elementos y V n x n; si m &lt; n se descompone la traspuesta y se intercambian U y V.</p>
+ * 
+ * <p>Se utiliza el método de Jacobi por un lado (Hestenes): se aplican rotaciones a parejas de
+ * columnas de A hasta que todas son ortogonales entre sí. Entonces la norma de cada columna es un
+ * valor singular, la columna normalizada es la columna de U y las rotaciones acumuladas forman V.
+ * Es más lento que los métodos basados en bidiagonalización pero muy preciso, incluso para los
+ * valores singulares pequeños.</p>
+ * 
+ * <p>Las columnas se guardan como filas de arrays auxiliares, de modo que cada rotación recorre
+ * memoria contigua. Todos los arrays se reservan al crear el objeto.</p>
+ * 
+ * @version 1.0
+ */
+public class CvmSingularValueDecomposition {
+	/** Número máximo de barridos sobre todas las parejas de columnas. */
+	static final int MAX_SWEEPS = 64;
+	/** Precisión relativa con la que se consideran ortogonales dos columnas. */
+	static final double EPSILON = 1e-15;
+
+	/** Filas de la matriz original. */
+	private final int rows;
+	/** Columnas de la matriz original. */
+	private final int cols;
+	/** Indica si se ha descompuesto la traspuesta porque la matriz tiene más columnas que filas. */
+	private final boolean transposed;
+	/** Número de valores singulares, el menor de rows y cols. */
+	private final int rank;
+
+	/** Valores singulares ordenados de mayor a menor. */
+	private final double[] values;
+	/** Columnas de U (de la matriz descompuesta) guardadas como filas: rank x length. */
+	private final double[] u;
+	/** Columnas de V (de la matriz descompuesta) guardadas como filas: rank x rank. */
+	private final double[] v;
+	/** Longitud de las columnas de U de la matriz descompuesta. */
+	private final int length;
+
+	/**
+	 * Calcula la descomposición en valores singulares de una matriz.
+	 * 
+	 * @param matrix Matriz a descomponer. No se modifica.
+	 */
+	public CvmSingularValueDecomposition(CvmMatrixDouble matrix){
+		this.rows = matrix.rows;
+		this.cols = matrix.cols;
+		this.transposed = matrix.rows < matrix.cols;
+		this.rank = Math.min(matrix.rows, matrix.cols);
+		this.length = Math.max(matrix.rows, matrix.cols);
+
+		this.values = new double[this.rank];
+		this.u = new double[this.rank * this.length];
+		this.v = new double[this.rank * this.rank];
+
+		/** Las columnas de la matriz descompuesta (A o At) se copian como filas */
+		if(this.transposed)
+			System.arraycopy(matrix.data, 0, this.u, 0, matrix.data.length);
+		else
+			CvmMatrixDouble.transpose(matrix.data, this.u, matrix.rows, matrix.cols, 0, matrix.rows, 0, matrix.cols);
+
+		for(int i = 0; i < this.rank; i++)
+			this.v[i * this.rank + i] = 1;
+
+		this.orthogonalize();
+		this.normalize();
+		}
+
+	/**
+	 * Aplica rotaciones de Jacobi a cada pareja de columnas hasta que ninguna pareja deja de ser
+	 * ortogonal en más de EPSILON relativo.
+	 */
+	private void orthogonalize(){
+		int n = this.rank, len = this.length;
+		double[] a = this.u;
+
+		for(int sweep = 0; sweep < MAX_SWEEPS; sweep++){
+			boolean rotated = false;
+
+			for(int p = 0; p < n - 1; p++){
+				int rowP = p * len;
+
+				for(int q = p + 1; q < n; q++){
+					int rowQ = q * len;
+					double alpha = 0, beta = 0, gamma = 0;
+
+					for(int k = 0; k < len; k++){
+						double ap = a[rowP + k];
+						double aq = a[rowQ + k];
+						alpha += ap * ap;
+						beta += aq * aq;
+						gamma += ap * aq;
+						}
+
+					if(gamma == 0 || Math.abs(gamma) <= EPSILON * Math.sqrt(alpha * beta))
+						continue;
+
+					rotated = true;
+
+					double zeta = (beta - alpha) / (2 * gamma);
+					double t = ((zeta >= 0) ? 1 : -1) / (Math.abs(zeta) + Math.sqrt(1 + zeta * zeta));
+					double c = 1 / Math.sqrt(1 + t * t);
+					double s = c * t;
+
+					for(int k = 0; k < len; k++){
+						double ap = a[rowP + k];
+						double aq = a[rowQ + k];
+						a[rowP + k] = c * ap - s * aq;
+						a[rowQ + k] = s * ap + c * aq;
+						}
+
+					int vp = p * n, vq = q * n;
+					for(int k = 0; k < n; k++){
+						double xp = this.v[vp + k];
+						double xq = this.v[vq + k];
+						this.v[vp + k] = c * xp - s * xq;
+						this.v[vq + k] = s * xp + c * xq;
+						}
+					}
+				}
+
+			if(!rotated)
+				break;
+			}
+		}
+
+	/**
+	 * Obtiene los valores singulares como las normas de las columnas, normaliza las columnas de
+	 * U y ordena los valores de mayor a menor junto con sus columnas.
+	 */
+	private void normalize(){
+		int n = this.rank, len = this.length;
+
+		for(int j = 0; j < n; j++){
+			double norm = 0;
+			for(int k = 0; k < len; k++)
+				norm += this.u[j * len + k] * this.u[j * len + k];
+			norm = Math.sqrt(norm);
+
+			this.values[j] = norm;
+			if(norm > 0)
+				for(int k = 0; k < len; k++)
+					this.u[j * len + k] /= norm;
+			}
+
+		for(int i = 0; i < n - 1; i++){
+			int max = i;
+			for(int j = i + 1; j < n; j++)
+				if(this.values[j] > this.values[max])
+					max = j;
+
+			if(max != i){
+				double aux = this.values[i];
+				this.values[i] = this.values[max];
+				this.values[max] = aux;
+
+				CvmSingularValueDecomposition.swapRows(this.u, len, i, max);
+				CvmSingularValueDecomposition.swapRows(this.v, n, i, max);
+				}
+			}
+		}
+
+	/**
+	 * Intercambia dos filas de un array ordenado por filas.
+	 */
+	private static void swapRows(double[] x, int cols, int i, int j){
+		for(int k = 0; k < cols; k++){
+			double aux = x[i * cols + k];
+			x[i * cols + k] = x[j * cols + k];
+			x[j * cols + k] = aux;
+			}
+		}
+
+	/**
+	 * Devuelve los valores singulares ordenados de mayor a menor.
+	 * 
+	 * @return Nuevo array con min(filas, columnas) valores singulares.
+	 */
+	public double[] getSingularValues(){
+		return this.values.clone();
+		}
+
+	/**
+	 * Devuelve la matriz S, diagonal con los valores singulares.
+	 * 
+	 * @return Nueva matriz diagonal cuadrada de orden min(filas, columnas).
+	 */
+	public CvmMatrixDouble getS(){
+		CvmMatrixDouble s = new CvmMatrixDouble(this.rank, this.rank);
+
+		for(int i = 0; i < this.rank; i++)
+			s.data[i * this.rank + i] = this.values[i];
+
+		return s;
+		}
+
+	/**
+	 * Devuelve la matriz U, cuyas columnas son los vectores singulares por la izquierda. Las
+	 * columnas de los valores singulares nulos valen cero.
+	 * 
+	 * @return Nueva matriz de filas x min(filas, columnas).
+	 */
+	public CvmMatrixDouble getU(){
+		return this.transposed ? this.fromRows(this.v, this.rank, this.rank) : this.fromRows(this.u, this.rank, this.length);
+		}
+
+	/**
+	 * Devuelve la matriz V, cuyas columnas son los vectores singulares por la derecha.
+	 * 
+	 * @return Nueva matriz de columnas x min(filas, columnas).
+	 */
+	public CvmMatrixDouble getV(){
+		return this.transposed ? this.fromRows(this.u, this.rank, this.length) : this.fromRows(this.v, this.rank, this.rank);
+		}
+
+	/**
+	 * Crea una matriz cuyas columnas son las filas del array.
+	 */
+	private CvmMatrixDouble fromRows(double[] x, int count, int size){
+		CvmMatrixDouble m = new CvmMatrixDouble(size, count);
+
+		CvmMatrixDouble.transpose(x, m.data, count, size, 0, count, 0, size);
+
+		return m;
+		}
+
+	/**
+	 * Norma 2 de la matriz, que es su mayor valor singular.
+	 * 
+	 * @return Mayor valor singular, cero si la matriz está vacía.
+	 */
+	public double getNorm2(){
+		return (this.rank > 0) ? this.values[0] : 0;
+		}
+
+	/**
+	 * Número de condición de la matriz: cociente entre el mayor y el menor valor singular.
+	 * 
+	 * @return Número de condición, infinito si la matriz no tiene rango completo.
+	 */
+	public double getConditionNumber(){
+		if(this.rank == 0)
+			return 0;
+
+		return this.values[0] / this.values[this.rank - 1];
+		}
+
+	/**
+	 * Rango numérico de la matriz: número de valores singulares mayores que
+	 * max(filas, columnas) · s0 · 2^-52.
+	 * 
+	 * @return Rango de la matriz.
+	 */
+	public int getRank(){
+		if(this.rank == 0)
+			return 0;
+
+		double tolerance = Math.max(this.rows, this.cols) * this.values[0] * Math.ulp(1.0);
+		int r = 0;
+
+		for(int i = 0; i < this.rank; i++)
+			if(this.values[i] > tolerance)
+				r++;
+
+		return r;
+		}
+	}
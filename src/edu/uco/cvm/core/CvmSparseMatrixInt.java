@@ -0,0 +1,345 @@
+/*******************************************************************************
+ * CVM - Computer Vision Mobile.
+ * Copyright (C) 2010 CVM Luis Ciudad García
+ * 
+ * File: CvmSparseMatrixInt.java - This file is part of CVM.
+ * 
+ * CVM is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * CVM is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with CVM.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package edu.uco.cvm.core;
+
+import edu.uco.cvm.exceptions.CvmIncompatibleMatrixSizeException;
+import edu.uco.cvm.exceptions.CvmSingularMatrixException;
+
+/**
+ * <p>Esta clase representa una matriz dispersa de enteros en formato CSR (filas comprimidas).
+ * Solo se guardan los elementos distintos de cero: para cada uno su columna y su valor,
+ * ordenados por filas, y para cada fila la posición en la que empiezan sus elementos.</p>
+ * 
+ * <p>Es adecuada para mapas de bordes y canales umbralizados, en los que la mayoría de los
+ * pixels valen cero, ya que las operaciones recorren únicamente los elementos no nulos. Una
+ * vez creada la matriz su estructura no cambia.</p>
+ * 
+ * <p>Los elementos se pueden recorrer con forEachNonZero o directamente con getRowStart,
+ * getRowEnd, getColumnAt y getValueAt:</p>
+ * 
+ * <pre>
+ * for(int r = 0; r &lt; sparse.getRows(); r++)
+ *     for(int k = sparse.getRowStart(r); k &lt; sparse.getRowEnd(r); k++)
+ *         vote(r, sparse.getColumnAt(k), sparse.getValueAt(k));
+ * </pre>
+ * 
+ * @version 1.0
+ */
+public class CvmSparseMatrixInt extends CvmMatrix {
+
+	/**
+	 * Receptor de los elementos no nulos de una matriz dispersa.
+	 */
+	public interface Visitor {
+		/**
+		 * Se llama una vez por cada elemento no nulo, por filas y en orden creciente de columna.
+		 * 
+		 * @param row Fila del elemento.
+		 * @param col Columna del elemento.
+		 * @param value Valor del elemento.
+		 */
+		public void visit(int row, int col, int value);
+		}
+
+	/** Posición en colIndex y values del primer elemento de cada fila. Tiene rows + 1 elementos. */
+	protected final int[] rowStart;
+	/** Columna de cada elemento no nulo. */
+	protected final int[] colIndex;
+	/** Valor de cada elemento no nulo. */
+	protected final int[] values;
+
+	/**
+	 * Crea una matriz dispersa con los elementos distintos de cero de una matriz de enteros
+	 * o de un canal.
+	 * 
+	 * @param matrix Matriz original.
+	 */
+	public CvmSparseMatrixInt(CvmMatrixInt matrix){
+		super(matrix.rows, matrix.cols);
+
+		int nonZeros = 0;
+		for(int i = 0; i < matrix.data.length; i++)
+			if(matrix.data[i] != 0)
+				nonZeros++;
+
+		this.rowStart = new int[this.rows + 1];
+		this.colIndex = new int[nonZeros];
+		this.values = new int[nonZeros];
+
+		int k = 0;
+		for(int r = 0; r < this.rows; r++){
+			this.rowStart[r] = k;
+
+			for(int c = 0, i = r * this.cols; c < this.cols; c++, i++){
+				if(matrix.data[i] != 0){
+					this.colIndex[k] = c;
+					this.values[k] = matrix.data[i];
+					k++;
+					}
+				}
+			}
+		this.rowStart[this.rows] = k;
+		}
+
+	/**
+	 * Crea una matriz dispersa a partir de sus arrays en formato CSR, que pasan a ser
+	 * propiedad de la matriz.
+	 */
+	CvmSparseMatrixInt(int rows, int cols, int[] rowStart, int[] colIndex, int[] values){
+		super(rows, cols);
+
+		this.rowStart = rowStart;
+		this.colIndex = colIndex;
+		this.values = values;
+		}
+
+	/**
+	 * Número de elementos distintos de cero de la matriz.
+	 * 
+	 * @return Número de elementos guardados.
+	 */
+	public int getNonZeros(){
+		return this.values.length;
+		}
+
+	/**
+	 * Proporción de elementos distintos de cero respecto al total de la matriz.
+	 * 
+	 * @return Valor entre 0 y 1.
+	 */
+	public double getDensity(){
+		long size = (long)this.rows * this.cols;
+
+		return (size == 0) ? 0 : this.values.length / (double)size;
+		}
+
+	/**
+	 * Posición del primer elemento no nulo de una fila.
+	 * 
+	 * @param row Fila.
+	 * 
+	 * @return Índice para getColumnAt y getValueAt.
+	 */
+	public int getRowStart(int row){
+		return this.rowStart[row];
+		}
+
+	/**
+	 * Posición siguiente al último elemento no nulo de una fila.
+	 * 
+	 * @param row Fila.
+	 * 
+	 * @return Índice para getColumnAt y getValueAt.
+	 */
+	public int getRowEnd(int row){
+		return this.rowStart[row + 1];
+		}
+
+	/**
+	 * Columna del elemento no nulo que ocupa la posición indicada.
+	 * 
+	 * @param index Posición entre 0 y getNonZeros().
+	 * 
+	 * @return Columna del elemento.
+	 */
+	public int getColumnAt(int index){
+		return this.colIndex[index];
+		}
+
+	/**
+	 * Valor del elemento no nulo que ocupa la posición indicada.
+	 * 
+	 * @param index Posición entre 0 y getNonZeros().
+	 * 
+	 * @return Valor del elemento.
+	 */
+	public int getValueAt(int index){
+		return this.values[index];
+		}
+
+   /**
+    * Devuelve el valor del elemento de la matriz que indican los parámetros. La columna se
+    * busca por bisección entre los elementos de la fila.
+    * 
+    * @param row Fila del elemento al que se intenta acceder.
+    * @param col Columna del elemento al que se intenta acceder.
+    * 
+    * @return Valor del elemento apuntado por los parámetros, cero si no está guardado.
+    * 
+    * @exception ArrayIndexOutOfBoundsException Se produce si los parámetros de filas y columnas
+    * no están dentro de los límites de la matriz.
+    */
+    public int getElement(int row, int col) throws ArrayIndexOutOfBoundsException {
+    	if(row < 0 || row >= this.rows)
+    		throw new ArrayIndexOutOfBoundsException(row);
+    	if(col < 0 || col >= this.cols)
+    		throw new ArrayIndexOutOfBoundsException(col);
+
+    	int low = this.rowStart[row];
+    	int high = this.rowStart[row + 1] - 1;
+
+    	while(low <= high){
+    		int mid = (low + high) >>> 1;
+
+    		if(this.colIndex[mid] < col)
+    			low = mid + 1;
+    		else if(this.colIndex[mid] > col)
+    			high = mid - 1;
+    		else
+    			return this.values[mid];
+    		}
+
+    	return 0;
+        }
+
+   /**
+    * Recorre los elementos no nulos de la matriz por filas.
+    * 
+    * @param visitor Receptor al que se entrega cada elemento.
+    */
+    public void forEachNonZero(Visitor visitor){
+    	for(int r = 0; r < this.rows; r++)
+    		for(int k = this.rowStart[r]; k < this.rowStart[r + 1]; k++)
+    			visitor.visit(r, this.colIndex[k], this.values[k]);
+    	}
+
+   /**
+    * Multiplica la matriz dispersa por una matriz densa. Cada elemento no nulo suma su fila
+    * de la matriz densa, multiplicada por su valor, a la fila correspondiente del resultado,
+    * por lo que el coste es proporcional al número de elementos no nulos.
+    * 
+    * @param matrix Matriz densa que se multiplicará por la derecha.
+    * 
+    * @return Nueva matriz densa con el producto.
+    * 
+    * @exception CvmIncompatibleMatrixSizeException La matrices no pueden ser multiplicadas.
+    */
+    public CvmMatrixInt getMul(CvmMatrixInt matrix) throws CvmIncompatibleMatrixSizeException {
+    	if(this.cols != matrix.rows)
+    		throw new CvmIncompatibleMatrixSizeException(matrix.rows, matrix.cols);
+
+    	CvmMatrixInt result = new CvmMatrixInt(this.rows, matrix.cols);
+    	int m = matrix.cols;
+
+    	for(int r = 0; r < this.rows; r++){
+    		int rowC = r * m;
+
+    		for(int k = this.rowStart[r]; k < this.rowStart[r + 1]; k++){
+    			int value = this.values[k];
+    			int rowB = this.colIndex[k] * m;
+
+    			for(int j = 0; j < m; j++)
+    				result.data[rowC + j] += value * matrix.data[rowB + j];
+    			}
+    		}
+
+    	return result;
+    	}
+
+   /**
+    * Multiplica la matriz dispersa por una matriz densa de números reales.
+    * 
+    * @param matrix Matriz densa que se multiplicará por la derecha.
+    * 
+    * @return Nueva matriz densa con el producto.
+    * 
+    * @exception CvmIncompatibleMatrixSizeException La matrices no pueden ser multiplicadas.
+    */
+    public CvmMatrixDouble getMul(CvmMatrixDouble matrix) throws CvmIncompatibleMatrixSizeException {
+    	if(this.cols != matrix.rows)
+    		throw new CvmIncompatibleMatrixSizeException(matrix.rows, matrix.cols);
+
+    	CvmMatrixDouble result = new CvmMatrixDouble(this.rows, matrix.cols);
+    	int m = matrix.cols;
+
+    	for(int r = 0; r < this.rows; r++){
+    		int rowC = r * m;
+
+    		for(int k = this.rowStart[r]; k < this.rowStart[r + 1]; k++){
+    			int value = this.values[k];
+    			int rowB = this.colIndex[k] * m;
+
+    			for(int j = 0; j < m; j++)
+    				result.data[rowC + j] += value * matrix.data[rowB + j];
+    			}
+    		}
+
+    	return result;
+    	}
+
+   /**
+    * Intercambia filas y columnas. Se cuentan los elementos de cada columna y después se
+    * reparten, de modo que el coste es lineal en el número de elementos no nulos y las
+    * columnas de cada fila del resultado quedan ordenadas.
+    * 
+    * @return Nueva matriz dispersa traspuesta.
+    */
+    public CvmSparseMatrixInt getTranspose(){
+    	int[] start = new int[this.cols + 1];
+
+    	for(int k = 0; k < this.colIndex.length; k++)
+    		start[this.colIndex[k] + 1]++;
+    	for(int c = 0; c < this.cols; c++)
+    		start[c + 1] += start[c];
+
+    	int[] next = new int[this.cols];
+    	System.arraycopy(start, 0, next, 0, this.cols);
+
+    	int[] index = new int[this.values.length];
+    	int[] vals = new int[this.values.length];
+
+    	for(int r = 0; r < this.rows; r++){
+    		for(int k = this.rowStart[r]; k < this.rowStart[r + 1]; k++){
+    			int pos = next[this.colIndex[k]]++;
+    			index[pos] = r;
+    			vals[pos] = this.values[k];
+    			}
+    		}
+
+    	return new CvmSparseMatrixInt(this.cols, this.rows, start, index, vals);
+    	}
+
+   /**
+    * Crea una matriz densa con los valores de la matriz dispersa.
+    * 
+    * @return Nueva matriz densa.
+    */
+    public CvmMatrixInt toMatrixInt(){
+    	CvmMatrixInt copy = new CvmMatrixInt(this.rows, this.cols);
+
+    	for(int r = 0; r < this.rows; r++)
+    		for(int k = this.rowStart[r]; k < this.rowStart[r + 1]; k++)
+    			copy.data[r * this.cols + this.colIndex[k]] = this.values[k];
+
+    	return copy;
+    	}
+
+   /**
+    * Calcula la inversa de la matriz convirtiéndola previamente en densa.
+    * 
+    * @return Nueva matriz con la inversa.
+    * 
+    * @exception CvmSingularMatrixException La matriz es singular y no tiene inversa.
+    * @exception CvmIncompatibleMatrixSizeException La matriz no es cuadrada.
+    */
+    public CvmMatrixDouble getInverse() throws CvmSingularMatrixException, CvmIncompatibleMatrixSizeException {
+    	return this.toMatrixInt().getInverse();
+    	}
+	}
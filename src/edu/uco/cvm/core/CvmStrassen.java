@@ -0,0 +1,218 @@
+/*******************************************************************************
+ * CVM - Computer Vision Mobile.
+ * Copyright (C) 2010 CVM Luis Ciudad García
+ * 
+ * File: CvmStrassen.java - This file is part of CVM.
+ * 
+ * CVM is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * CVM is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with CVM.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package edu.uco.cvm.core;
+
+/**
+ * <p>Producto de matrices de números reales mediante la variante de Winograd del algoritmo de
+ * Strassen. Cada nivel de la recursión divide las matrices en cuadrantes y calcula el producto
+ * con 7 multiplicaciones y 15 sumas de cuadrantes en lugar de 8 multiplicaciones, lo que
+ * reduce el coste a O(n^2.81).</p>
+ * 
+ * <p>La recursión se detiene cuando alguna dimensión no supera el tamaño de corte, y entonces se
+ * usa el producto por bloques de CvmMatrixDouble. Si alguna dimensión es impar, la última fila
+ * o columna se separa y se calcula aparte con el producto clásico.</p>
+ * 
+ * <p>Cada nivel solo necesita tres matrices auxiliares, una del tamaño de un cuadrante de cada
+ * operando y otra del tamaño de un cuadrante del resultado. El resto de los productos
+ * intermedios se guardan en los propios cuadrantes del resultado.</p>
+ * 
+ * <p>Las matrices se describen con el array de datos, la posición del primer elemento y la
+ * distancia entre filas, de modo que los cuadrantes se recorren sin copiarlos.</p>
+ * 
+ * @version 1.0
+ */
+final class CvmStrassen {
+
+	private CvmStrassen(){
+		}
+
+	/**
+	 * Calcula c = a * b, donde a tiene m x k elementos, b tiene k x n y c tiene m x n.
+	 * 
+	 * @param crossover Tamaño a partir del cual se deja de dividir.
+	 */
+	static void mul(double[] a, int ao, int as, double[] b, int bo, int bs, double[] c, int co, int cs,
+			int m, int k, int n, int crossover){
+		if(m <= crossover || k <= crossover || n <= crossover){
+			CvmStrassen.mulClassic(a, ao, as, b, bo, bs, c, co, cs, m, k, n);
+			return;
+			}
+
+		int me = m & ~1, ke = k & ~1, ne = n & ~1;
+
+		CvmStrassen.mulEven(a, ao, as, b, bo, bs, c, co, cs, me, ke, ne, crossover);
+
+		/** Columna interna sobrante: c[0..me, 0..ne] += a[0..me, k-1] * b[k-1, 0..ne] */
+		if(ke != k){
+			for(int i = 0; i < me; i++){
+				double aik = a[ao + i * as + k - 1];
+				int rowB = bo + (k - 1) * bs;
+				int rowC = co + i * cs;
+
+				for(int j = 0; j < ne; j++)
+					c[rowC + j] += aik * b[rowB + j];
+				}
+			}
+
+		/** Última columna del resultado, para todas las filas */
+		if(ne != n){
+			for(int i = 0; i < m; i++){
+				double sum = 0;
+				int rowA = ao + i * as;
+
+				for(int p = 0; p < k; p++)
+					sum += a[rowA + p] * b[bo + p * bs + n - 1];
+
+				c[co + i * cs + n - 1] = sum;
+				}
+			}
+
+		/** Última fila del resultado, salvo la última columna */
+		if(me != m){
+			int rowA = ao + (m - 1) * as;
+			int rowC = co + (m - 1) * cs;
+
+			for(int j = 0; j < ne; j++)
+				c[rowC + j] = 0;
+
+			for(int p = 0; p < k; p++){
+				double ap = a[rowA + p];
+				int rowB = bo + p * bs;
+
+				for(int j = 0; j < ne; j++)
+					c[rowC + j] += ap * b[rowB + j];
+				}
+			}
+		}
+
+	/**
+	 * Un nivel de Strassen-Winograd para dimensiones pares. Con S y T las sumas de cuadrantes
+	 * de a y b, y M1..M7 los siete productos, el orden de las operaciones permite calcular el
+	 * resultado usando solo las auxiliares x, y, z:
+	 * 
+	 * <pre>
+	 * x = A11 - A21, y = B22 - B12, C21 = x y        (M7)
+	 * x = A21 + A22, y = B12 - B11, C22 = x y        (M5)
+	 * x = x - A11,   y = B22 - y,   C12 = x y        (M6)
+	 * x = A12 - x,                  C11 = x B22      (M3)
+	 * z = A11 B11                                     (M1)
+	 * C12 = z + C12, C21 = C12 + C21, C12 = C12 + C22, C22 = C21 + C22, C12 = C12 + C11
+	 * y = y - B21,                  C11 = A22 y      (M4)
+	 * C21 = C21 - C11
+	 * C11 = A12 B21 + z                               (M2 + M1)
+	 * </pre>
+	 */
+	private static void mulEven(double[] a, int ao, int as, double[] b, int bo, int bs, double[] c, int co, int cs,
+			int m, int k, int n, int crossover){
+		int m2 = m / 2, k2 = k / 2, n2 = n / 2;
+
+		int a11 = ao, a12 = ao + k2, a21 = ao + m2 * as, a22 = a21 + k2;
+		int b11 = bo, b12 = bo + n2, b21 = bo + k2 * bs, b22 = b21 + n2;
+		int c11 = co, c12 = co + n2, c21 = co + m2 * cs, c22 = c21 + n2;
+
+		double[] x = new double[m2 * k2];
+		double[] y = new double[k2 * n2];
+		double[] z = new double[m2 * n2];
+
+		CvmStrassen.sub(a, a11, as, a, a21, as, x, 0, k2, m2, k2);
+		CvmStrassen.sub(b, b22, bs, b, b12, bs, y, 0, n2, k2, n2);
+		CvmStrassen.mul(x, 0, k2, y, 0, n2, c, c21, cs, m2, k2, n2, crossover);
+
+		CvmStrassen.add(a, a21, as, a, a22, as, x, 0, k2, m2, k2);
+		CvmStrassen.sub(b, b12, bs, b, b11, bs, y, 0, n2, k2, n2);
+		CvmStrassen.mul(x, 0, k2, y, 0, n2, c, c22, cs, m2, k2, n2, crossover);
+
+		CvmStrassen.sub(x, 0, k2, a, a11, as, x, 0, k2, m2, k2);
+		CvmStrassen.sub(b, b22, bs, y, 0, n2, y, 0, n2, k2, n2);
+		CvmStrassen.mul(x, 0, k2, y, 0, n2, c, c12, cs, m2, k2, n2, crossover);
+
+		CvmStrassen.sub(a, a12, as, x, 0, k2, x, 0, k2, m2, k2);
+		CvmStrassen.mul(x, 0, k2, b, b22, bs, c, c11, cs, m2, k2, n2, crossover);
+
+		CvmStrassen.mul(a, a11, as, b, b11, bs, z, 0, n2, m2, k2, n2, crossover);
+
+		CvmStrassen.add(z, 0, n2, c, c12, cs, c, c12, cs, m2, n2);
+		CvmStrassen.add(c, c12, cs, c, c21, cs, c, c21, cs, m2, n2);
+		CvmStrassen.add(c, c12, cs, c, c22, cs, c, c12, cs, m2, n2);
+		CvmStrassen.add(c, c21, cs, c, c22, cs, c, c22, cs, m2, n2);
+		CvmStrassen.add(c, c12, cs, c, c11, cs, c, c12, cs, m2, n2);
+
+		CvmStrassen.sub(y, 0, n2, b, b21, bs, y, 0, n2, k2, n2);
+		CvmStrassen.mul(a, a22, as, y, 0, n2, c, c11, cs, m2, k2, n2, crossover);
+		CvmStrassen.sub(c, c21, cs, c, c11, cs, c, c21, cs, m2, n2);
+
+		CvmStrassen.mul(a, a12, as, b, b21, bs, c, c11, cs, m2, k2, n2, crossover);
+		CvmStrassen.add(z, 0, n2, c, c11, cs, c, c11, cs, m2, n2);
+		}
+
+	/**
+	 * Producto clásico por bloques. Si los operandos no son contiguos se copian antes a arrays
+	 * auxiliares, lo que solo supone un coste cuadrático frente al cúbico del producto.
+	 */
+	private static void mulClassic(double[] a, int ao, int as, double[] b, int bo, int bs, double[] c, int co, int cs,
+			int m, int k, int n){
+		double[] ca = CvmStrassen.compact(a, ao, as, m, k);
+		double[] cb = CvmStrassen.compact(b, bo, bs, k, n);
+		double[] cc = new double[m * n];
+
+		CvmMatrixDouble.mul(ca, cb, cc, m, k, n);
+
+		for(int i = 0; i < m; i++)
+			System.arraycopy(cc, i * n, c, co + i * cs, n);
+		}
+
+	/**
+	 * Devuelve los datos de la submatriz en un array contiguo, o el propio array si ya lo es.
+	 */
+	private static double[] compact(double[] x, int xo, int xs, int rows, int cols){
+		if(xo == 0 && xs == cols && x.length == rows * cols)
+			return x;
+
+		double[] copy = new double[rows * cols];
+		for(int i = 0; i < rows; i++)
+			System.arraycopy(x, xo + i * xs, copy, i * cols, cols);
+
+		return copy;
+		}
+
+	/**
+	 * z = x + y para submatrices de rows x cols.
+	 */
+	private static void add(double[] x, int xo, int xs, double[] y, int yo, int ys, double[] z, int zo, int zs, int rows, int cols){
+		for(int i = 0; i < rows; i++){
+			int px = xo + i * xs, py = yo + i * ys, pz = zo + i * zs;
+
+			for(int j = 0; j < cols; j++)
+				z[pz + j] = x[px + j] + y[py + j];
+			}
+		}
+
+	/**
+	 * z = x - y para submatrices de rows x cols.
+	 */
+	private static void sub(double[] x, int xo, int xs, double[] y, int yo, int ys, double[] z, int zo, int zs, int rows, int cols){
+		for(int i = 0; i < rows; i++){
+			int px = xo + i * xs, py = yo + i * ys, pz = zo + i * zs;
+
+			for(int j = 0; j < cols; j++)
+				z[pz + j] = x[px + j] - y[py + j];
+			}
+		}
+	}
@@ -0,0 +1,425 @@
+/*******************************************************************************
+ * CVM - Computer Vision Mobile.
+ * Copyright (C) 2010 CVM Luis Ciudad García
+ * 
+ * File: CvmTransform2D.java - This file is part of CVM.
+ * 
+ * CVM is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * CVM is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with CVM.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package edu.uco.cvm.core;
+
+import edu.uco.cvm.exceptions.CvmIncompatibleMatrixSizeException;
+import edu.uco.cvm.exceptions.CvmSingularMatrixException;
+
+/**
+ * <p>Esta clase representa una transformación geométrica del plano en coordenadas homogéneas,
+ * es decir, una matriz de tamaño 3x3 que se aplica sobre puntos de la forma (fila, columna, 1).</p>
+ * 
+ * <p>A diferencia de CvmMatrixDouble, los nueve elementos se guardan en campos independientes y
+ * todas las operaciones (composición, inversa, traslación, rotación y escalado) se calculan de
+ * forma cerrada modificando el propio objeto, por lo que pueden encadenarse tantas
+ * transformaciones como se quiera sin crear ningún objeto nuevo.</p>
+ * 
+ * <p>Las operaciones translate, rotate, scale y preMul añaden la nueva transformación a
+ * continuación de las que ya contiene el objeto, es decir, la multiplican por la izquierda.</p>
+ * 
+ * @version 1.0
+ */
+public class CvmTransform2D {
+	/** Elementos de la matriz de transformación. El primer índice es la fila y el segundo la columna. */
+	protected double m00, m01, m02;
+	protected double m10, m11, m12;
+	protected double m20, m21, m22;
+
+	/** Bits fraccionarios de las coordenadas en coma fija con que los canales recorren sus pixels. */
+	static final int COORD_FRACTION_BITS = 32;
+	/** Valor 1 en el formato de las coordenadas en coma fija. */
+	static final long COORD_ONE = 1L << COORD_FRACTION_BITS;
+
+	/**
+	 * Crea la transformación identidad.
+	 */
+	public CvmTransform2D(){
+		this.setIdentity();
+		}
+
+	/**
+	 * Constructor de copia de la clase CvmTransform2D.
+	 * 
+	 * @param transform Transformación original que se copiará en la nueva.
+	 */
+	public CvmTransform2D(CvmTransform2D transform){
+		this.set(transform);
+		}
+
+	/**
+	 * Crea una transformación a partir de una matriz de tamaño 3x3.
+	 * 
+	 * @param matrix Matriz con los elementos de la transformación.
+	 * 
+	 * @exception CvmIncompatibleMatrixSizeException La matriz no es de tamaño 3x3.
+	 */
+	public CvmTransform2D(CvmMatrixDouble matrix) throws CvmIncompatibleMatrixSizeException {
+		if(matrix.rows != 3 || matrix.cols != 3)
+			throw new CvmIncompatibleMatrixSizeException(matrix.rows, matrix.cols);
+
+		double[] d = matrix.data;
+		this.set(d[0], d[1], d[2], d[3], d[4], d[5], d[6], d[7], d[8]);
+		}
+
+	/**
+	 * Convierte la transformación en la identidad.
+	 * 
+	 * @return El propio objeto, para poder encadenar operaciones.
+	 */
+	public CvmTransform2D setIdentity(){
+		return this.set(1, 0, 0, 0, 1, 0, 0, 0, 1);
+		}
+
+	/**
+	 * Copia los elementos de otra transformación.
+	 * 
+	 * @param transform Transformación cuyos elementos se copian.
+	 * 
+	 * @return El propio objeto, para poder encadenar operaciones.
+	 */
+	public CvmTransform2D set(CvmTransform2D transform){
+		return this.set(transform.m00, transform.m01, transform.m02,
+				transform.m10, transform.m11, transform.m12,
+				transform.m20, transform.m21, transform.m22);
+		}
+
+	/**
+	 * Asigna los nueve elementos de la transformación, ordenados por filas.
+	 * 
+	 * @return El propio objeto, para poder encadenar operaciones.
+	 */
+	public CvmTransform2D set(double m00, double m01, double m02,
+			double m10, double m11, double m12,
+			double m20, double m21, double m22){
+		this.m00 = m00; this.m01 = m01; this.m02 = m02;
+		this.m10 = m10; this.m11 = m11; this.m12 = m12;
+		this.m20 = m20; this.m21 = m21; this.m22 = m22;
+
+		return this;
+		}
+
+	/**
+	 * Devuelve el valor del elemento de la transformación que indican los parámetros.
+	 * 
+	 * @param row Fila del elemento (0 a 2).
+	 * @param col Columna del elemento (0 a 2).
+	 * 
+	 * @return Valor del elemento apuntado por los parámetros.
+	 * 
+	 * @exception ArrayIndexOutOfBoundsException Se produce si los parámetros de filas y columnas
+	 * no están dentro de los límites de la matriz.
+	 */
+	public double getElement(int row, int col) throws ArrayIndexOutOfBoundsException {
+		if(row < 0 || row >= 3)
+			throw new ArrayIndexOutOfBoundsException(row);
+		if(col < 0 || col >= 3)
+			throw new ArrayIndexOutOfBoundsException(col);
+
+		switch(row * 3 + col){
+		case 0: return this.m00;
+		case 1: return this.m01;
+		case 2: return this.m02;
+		case 3: return this.m10;
+		case 4: return this.m11;
+		case 5: return this.m12;
+		case 6: return this.m20;
+		case 7: return this.m21;
+		default: return this.m22;
+			}
+		}
+
+	/**
+	 * Añade una traslación a continuación de la transformación actual.
+	 * 
+	 * @param tx Desplazamiento en el eje de las filas.
+	 * @param ty Desplazamiento en el eje de las columnas.
+	 * 
+	 * @return El propio objeto, para poder encadenar operaciones.
+	 */
+	public CvmTransform2D translate(double tx, double ty){
+		this.m00 += tx * this.m20; this.m01 += tx * this.m21; this.m02 += tx * this.m22;
+		this.m10 += ty * this.m20; this.m11 += ty * this.m21; this.m12 += ty * this.m22;
+
+		return this;
+		}
+
+	/**
+	 * Añade una rotación con respecto al origen de coordenadas a continuación de la
+	 * transformación actual.
+	 * 
+	 * @param angle Grados en el sentido de las agujas del reloj.
+	 * 
+	 * @return El propio objeto, para poder encadenar operaciones.
+	 */
+	public CvmTransform2D rotate(double angle){
+		double rad = Math.toRadians(angle);
+		double cos = Math.cos(rad);
+		double sin = Math.sin(rad);
+
+		double r00 = cos * this.m00 - sin * this.m10;
+		double r01 = cos * this.m01 - sin * this.m11;
+		double r02 = cos * this.m02 - sin * this.m12;
+
+		this.m10 = sin * this.m00 + cos * this.m10;
+		this.m11 = sin * this.m01 + cos * this.m11;
+		this.m12 = sin * this.m02 + cos * this.m12;
+		this.m00 = r00; this.m01 = r01; this.m02 = r02;
+
+		return this;
+		}
+
+	/**
+	 * Añade un escalado a continuación de la transformación actual.
+	 * 
+	 * @param sx Factor de escala en el eje de las filas.
+	 * @param sy Factor de escala en el eje de las columnas.
+	 * 
+	 * @return El propio objeto, para poder encadenar operaciones.
+	 */
+	public CvmTransform2D scale(double sx, double sy){
+		this.m00 *= sx; this.m01 *= sx; this.m02 *= sx;
+		this.m10 *= sy; this.m11 *= sy; this.m12 *= sy;
+
+		return this;
+		}
+
+	/**
+	 * Añade una transformación cualquiera a continuación de la actual, es decir, sustituye
+	 * esta transformación por transform · this.
+	 * 
+	 * @param transform Transformación que se aplica después de la actual.
+	 * 
+	 * @return El propio objeto, para poder encadenar operaciones.
+	 */
+	public CvmTransform2D preMul(CvmTransform2D transform){
+		CvmTransform2D a = transform;
+
+		return this.set(
+				a.m00 * this.m00 + a.m01 * this.m10 + a.m02 * this.m20,
+				a.m00 * this.m01 + a.m01 * this.m11 + a.m02 * this.m21,
+				a.m00 * this.m02 + a.m01 * this.m12 + a.m02 * this.m22,
+				a.m10 * this.m00 + a.m11 * this.m10 + a.m12 * this.m20,
+				a.m10 * this.m01 + a.m11 * this.m11 + a.m12 * this.m21,
+				a.m10 * this.m02 + a.m11 * this.m12 + a.m12 * this.m22,
+				a.m20 * this.m00 + a.m21 * this.m10 + a.m22 * this.m20,
+				a.m20 * this.m01 + a.m21 * this.m11 + a.m22 * this.m21,
+				a.m20 * this.m02 + a.m21 * this.m12 + a.m22 * this.m22);
+		}
+
+	/**
+	 * Añade una transformación cualquiera antes de la actual, es decir, sustituye esta
+	 * transformación por this · transform.
+	 * 
+	 * @param transform Transformación que se aplica antes de la actual.
+	 * 
+	 * @return El propio objeto, para poder encadenar operaciones.
+	 */
+	public CvmTransform2D mul(CvmTransform2D transform){
+		CvmTransform2D b = transform;
+
+		return this.set(
+				this.m00 * b.m00 + this.m01 * b.m10 + this.m02 * b.m20,
+				this.m00 * b.m01 + this.m01 * b.m11 + this.m02 * b.m21,
+				this.m00 * b.m02 + this.m01 * b.m12 + this.m02 * b.m22,
+				this.m10 * b.m00 + this.m11 * b.m10 + this.m12 * b.m20,
+				this.m10 * b.m01 + this.m11 * b.m11 + this.m12 * b.m21,
+				this.m10 * b.m02 + this.m11 * b.m12 + this.m12 * b.m22,
+				this.m20 * b.m00 + this.m21 * b.m10 + this.m22 * b.m20,
+				this.m20 * b.m01 + this.m21 * b.m11 + this.m22 * b.m21,
+				this.m20 * b.m02 + this.m21 * b.m12 + this.m22 * b.m22);
+		}
+
+	/**
+	 * Calcula el determinante de la transformación.
+	 * 
+	 * @return El determinante de la matriz de transformación.
+	 */
+	public double getDeterminant(){
+		return this.m00 * (this.m11 * this.m22 - this.m12 * this.m21)
+			 - this.m01 * (this.m10 * this.m22 - this.m12 * this.m20)
+			 + this.m02 * (this.m10 * this.m21 - this.m11 * this.m20);
+		}
+
+	/**
+	 * Sustituye la transformación por su inversa, calculada de forma cerrada como la matriz
+	 * de adjuntos traspuesta dividida por el determinante.
+	 * 
+	 * @return El propio objeto, para poder encadenar operaciones.
+	 * 
+	 * @exception CvmSingularMatrixException La transformación no es invertible.
+	 */
+	public CvmTransform2D invert() throws CvmSingularMatrixException {
+		double c00 = this.m11 * this.m22 - this.m12 * this.m21;
+		double c01 = this.m12 * this.m20 - this.m10 * this.m22;
+		double c02 = this.m10 * this.m21 - this.m11 * this.m20;
+
+		double det = this.m00 * c00 + this.m01 * c01 + this.m02 * c02;
+
+		if(det == 0)
+			throw new CvmSingularMatrixException();
+
+		double inv = 1 / det;
+
+		return this.set(
+				c00 * inv,
+				(this.m02 * this.m21 - this.m01 * this.m22) * inv,
+				(this.m01 * this.m12 - this.m02 * this.m11) * inv,
+				c01 * inv,
+				(this.m00 * this.m22 - this.m02 * this.m20) * inv,
+				(this.m02 * this.m10 - this.m00 * this.m12) * inv,
+				c02 * inv,
+				(this.m01 * this.m20 - this.m00 * this.m21) * inv,
+				(this.m00 * this.m11 - this.m01 * this.m10) * inv);
+		}
+
+	/**
+	 * Calcula la inversa de la transformación y la devuelve en un nuevo objeto.
+	 * 
+	 * @return Nueva transformación inversa de la original.
+	 * 
+	 * @exception CvmSingularMatrixException La transformación no es invertible.
+	 */
+	public CvmTransform2D getInverse() throws CvmSingularMatrixException {
+		return new CvmTransform2D(this).invert();
+		}
+
+	/**
+	 * <p>Aplica la transformación a un conjunto de puntos guardados en arrays paralelos: el
+	 * punto i es (xs[offset + i], ys[offset + i]), donde x es la primera coordenada (la fila)
+	 * e y la segunda, como en el resto de la clase.</p>
+	 * 
+	 * <p>Si la última fila de la matriz es (0, 0, 1) la transformación es afín y se calcula sin
+	 * divisiones; en caso contrario cada punto se divide por su coordenada homogénea. No se crea
+	 * ningún objeto, y los arrays de salida pueden ser los mismos que los de entrada.</p>
+	 * 
+	 * @param xs Primera coordenada de los puntos.
+	 * @param ys Segunda coordenada de los puntos.
+	 * @param outXs Array en el que se guarda la primera coordenada transformada.
+	 * @param outYs Array en el que se guarda la segunda coordenada transformada.
+	 * @param offset Posición del primer punto en los arrays.
+	 * @param count Número de puntos.
+	 * 
+	 * @exception ArrayIndexOutOfBoundsException Algún array no contiene todos los puntos.
+	 */
+	public void transformPoints(double[] xs, double[] ys, double[] outXs, double[] outYs, int offset, int count) throws ArrayIndexOutOfBoundsException {
+		int end = offset + count;
+		if(offset < 0 || count < 0 || end > xs.length || end > ys.length || end > outXs.length || end > outYs.length)
+			throw new ArrayIndexOutOfBoundsException(end);
+
+		double a00 = this.m00, a01 = this.m01, a02 = this.m02;
+		double a10 = this.m10, a11 = this.m11, a12 = this.m12;
+
+		if(this.m20 == 0 && this.m21 == 0 && this.m22 == 1){
+			for(int i = offset; i < end; i++){
+				double x = xs[i], y = ys[i];
+
+				outXs[i] = a00 * x + a01 * y + a02;
+				outYs[i] = a10 * x + a11 * y + a12;
+				}
+			}
+		else{
+			double a20 = this.m20, a21 = this.m21, a22 = this.m22;
+
+			for(int i = offset; i < end; i++){
+				double x = xs[i], y = ys[i];
+				double w = 1 / (a20 * x + a21 * y + a22);
+
+				outXs[i] = (a00 * x + a01 * y + a02) * w;
+				outYs[i] = (a10 * x + a11 * y + a12) * w;
+				}
+			}
+		}
+
+	/**
+	 * Versión en precisión simple de transformPoints. Los elementos de la transformación se
+	 * convierten a float una sola vez antes de recorrer los puntos.
+	 * 
+	 * @param xs Primera coordenada de los puntos.
+	 * @param ys Segunda coordenada de los puntos.
+	 * @param outXs Array en el que se guarda la primera coordenada transformada.
+	 * @param outYs Array en el que se guarda la segunda coordenada transformada.
+	 * @param offset Posición del primer punto en los arrays.
+	 * @param count Número de puntos.
+	 * 
+	 * @exception ArrayIndexOutOfBoundsException Algún array no contiene todos los puntos.
+	 */
+	public void transformPoints(float[] xs, float[] ys, float[] outXs, float[] outYs, int offset, int count) throws ArrayIndexOutOfBoundsException {
+		int end = offset + count;
+		if(offset < 0 || count < 0 || end > xs.length || end > ys.length || end > outXs.length || end > outYs.length)
+			throw new ArrayIndexOutOfBoundsException(end);
+
+		float a00 = (float)this.m00, a01 = (float)this.m01, a02 = (float)this.m02;
+		float a10 = (float)this.m10, a11 = (float)this.m11, a12 = (float)this.m12;
+
+		if(this.m20 == 0 && this.m21 == 0 && this.m22 == 1){
+			for(int i = offset; i < end; i++){
+				float x = xs[i], y = ys[i];
+
+				outXs[i] = a00 * x + a01 * y + a02;
+				outYs[i] = a10 * x + a11 * y + a12;
+				}
+			}
+		else{
+			float a20 = (float)this.m20, a21 = (float)this.m21, a22 = (float)this.m22;
+
+			for(int i = offset; i < end; i++){
+				float x = xs[i], y = ys[i];
+				float w = 1 / (a20 * x + a21 * y + a22);
+
+				outXs[i] = (a00 * x + a01 * y + a02) * w;
+				outYs[i] = (a10 * x + a11 * y + a12) * w;
+				}
+			}
+		}
+
+	/**
+	 * Convierte una coordenada real a coma fija con COORD_FRACTION_BITS bits fraccionarios,
+	 * redondeando al valor más cercano.
+	 */
+	static long toFixedCoord(double value){
+		return Math.round(value * COORD_ONE);
+		}
+
+	/**
+	 * Devuelve la transformación en forma de matriz.
+	 * 
+	 * @return Nueva matriz de tamaño 3x3 con los elementos de la transformación.
+	 */
+	public CvmMatrixDouble toMatrix(){
+		double[] values = {
+				this.m00, this.m01, this.m02,
+				this.m10, this.m11, this.m12,
+				this.m20, this.m21, this.m22 };
+
+		return new CvmMatrixDouble(3, 3, values);
+		}
+
+	/**
+	 * Representa mediante una cadena de texto los distintos valores de la transformación.
+	 * 
+	 * @return Cadena de texto con los elementos organizados por filas y columnas.
+	 */
+	@Override
+	public String toString(){
+		return this.m00 + " " + this.m01 + " " + this.m02 + " \n" +
+			   this.m10 + " " + this.m11 + " " + this.m12 + " \n" +
+			   this.m20 + " " + this.m21 + " " + this.m22 + " \n";
+		}
+	}
@@ -1,6 +1,6 @@
 /*******************************************************************************
  * CVM - Computer Vision Mobile.
- * Copyright (C) 2010 CVM Luis Ciudad Garca
+ * Copyright (C) 2010 CVM Luis Ciudad García
  * 
  * File: CvmChannelTest.java - This file is part of CVM.
  * 
@@ -20,6 +20,7 @@
 package edu.uco.cvm.test;
 
 import java.util.Hashtable;
+import java.util.Random;
 
 import org.me.applications.R;
 
@@ -31,6 +32,8 @@ import android.util.Log;
 import android.widget.ImageView;
 import edu.uco.cvm.core.CvmChannel;
 import edu.uco.cvm.core.CvmHistogram;
+import edu.uco.cvm.core.CvmMaskFactory;
+import edu.uco.cvm.core.CvmMatrixDouble;
 
 public class CvmChannelTest extends Activity {
 	
@@ -39,6 +42,8 @@ public class CvmChannelTest extends Activity {
 	private ImageView green;
 	private ImageView blue;
 	
+	private boolean ok = false;
+	
 	@Override
     public void onCreate(Bundle icicle) {
 		
@@ -63,6 +68,162 @@ public class CvmChannelTest extends Activity {
         green.setImageBitmap(c1.toBitmap());     
         CvmHistogram vHist = c1.getValuesHistogram();
         blue.setImageBitmap(vHist.getImage(0, 255, 256, 300).toBitmap(false));
+        
+        ok = this.maskTest();
+		}
+	
+	/**
+	 * Compara applyMask con una convolucion de referencia calculada en doble precision y
+	 * truncada hacia cero, con todos los modos de borde y canales grandes y diminutos. Con
+	 * mascaras enteras el resultado debe ser exacto, y con el resto solo puede diferir en una
+	 * unidad por el redondeo de la mascara a coma fija.
+	 */
+	private boolean maskTest(){
+		Random random = new Random(22);
+		
+		try{
+			double[][] irregular = {{0.1,-0.3,0.2},{0.7,0.05,-0.6},{0.33,0.21,-0.45}};
+			double[][] irregular5 = new double[5][5];
+			for(int a = 0; a < 5; a++)
+				for(int b = 0; b < 5; b++)
+					irregular5[a][b] = random.nextDouble() - 0.5;
+			
+			/** Las gaussianas se aplican en dos pasadas y la mascara irregular de 5x5 directamente */
+			CvmMatrixDouble[] masks = {
+					CvmMaskFactory.getVSobelMask(),
+					CvmMaskFactory.getHSobelMask(),
+					CvmMaskFactory.getHighBoostMask(3, 1),
+					new CvmMatrixDouble(3, 3, irregular),
+					CvmMaskFactory.getGaussianMask(5, 1.0),
+					CvmMaskFactory.getGaussianMask(7, 1.5),
+					new CvmMatrixDouble(5, 5, irregular5)};
+			int[] tolerance = {0, 0, 0, 1, 1, 1, 1};
+			
+			/** Nucleos asimetricos para comprobar la orientacion de cada pasada */
+			double[] rowKernel = {-0.2, 0.1, 0.6, 0.3, 0.2};
+			double[] colKernel = {0.05, 0.25, 0.4, 0.2, 0.1};
+			CvmMatrixDouble product = new CvmMatrixDouble(5, 5);
+			for(int a = 0; a < 5; a++)
+				for(int b = 0; b < 5; b++)
+					product.setElement(a, b, rowKernel[a] * colKernel[b]);
+			
+			/** Modo de borde y valor de los pixels de fuera con BORDER_CONSTANT */
+			int[][] borders = {
+					{CvmChannel.BORDER_CONSTANT, 0},
+					{CvmChannel.BORDER_CONSTANT, 77},
+					{CvmChannel.BORDER_REPLICATE, 0},
+					{CvmChannel.BORDER_REFLECT, 0},
+					{CvmChannel.BORDER_REFLECT_101, 0},
+					{CvmChannel.BORDER_WRAP, 0}};
+			int[][] sizes = {{29, 31}, {1, 1}, {2, 3}};
+			
+			for(int s = 0; s < sizes.length; s++){
+				int rows = sizes[s][0], cols = sizes[s][1];
+				int[] pixels = new int[rows * cols];
+				for(int i = 0; i < pixels.length; i++)
+					pixels[i] = random.nextInt(256);
+				
+				for(int t = 0; t < borders.length; t++){
+					int border = borders[t][0], value = borders[t][1];
+					String name = rows + "x" + cols + " border " + border + " value " + value;
+					
+					for(int m = 0; m < masks.length; m++){
+						CvmChannel channel = new CvmChannel(cols, rows, pixels, CvmChannel.GRAY);
+						channel.applyMask(masks[m], border, value);
+						
+						int[] reference = this.referenceConvolution(pixels, rows, cols, masks[m], border, value);
+						if(!this.sameAsReference(channel, reference, tolerance[m])){
+							Log.i("TEST_CHANNEL", "applyMask error! mask " + m + " " + name);
+							return false;
+							}
+						}
+					
+					CvmChannel channel = new CvmChannel(cols, rows, pixels, CvmChannel.GRAY);
+					channel.applySeparableMask(rowKernel, colKernel, border, value);
+					
+					int[] reference = this.referenceConvolution(pixels, rows, cols, product, border, value);
+					if(!this.sameAsReference(channel, reference, 1)){
+						Log.i("TEST_CHANNEL", "applySeparableMask error! " + name);
+						return false;
+						}
+					}
+				}
+			}
+		catch(Exception e){
+			Log.i("TEST_CHANNEL", e.toString());
+			return false;
+			}
+		
+		return true;
+		}
+	
+	private boolean sameAsReference(CvmChannel channel, int[] reference, int tolerance){
+		int cols = channel.getCols();
+		
+		for(int i = 0; i < reference.length; i++)
+			if(Math.abs(channel.getElement(i / cols, i % cols) - reference[i]) > tolerance)
+				return false;
+		
+		return true;
+		}
+	
+	/**
+	 * Convolucion directa con la misma orientacion de la mascara que CvmChannel.getCenterSquare.
+	 * Los pixels de fuera del canal se obtienen segun el modo de borde, y con BORDER_CONSTANT
+	 * valen value.
+	 */
+	private int[] referenceConvolution(int[] pixels, int rows, int cols, CvmMatrixDouble mask, int border, int value){
+		int size = mask.getRows();
+		int offset = (size % 2 == 0) ? (size / 2) - 1 : (size / 2);
+		int[] out = new int[pixels.length];
+		
+		for(int r = 0; r < rows; r++){
+			for(int c = 0; c < cols; c++){
+				double sum = 0;
+				for(int a = 0; a < size; a++){
+					for(int b = 0; b < size; b++){
+						int row = this.borderPosition(r - offset + b, rows, border);
+						int col = this.borderPosition(c - offset + a, cols, border);
+						if(row < 0 || col < 0)
+							sum += mask.getElement(a, b) * value;
+						else
+							sum += mask.getElement(a, b) * pixels[row * cols + col];
+						}
+					}
+				out[r * cols + c] = (int)sum;
+				}
+			}
+		
+		return out;
+		}
+	
+	/**
+	 * Lleva la posicion p al intervalo [0, length) reflejandola o desplazandola paso a paso
+	 * segun el modo de borde. Con BORDER_CONSTANT devuelve -1 si p cae fuera.
+	 */
+	private int borderPosition(int p, int length, int border){
+		while(p < 0 || p >= length){
+			switch(border){
+				case CvmChannel.BORDER_CONSTANT:
+					return -1;
+				case CvmChannel.BORDER_REPLICATE:
+					p = (p < 0) ? 0 : length - 1;
+					break;
+				case CvmChannel.BORDER_REFLECT:
+					p = (p < 0) ? -1 - p : 2 * length - 1 - p;
+					break;
+				case CvmChannel.BORDER_REFLECT_101:
+					if(length == 1)
+						return 0;
+					p = (p < 0) ? -p : 2 * length - 2 - p;
+					break;
+				default:
+					p = (p < 0) ? p + length : p - length;
+					break;
+				}
+			}
+		
+		return p;
 		}
 	
 	}
@@ -1,6 +1,6 @@
 /*******************************************************************************
  * CVM - Computer Vision Mobile.
- * Copyright (C) 2010 CVM Luis Ciudad Garca
+ * Copyright (C) 2010 CVM Luis Ciudad García
  * 
  * File: CvmMatrixTest.java - This file is part of CVM.
  * 
@@ -19,12 +19,33 @@
  ******************************************************************************/
 package edu.uco.cvm.test;
 
+import java.io.File;
+import java.math.BigInteger;
+import java.nio.ReadOnlyBufferException;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.Random;
+
 import org.me.applications.R;
 import android.app.Activity;
 import android.os.Bundle;
 import android.util.Log;
+import edu.uco.cvm.core.CvmBufferPool;
+import edu.uco.cvm.core.CvmChannel;
+import edu.uco.cvm.core.CvmDirectMatrixInt;
+import edu.uco.cvm.core.CvmEigenDecomposition;
+import edu.uco.cvm.core.CvmExpressionDouble;
+import edu.uco.cvm.core.CvmExpressionInt;
+import edu.uco.cvm.core.CvmImage;
+import edu.uco.cvm.core.CvmMaskFactory;
 import edu.uco.cvm.core.CvmMatrixDouble;
+import edu.uco.cvm.core.CvmMatrixIO;
 import edu.uco.cvm.core.CvmMatrixInt;
+import edu.uco.cvm.core.CvmMatrixIntView;
+import edu.uco.cvm.core.CvmMatrixShort;
+import edu.uco.cvm.core.CvmQRDecomposition;
+import edu.uco.cvm.core.CvmSingularValueDecomposition;
+import edu.uco.cvm.core.CvmSparseMatrixInt;
 
 public class CvmMatrixTest extends Activity {
 	
@@ -47,6 +68,15 @@ public class CvmMatrixTest extends Activity {
         ok = this.dataManagementTest();
         ok = this.arithmeticTest();
         ok = this.matrixOperationsTest();
+        ok = this.bufferPoolTest();
+        ok = this.matrixIOTest();
+        ok = this.strassenTest();
+        ok = this.viewTest();
+        ok = this.sparseMatrixTest();
+        ok = this.expressionTest();
+        ok = this.eigenTest();
+        ok = this.svdTest();
+        ok = this.qrDecompositionTest();
 		}
 	
 	private boolean constructorTest(){
@@ -336,6 +366,13 @@ public class CvmMatrixTest extends Activity {
         	return false;
         	}
 		
+		matrix = new CvmMatrixInt(3,3,aux);
+		matrix.transpose();
+		if(!matrix.equals(control)){
+        	Log.i("TEST_MATRIX", "transpose error!");
+        	return false;
+        	}
+		
 		int[][] auxDet = {{1,2,4},{4,5,6},{7,8,9}};
 		matrix = new CvmMatrixInt(3,3,auxDet);
 		double detD = matrix.getDeterminant(CvmMatrixInt.DOOLITTLE_METHOD);
@@ -359,6 +396,84 @@ public class CvmMatrixTest extends Activity {
         	return false;
         	}
 		
+		/** Determinante e inversa mediante la descomposicion LU */
+		int[][] auxLU = {{2,0,1,3},{1,1,0,2},{0,3,1,1},{4,1,2,0}};
+		matrix = new CvmMatrixInt(4,4,auxLU);
+
+		if(Math.round(matrix.getDeterminant(CvmMatrixInt.DOOLITTLE_METHOD)) != -32 ||
+				Math.round(matrix.getDeterminant(CvmMatrixInt.ADJUNCT_METHOD)) != -32){
+        	Log.i("TEST_MATRIX", "getDeterminant error!");
+        	return false;
+        	}
+
+		/** Determinante exacto mediante el algoritmo de Bareiss */
+		if(Math.round(matrix.getDeterminant(CvmMatrixInt.BAREISS_METHOD)) != -32 ||
+				!matrix.getExactDeterminant().equals(BigInteger.valueOf(-32))){
+        	Log.i("TEST_MATRIX", "getExactDeterminant error!");
+        	return false;
+        	}
+
+		/** Orden 3 cuyos productos desbordan un int: 50000^3 + 1 */
+		int[][] auxBig = {{50000,1,0},{0,50000,1},{1,0,50000}};
+		copy = new CvmMatrixInt(3,3,auxBig);
+		if(copy.getDeterminant(CvmMatrixInt.BAREISS_METHOD) != 125000000000001.0 ||
+				!copy.getExactDeterminant().equals(BigInteger.valueOf(125000000000001L))){
+        	Log.i("TEST_MATRIX", "getDeterminant BAREISS_METHOD overflow error!");
+        	return false;
+        	}
+
+		short[] auxBigS = {30000,1,0, 0,30000,1, 1,0,30000};
+		if(new CvmMatrixShort(3,3,auxBigS).getDeterminant(CvmMatrixShort.BAREISS_METHOD) != 27000000000001.0){
+        	Log.i("TEST_MATRIX", "CvmMatrixShort getDeterminant BAREISS_METHOD error!");
+        	return false;
+        	}
+
+		/** Valores intermedios que obligan a continuar con BigInteger, comparados con el desarrollo por adjuntos */
+		Random random = new Random(15);
+		copy = new CvmMatrixInt(5,5);
+		for(int i = 0; i < 5; i++)
+			for(int j = 0; j < 5; j++)
+				copy.setElement(i, j, random.nextInt(2000001) - 1000000);
+		if(!copy.getExactDeterminant().equals(this.laplaceDeterminant(copy, 5, new int[] {0,1,2,3,4}))){
+        	Log.i("TEST_MATRIX", "getExactDeterminant BigInteger error!");
+        	return false;
+        	}
+
+		/** Matriz singular: la ultima fila es la suma de las dos primeras */
+		int[][] auxSing = {{2,0,1,3},{1,1,0,2},{0,3,1,1},{3,1,1,5}};
+		copy = new CvmMatrixInt(4,4,auxSing);
+		if(copy.getDeterminant(CvmMatrixInt.BAREISS_METHOD) != 0 || copy.getExactDeterminant().signum() != 0){
+        	Log.i("TEST_MATRIX", "getExactDeterminant singular error!");
+        	return false;
+        	}
+
+		/** Las matrices reales no admiten BAREISS_METHOD */
+		try{
+			matrix.toMatrixDouble().getDeterminant(CvmMatrixDouble.BAREISS_METHOD);
+        	Log.i("TEST_MATRIX", "CvmMatrixDouble getDeterminant method error!");
+        	return false;
+			}
+		catch(IllegalArgumentException e){
+			//Todo ok
+			}
+
+		controlD = new CvmMatrixDouble(4,4);
+		for(int i = 0; i < 4; i++)
+			for(int j = 0; j < 4; j++)
+				controlD.setElement(i, j, auxLU[i][j]);
+
+		controlD = controlD.getMul(matrix.getInverse());
+		for(int i = 0; i < 4; i++){
+			for(int j = 0; j < 4; j++){
+				if(Math.abs(controlD.getElement(i, j) - ((i == j) ? 1 : 0)) > 1e-9){
+		        	Log.i("TEST_MATRIX", "getInverse error!");
+		        	return false;
+		        	}
+				}
+			}
+
+		matrix = new CvmMatrixInt(3,3,auxDet);
+
 		int[][] auxAM = {{1,4},{7,9}};
 		copy = new CvmMatrixInt(2,2, auxAM);
 		control = matrix.getAdjunctMatrix(1, 1);
@@ -377,4 +492,634 @@ public class CvmMatrixTest extends Activity {
 		Log.i("TEST_MATRIX", control.getMul(copy).toString());
 		return true;
 		}
+	
+	private boolean bufferPoolTest(){
+		control = new CvmMatrixInt(2, 2, 7);
+		
+		/** Una copia marcada con keep sobrevive al ambito en el que se creo */
+		CvmMatrixInt kept;
+		CvmMatrixInt lost;
+		CvmBufferPool.Scope scope = CvmBufferPool.openScope();
+		try{
+			matrix = new CvmMatrixInt(2, 2, 7);
+			kept = CvmBufferPool.keep(new CvmMatrixInt(matrix));
+			lost = new CvmMatrixInt(matrix);
+			}
+		finally{
+			scope.close();
+			}
+		
+		/** Un segundo ambito reutiliza los arrays devueltos por el primero */
+		scope = CvmBufferPool.openScope();
+		try{
+			for(int i = 0; i < CvmBufferPool.MAX_PER_LENGTH; i++)
+				new CvmMatrixInt(2, 2, -1);
+			}
+		finally{
+			scope.close();
+			}
+		
+		if(!kept.equals(control)){
+        	Log.i("TEST_MATRIX", "CvmBufferPool.keep error!");
+        	return false;
+        	}
+		
+		/** La copia sin keep si se ha reutilizado, lo que confirma que la prueba es valida */
+		if(lost.equals(control)){
+        	Log.i("TEST_MATRIX", "CvmBufferPool scope reuse error!");
+        	return false;
+        	}
+		
+		/** Una imagen marcada con keep conserva los datos de sus canales */
+		CvmImage keptImage;
+		CvmImage lostImage;
+		CvmChannel gray = new CvmChannel(new CvmMatrixInt(3, 5, 7));
+		scope = CvmBufferPool.openScope();
+		try{
+			keptImage = CvmBufferPool.keep(new CvmImage(gray));
+			lostImage = new CvmImage(gray);
+			}
+		finally{
+			scope.close();
+			}
+		
+		scope = CvmBufferPool.openScope();
+		try{
+			for(int i = 0; i < CvmBufferPool.MAX_PER_LENGTH; i++)
+				new CvmMatrixInt(3, 5, -1);
+			}
+		finally{
+			scope.close();
+			}
+		
+		if(!keptImage.getChannel(0).equals(gray)){
+        	Log.i("TEST_MATRIX", "CvmBufferPool.keep image error!");
+        	return false;
+        	}
+		
+		if(lostImage.getChannel(0).equals(gray)){
+        	Log.i("TEST_MATRIX", "CvmBufferPool image reuse error!");
+        	return false;
+        	}
+		
+		return true;
+		}
+	
+	private boolean matrixIOTest(){
+		int[][] aux = {{1,2,3,4},{5,6,7,8},{9,10,11,12}};
+		control = new CvmMatrixInt(3, 4, aux);
+		
+		File file = new File(getCacheDir(), "cvmmatrixtest.cvm");
+		CvmDirectMatrixInt mapped = null;
+		try{
+			CvmMatrixIO.write(control, file);
+			
+			if(!CvmMatrixIO.readInt(file).equals(control)){
+	        	Log.i("TEST_MATRIX", "CvmMatrixIO write/readInt error!");
+	        	return false;
+	        	}
+			
+			/** Solo lectura: se leen los datos y no se permite modificarlos */
+			mapped = CvmMatrixIO.mapInt(file, FileChannel.MapMode.READ_ONLY);
+			if(!mapped.toMatrixInt().equals(control)){
+	        	Log.i("TEST_MATRIX", "CvmMatrixIO mapInt READ_ONLY error!");
+	        	return false;
+	        	}
+			try{
+				mapped.setElement(0, 0, 100);
+	        	Log.i("TEST_MATRIX", "CvmMatrixIO mapInt READ_ONLY error!");
+	        	return false;
+				}
+			catch(ReadOnlyBufferException e){
+				//Todo ok
+				}
+			mapped.close();
+			
+			/** Copia privada: los cambios se ven en la matriz pero no llegan al fichero */
+			mapped = CvmMatrixIO.mapInt(file, FileChannel.MapMode.PRIVATE);
+			mapped.setElement(0, 0, 100);
+			if(mapped.getElement(0, 0) != 100 || !CvmMatrixIO.readInt(file).equals(control)){
+	        	Log.i("TEST_MATRIX", "CvmMatrixIO mapInt PRIVATE error!");
+	        	return false;
+	        	}
+			mapped.close();
+			
+			/** Lectura y escritura: los cambios se guardan en el fichero */
+			mapped = CvmMatrixIO.mapInt(file, FileChannel.MapMode.READ_WRITE);
+			mapped.setElement(2, 3, 100);
+			mapped.close();
+			
+			copy = CvmMatrixIO.readInt(file);
+			control.setElement(2, 3, 100);
+			if(!copy.equals(control)){
+	        	Log.i("TEST_MATRIX", "CvmMatrixIO mapInt READ_WRITE error!");
+	        	return false;
+	        	}
+			}
+		catch(Exception e){
+        	//Capturamos cualquier tipo de excepcion (todas las subclases)
+        	Log.i("TEST_MATRIX", e.toString());
+        	return false;
+        	}
+		finally{
+			if(mapped != null)
+				mapped.close();
+			file.delete();
+			}
+		
+		return true;
+		}
+	
+	private boolean strassenTest(){
+		/** Dimensiones impares para forzar el relleno y una division hasta el corte minimo */
+		int[][] sizes = {{1,1,1},{3,5,7},{17,9,13},{33,31,29},{64,65,63}};
+		Random random = new Random(18);
+		int crossover = CvmMatrixDouble.getStrassenCrossover();
+		
+		try{
+			CvmMatrixDouble.setStrassenCrossover(2);
+			
+			for(int s = 0; s < sizes.length; s++){
+				CvmMatrixDouble a = new CvmMatrixDouble(sizes[s][0], sizes[s][1]);
+				CvmMatrixDouble b = new CvmMatrixDouble(sizes[s][1], sizes[s][2]);
+				for(int i = 0; i < a.getRows(); i++)
+					for(int j = 0; j < a.getCols(); j++)
+						a.setElement(i, j, random.nextDouble() * 2 - 1);
+				for(int i = 0; i < b.getRows(); i++)
+					for(int j = 0; j < b.getCols(); j++)
+						b.setElement(i, j, random.nextDouble() * 2 - 1);
+				
+				CvmMatrixDouble standard = a.getMul(b, CvmMatrixDouble.STANDARD_MUL_METHOD);
+				CvmMatrixDouble strassen = a.getMul(b, CvmMatrixDouble.STRASSEN_MUL_METHOD);
+				
+				for(int i = 0; i < standard.getRows(); i++){
+					for(int j = 0; j < standard.getCols(); j++){
+						if(Math.abs(standard.getElement(i, j) - strassen.getElement(i, j)) > 1e-9){
+				        	Log.i("TEST_MATRIX", "getMul STRASSEN_MUL_METHOD error!");
+				        	return false;
+				        	}
+						}
+					}
+				}
+			}
+		catch(Exception e){
+        	//Capturamos cualquier tipo de excepcion (todas las subclases)
+        	Log.i("TEST_MATRIX", e.toString());
+        	return false;
+        	}
+		finally{
+			CvmMatrixDouble.setStrassenCrossover(crossover);
+			}
+		
+		/** Un metodo desconocido no debe caer en el producto clasico */
+		try{
+			CvmMatrixDouble a = new CvmMatrixDouble(2, 2);
+			a.getMul(a, -1);
+        	Log.i("TEST_MATRIX", "getMul method error!");
+        	return false;
+			}
+		catch(IllegalArgumentException e){
+			//Todo ok
+			}
+		
+		return true;
+		}
+
+	
+	private boolean viewTest(){
+		Random random = new Random(8);
+		CvmMatrixInt base = this.randomMatrix(12, 10, random, 256);
+		
+		try{
+			double[][] irregular = {{0.1,-0.3,0.2},{0.7,0.05,-0.6},{0.33,0.21,-0.45}};
+			CvmMatrixDouble[] masks = {CvmMaskFactory.getHSobelMask(), new CvmMatrixDouble(3, 3, irregular)};
+			
+			for(int m = 0; m < masks.length; m++){
+				/** La vista lee los vecinos de la matriz original, igual que el canal completo */
+				CvmChannel full = new CvmChannel(base);
+				full.applyMask(masks[m]);
+				
+				matrix = new CvmMatrixInt(base);
+				matrix.getView(3, 2, 5, 6).applyMask(masks[m]);
+				
+				for(int r = 0; r < 12; r++){
+					for(int c = 0; c < 10; c++){
+						boolean inside = r >= 3 && r < 8 && c >= 2 && c < 8;
+						int expected = inside ? full.getElement(r, c) : base.getElement(r, c);
+						if(matrix.getElement(r, c) != expected){
+				        	Log.i("TEST_MATRIX", "CvmMatrixIntView applyMask error!");
+				        	return false;
+				        	}
+						}
+					}
+				}
+			
+			int[] methods = {CvmChannel.THRES_BINARY, CvmChannel.THRES_TRUNC, CvmChannel.THRES_OTSU};
+			for(int m = 0; m < methods.length; m++){
+				matrix = new CvmMatrixInt(base);
+				CvmMatrixIntView view = matrix.getView(3, 2, 5, 6);
+				CvmChannel roi = new CvmChannel(view.toMatrixInt());
+				
+				view.applyThreshold(100, 255, methods[m]);
+				roi.applyThreshold(100, 255, methods[m]);
+				
+				if(!view.toMatrixInt().equals(roi)){
+		        	Log.i("TEST_MATRIX", "CvmMatrixIntView applyThreshold error!");
+		        	return false;
+		        	}
+				}
+			
+			/** Vistas vacias, incluida una sobre una matriz sin columnas */
+			new CvmMatrixInt(4, 0).getView(0, 0, 4, 0).applyMask(masks[0]);
+			new CvmMatrixInt(4, 4).getView(1, 1, 0, 2).applyMask(masks[0]);
+			}
+		catch(Exception e){
+        	//Capturamos cualquier tipo de excepcion (todas las subclases)
+        	Log.i("TEST_MATRIX", e.toString());
+        	return false;
+        	}
+		
+		return true;
+		}
+	
+	private CvmMatrixInt randomMatrix(int rows, int cols, Random random, int bound){
+		CvmMatrixInt result = new CvmMatrixInt(rows, cols);
+		
+		for(int i = 0; i < rows; i++)
+			for(int j = 0; j < cols; j++)
+				result.setElement(i, j, random.nextInt(bound));
+		
+		return result;
+		}
+
+	
+	private boolean sparseMatrixTest(){
+		Random random = new Random(12);
+		
+		/** Matriz con un 20% de elementos no nulos, de ambos signos, y una fila vacia */
+		CvmMatrixInt dense = new CvmMatrixInt(7, 9);
+		for(int i = 0; i < 7; i++)
+			for(int j = 0; j < 9; j++)
+				if(i != 4 && random.nextInt(5) == 0)
+					dense.setElement(i, j, random.nextInt(41) - 20);
+		
+		try{
+			CvmSparseMatrixInt sparse = new CvmSparseMatrixInt(dense);
+			
+			int nonZeros = 0;
+			for(int i = 0; i < 7; i++){
+				for(int j = 0; j < 9; j++){
+					if(dense.getElement(i, j) != 0)
+						nonZeros++;
+					if(sparse.getElement(i, j) != dense.getElement(i, j)){
+			        	Log.i("TEST_MATRIX", "CvmSparseMatrixInt getElement error!");
+			        	return false;
+			        	}
+					}
+				}
+			
+			if(sparse.getNonZeros() != nonZeros || !sparse.toMatrixInt().equals(dense)){
+	        	Log.i("TEST_MATRIX", "CvmSparseMatrixInt toMatrixInt error!");
+	        	return false;
+	        	}
+			
+			if(!sparse.getTranspose().toMatrixInt().equals(dense.getTranspose())){
+	        	Log.i("TEST_MATRIX", "CvmSparseMatrixInt getTranspose error!");
+	        	return false;
+	        	}
+			
+			CvmMatrixInt right = this.randomMatrix(9, 5, random, 100);
+			if(!sparse.getMul(right).equals(dense.getMul(right))){
+	        	Log.i("TEST_MATRIX", "CvmSparseMatrixInt getMul error!");
+	        	return false;
+	        	}
+			
+			CvmMatrixDouble rightD = right.toMatrixDouble();
+			rightD.mul(0.25);
+			CvmMatrixDouble resultD = sparse.getMul(rightD);
+			CvmMatrixDouble controlD = dense.toMatrixDouble().getMul(rightD);
+			for(int i = 0; i < 7; i++){
+				for(int j = 0; j < 5; j++){
+					if(Math.abs(resultD.getElement(i, j) - controlD.getElement(i, j)) > 1e-9){
+			        	Log.i("TEST_MATRIX", "CvmSparseMatrixInt getMul double error!");
+			        	return false;
+			        	}
+					}
+				}
+			
+			/** Una matriz sin elementos no nulos */
+			sparse = new CvmSparseMatrixInt(new CvmMatrixInt(3, 4));
+			if(sparse.getNonZeros() != 0 || !sparse.getMul(new CvmMatrixInt(4, 2, 7)).equals(new CvmMatrixInt(3, 2))){
+	        	Log.i("TEST_MATRIX", "CvmSparseMatrixInt empty error!");
+	        	return false;
+	        	}
+			}
+		catch(Exception e){
+        	//Capturamos cualquier tipo de excepcion (todas las subclases)
+        	Log.i("TEST_MATRIX", e.toString());
+        	return false;
+        	}
+		
+		return true;
+		}
+
+	
+	private boolean expressionTest(){
+		Random random = new Random(13);
+		
+		/** 23 x 29 = 667 elementos: dos bloques completos y uno parcial */
+		int rows = 23, cols = 29;
+		CvmMatrixInt a = this.randomMatrix(rows, cols, random, 1000);
+		CvmMatrixInt b = this.randomMatrix(rows, cols, random, 1000);
+		CvmMatrixInt c = this.randomMatrix(rows, cols, random, 1000);
+		
+		try{
+			CvmMatrixInt expected = a.getAdd(b).getMul(2).getSub(c);
+			if(!CvmExpressionInt.of(a).add(b).mul(2).sub(c).evaluate().equals(expected)){
+	        	Log.i("TEST_MATRIX", "CvmExpressionInt evaluate error!");
+	        	return false;
+	        	}
+			
+			/** Expresiones anidadas: a - |3b - c| */
+			CvmExpressionInt nested = CvmExpressionInt.of(a).sub(CvmExpressionInt.of(b).mul(3).sub(c).abs());
+			control = new CvmMatrixInt(rows, cols);
+			for(int i = 0; i < rows; i++)
+				for(int j = 0; j < cols; j++)
+					control.setElement(i, j, a.getElement(i, j) - Math.abs(3 * b.getElement(i, j) - c.getElement(i, j)));
+			if(!nested.evaluate().equals(control)){
+	        	Log.i("TEST_MATRIX", "CvmExpressionInt nested error!");
+	        	return false;
+	        	}
+			
+			/** Evaluar sobre uno de los operandos */
+			copy = new CvmMatrixInt(a);
+			CvmExpressionInt.of(copy).add(b).mul(2).sub(c).evaluate(copy);
+			if(!copy.equals(expected)){
+	        	Log.i("TEST_MATRIX", "CvmExpressionInt evaluate into operand error!");
+	        	return false;
+	        	}
+			
+			CvmMatrixDouble ad = a.toMatrixDouble();
+			CvmMatrixDouble bd = b.toMatrixDouble();
+			CvmMatrixDouble cd = c.toMatrixDouble();
+			ad.mul(0.5);
+			
+			CvmMatrixDouble expectedD = ad.getAdd(bd).getMul(2).getSub(cd);
+			if(!CvmExpressionDouble.of(ad).add(bd).mul(2).sub(cd).evaluate().equals(expectedD)){
+	        	Log.i("TEST_MATRIX", "CvmExpressionDouble evaluate error!");
+	        	return false;
+	        	}
+			
+			CvmExpressionDouble nestedD = CvmExpressionDouble.of(ad).sub(CvmExpressionDouble.of(bd).mul(3).sub(cd).abs());
+			CvmMatrixDouble controlD = new CvmMatrixDouble(rows, cols);
+			for(int i = 0; i < rows; i++)
+				for(int j = 0; j < cols; j++)
+					controlD.setElement(i, j, ad.getElement(i, j) - Math.abs(3 * bd.getElement(i, j) - cd.getElement(i, j)));
+			if(!nestedD.evaluate().equals(controlD)){
+	        	Log.i("TEST_MATRIX", "CvmExpressionDouble nested error!");
+	        	return false;
+	        	}
+			
+			CvmMatrixDouble copyD = new CvmMatrixDouble(ad);
+			CvmExpressionDouble.of(copyD).add(bd).mul(2).sub(cd).evaluate(copyD);
+			if(!copyD.equals(expectedD)){
+	        	Log.i("TEST_MATRIX", "CvmExpressionDouble evaluate into operand error!");
+	        	return false;
+	        	}
+			}
+		catch(Exception e){
+        	//Capturamos cualquier tipo de excepcion (todas las subclases)
+        	Log.i("TEST_MATRIX", e.toString());
+        	return false;
+        	}
+		
+		return true;
+		}
+
+	
+	/**
+	 * Determinante exacto por desarrollo de la primera fila disponible, sobre las columnas
+	 * indicadas. Sirve de referencia para matrices pequeñas.
+	 */
+	private BigInteger laplaceDeterminant(CvmMatrixInt m, int n, int[] columns){
+		int row = m.getRows() - n;
+		if(n == 1)
+			return BigInteger.valueOf(m.getElement(row, columns[0]));
+		
+		BigInteger det = BigInteger.ZERO;
+		for(int k = 0; k < n; k++){
+			int[] minor = new int[n - 1];
+			for(int j = 0, t = 0; j < n; j++)
+				if(j != k)
+					minor[t++] = columns[j];
+			
+			BigInteger term = BigInteger.valueOf(m.getElement(row, columns[k])).multiply(this.laplaceDeterminant(m, n - 1, minor));
+			det = (k % 2 == 0) ? det.add(term) : det.subtract(term);
+			}
+		
+		return det;
+		}
+
+	
+	private boolean eigenTest(){
+		Random random = new Random(20);
+		
+		try{
+			/** Orden 2 (forma cerrada), orden 3 (formulas trigonometricas) y orden 6 (Jacobi) */
+			int[] orders = {2, 3, 6};
+			for(int t = 0; t < orders.length; t++){
+				CvmMatrixDouble a = this.randomMatrixDouble(orders[t], orders[t], random);
+				a = a.getAdd(a.getTranspose());
+				if(!this.checkEigen(a)){
+		        	Log.i("TEST_MATRIX", "CvmEigenDecomposition order " + orders[t] + " error!");
+		        	return false;
+		        	}
+				}
+			
+			/** Valores propios 5, 2, 2: el caso de 3x3 recurre a Jacobi */
+			double[][] repeated = {{3,1,1},{1,3,1},{1,1,3}};
+			CvmMatrixDouble a = new CvmMatrixDouble(3, 3, repeated);
+			double[] values = new CvmEigenDecomposition(a).getEigenvalues();
+			if(!this.checkEigen(a) || Math.abs(values[0] - 5) > 1e-9 || Math.abs(values[1] - 2) > 1e-9 || Math.abs(values[2] - 2) > 1e-9){
+	        	Log.i("TEST_MATRIX", "CvmEigenDecomposition repeated eigenvalues error!");
+	        	return false;
+	        	}
+			}
+		catch(Exception e){
+        	//Capturamos cualquier tipo de excepcion (todas las subclases)
+        	Log.i("TEST_MATRIX", e.toString());
+        	return false;
+        	}
+		
+		return true;
+		}
+	
+	/**
+	 * Comprueba que A·V = V·D, que V es ortogonal y que los valores propios estan ordenados.
+	 */
+	private boolean checkEigen(CvmMatrixDouble a){
+		CvmEigenDecomposition eigen = new CvmEigenDecomposition(a);
+		CvmMatrixDouble v = eigen.getV();
+		CvmMatrixDouble d = eigen.getD();
+		double[] values = eigen.getEigenvalues();
+		
+		for(int i = 1; i < values.length; i++)
+			if(values[i] > values[i - 1])
+				return false;
+		
+		return this.maxDifference(a.getMul(v), v.getMul(d)) < 1e-9 &&
+				this.maxDifference(v.getTranspose().getMul(v), CvmMatrixDouble.getIdentity(a.getRows())) < 1e-9;
+		}
+	
+	private boolean svdTest(){
+		Random random = new Random(20);
+		
+		try{
+			/** Mas filas que columnas, mas columnas que filas y cuadrada */
+			int[][] sizes = {{5,3},{3,5},{4,4}};
+			for(int t = 0; t < sizes.length; t++){
+				CvmMatrixDouble a = this.randomMatrixDouble(sizes[t][0], sizes[t][1], random);
+				CvmSingularValueDecomposition svd = new CvmSingularValueDecomposition(a);
+				CvmMatrixDouble u = svd.getU();
+				int k = Math.min(sizes[t][0], sizes[t][1]);
+				
+				if(!this.checkSvd(a, svd) || svd.getRank() != k ||
+						this.maxDifference(u.getTranspose().getMul(u), CvmMatrixDouble.getIdentity(k)) > 1e-9){
+		        	Log.i("TEST_MATRIX", "CvmSingularValueDecomposition " + sizes[t][0] + "x" + sizes[t][1] + " error!");
+		        	return false;
+		        	}
+				}
+			
+			/** Rango 2: producto de una matriz de 4x2 por otra de 2x4 */
+			CvmMatrixDouble a = this.randomMatrixDouble(4, 2, random).getMul(this.randomMatrixDouble(2, 4, random));
+			CvmSingularValueDecomposition svd = new CvmSingularValueDecomposition(a);
+			if(!this.checkSvd(a, svd) || svd.getRank() != 2){
+	        	Log.i("TEST_MATRIX", "CvmSingularValueDecomposition rank deficient error!");
+	        	return false;
+	        	}
+			}
+		catch(Exception e){
+        	//Capturamos cualquier tipo de excepcion (todas las subclases)
+        	Log.i("TEST_MATRIX", e.toString());
+        	return false;
+        	}
+		
+		return true;
+		}
+	
+	/**
+	 * Comprueba que U·S·Vt = A y que V es ortogonal.
+	 */
+	private boolean checkSvd(CvmMatrixDouble a, CvmSingularValueDecomposition svd){
+		CvmMatrixDouble v = svd.getV();
+		CvmMatrixDouble usv = svd.getU().getMul(svd.getS()).getMul(v.getTranspose());
+		
+		return this.maxDifference(usv, a) < 1e-9 &&
+				this.maxDifference(v.getTranspose().getMul(v), CvmMatrixDouble.getIdentity(v.getCols())) < 1e-9;
+		}
+	
+	private CvmMatrixDouble randomMatrixDouble(int rows, int cols, Random random){
+		CvmMatrixDouble result = new CvmMatrixDouble(rows, cols);
+		
+		for(int i = 0; i < rows; i++)
+			for(int j = 0; j < cols; j++)
+				result.setElement(i, j, random.nextDouble() * 2 - 1);
+		
+		return result;
+		}
+	
+	private double maxDifference(CvmMatrixDouble a, CvmMatrixDouble b){
+		if(a.getRows() != b.getRows() || a.getCols() != b.getCols())
+			return Double.POSITIVE_INFINITY;
+		
+		double max = 0;
+		for(int i = 0; i < a.getRows(); i++)
+			for(int j = 0; j < a.getCols(); j++)
+				max = Math.max(max, Math.abs(a.getElement(i, j) - b.getElement(i, j)));
+		
+		return max;
+		}
+
+	
+	private boolean qrDecompositionTest(){
+		Random random = new Random(21);
+		
+		try{
+			CvmMatrixDouble a = this.randomMatrixDouble(8, 5, random);
+			CvmQRDecomposition qr = new CvmQRDecomposition(a);
+			if(qr.getRank() != 5 || !qr.isFullRank() || !this.checkQR(a, qr, random)){
+	        	Log.i("TEST_MATRIX", "CvmQRDecomposition full rank error!");
+	        	return false;
+	        	}
+			
+			/** Rango 3: la ultima columna es la suma de las dos primeras */
+			CvmMatrixDouble deficient = this.randomMatrixDouble(6, 4, random);
+			for(int i = 0; i < 6; i++)
+				deficient.setElement(i, 3, deficient.getElement(i, 0) + deficient.getElement(i, 1));
+			CvmQRDecomposition deficientQR = new CvmQRDecomposition(deficient);
+			if(deficientQR.getRank() != 3 || deficientQR.isFullRank() || !this.checkQR(deficient, deficientQR, random)){
+	        	Log.i("TEST_MATRIX", "CvmQRDecomposition rank deficient error!");
+	        	return false;
+	        	}
+			
+			/** Una matriz mas pequeña reutiliza los arrays de la anterior y da el mismo resultado que un objeto nuevo */
+			CvmMatrixDouble small = this.randomMatrixDouble(4, 3, random);
+			double[] b = {1, -2, 3, 0.5};
+			double[] reused = new double[3], fresh = new double[3];
+			qr.decompose(small);
+			CvmQRDecomposition freshQR = new CvmQRDecomposition(small);
+			double reusedResidual = qr.leastSquares(b, reused);
+			double freshResidual = freshQR.leastSquares(b, fresh);
+			if(qr.getRows() != 4 || qr.getCols() != 3 || !this.checkQR(small, qr, random) ||
+					!qr.getQ().equals(freshQR.getQ()) || !qr.getR().equals(freshQR.getR()) ||
+					!Arrays.equals(qr.getPivot(), freshQR.getPivot()) || !Arrays.equals(reused, fresh) ||
+					reusedResidual != freshResidual){
+	        	Log.i("TEST_MATRIX", "CvmQRDecomposition decompose error!");
+	        	return false;
+	        	}
+			}
+		catch(Exception e){
+        	//Capturamos cualquier tipo de excepcion (todas las subclases)
+        	Log.i("TEST_MATRIX", e.toString());
+        	return false;
+        	}
+		
+		return true;
+		}
+	
+	/**
+	 * Comprueba que Q·R = A·P y que la solucion por minimos cuadrados cumple At·(A·x - b) = 0.
+	 */
+	private boolean checkQR(CvmMatrixDouble a, CvmQRDecomposition qr, Random random){
+		int m = a.getRows(), n = a.getCols();
+		int[] pivot = qr.getPivot();
+		
+		CvmMatrixDouble permuted = new CvmMatrixDouble(m, n);
+		for(int i = 0; i < m; i++)
+			for(int j = 0; j < n; j++)
+				permuted.setElement(i, j, a.getElement(i, pivot[j]));
+		if(this.maxDifference(qr.getQ().getMul(qr.getR()), permuted) > 1e-9)
+			return false;
+		
+		double[] b = new double[m], x = new double[n];
+		for(int i = 0; i < m; i++)
+			b[i] = random.nextDouble() * 2 - 1;
+		qr.leastSquares(b, x);
+		
+		double[] residual = new double[m];
+		for(int i = 0; i < m; i++){
+			residual[i] = -b[i];
+			for(int j = 0; j < n; j++)
+				residual[i] += a.getElement(i, j) * x[j];
+			}
+		for(int j = 0; j < n; j++){
+			double s = 0;
+			for(int i = 0; i < m; i++)
+				s += a.getElement(i, j) * residual[i];
+			if(Math.abs(s) > 1e-9)
+				return false;
+			}
+		
+		return true;
+		}
 	}